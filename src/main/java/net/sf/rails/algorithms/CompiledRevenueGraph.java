@@ -0,0 +1,217 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+
+import com.google.common.collect.Maps;
+
+/**
+ * CompiledRevenueGraph is the graph of the revenue calculation stored in primitive arrays.
+ *
+ * Vertices and edges are identified by their position in the (sorted) lists of the revenue adapter.
+ * The adjacency is stored in compressed sparse row (CSR) format:
+ * The neighbors of vertex v are found at the positions neighborStart[v] to neighborStart[v+1] - 1
+ * of neighborVertices (the neighbor ids) and neighborEdges (the ids of the connecting edges).
+ * Visit sets (per vertex) and travel sets (per edge) are stored in the same format.
+ *
+ * The graph is created in linear time (up to the sorting of the neighbors of each vertex)
+ * and is shared read-only by the revenue calculators and their parallel workers.
+ */
+final class CompiledRevenueGraph {
+
+    final int nbVertexes;
+    final int nbEdges;
+
+    // adjacency
+    final int[] neighborStart;
+    final int[] neighborVertices;
+    final int[] neighborEdges;
+
+    // visit sets: vertices that are blocked if the vertex is visited
+    final int[] visitStart;
+    final int[] visitVertices;
+
+    // travel sets: edges that are used if the edge is travelled
+    final int[] travelStart;
+    final int[] travelEdges;
+
+    private final Map<NetworkVertex, Integer> vertexIds;
+    private final Map<NetworkEdge, Integer> edgeIds;
+
+    private CompiledRevenueGraph(Graph<NetworkVertex, NetworkEdge> graph, List<NetworkVertex> vertices,
+            List<NetworkEdge> edges, boolean sortByEdges, Collection<RevenueAdapter.VertexVisit> visitSets,
+            Map<NetworkEdge, RevenueAdapter.EdgeTravel> travelSets) {
+
+        nbVertexes = vertices.size();
+        nbEdges = edges.size();
+
+        vertexIds = Maps.newHashMapWithExpectedSize(nbVertexes);
+        for (int id=0; id < nbVertexes; id++) {
+            vertexIds.put(vertices.get(id), id);
+        }
+        edgeIds = Maps.newHashMapWithExpectedSize(nbEdges);
+        for (int id=0; id < nbEdges; id++) {
+            edgeIds.put(edges.get(id), id);
+        }
+
+        // adjacency: each edge connects two vertices
+        neighborStart = new int[nbVertexes + 1];
+        for (int id=0; id < nbVertexes; id++) {
+            neighborStart[id + 1] = neighborStart[id] + graph.edgesOf(vertices.get(id)).size();
+        }
+        neighborVertices = new int[neighborStart[nbVertexes]];
+        neighborEdges = new int[neighborStart[nbVertexes]];
+        long[] buffer = new long[maxLength(neighborStart)];
+        for (int id=0; id < nbVertexes; id++) {
+            NetworkVertex vertex = vertices.get(id);
+            int n = 0;
+            for (NetworkEdge edge:graph.edgesOf(vertex)) {
+                long neighborId = vertexIds.get(Graphs.getOppositeVertex(graph, edge, vertex));
+                long edgeId = edgeIds.get(edge);
+                // the sort key is stored in the upper half
+                if (sortByEdges) {
+                    buffer[n++] = edgeId << 32 | neighborId;
+                } else {
+                    buffer[n++] = neighborId << 32 | edgeId;
+                }
+            }
+            Arrays.sort(buffer, 0, n);
+            for (int j=0; j < n; j++) {
+                int pos = neighborStart[id] + j;
+                int upper = (int) (buffer[j] >>> 32), lower = (int) buffer[j];
+                neighborVertices[pos] = sortByEdges ? lower : upper;
+                neighborEdges[pos] = sortByEdges ? upper : lower;
+            }
+        }
+
+        // visit sets: each vertex of a set blocks all other vertices of the set
+        int[][] visitIds = new int[visitSets.size()][];
+        int s = 0;
+        visitStart = new int[nbVertexes + 1];
+        for (RevenueAdapter.VertexVisit visit:visitSets) {
+            visitIds[s] = getVertexIds(visit.set);
+            for (int vertexId:visitIds[s]) {
+                visitStart[vertexId + 1] += visitIds[s].length - 1;
+            }
+            s++;
+        }
+        accumulate(visitStart);
+        visitVertices = new int[visitStart[nbVertexes]];
+        int[] visitPos = Arrays.copyOf(visitStart, nbVertexes);
+        for (int[] visit:visitIds) {
+            for (int vertexId:visit) {
+                for (int otherId:visit) {
+                    if (otherId == vertexId) continue;
+                    visitVertices[visitPos[vertexId]++] = otherId;
+                }
+            }
+        }
+
+        // travel sets
+        travelStart = new int[nbEdges + 1];
+        int[][] travelIds = new int[nbEdges][];
+        for (Map.Entry<NetworkEdge, RevenueAdapter.EdgeTravel> travel:travelSets.entrySet()) {
+            int edgeId = getEdgeId(travel.getKey());
+            if (edgeId == -1) continue;
+            travelIds[edgeId] = getEdgeIds(travel.getValue().set);
+            travelStart[edgeId + 1] = travelIds[edgeId].length;
+        }
+        accumulate(travelStart);
+        travelEdges = new int[travelStart[nbEdges]];
+        for (int edgeId=0; edgeId < nbEdges; edgeId++) {
+            if (travelIds[edgeId] == null) continue;
+            System.arraycopy(travelIds[edgeId], 0, travelEdges, travelStart[edgeId], travelIds[edgeId].length);
+        }
+    }
+
+    /**
+     * @param graph the optimized graph of the revenue calculation
+     * @param vertices all vertices of the graph, the position defines the vertex id
+     * @param edges all edges of the graph, the position defines the edge id
+     * @param sortByEdges true => neighbors are sorted by edge id (multigraph), false => by vertex id
+     */
+    static CompiledRevenueGraph create(Graph<NetworkVertex, NetworkEdge> graph, List<NetworkVertex> vertices,
+            List<NetworkEdge> edges, boolean sortByEdges, Collection<RevenueAdapter.VertexVisit> visitSets,
+            Map<NetworkEdge, RevenueAdapter.EdgeTravel> travelSets) {
+        return new CompiledRevenueGraph(graph, vertices, edges, sortByEdges, visitSets, travelSets);
+    }
+
+    private static int maxLength(int[] start) {
+        int maxLength = 0;
+        for (int j=0; j < start.length - 1; j++) {
+            maxLength = Math.max(maxLength, start[j + 1] - start[j]);
+        }
+        return maxLength;
+    }
+
+    private static void accumulate(int[] start) {
+        for (int j=1; j < start.length; j++) {
+            start[j] += start[j - 1];
+        }
+    }
+
+    /**
+     * @return id of the vertex, -1 if the vertex is not part of the graph
+     */
+    int getVertexId(NetworkVertex vertex) {
+        Integer id = vertexIds.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return id of the edge, -1 if the edge is not part of the graph
+     */
+    int getEdgeId(NetworkEdge edge) {
+        Integer id = edgeIds.get(edge);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return ids of the vertices that are part of the graph
+     */
+    int[] getVertexIds(Collection<NetworkVertex> vertices) {
+        int[] ids = new int[vertices.size()];
+        int n = 0;
+        for (NetworkVertex vertex:vertices) {
+            int id = getVertexId(vertex);
+            if (id != -1) ids[n++] = id;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * @return ids of the edges that are part of the graph
+     */
+    int[] getEdgeIds(Collection<NetworkEdge> edges) {
+        int[] ids = new int[edges.size()];
+        int n = 0;
+        for (NetworkEdge edge:edges) {
+            int id = getEdgeId(edge);
+            if (id != -1) ids[n++] = id;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    int getMaxNeighbors() {
+        return maxLength(neighborStart);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("neighborStart:" + Arrays.toString(neighborStart) + "\n");
+        buffer.append("neighborVertices:" + Arrays.toString(neighborVertices) + "\n");
+        buffer.append("neighborEdges:" + Arrays.toString(neighborEdges) + "\n");
+        buffer.append("visitStart:" + Arrays.toString(visitStart) + "\n");
+        buffer.append("visitVertices:" + Arrays.toString(visitVertices) + "\n");
+        buffer.append("travelStart:" + Arrays.toString(travelStart) + "\n");
+        buffer.append("travelEdges:" + Arrays.toString(travelEdges) + "\n");
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,129 @@
+package net.sf.rails.algorithms;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import net.sf.rails.game.HexSide;
+import net.sf.rails.game.MapHex;
+import net.sf.rails.game.MapManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.state.Change;
+import net.sf.rails.game.state.Observable;
+import net.sf.rails.game.state.Observer;
+import net.sf.rails.game.state.Triggerable;
+
+/**
+ * MapGraphCache maintains the map graph (track structure) of a game.
+ *
+ * It observes the track states of all hexes (tile, rotation and stops):
+ * - as trigger it is informed about changes during the execution of actions
+ * - as observer it is informed about undo and redo
+ * Only the vertices and edges of changed hexes are rebuilt on the next request.
+ *
+ * The cached graph is never handed out, each request receives a copy,
+ * as map graph modifiers and route graphs change the vertices and edges.
+ * Requests for a company receive only the parts of the map graph that are
+ * connected to its base tokens.
+ */
+public final class MapGraphCache implements Triggerable {
+
+    private static final Logger log = LoggerFactory.getLogger(MapGraphCache.class);
+
+    private final MapManager mapManager;
+
+    // for each hex the neighbours (and their head sides) that connect to that hex
+    private final Multimap<MapHex, Map.Entry<MapHex, HexSide>> neighbours;
+
+    // hexes that have changed since the last update
+    private final Set<MapHex> changedHexes = Sets.newHashSet();
+
+    private NetworkGraph trackGraph;
+
+    private MapGraphCache(MapManager mapManager) {
+        this.mapManager = mapManager;
+        this.neighbours = NetworkGraph.createNeighbourConnections(mapManager);
+    }
+
+    /**
+     * Creates the cache and registers it at the track states of all hexes
+     * This has to be called at the configuration of the map (as triggers are registered as state)
+     */
+    public static MapGraphCache create(MapManager mapManager) {
+        MapGraphCache cache = new MapGraphCache(mapManager);
+        for (MapHex hex : mapManager.getHexes()) {
+            for (Observable state : hex.getTrackStates()) {
+                state.addTrigger(cache);
+                state.addObserver(cache.new HexObserver(hex, state));
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return a copy of the current map graph (without map graph modifiers)
+     */
+    public synchronized NetworkGraph getMapGraph() {
+        updateTrackGraph();
+        return trackGraph.copyGraph();
+    }
+
+    /**
+     * @return a copy of the parts of the current map graph (without map graph modifiers)
+     * that are connected to the base tokens of the company
+     */
+    public synchronized NetworkGraph getMapGraph(PublicCompany company) {
+        updateTrackGraph();
+        return trackGraph.copyConnectedGraph(trackGraph.getCompanyBaseTokenVertexes(company));
+    }
+
+    private void updateTrackGraph() {
+        if (trackGraph == null) {
+            trackGraph = NetworkGraph.createTrackGraph(mapManager);
+            changedHexes.clear();
+            log.debug("Created map graph");
+        } else if (!changedHexes.isEmpty()) {
+            trackGraph.updateMapGraph(mapManager, changedHexes, neighbours);
+            log.debug("Updated map graph for hexes " + changedHexes);
+            changedHexes.clear();
+        }
+    }
+
+    private synchronized void hexChanged(MapHex hex) {
+        // no update required before the graph is created
+        if (trackGraph == null) return;
+        changedHexes.add(hex);
+    }
+
+    // Triggerable interface
+    public void triggered(Observable observable, Change change) {
+        if (observable.getParent() instanceof MapHex) {
+            hexChanged((MapHex) observable.getParent());
+        }
+    }
+
+    private class HexObserver implements Observer {
+
+        private final MapHex hex;
+        private final Observable state;
+
+        private HexObserver(MapHex hex, Observable state) {
+            this.hex = hex;
+            this.state = state;
+        }
+
+        public void update(String text) {
+            hexChanged(hex);
+        }
+
+        public Observable getObservable() {
+            return state;
+        }
+    }
+
+}
@@ -18,8 +18,12 @@ public class NetworkAdapter {
             LoggerFactory.getLogger(NetworkAdapter.class);
 
     private final RailsRoot root;
+    // map graph shared by several adapters (only copies are used)
+    private final NetworkGraph sharedMapGraph;
     
     private NetworkGraph mapGraph;
+    // company of a map graph that only contains the parts connected to it, null for the complete map
+    private PublicCompany mapGraphCompany;
     private NetworkGraph routeGraph;
     private NetworkGraph revenueGraph;
     private NetworkMultigraph multiGraph;
@@ -27,22 +31,52 @@ public class NetworkAdapter {
     private PublicCompany company;
     private boolean addHQ;
     
-    private NetworkAdapter(RailsRoot root) {
+    private NetworkAdapter(RailsRoot root, NetworkGraph sharedMapGraph) {
         this.root = root;
+        this.sharedMapGraph = sharedMapGraph;
     }
 
     public static NetworkAdapter create(RailsRoot root) {
-        return new NetworkAdapter(root);
+        return new NetworkAdapter(root, null);
+    }
+    
+    /**
+     * Creates an adapter that derives its graphs from a copy of the given map graph
+     * @param sharedMapGraph map graph (including map graph modifiers), it is not changed by the adapter
+     */
+    static NetworkAdapter create(RailsRoot root, NetworkGraph sharedMapGraph) {
+        return new NetworkAdapter(root, sharedMapGraph);
     }
     
     public NetworkGraph getMapGraph() {
-        mapGraph = NetworkGraph.createMapGraph(root);
-        log.info("MapGraph created");
+        if (sharedMapGraph != null) {
+            mapGraph = sharedMapGraph.copyGraph();
+            log.info("MapGraph copied");
+        } else {
+            mapGraph = NetworkGraph.createMapGraph(root);
+            log.info("MapGraph created");
+        }
+        mapGraphCompany = null;
+        return mapGraph;
+    }
+    
+    /**
+     * @return map graph that contains (at least) the parts of the map connected to the company
+     */
+    private NetworkGraph getMapGraph(PublicCompany company) {
+        if (sharedMapGraph != null) {
+            mapGraph = NetworkGraph.copyMapGraph(root, sharedMapGraph, company);
+            log.info("MapGraph copied for " + company);
+        } else {
+            mapGraph = NetworkGraph.createMapGraph(root, company);
+            log.info("MapGraph created for " + company);
+        }
+        mapGraphCompany = company;
         return mapGraph;
     }
         
     public NetworkGraph getRouteGraph(PublicCompany company, boolean addHQ) {
-        routeGraph = NetworkGraph.createRouteGraph(getMapGraph(), company, addHQ);
+        routeGraph = NetworkGraph.createRouteGraph(getMapGraph(company), company, addHQ);
         this.company = company;
         this.addHQ = addHQ;
         log.info("RouteGraph created");
@@ -51,7 +85,7 @@ public class NetworkAdapter {
     
     public NetworkGraph getRouteGraphCached(PublicCompany company, boolean addHQ) {
         if (routeGraph == null || company != this.company || addHQ != this.addHQ) {
-            if (mapGraph != null) {
+            if (mapGraph != null && (mapGraphCompany == null || mapGraphCompany == company)) {
                 routeGraph = NetworkGraph.createRouteGraph(mapGraph, company, addHQ);
             } else {
                 getRouteGraph(company, addHQ);
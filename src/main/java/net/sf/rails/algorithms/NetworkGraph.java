@@ -1,5 +1,6 @@
 package net.sf.rails.algorithms;
 
+import com.google.common.base.Predicates;
 import com.google.common.collect.*;
 import com.mxgraph.layout.mxFastOrganicLayout;
 import com.mxgraph.layout.mxIGraphLayout;
@@ -46,9 +47,54 @@ public class NetworkGraph {
         vertices = Maps.newHashMap(inGraph.vertices);
     }
 
+    /**
+     * @return a new map graph of the current map (including the map graph modifiers)
+     * The track structure is maintained incrementally by the {@link MapGraphCache} of the map manager.
+     */
     public static NetworkGraph createMapGraph(RailsRoot root) {
+        NetworkGraph graph = root.getMapManager().getMapGraphCache().getMapGraph();
+
+        // add graph modifiers
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null) {
+            revenueManager.activateMapGraphModifiers(graph);
+        }
+        return graph;
+    }
+
+    /**
+     * @return a new map graph that contains at least all vertices and edges that are reachable
+     * from the base tokens of the company:
+     * Without graph modifiers only the connected components of the base tokens are copied from
+     * the {@link MapGraphCache}, otherwise the complete map graph is created,
+     * as the modifiers can change any part of the map graph.
+     */
+    public static NetworkGraph createMapGraph(RailsRoot root, PublicCompany company) {
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null && revenueManager.hasGraphModifiers()) {
+            return createMapGraph(root);
+        }
+        return root.getMapManager().getMapGraphCache().getMapGraph(company);
+    }
+
+    /**
+     * @return a copy of the map graph for the company, see {@link #createMapGraph(RailsRoot, PublicCompany)}
+     * @param mapGraph map graph including the map graph modifiers
+     */
+    static NetworkGraph copyMapGraph(RailsRoot root, NetworkGraph mapGraph, PublicCompany company) {
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null && revenueManager.hasGraphModifiers()) {
+            return mapGraph.copyGraph();
+        }
+        return mapGraph.copyConnectedGraph(mapGraph.getCompanyBaseTokenVertexes(company));
+    }
+
+    /**
+     * @return map graph of the track structure only (without map graph modifiers)
+     */
+    static NetworkGraph createTrackGraph(MapManager mapManager) {
         NetworkGraph graph = new NetworkGraph();
-        graph.generateMapGraph(root);
+        graph.generateMapGraph(mapManager);
         return graph;
     }
 
@@ -71,6 +117,64 @@ public class NetworkGraph {
         return new NetworkGraph(this);
     }
 
+    /**
+     * @return a deep copy of the graph: vertices and edges are copied,
+     * thus changes of the copy do not affect the original graph
+     */
+    NetworkGraph copyGraph() {
+        return copyGraph(graph.vertexSet(), graph.edgeSet());
+    }
+
+    /**
+     * @return a deep copy of the connected components that contain the start vertices,
+     * all other vertices and edges cannot be reached from the start vertices, thus they are not copied
+     */
+    NetworkGraph copyConnectedGraph(Collection<NetworkVertex> startVertices) {
+        Set<NetworkVertex> connectedVertices = Sets.newHashSet();
+        Set<NetworkEdge> connectedEdges = Sets.newHashSet();
+        Deque<NetworkVertex> open = new ArrayDeque<NetworkVertex>();
+        for (NetworkVertex vertex : startVertices) {
+            if (graph.containsVertex(vertex) && connectedVertices.add(vertex)) {
+                open.add(vertex);
+            }
+        }
+        while (!open.isEmpty()) {
+            NetworkVertex vertex = open.poll();
+            for (NetworkEdge edge : graph.edgesOf(vertex)) {
+                connectedEdges.add(edge);
+                NetworkVertex neighbour = Graphs.getOppositeVertex(graph, edge, vertex);
+                if (connectedVertices.add(neighbour)) {
+                    open.add(neighbour);
+                }
+            }
+        }
+        // the copy keeps the sequence of the vertices and edges, as the route iterator depends on it
+        return copyGraph(Sets.filter(graph.vertexSet(), Predicates.in(connectedVertices)),
+                Sets.filter(graph.edgeSet(), Predicates.in(connectedEdges)));
+    }
+
+    private NetworkGraph copyGraph(Set<NetworkVertex> copyVertices, Set<NetworkEdge> copyEdges) {
+        NetworkGraph newGraph = new NetworkGraph();
+        Map<NetworkVertex, NetworkVertex> copies = Maps.newHashMap();
+        for (NetworkVertex vertex : copyVertices) {
+            NetworkVertex copy = NetworkVertex.copyVertex(vertex);
+            copies.put(vertex, copy);
+            newGraph.graph.addVertex(copy);
+        }
+        for (NetworkEdge edge : copyEdges) {
+            List<NetworkVertex> hiddenVertices = Lists.newArrayList();
+            for (NetworkVertex vertex : edge.getHiddenVertices()) {
+                hiddenVertices.add(copies.get(vertex));
+            }
+            NetworkVertex source = copies.get(edge.getSource());
+            NetworkVertex target = copies.get(edge.getTarget());
+            newGraph.graph.addEdge(source, target, new NetworkEdge(source, target,
+                    edge.isGreedy(), edge.getDistance(), hiddenVertices));
+        }
+        newGraph.rebuildVertices();
+        return newGraph;
+    }
+
     public SimpleGraph<NetworkVertex, NetworkEdge> getGraph() {
         return graph;
     }
@@ -174,103 +278,187 @@ public class NetworkGraph {
         }
     }
 
-    private void generateMapGraph(RailsRoot root) {
-        MapManager mapManager = root.getMapManager();
-        RevenueManager revenueManager = root.getRevenueManager();
+    private void generateMapGraph(MapManager mapManager) {
         for (MapHex hex : mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-
-            // then get stations
-            Collection<Station> stations = tile.getStations();
-            // and add those to the mapGraph
-            for (Station station : stations) {
-                NetworkVertex stationVertex = new NetworkVertex(hex, station);
-                graph.addVertex(stationVertex);
-                vertices.put(stationVertex.getIdentifier(), stationVertex);
-                log.info("Added " + stationVertex);
-            }
-
-            // get tracks per side to add that vertex
-            for (HexSide side : HexSide.all())
-                if (tile.hasTracks(side)) {
-                    HexSide rotated = side.rotate(hex.getCurrentTileRotation());
-                    NetworkVertex sideVertex = new NetworkVertex(hex, rotated);
-                    graph.addVertex(sideVertex);
-                    vertices.put(sideVertex.getIdentifier(), sideVertex);
-                    log.info("Added " + sideVertex);
-                }
+            addHexVertices(hex);
         }
 
         // loop over all hex and add tracks
         for (MapHex hex : mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-            // get Tracks
-            Set<Track> tracks = tile.getTracks();
-
-            for (Track track : tracks) {
-                NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
-                NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
-                log.info("Track: " + track);
-                NetworkEdge edge = new NetworkEdge(startVertex, endVertex, false);
-                if (startVertex == endVertex) {
-                    log.error("Track " + track + " on hex " + hex + "has identical start/end");
-                } else {
-                    graph.addEdge(startVertex, endVertex, edge);
-                    log.info("Added non-greedy edge " + edge.getConnection());
-                }
-            }
-
+            addHexTracks(hex);
             // TODO: Rewrite this by employing the features of Trackpoint
             // and connect to neighbouring hexes (for sides 0-2)
             for (HexSide side : HexSide.head()) {
-                MapHex neighborHex = mapManager.getNeighbour(hex, side);
-                if (neighborHex == null) {
-                    log.info("No connection for Hex " + hex.getId() + " at "
-                            + hex.getOrientationName(side) + ", No Neighbor");
-                    continue;
-                }
-                NetworkVertex vertex = getVertex(hex, side);
-                HexSide rotated = side.opposite();
-                NetworkVertex otherVertex = getVertex(neighborHex, rotated);
-                if (vertex == null && otherVertex == null) {
-                    log.info("Hex " + hex.getId() + " has no track at "
-                            + hex.getOrientationName(side));
-                    log.info("And Hex " + neighborHex.getId() + " has no track at "
-                            + neighborHex.getOrientationName(rotated));
-                    continue;
-                } else if (vertex == null && otherVertex != null) {
-                    log.info("Deadend connection for Hex " + neighborHex.getId() + " at "
-                            + neighborHex.getOrientationName(rotated) + ", NeighborHex "
-                            + hex.getId() + " has no track at side " +
-                            hex.getOrientationName(side));
-                    vertex = new NetworkVertex(hex, side);
-                    graph.addVertex(vertex);
-                    vertices.put(vertex.getIdentifier(), vertex);
-                    log.info("Added deadend vertex " + vertex);
-                } else if (otherVertex == null) {
-                    log.info("Deadend connection for Hex " + hex.getId() + " at "
-                            + hex.getOrientationName(side) + ", NeighborHex "
-                            + neighborHex.getId() + " has no track at side " +
-                            neighborHex.getOrientationName(rotated));
-                    otherVertex = new NetworkVertex(neighborHex, rotated);
-                    graph.addVertex(otherVertex);
-                    vertices.put(otherVertex.getIdentifier(), otherVertex);
-                    log.info("Added deadend vertex " + otherVertex);
+                connectHexSide(mapManager, hex, side);
+            }
+        }
+    }
+
+    /**
+     * Updates the map graph for hexes with changed tiles (or rotations)
+     * All other vertices and edges are kept.
+     * @param neighbours contains for each hex the hexes (and their head sides) that connect to that hex
+     */
+    void updateMapGraph(MapManager mapManager, Set<MapHex> hexes,
+                        Multimap<MapHex, Map.Entry<MapHex, HexSide>> neighbours) {
+        // remove all vertices of the hexes (this includes their tracks and connections)
+        for (NetworkVertex vertex : ImmutableSet.copyOf(graph.vertexSet())) {
+            if (hexes.contains(vertex.getHex())) {
+                graph.removeVertex(vertex);
+                vertices.remove(vertex.getIdentifier());
+                log.info("Removed " + vertex);
+            }
+        }
+        // remove deadend vertices of the neighbours, which are not connected anymore
+        for (MapHex hex : hexes) {
+            for (Map.Entry<MapHex, HexSide> connection : connectionsOf(mapManager, hex, neighbours)) {
+                HexSide side = connection.getValue();
+                removeDeadendVertex(connection.getKey(), side);
+                removeDeadendVertex(mapManager.getNeighbour(connection.getKey(), side), side.opposite());
+            }
+        }
+
+        for (MapHex hex : hexes) {
+            addHexVertices(hex);
+        }
+        for (MapHex hex : hexes) {
+            addHexTracks(hex);
+        }
+        for (MapHex hex : hexes) {
+            for (Map.Entry<MapHex, HexSide> connection : connectionsOf(mapManager, hex, neighbours)) {
+                connectHexSide(mapManager, connection.getKey(), connection.getValue());
+            }
+        }
+    }
+
+    private void removeDeadendVertex(MapHex hex, HexSide side) {
+        NetworkVertex vertex = getVertex(hex, side);
+        if (vertex != null && graph.edgesOf(vertex).isEmpty()) {
+            graph.removeVertex(vertex);
+            vertices.remove(vertex.getIdentifier());
+            log.info("Removed deadend vertex " + vertex);
+        }
+    }
+
+    /**
+     * @return all (hex, head side) combinations that connect the hex to its neighbours
+     */
+    private static List<Map.Entry<MapHex, HexSide>> connectionsOf(MapManager mapManager, MapHex hex,
+                                                                 Multimap<MapHex, Map.Entry<MapHex, HexSide>> neighbours) {
+        List<Map.Entry<MapHex, HexSide>> connections = Lists.newArrayList();
+        for (HexSide side : HexSide.head()) {
+            if (mapManager.getNeighbour(hex, side) != null) {
+                connections.add(Maps.immutableEntry(hex, side));
+            }
+        }
+        connections.addAll(neighbours.get(hex));
+        return connections;
+    }
+
+    /**
+     * @return a multimap that contains for each hex the (hex, head side) combinations of its neighbours
+     * that connect to it
+     */
+    static Multimap<MapHex, Map.Entry<MapHex, HexSide>> createNeighbourConnections(MapManager mapManager) {
+        ImmutableMultimap.Builder<MapHex, Map.Entry<MapHex, HexSide>> neighbours = ImmutableMultimap.builder();
+        for (MapHex hex : mapManager.getHexes()) {
+            for (HexSide side : HexSide.head()) {
+                MapHex neighbourHex = mapManager.getNeighbour(hex, side);
+                if (neighbourHex != null) {
+                    neighbours.put(neighbourHex, Maps.immutableEntry(hex, side));
                 }
-                NetworkEdge edge = new NetworkEdge(vertex, otherVertex, true);
-                graph.addEdge(vertex, otherVertex,
-                        edge);
-                log.info("Added greedy edge " + edge.getConnection());
             }
         }
+        return neighbours.build();
+    }
+
+    private void addHexVertices(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
+
+        // then get stations
+        Collection<Station> stations = tile.getStations();
+        // and add those to the mapGraph
+        for (Station station : stations) {
+            NetworkVertex stationVertex = new NetworkVertex(hex, station);
+            graph.addVertex(stationVertex);
+            vertices.put(stationVertex.getIdentifier(), stationVertex);
+            log.info("Added " + stationVertex);
+        }
 
-        // add graph modifiers
-        if (revenueManager != null) {
-            revenueManager.activateMapGraphModifiers(this);
+        // get tracks per side to add that vertex
+        for (HexSide side : HexSide.all())
+            if (tile.hasTracks(side)) {
+                HexSide rotated = side.rotate(hex.getCurrentTileRotation());
+                NetworkVertex sideVertex = new NetworkVertex(hex, rotated);
+                graph.addVertex(sideVertex);
+                vertices.put(sideVertex.getIdentifier(), sideVertex);
+                log.info("Added " + sideVertex);
+            }
+    }
+
+    private void addHexTracks(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
+        // get Tracks
+        Set<Track> tracks = tile.getTracks();
+
+        for (Track track : tracks) {
+            NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
+            NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
+            log.info("Track: " + track);
+            NetworkEdge edge = new NetworkEdge(startVertex, endVertex, false);
+            if (startVertex == endVertex) {
+                log.error("Track " + track + " on hex " + hex + "has identical start/end");
+            } else {
+                graph.addEdge(startVertex, endVertex, edge);
+                log.info("Added non-greedy edge " + edge.getConnection());
+            }
         }
+    }
 
+    private void connectHexSide(MapManager mapManager, MapHex hex, HexSide side) {
+        MapHex neighborHex = mapManager.getNeighbour(hex, side);
+        if (neighborHex == null) {
+            log.info("No connection for Hex " + hex.getId() + " at "
+                    + hex.getOrientationName(side) + ", No Neighbor");
+            return;
+        }
+        NetworkVertex vertex = getVertex(hex, side);
+        HexSide rotated = side.opposite();
+        NetworkVertex otherVertex = getVertex(neighborHex, rotated);
+        if (vertex == null && otherVertex == null) {
+            log.info("Hex " + hex.getId() + " has no track at "
+                    + hex.getOrientationName(side));
+            log.info("And Hex " + neighborHex.getId() + " has no track at "
+                    + neighborHex.getOrientationName(rotated));
+            return;
+        } else if (vertex == null && otherVertex != null) {
+            log.info("Deadend connection for Hex " + neighborHex.getId() + " at "
+                    + neighborHex.getOrientationName(rotated) + ", NeighborHex "
+                    + hex.getId() + " has no track at side " +
+                    hex.getOrientationName(side));
+            vertex = new NetworkVertex(hex, side);
+            graph.addVertex(vertex);
+            vertices.put(vertex.getIdentifier(), vertex);
+            log.info("Added deadend vertex " + vertex);
+        } else if (otherVertex == null) {
+            log.info("Deadend connection for Hex " + hex.getId() + " at "
+                    + hex.getOrientationName(side) + ", NeighborHex "
+                    + neighborHex.getId() + " has no track at side " +
+                    neighborHex.getOrientationName(rotated));
+            otherVertex = new NetworkVertex(neighborHex, rotated);
+            graph.addVertex(otherVertex);
+            vertices.put(otherVertex.getIdentifier(), otherVertex);
+            log.info("Added deadend vertex " + otherVertex);
+        } else if (graph.containsEdge(vertex, otherVertex)) {
+            // already connected by an update of the neighbour
+            return;
+        }
+        NetworkEdge edge = new NetworkEdge(vertex, otherVertex, true);
+        graph.addEdge(vertex, otherVertex,
+                edge);
+        log.info("Added greedy edge " + edge.getConnection());
     }
 
     public void optimizeGraph() {
@@ -89,6 +89,22 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         this.virtualId = name;
     }
 
+    /** copy constructor */
+    private NetworkVertex(NetworkVertex vertex) {
+        this.type = vertex.type;
+        this.hex = vertex.hex;
+        this.trackPoint = vertex.trackPoint;
+        this.stop = vertex.stop;
+
+        this.virtual = vertex.virtual;
+        this.virtualId = vertex.virtualId;
+
+        this.stationType = vertex.stationType;
+        this.value = vertex.value;
+        this.sink = vertex.sink;
+        this.stopName = vertex.stopName;
+    }
+
     /** factory method for virtual vertex
      */
     public static NetworkVertex getVirtualVertex(VertexType type, String name) {
@@ -367,6 +383,13 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         return number;
     }
 
+    /**
+     * creates a copy of the vertex with identical properties (without links)
+     */
+    static NetworkVertex copyVertex(NetworkVertex vertex) {
+        return new NetworkVertex(vertex);
+    }
+
     /**
      * creates a new virtual vertex with identical properties and links
      */
@@ -12,6 +12,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.hash.HashCode;
+
+import net.sf.rails.common.Config;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.Phase;
@@ -23,7 +26,6 @@ import net.sf.rails.ui.swing.hexmap.HexMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.jgrapht.Graph;
-import org.jgrapht.Graphs;
 import org.jgrapht.graph.SimpleGraph;
 
 
@@ -77,8 +79,21 @@ public final class RevenueAdapter implements Runnable {
     Graph<NetworkVertex,NetworkEdge> rcGraph;
     private List<NetworkVertex> rcVertices;
     private List<NetworkEdge> rcEdges;
+    private CompiledRevenueGraph rcCompiledGraph;
     private List<RevenueTrainRun> optimalRun;
     private boolean hasDynamicModifiers;
+    private boolean useParallelSearch;
+    private boolean useReachabilityBounds;
+    
+    // stored results of identical calculations
+    private RevenueCache revenueCache;
+    private HashCode fingerprint;
+    private RevenueCache.Entry cachedResult;
+    
+    // budget of the next calculation, if not given a new budget is created
+    private RevenueBudget nextBudget;
+    // budget of the last calculation
+    private RevenueBudget budget;
     
     // revenue listener to communicate results
     private RevenueListener revenueListener;
@@ -98,6 +113,7 @@ public final class RevenueAdapter implements Runnable {
         this.edgeTravelSets = new HashMap<NetworkEdge, EdgeTravel>();
         this.revenueBonuses = new ArrayList<RevenueBonus>();
         this.protectedVertices = new HashSet<NetworkVertex>();
+        this.revenueCache = root.getRevenueCache();
     }
     
     public static RevenueAdapter createRevenueAdapter(RailsRoot root, PublicCompany company, Phase phase) {
@@ -107,6 +123,18 @@ public final class RevenueAdapter implements Runnable {
         return ra;
     }
     
+    /**
+     * Creates a revenue adapter that derives the route graph of the company from a copy of the given map graph
+     * @param mapGraph map graph (including map graph modifiers) shared by several revenue adapters
+     */
+    static RevenueAdapter createRevenueAdapter(RailsRoot root, NetworkGraph mapGraph, 
+            PublicCompany company, Phase phase) {
+        NetworkAdapter networkAdapter = NetworkAdapter.create(root, mapGraph);
+        RevenueAdapter ra = new RevenueAdapter(root, networkAdapter, company, phase);
+        ra.populateFromRails();
+        return ra;
+    }
+    
     
     public PublicCompany getCompany() {
         return company;
@@ -116,6 +144,23 @@ public final class RevenueAdapter implements Runnable {
         return phase;
     }
     
+    /**
+     * @param activate true => the revenue predictions only use the values of vertices 
+     * that are reachable from the start vertex of the train (tighter bounds, fewer evaluations)
+     */
+    public void setReachabilityBounds(boolean activate) {
+        this.useReachabilityBounds = activate;
+        if (rc != null) rc.setReachabilityBounds(activate);
+    }
+    
+    /**
+     * @param revenueCache cache of revenue results, null to disable caching
+     * Has to be set before initRevenueCalculator, by default the cache of the game is used
+     */
+    public void setRevenueCache(RevenueCache revenueCache) {
+        this.revenueCache = revenueCache;
+    }
+    
     public SimpleGraph<NetworkVertex,NetworkEdge> getGraph() {
         return graph.getGraph();
     }
@@ -133,11 +178,15 @@ public final class RevenueAdapter implements Runnable {
     }
     
     public int getRCVertexId(NetworkVertex vertex) {
-        return rcVertices.indexOf(vertex);
+        return rcCompiledGraph.getVertexId(vertex);
+    }
+
+    public NetworkVertex getRCVertex(int vertexId) {
+        return rcVertices.get(vertexId);
     }
 
     public int getRCEdgeId(NetworkEdge edge) {
-        return rcEdges.indexOf(edge);
+        return rcCompiledGraph.getEdgeId(edge);
     }
         
     public Set<NetworkVertex> getStartVertices() {
@@ -294,14 +343,49 @@ public final class RevenueAdapter implements Runnable {
     }
     
     public void initRevenueCalculator(boolean useMultiGraph){
+        initRevenueCalculator(useMultiGraph, false);
+    }
+    
+    /**
+     * @return true if the revenue calculations of the user interface use the parallel search
+     * (config option map.revenue.parallelSearch)
+     */
+    public static boolean isParallelSearchConfigured() {
+        return "yes".equalsIgnoreCase(Config.get("map.revenue.parallelSearch"));
+    }
+
+    /**
+     * @param useMultiGraph true => multigraph, false => simplegraph
+     * @param useParallelSearch true => the search is split by start vertexes on the pool of the revenue calculator
+     */
+    public void initRevenueCalculator(boolean useMultiGraph, boolean useParallelSearch){
         
         this.useMultiGraph = useMultiGraph;
+        this.useParallelSearch = useParallelSearch;
 
         // check for dynamic modifiers (including an own calculator
+        List<RevenueStaticModifier> staticModifiers = Collections.emptyList();
+        List<RevenueDynamicModifier> dynamicModifiers = Collections.emptyList();
         if (revenueManager != null) {
             hasDynamicModifiers = revenueManager.initDynamicModifiers(this);
+            staticModifiers = revenueManager.getActiveStaticModifiers();
+            dynamicModifiers = revenueManager.getActiveDynamicModifiers();
         }
         
+        // check for the result of an identical calculation
+        if (revenueCache != null) {
+            fingerprint = RevenueCache.fingerprint(this, useMultiGraph, staticModifiers, dynamicModifiers);
+            if (fingerprint != null) {
+                cachedResult = revenueCache.get(fingerprint);
+                if (cachedResult != null) return;
+            }
+        }
+        
+        createRevenueCalculator();
+    }
+    
+    private void createRevenueCalculator() {
+        
         // define optimized graph
         
         if (useMultiGraph) {
@@ -325,44 +409,31 @@ public final class RevenueAdapter implements Runnable {
         // prepare train length
         prepareTrainLengths(rcVertices);
 
-        // check dimensions
-        int maxVisitVertices = maxVisitVertices();
+        log.info("RA: Block of " + vertexVisitSets);
+        logTravelSets();
+
+        // compile graph: neighbors are sorted by edge order (multigraph) or by value order (simple graph)
+        // neighbors are defined regardless of sink property, this is covered by the vertex attribute
+        // and required for startvertices that are sinks themselves
+        rcCompiledGraph = CompiledRevenueGraph.create(rcGraph, rcVertices, rcEdges, useMultiGraph,
+                vertexVisitSets, edgeTravelSets);
+
         int maxBonusVertices = maxRevenueBonusVertices();
-        int maxNeighbors = maxVertexNeighbors(rcVertices);
-        int maxTravelEdges = maxTravelEdges();
-         
+
         if (useMultiGraph) {
             if (useHTrains()) {
-                rc = new RevenueCalculatorMultiHex(this, rcVertices.size(), rcEdges.size(), 
-                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+                rc = new RevenueCalculatorMultiHex(this, rcCompiledGraph, trains.size(), maxBonusVertices);
             } else {
-                rc = new RevenueCalculatorMulti(this, rcVertices.size(), rcEdges.size(), 
-                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+                rc = new RevenueCalculatorMulti(this, rcCompiledGraph, trains.size(), maxBonusVertices);
             }
         } else {
-            rc = new RevenueCalculatorSimple(this, rcVertices.size(), rcEdges.size(), 
-                    maxNeighbors, maxVisitVertices, trains.size(), maxBonusVertices); 
+            rc = new RevenueCalculatorSimple(this, rcCompiledGraph, trains.size(), maxBonusVertices); 
         }
         
         populateRevenueCalculator();
-    }
-
-    private int maxVisitVertices() {
-        int maxNbVertices = 0;
-        for (VertexVisit vertexVisit:vertexVisitSets) {
-            maxNbVertices = Math.max(maxNbVertices, vertexVisit.set.size());
-        }
-        log.info("RA: Block of " + vertexVisitSets + ", maximum vertices in a set = "+ maxNbVertices);
-        return maxNbVertices;
-    }
-
-    private int maxVertexNeighbors(Collection<NetworkVertex> vertices) {
-        int maxNeighbors = 0;
-        for (NetworkVertex vertex:vertices) {
-            maxNeighbors = Math.max(maxNeighbors, rcGraph.edgesOf(vertex).size());
-        }
-        log.info("RA: Maximum neighbors in graph = "+ maxNeighbors);
-        return maxNeighbors;
+        
+        rc.setParallelSearch(useParallelSearch);
+        rc.setReachabilityBounds(useReachabilityBounds);
     }
 
     private int maxRevenueBonusVertices() {
@@ -372,11 +443,8 @@ public final class RevenueAdapter implements Runnable {
         return nbBonuses;
     }
 
-    private int maxTravelEdges() {
-        int maxNbEdges = 0;
-        for (EdgeTravel edgeTravel:edgeTravelSets.values()) {
-            maxNbEdges = Math.max(maxNbEdges, edgeTravel.set.size());
-        }
+    private void logTravelSets() {
+        if (!log.isInfoEnabled()) return;
         for (NetworkEdge edge:edgeTravelSets.keySet()) {
             EdgeTravel edgeTravel = edgeTravelSets.get(edge);
             StringBuilder edgeString = new StringBuilder("RA: EdgeSet for " + edge.toFullInfoString() + 
@@ -386,8 +454,6 @@ public final class RevenueAdapter implements Runnable {
             }
             log.info(edgeString.toString());
         }
-        log.info("RA: maximum edges in a set = "+ maxNbEdges);
-        return maxNbEdges;
     }
 
     
@@ -430,47 +496,12 @@ public final class RevenueAdapter implements Runnable {
                 NetworkTrain train = trains.get(trainId);
                 rc.setVertexValue(id, trainId, getVertexValue(v, train, phase));
             }
-            
-            // set neighbors, now regardless of sink property
-            // this is covered by the vertex attribute
-            // and required for startvertices that are sinks themselves
-            if (useMultiGraph) {
-                Set<NetworkEdge> edges = rcGraph.edgesOf(v);
-                int e=0; int[] edgesArray = new int[edges.size()];
-                for (NetworkEdge edge:edges) {
-                    edgesArray[e++] = rcEdges.indexOf(edge);
-                }
-                // sort by order on edges
-                Arrays.sort(edgesArray, 0, e);
-                // define according vertices
-                int[] neighborsArray = new int[e];
-                for (int j=0; j < e; j++) {
-                    NetworkVertex toVertex = Graphs.getOppositeVertex(rcGraph, rcEdges.get(edgesArray[j]), v);
-                    neighborsArray[j] = rcVertices.indexOf(toVertex);
-                }
-                rc.setVertexNeighbors(id, neighborsArray, edgesArray);
-            } else {
-                List<NetworkVertex> neighbors = Graphs.neighborListOf(rcGraph, v); 
-                int j=0, neighborsArray[] = new int[neighbors.size()];
-                for (NetworkVertex n:neighbors){
-                    neighborsArray[j++] = rcVertices.indexOf(n);
-                }
-                // sort by value orderboolean activatePrediction
-                Arrays.sort(neighborsArray, 0, j);
-                // define according edges
-                int[] edgesArray = new int[j];
-                for (int e=0; e < j; e++) {
-                    NetworkVertex toVertex = rcVertices.get(neighborsArray[e]);
-                    edgesArray[e] = rcEdges.indexOf(rcGraph.getEdge(v, toVertex));
-                }
-                rc.setVertexNeighbors(id, neighborsArray, edgesArray);
-            }
         }
 
         // set startVertexes
         int startVertexId =0, sv[] = new int[startVertices.size()];
         for (NetworkVertex startVertex:startVertices) {
-            sv[startVertexId++] = rcVertices.indexOf(startVertex);
+            sv[startVertexId++] = rcCompiledGraph.getVertexId(startVertex);
         }
         Arrays.sort(sv); // sort by value order 
         rc.setStartVertexes(sv);
@@ -490,35 +521,13 @@ public final class RevenueAdapter implements Runnable {
             train.addToRevenueCalculator(rc, id);
         }
         
-        // set vertex sets
-        for (VertexVisit visit:vertexVisitSets) {
-            int j=0, setArray[] = new int[visit.set.size()];
-            for (NetworkVertex n:visit.set){
-                setArray[j++] = rcVertices.indexOf(n);
-            }
-            rc.setVisitSet(setArray);
-        }
         log.info("RA: rcVertices:" + rcVertices);
         log.info("RA: rcEdges:" + rcEdges);
 
         // set revenue bonuses
         int id = 0;
         for (RevenueBonus bonus:revenueBonuses) {
-            if (bonus.addToRevenueCalculator(rc, id, rcVertices, trains, phase)) id ++;
-        }
-        
-        log.info("RA: edgeTravelSets:" + edgeTravelSets);
-        
-        // set edge sets
-        if (useMultiGraph) {
-            for (NetworkEdge edge:edgeTravelSets.keySet()) {
-                EdgeTravel edgeTravel = edgeTravelSets.get(edge);
-                int j=0, setArray[] = new int[edgeTravel.set.size()];
-                for (NetworkEdge n:edgeTravel.set){
-                    setArray[j++] = rcEdges.indexOf(n);
-                }
-                ((RevenueCalculatorMulti)rc).setTravelSet(rcEdges.indexOf(edge), setArray);
-            }
+            if (bonus.addToRevenueCalculator(rc, id, rcCompiledGraph, trains, phase)) id ++;
         }
 
         
@@ -584,6 +593,24 @@ public final class RevenueAdapter implements Runnable {
         return convertRun;
     }
     
+    /**
+     * converts the stored runs to the trains and vertices of this adapter
+     * @return null if a run does not fit to this adapter
+     */
+    private List<RevenueTrainRun> convertCachedRun(List<RevenueCache.Run> cachedRun) {
+        Map<String, NetworkVertex> vertices = new HashMap<String, NetworkVertex>();
+        for (NetworkVertex vertex:getVertices()) {
+            vertices.put(vertex.getIdentifier(), vertex);
+        }
+        List<RevenueTrainRun> convertRun = new ArrayList<RevenueTrainRun>();
+        for (RevenueCache.Run run:cachedRun) {
+            RevenueTrainRun trainRun = RevenueTrainRun.createFromCachedRun(this, run, vertices);
+            if (trainRun == null) return null;
+            convertRun.add(trainRun);
+        }
+        return convertRun;
+    }
+    
     public int calculateRevenue() {
         // allows (one) dynamic modifiers to have their own revenue calculation method
         // TODO: Still to be added 
@@ -594,39 +621,139 @@ public final class RevenueAdapter implements Runnable {
 //        }
     }
     
+    /**
+     * Calculates the revenue within the given budget.
+     * If the budget expires the best run found so far is kept
+     * and the revenue listener receives it as non-final result.
+     * @param budget cancellation token and optional time and evaluation limits,
+     * it is bound to this calculation (later calculations use a new budget)
+     */
+    public int calculateRevenue(RevenueBudget budget) {
+        nextBudget = budget;
+        try {
+            return calculateRevenue();
+        } finally {
+            nextBudget = null;
+        }
+    }
+    
     public int calculateRevenue(int startTrain, int finalTrain) {
         if (startTrain < 0 || finalTrain >= trains.size() || startTrain > finalTrain) {
             return 0;
         }
+        boolean allTrains = (startTrain == 0 && finalTrain == trains.size() - 1);
+        
+        // use the stored result
+        if (cachedResult != null) {
+            if (allTrains) {
+                optimalRun = convertCachedRun(cachedResult.getOptimalRun());
+                if (optimalRun != null) {
+                    notifyRevenueListener(cachedResult.getValue(), true);
+                    return cachedResult.getValue();
+                }
+                log.warn("RA: Stored run does not fit the network of " + company.getId() + ", recalculated");
+            }
+            // calculations for a subset of trains require the calculator
+            cachedResult = null;
+            createRevenueCalculator();
+        }
+        
+        // without explicit budget the calculation still stops on interruption
+        // of the calculating thread
+        if (nextBudget == null) {
+            budget = RevenueBudget.create();
+        } else {
+            budget = nextBudget;
+            nextBudget = null;
+        }
+        budget.start();
+        rc.setBudget(budget);
+        
         // the optimal run might change
         optimalRun = null;
         rc.initRuns(startTrain, finalTrain);
         rc.executePredictions(startTrain, finalTrain);
         int value = rc.calculateRevenue(startTrain, finalTrain);
+        
+        // store the result of completed calculations
+        if (allTrains && revenueCache != null && fingerprint != null && !rc.isBudgetExpired()) {
+            revenueCache.put(fingerprint, value, getOptimalRun());
+        }
         return value;
     }
     
-    public  List<RevenueTrainRun> getOptimalRun() {
+    /**
+     * @return the budget of the (last) calculation, null if not calculated yet
+     */
+    public RevenueBudget getBudget() {
+        return budget;
+    }
+    
+    /**
+     * @return true if the last calculation was completed, false if it was stopped by its budget
+     */
+    public boolean isFinalResult() {
+        if (isCachedResult()) return true;
+        return rc != null && !rc.isBudgetExpired();
+    }
+    
+    /**
+     * @return true if active dynamic modifiers take part in the calculation
+     */
+    boolean hasDynamicModifiers() {
+        return hasDynamicModifiers;
+    }
+    
+    /**
+     * @return true if the result was taken from the revenue cache
+     */
+    public boolean isCachedResult() {
+        return cachedResult != null;
+    }
+
+    /**
+     * @return number of evaluated runs of the last calculation
+     */
+    public int getNumberOfEvaluations() {
+        if (rc == null) return 0;
+        return rc.getNumberOfEvaluations();
+    }
+    
+    /**
+     * @return statistics of the last calculation (evaluations, predictions, edges travelled)
+     */
+    public String getStatistics() {
+        if (isCachedResult()) return "cached result.";
+        if (rc == null) return "not calculated.";
+        return rc.getStatistics();
+    }
+    
+    public synchronized List<RevenueTrainRun> getOptimalRun() {
         if (optimalRun == null) {
-            optimalRun = convertRcRun(rc.getOptimalRun());
-            if (hasDynamicModifiers) { 
-                revenueManager.adjustOptimalRun(optimalRun);
+            if (isCachedResult()) {
+                optimalRun = convertCachedRun(cachedResult.getOptimalRun());
+            } else {
+                optimalRun = convertRcRun(rc.getOptimalRun());
+                if (hasDynamicModifiers) { 
+                    revenueManager.adjustOptimalRun(optimalRun);
+                }
             }
         }
         return optimalRun;
     }
     
     public List<RevenueTrainRun> getCurrentRun() {
+        if (rc == null) return getOptimalRun();
         return convertRcRun(rc.getCurrentRun());
     }
     
     /**
      * is called by rc for dynamic evaluations
      */
-    int dynamicEvaluation() {
+    int dynamicEvaluation(RevenueRunView run) {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.evaluationValue(this.getCurrentRun(), false);
+            value = revenueManager.evaluationValue(run);
         }
         return value;
     }
@@ -634,10 +761,10 @@ public final class RevenueAdapter implements Runnable {
     /**
      * is called by rc for dynamic predictions
      */
-    int dynamicPrediction() {
+    int dynamicPrediction(RevenueRunView run) {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.predictionValue(this.getCurrentRun());
+            value = revenueManager.predictionValue(run);
         }
         return value;
     }
@@ -659,7 +786,13 @@ public final class RevenueAdapter implements Runnable {
     }
     
     public void run() {
-        calculateRevenue(0, trains.size() -1);
+        // the calculation thread belongs to the game of the adapter
+        RailsRoot.setContext(root);
+        try {
+            calculateRevenue(0, trains.size() -1);
+        } finally {
+            RailsRoot.clearContext();
+        }
     }
     
     public void removeRevenueListener() {
@@ -686,7 +819,7 @@ public final class RevenueAdapter implements Runnable {
         } else {
             int dynamicBonuses = 0;
             if (hasDynamicModifiers) {
-                dynamicBonuses = revenueManager.evaluationValue(this.getOptimalRun(), true);
+                dynamicBonuses = revenueManager.optimalRunValue(this.getOptimalRun());
             }
             if (dynamicBonuses != 0) {
                 runPrettyPrint.append("; " + 
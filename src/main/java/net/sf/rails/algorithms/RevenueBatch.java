@@ -0,0 +1,320 @@
+package net.sf.rails.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+
+/**
+ * RevenueBatch calculates the optimal revenues of several companies at once.
+ *
+ * The map graph is created once and each company derives its route graph from a copy of it.
+ * The revenue adapters are prepared sequentially, as the RevenueManager stores the active
+ * modifiers of the adapter in preparation. Afterwards the calculations run concurrently
+ * on a bounded executor. Companies with active dynamic modifiers (and cached results)
+ * are calculated on the calling thread directly after their preparation.
+ *
+ * Each concurrent calculation binds its thread to the game of the batch
+ * (see {@link RailsRoot#setContext(RailsRoot)}), as the threads of the executor belong to no game.
+ */
+public final class RevenueBatch {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueBatch.class);
+
+    /**
+     * Result of the calculation for one company
+     */
+    public static final class Result {
+        private final PublicCompany company;
+        private final int value;
+        private final List<RevenueTrainRun> optimalRun;
+        private final int evaluations;
+        private final boolean cachedResult;
+        private final boolean finalResult;
+
+        private Result(RevenueAdapter revenueAdapter, int value) {
+            this.company = revenueAdapter.getCompany();
+            this.value = value;
+            this.optimalRun = ImmutableList.copyOf(revenueAdapter.getOptimalRun());
+            this.evaluations = revenueAdapter.getNumberOfEvaluations();
+            this.cachedResult = revenueAdapter.isCachedResult();
+            this.finalResult = revenueAdapter.isFinalResult();
+        }
+
+        public PublicCompany getCompany() {
+            return company;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public List<RevenueTrainRun> getOptimalRun() {
+            return optimalRun;
+        }
+
+        public int getNumberOfEvaluations() {
+            return evaluations;
+        }
+
+        public boolean isCachedResult() {
+            return cachedResult;
+        }
+
+        /**
+         * @return false if the calculation was stopped before it was able to finish
+         */
+        public boolean isFinalResult() {
+            return finalResult;
+        }
+
+        @Override
+        public String toString() {
+            return company.getId() + " = " + value + (cachedResult ? " (cached)" : " (" + evaluations + " evaluations)");
+        }
+    }
+
+    private final RailsRoot root;
+    private final Phase phase;
+    private final List<PublicCompany> companies;
+
+    private int maximumThreads = Runtime.getRuntime().availableProcessors();
+    private long maxMillis = 0;
+    private long maxEvaluations = 0;
+    private boolean useReachabilityBounds = false;
+
+    // budgets of the running calculations
+    private final List<RevenueBudget> budgets = new ArrayList<RevenueBudget>();
+    private volatile boolean cancelled = false;
+
+    // results and statistics
+    private final Map<PublicCompany, Result> results = Maps.newLinkedHashMap();
+    private int nbConcurrent;
+    private long prepareNanos;
+    private long totalNanos;
+
+    private RevenueBatch(RailsRoot root, Collection<PublicCompany> companies, Phase phase) {
+        this.root = root;
+        this.phase = phase;
+        this.companies = ImmutableList.copyOf(companies);
+    }
+
+    /**
+     * @param companies companies to calculate, the results keep that sequence
+     */
+    public static RevenueBatch create(RailsRoot root, Collection<PublicCompany> companies, Phase phase) {
+        return new RevenueBatch(root, companies, phase);
+    }
+
+    /**
+     * @return all companies that are able to run trains
+     */
+    public static List<PublicCompany> getOperatingCompanies(RailsRoot root) {
+        List<PublicCompany> companies = new ArrayList<PublicCompany>();
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.isClosed() || !company.hasFloated()
+                    || company.getPortfolioModel().getTrainList().isEmpty()) continue;
+            companies.add(company);
+        }
+        return companies;
+    }
+
+    /**
+     * @param maximumThreads maximum number of concurrent calculations (default: number of processors)
+     */
+    public RevenueBatch setMaximumThreads(int maximumThreads) {
+        this.maximumThreads = Math.max(1, maximumThreads);
+        return this;
+    }
+
+    /**
+     * Defines the budget of each single calculation (see {@link RevenueBudget#create(long, long)})
+     */
+    public RevenueBatch setBudget(long maxMillis, long maxEvaluations) {
+        this.maxMillis = maxMillis;
+        this.maxEvaluations = maxEvaluations;
+        return this;
+    }
+
+    /**
+     * @param activate true => predictions use the reachability bounds (see {@link RevenueAdapter#setReachabilityBounds})
+     */
+    public RevenueBatch setReachabilityBounds(boolean activate) {
+        this.useReachabilityBounds = activate;
+        return this;
+    }
+
+    /**
+     * Stops all calculations, the best runs found so far are kept
+     */
+    public void cancel() {
+        synchronized (budgets) {
+            cancelled = true;
+            for (RevenueBudget budget:budgets) {
+                budget.cancel();
+            }
+        }
+    }
+
+    private RevenueBudget createBudget() {
+        RevenueBudget budget = RevenueBudget.create(maxMillis, maxEvaluations);
+        synchronized (budgets) {
+            if (cancelled) budget.cancel();
+            budgets.add(budget);
+        }
+        return budget;
+    }
+
+    /**
+     * Calculates the revenues on an executor with at most maximumThreads threads
+     * @param useMultiGraph true => multigraph, false => simplegraph
+     * @return results by company
+     */
+    public Map<PublicCompany, Result> calculate(boolean useMultiGraph) {
+        int nbThreads = Math.max(1, Math.min(maximumThreads, companies.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, new BatchThreadFactory());
+        try {
+            return calculate(useMultiGraph, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Calculates the revenues on the given executor
+     * @param useMultiGraph true => multigraph, false => simplegraph
+     * @return results by company
+     */
+    public Map<PublicCompany, Result> calculate(boolean useMultiGraph, ExecutorService executor) {
+        long start = System.nanoTime();
+        results.clear();
+        nbConcurrent = 0;
+
+        // the map graph is shared by all companies
+        NetworkGraph mapGraph = NetworkGraph.createMapGraph(root);
+
+        Map<PublicCompany, Future<Result>> futures = Maps.newLinkedHashMap();
+        Map<PublicCompany, Result> inlineResults = Maps.newHashMap();
+        for (PublicCompany company:companies) {
+            final RevenueAdapter revenueAdapter = RevenueAdapter.createRevenueAdapter(root, mapGraph, company, phase);
+            revenueAdapter.setReachabilityBounds(useReachabilityBounds);
+            revenueAdapter.initRevenueCalculator(useMultiGraph);
+            final RevenueBudget budget = createBudget();
+            if (revenueAdapter.hasDynamicModifiers() || revenueAdapter.isCachedResult()) {
+                // the dynamic modifiers are active only until the next adapter is prepared
+                inlineResults.put(company, calculateResult(revenueAdapter, budget));
+            } else {
+                futures.put(company, executor.submit(new Callable<Result>() {
+                    public Result call() {
+                        return calculateResultInContext(revenueAdapter, budget);
+                    }
+                }));
+                nbConcurrent++;
+            }
+        }
+        prepareNanos = System.nanoTime() - start;
+
+        for (PublicCompany company:companies) {
+            if (inlineResults.containsKey(company)) {
+                results.put(company, inlineResults.get(company));
+            } else {
+                results.put(company, awaitResult(futures.get(company)));
+            }
+        }
+        totalNanos = System.nanoTime() - start;
+
+        log.info("RevenueBatch: " + getStatistics());
+        return results;
+    }
+
+    private static Result calculateResult(RevenueAdapter revenueAdapter, RevenueBudget budget) {
+        int value = revenueAdapter.calculateRevenue(budget);
+        return new Result(revenueAdapter, value);
+    }
+
+    /**
+     * Calculates with the thread bound to the game of the batch, the previous binding is restored afterwards
+     */
+    private Result calculateResultInContext(RevenueAdapter revenueAdapter, RevenueBudget budget) {
+        RailsRoot previous = RailsRoot.getBoundInstance();
+        RailsRoot.setContext(root);
+        try {
+            return calculateResult(revenueAdapter, budget);
+        } finally {
+            if (previous == null) {
+                RailsRoot.clearContext();
+            } else {
+                RailsRoot.setContext(previous);
+            }
+        }
+    }
+
+    private Result awaitResult(Future<Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // stop all calculations, but keep their results
+            cancel();
+            Thread.currentThread().interrupt();
+            try {
+                return Uninterruptibles.getUninterruptibly(future);
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException("Revenue calculation failed", ee.getCause());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Revenue calculation failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return results of the last calculation by company
+     */
+    public Map<PublicCompany, Result> getResults() {
+        return results;
+    }
+
+    public String getStatistics() {
+        int nbCached = 0, nbNotFinal = 0;
+        long evaluations = 0;
+        for (Result result:results.values()) {
+            if (result.isCachedResult()) nbCached++;
+            if (!result.isFinalResult()) nbNotFinal++;
+            evaluations += result.getNumberOfEvaluations();
+        }
+        return "companies = " + results.size() + ", concurrent = " + nbConcurrent
+                + ", cached = " + nbCached + ", not final = " + nbNotFinal
+                + ", evaluations = " + evaluations
+                + ", prepare = " + TimeUnit.NANOSECONDS.toMillis(prepareNanos) + "ms"
+                + ", total = " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + "ms";
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "RevenueBatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -89,14 +89,14 @@ public final class RevenueBonus {
         return (vertices.size() == 1);
     }
     
-    public boolean addToRevenueCalculator(RevenueCalculator rc, int bonusId, List<NetworkVertex> allVertices, List<NetworkTrain> trains, Phase phase) {
+    public boolean addToRevenueCalculator(RevenueCalculator rc, int bonusId, CompiledRevenueGraph graph, List<NetworkTrain> trains, Phase phase) {
         if (isSimpleBonus() || !phases.isEmpty() && !phases.contains(phase)) return false;
         // only non-simple bonuses and checks phase condition
         
         int[] verticesArray = new int[vertices.size()];
         for (int j=0; j < vertices.size(); j++) {
-            if (!allVertices.contains(vertices.get(j))) return false; // if vertex is not on graph, do not add bonus
-            verticesArray[j] = allVertices.indexOf(vertices.get(j));
+            verticesArray[j] = graph.getVertexId(vertices.get(j));
+            if (verticesArray[j] == -1) return false; // if vertex is not on graph, do not add bonus
         }
         
         boolean[] trainsArray = new boolean[trains.size()];
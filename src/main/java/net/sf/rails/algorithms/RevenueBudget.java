@@ -0,0 +1,112 @@
+package net.sf.rails.algorithms;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RevenueBudget is the cancellation token of a revenue calculation.
+ *
+ * The calculation stops (and keeps the best run found so far) if
+ * - the budget is cancelled
+ * - the thread that started the calculation is interrupted
+ * - the optional wall-clock time or number of evaluations is exceeded
+ *
+ * The revenue calculator checks the budget periodically, thus the calculation
+ * stops shortly after the budget has expired.
+ *
+ * A budget belongs to one calculation: its clock, thread and evaluations
+ * are not reset, each calculation requires a new budget.
+ */
+public final class RevenueBudget {
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long maxNanos;
+    private final long maxEvaluations;
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private volatile boolean cancelled = false;
+    private volatile boolean expired = false;
+
+    // defined at the start of the calculation
+    private volatile Thread thread;
+    private volatile long deadline;
+
+    private RevenueBudget(long maxNanos, long maxEvaluations) {
+        this.maxNanos = maxNanos;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    /**
+     * @return a budget that only stops by cancellation or interruption
+     */
+    public static RevenueBudget create() {
+        return new RevenueBudget(UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @param maxMillis maximum wall-clock time in milliseconds, zero or negative for unlimited
+     * @param maxEvaluations maximum number of evaluated runs, zero or negative for unlimited
+     */
+    public static RevenueBudget create(long maxMillis, long maxEvaluations) {
+        return new RevenueBudget(
+                maxMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(maxMillis) : UNLIMITED,
+                maxEvaluations > 0 ? maxEvaluations : UNLIMITED);
+    }
+
+    /**
+     * Stops the calculation that uses this budget
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the calculation was stopped before it was able to finish
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * Binds the budget to the calculating thread and starts the clock.
+     * Only the first call has an effect.
+     */
+    synchronized void start() {
+        if (thread != null) return;
+        thread = Thread.currentThread();
+        if (maxNanos != UNLIMITED) {
+            deadline = System.nanoTime() + maxNanos;
+        }
+    }
+
+    /**
+     * @param newEvaluations evaluations since the last check
+     * @return true if the calculation has to stop
+     */
+    boolean check(int newEvaluations) {
+        if (expired) return true;
+        long totalEvaluations = evaluations.addAndGet(newEvaluations);
+        if (cancelled
+                || thread != null && thread.isInterrupted()
+                || maxEvaluations != UNLIMITED && totalEvaluations >= maxEvaluations
+                || maxNanos != UNLIMITED && thread != null && System.nanoTime() - deadline >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    @Override
+    public String toString() {
+        return "RevenueBudget: evaluations = " + evaluations.get()
+                + (cancelled ? ", cancelled" : "") + (expired ? ", expired" : "");
+    }
+}
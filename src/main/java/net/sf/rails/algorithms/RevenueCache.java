@@ -0,0 +1,344 @@
+package net.sf.rails.algorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.Train;
+import net.sf.rails.game.TrainType;
+import net.sf.rails.game.special.SpecialProperty;
+
+/**
+ * RevenueCache stores the results of revenue calculations of a game.
+ *
+ * The results are keyed by a fingerprint of the revenue adapter (see {@link #fingerprint}):
+ * If nothing relevant for the calculation has changed (e.g. after an undo/redo or
+ * if the revenue is requested again in the same step) the stored optimal run is used.
+ * The runs are stored by vertex identifiers and train indices, thus an entry does not keep
+ * the network graphs or the revenue adapter of the calculation alive.
+ *
+ * The cache is bounded, the least recently used result is removed first.
+ * Only results of completed calculations are stored.
+ */
+public final class RevenueCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueCache.class);
+
+    public static final int DEFAULT_SIZE = 32;
+
+    /**
+     * Edge of a stored run, the vertices are given by their identifiers
+     */
+    static final class Edge {
+        private final String source;
+        private final String target;
+        private final boolean greedy;
+        private final int distance;
+        private final ImmutableList<String> hiddenVertices;
+
+        Edge(String source, String target, boolean greedy, int distance, ImmutableList<String> hiddenVertices) {
+            this.source = source;
+            this.target = target;
+            this.greedy = greedy;
+            this.distance = distance;
+            this.hiddenVertices = hiddenVertices;
+        }
+
+        String getSource() {
+            return source;
+        }
+
+        String getTarget() {
+            return target;
+        }
+
+        boolean isGreedy() {
+            return greedy;
+        }
+
+        int getDistance() {
+            return distance;
+        }
+
+        ImmutableList<String> getHiddenVertices() {
+            return hiddenVertices;
+        }
+    }
+
+    /**
+     * Stored run of one train, without references to the network of the calculation
+     */
+    static final class Run {
+        private final int trainIndex;
+        private final int value;
+        private final ImmutableList<String> vertices;
+        private final ImmutableList<Edge> edges;
+
+        Run(int trainIndex, int value, ImmutableList<String> vertices, ImmutableList<Edge> edges) {
+            this.trainIndex = trainIndex;
+            this.value = value;
+            this.vertices = vertices;
+            this.edges = edges;
+        }
+
+        /**
+         * @return index of the train in the trains of the revenue adapter
+         */
+        int getTrainIndex() {
+            return trainIndex;
+        }
+
+        /**
+         * @return value of the run (see {@link RevenueTrainRun#getRunValue()})
+         */
+        int getValue() {
+            return value;
+        }
+
+        ImmutableList<String> getVertices() {
+            return vertices;
+        }
+
+        ImmutableList<Edge> getEdges() {
+            return edges;
+        }
+    }
+
+    static final class Entry {
+        private final int value;
+        private final ImmutableList<Run> optimalRun;
+
+        private Entry(int value, ImmutableList<Run> optimalRun) {
+            this.value = value;
+            this.optimalRun = optimalRun;
+        }
+
+        int getValue() {
+            return value;
+        }
+
+        ImmutableList<Run> getOptimalRun() {
+            return optimalRun;
+        }
+    }
+
+    private final Map<HashCode, Entry> entries;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    private RevenueCache(final int maximumSize) {
+        entries = new LinkedHashMap<HashCode, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HashCode, Entry> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    public static RevenueCache create() {
+        return new RevenueCache(DEFAULT_SIZE);
+    }
+
+    public static RevenueCache create(int maximumSize) {
+        return new RevenueCache(maximumSize);
+    }
+
+    /**
+     * @return the stored result, null if there is none
+     */
+    synchronized Entry get(HashCode fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+            log.debug("Revenue cache hit for " + fingerprint);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the result, if all runs can be stored without the network of the calculation
+     */
+    void put(HashCode fingerprint, int value, List<RevenueTrainRun> optimalRun) {
+        ImmutableList.Builder<Run> runs = ImmutableList.builder();
+        for (RevenueTrainRun run:optimalRun) {
+            Run storedRun = run.toCachedRun();
+            if (storedRun == null) return;
+            runs.add(storedRun);
+        }
+        synchronized (this) {
+            entries.put(fingerprint, new Entry(value, runs.build()));
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Creates the fingerprint of a populated revenue adapter
+     *
+     * It contains the company (including its stock price and special properties),
+     * the phase, the calculator type, the active modifiers and the complete input
+     * of the calculation: route graph with vertex values, start vertices, trains,
+     * visit sets and revenue bonuses.
+     * Vertices and edges are sorted, thus the fingerprint does not depend on the
+     * sequence of the graph creation.
+     * Active dynamic modifiers add their prepared state (see {@link RevenueModifierState}).
+     * @return fingerprint, null if the calculation cannot be cached
+     * (an active dynamic modifier does not describe its state)
+     */
+    static HashCode fingerprint(RevenueAdapter revenueAdapter, boolean useMultiGraph,
+                                List<RevenueStaticModifier> staticModifiers,
+                                List<RevenueDynamicModifier> dynamicModifiers) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+
+        PublicCompany company = revenueAdapter.getCompany();
+        putString(hasher, company.getId());
+        if (company.getCurrentSpace() != null) {
+            putString(hasher, company.getCurrentSpace().getId());
+        }
+        for (SpecialProperty property:company.getPortfolioModel().getAllSpecialProperties()) {
+            putString(hasher, property.getId());
+        }
+        putString(hasher, revenueAdapter.getPhase().getId());
+        hasher.putBoolean(useMultiGraph);
+        // the static modifiers change the revenue adapter only
+        for (RevenueStaticModifier modifier:staticModifiers) {
+            putString(hasher, modifier.getClass().getName());
+        }
+        hasher.putInt(staticModifiers.size());
+        for (RevenueDynamicModifier modifier:dynamicModifiers) {
+            if (!(modifier instanceof RevenueModifierState)) return null;
+            putString(hasher, modifier.getClass().getName());
+            putString(hasher, ((RevenueModifierState) modifier).getModifierState());
+        }
+        hasher.putInt(dynamicModifiers.size());
+
+        // route graph
+        List<String> elements = Lists.newArrayList();
+        for (NetworkVertex vertex:revenueAdapter.getVertices()) {
+            elements.add(vertex.getIdentifier() + ":" + vertex.getValue() + ":" + vertex.getStationType()
+                    + ":" + vertex.isSink() + ":" + vertex.getStopName());
+        }
+        for (NetworkEdge edge:revenueAdapter.getEdges()) {
+            String source = edge.getSource().getIdentifier();
+            String target = edge.getTarget().getIdentifier();
+            if (source.compareTo(target) > 0) {
+                String swap = source; source = target; target = swap;
+            }
+            elements.add(source + "-" + target + ":" + edge.isGreedy() + ":" + edge.getDistance());
+        }
+        putSorted(hasher, elements);
+
+        // start vertices
+        elements.clear();
+        for (NetworkVertex vertex:revenueAdapter.getStartVertices()) {
+            elements.add(vertex.getIdentifier());
+        }
+        putSorted(hasher, elements);
+
+        // trains (the sequence defines the train ids)
+        for (NetworkTrain train:revenueAdapter.getTrains()) {
+            putTrain(hasher, train);
+        }
+        hasher.putInt(revenueAdapter.getTrains().size());
+
+        // visit sets and bonuses
+        elements.clear();
+        for (RevenueAdapter.VertexVisit visit:revenueAdapter.getVertexVisitSets()) {
+            elements.add(sortedIdentifiers(visit.set));
+        }
+        putSorted(hasher, elements);
+        elements.clear();
+        for (RevenueBonus bonus:revenueAdapter.getRevenueBonuses()) {
+            List<String> trainTypes = Lists.newArrayList();
+            for (TrainType trainType:bonus.getTrainTypes()) {
+                trainTypes.add(trainType.getName());
+            }
+            List<String> trains = Lists.newArrayList();
+            for (Train train:bonus.getTrains()) {
+                trains.add(train.getId());
+            }
+            List<String> phases = Lists.newArrayList();
+            for (Phase phase:bonus.getPhases()) {
+                phases.add(phase.getId());
+            }
+            elements.add(bonus.getName() + ":" + bonus.getValue() + ":" + sortedIdentifiers(bonus.getVertices())
+                    + ":" + trainTypes + ":" + trains + ":" + phases);
+        }
+        putSorted(hasher, elements);
+
+        return hasher.hash();
+    }
+
+    /**
+     * Adds all attributes of the train that the calculation uses,
+     * the rails train and its type define the conditions of bonuses and modifiers
+     */
+    private static void putTrain(Hasher hasher, NetworkTrain train) {
+        putString(hasher, train.getTrainName());
+        hasher.putInt(train.getMajors());
+        hasher.putInt(train.getMinors());
+        hasher.putBoolean(train.ignoresMinors());
+        hasher.putInt(train.getMultiplyMajors());
+        hasher.putInt(train.getMultiplyMinors());
+        hasher.putBoolean(train.isHTrain());
+        hasher.putBoolean(train.isETrain());
+        putString(hasher, train.getRailsTrain() == null ? "" : train.getRailsTrain().getId());
+        putString(hasher, train.getRailsTrainType() == null ? "" : train.getRailsTrainType().getName());
+    }
+
+    private static String sortedIdentifiers(Collection<NetworkVertex> vertices) {
+        List<String> identifiers = Lists.newArrayList();
+        for (NetworkVertex vertex:vertices) {
+            // bonuses can contain undefined vertices
+            identifiers.add(vertex == null ? "" : vertex.getIdentifier());
+        }
+        Collections.sort(identifiers);
+        return identifiers.toString();
+    }
+
+    private static void putSorted(Hasher hasher, List<String> elements) {
+        Collections.sort(elements);
+        for (String element:elements) {
+            putString(hasher, element);
+        }
+        hasher.putInt(elements.size());
+    }
+
+    private static void putString(Hasher hasher, String text) {
+        hasher.putString(String.valueOf(text), StandardCharsets.UTF_8);
+        hasher.putChar('\0');
+    }
+
+}
@@ -1,6 +1,13 @@
 package net.sf.rails.algorithms;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,13 +24,14 @@ abstract class RevenueCalculator {
     protected final boolean[] vertexMajor;
     protected final boolean[] vertexMinor;
     protected final boolean[] vertexSink;
-    protected final int[] vertexNbNeighbors;
-    protected final int[] vertexNbVisitSets;
     protected final int[] vertexNbBonusSets;
     
-    protected final int[][] vertexNeighbors;
-    protected final int[][] vertexEdges;
-    protected final int[][] vertexVisitSets; // vertex belongs to a visit set, dimension: nbVertex x maxVertexSets
+    // neighbors and visit sets in CSR format, see CompiledRevenueGraph
+    protected final int[] neighborStart; // neighbors of vertex v: neighborStart[v] to neighborStart[v+1]-1
+    protected final int[] neighborVertices;
+    protected final int[] neighborEdges;
+    protected final int[] visitStart; // vertices blocked by vertex v: visitStart[v] to visitStart[v+1]-1
+    protected final int[] visitVertices;
     protected final int[][] vertexBonusSets; // vertex belongs to a bonus set, dimension: nbVertex x nbBonuses
 
     // start vertexes
@@ -52,6 +60,7 @@ abstract class RevenueCalculator {
     protected final boolean [] trainBottomActive;
     protected final int [] trainStartEdge;
     protected final int[] trainDistance; // keeps track of distance travelled (for H-trains)
+    protected final int[] trainStartIndex; // index of the active start vertex, -1 before the start vertex is chosen
      
     // static bonus data
     protected final int [] bonusValue;
@@ -77,6 +86,12 @@ abstract class RevenueCalculator {
     protected int[][] maxMajorRevenues; // dimensions trainId x nb vertex; 
     protected int[][] maxMinorRevenues; // dimensions trainId x nb vertex;
     protected int[][] maxBonusRevenues; // dimensions trainId x nb bonuses
+    
+    // prediction data restricted to the vertices reachable from each start vertex (optional)
+    protected boolean useReachabilityBounds;
+    protected int[][][] reachMajorRevenues; // dimensions trainId x start vertex index x nb vertex
+    protected int[][][] reachMinorRevenues; // dimensions trainId x start vertex index x nb vertex
+    protected int[][][] reachBonusRevenues; // dimensions trainId x start vertex index x nb bonuses
 
     // statistic data
     protected int countVisits;
@@ -84,6 +99,7 @@ abstract class RevenueCalculator {
     protected int nbEdgesTravelled;
     protected int nbEvaluations;
     protected int nbPredictions;
+    protected int nbReachTerminations; // predictions that only terminate due to the reachability bounds
 
     // revenue Adapter
     protected RevenueAdapter revenueAdapter;
@@ -91,6 +107,24 @@ abstract class RevenueCalculator {
     // activate dynamic revenue modifiers
     protected boolean callDynamicModifiers;
     
+    // vertices visited by the trains (only maintained for dynamic modifiers)
+    protected final int[][] trainVertexStack;
+    protected final int[] trainVertexStackPos;
+    protected final int[] trainVertexBottomPos; // position of the first bottom vertex, zero if no bottom run
+    protected final RevenueRunView runView;
+    
+    // parallel search: splits the first train by start vertexes
+    protected boolean useParallelSearch;
+    // best value shared between the workers of a parallel search (null for serial search)
+    protected AtomicInteger sharedBestValue;
+    
+    // cancellation and budget: checked every BUDGET_CHECK_INTERVAL vertex visits
+    private static final int BUDGET_CHECK_INTERVAL = 1024;
+    protected RevenueBudget budget;
+    protected boolean budgetExpired;
+    private int budgetCountdown;
+    private int budgetEvaluations;
+    
     // termination results
     protected static enum Terminated {
         WithEvaluation,
@@ -102,16 +136,19 @@ abstract class RevenueCalculator {
     protected static Logger log =
         LoggerFactory.getLogger(RevenueCalculator.class);
 
+    // tracing switch of the search: fixed at class loading, thus the JIT removes the disabled debug statements
+    // (enable debug level for net.sf.rails.algorithms.RevenueCalculator in logback.xml to trace)
+    protected static final boolean TRACE = log.isDebugEnabled();
+
     
-    public RevenueCalculator (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
-            int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
+    public RevenueCalculator (RevenueAdapter revenueAdapter, CompiledRevenueGraph graph, int nbTrains, int nbBonuses) {
         
-        log.info("RC defined: nbVertexes = " + nbVertexes + ", nbEdges = " + nbEdges + ", maxNeighbors = " + maxNeighbors +
-                ", maxVertexSets = " + maxVertexSets + ", maxEdgeSets = " + maxEdgeSets + ", nbTrains = " + nbTrains + ", nbBonuses = " + nbBonuses );
+        log.info("RC defined: nbVertexes = " + graph.nbVertexes + ", nbEdges = " + graph.nbEdges + 
+                ", maxNeighbors = " + graph.getMaxNeighbors() + ", nbTrains = " + nbTrains + ", nbBonuses = " + nbBonuses );
 
         this.revenueAdapter = revenueAdapter;
-        this.nbVertexes = nbVertexes;
-        this.nbEdges = nbEdges;
+        this.nbVertexes = graph.nbVertexes;
+        this.nbEdges = graph.nbEdges;
         this.nbTrains = nbTrains;
         this.nbBonuses = nbBonuses;
         
@@ -120,12 +157,12 @@ abstract class RevenueCalculator {
         vertexMajor = new boolean[nbVertexes];
         vertexMinor = new boolean[nbVertexes];
         vertexSink = new boolean[nbVertexes];
-        vertexNbNeighbors = new int[nbVertexes];
-        vertexNbVisitSets = new int[nbVertexes];
         vertexNbBonusSets = new int[nbVertexes];
-        vertexNeighbors = new int[nbVertexes][maxNeighbors];
-        vertexEdges = new int[nbVertexes][maxNeighbors];
-        vertexVisitSets = new int[nbVertexes][maxVertexSets]; 
+        neighborStart = graph.neighborStart;
+        neighborVertices = graph.neighborVertices;
+        neighborEdges = graph.neighborEdges;
+        visitStart = graph.visitStart;
+        visitVertices = graph.visitVertices;
         vertexBonusSets = new int[nbVertexes][nbBonuses];
         
         edgeGreedy = new boolean[nbEdges];
@@ -149,6 +186,7 @@ abstract class RevenueCalculator {
         trainBottomActive = new boolean[nbTrains];
         trainStartEdge = new int[nbTrains];
         trainDistance = new int[nbTrains];
+        trainStartIndex = new int[nbTrains];
         maxCumulatedTrainRevenues = new int[nbTrains];
         
         bonusValue = new int[nbBonuses];
@@ -159,17 +197,125 @@ abstract class RevenueCalculator {
         currentBestRun = new int[nbTrains][nbVertexes + 1];
         
         useRevenuePrediction = false;
+        useReachabilityBounds = false;
         
         callDynamicModifiers = false;
+        trainVertexStack = new int[nbTrains][nbVertexes];
+        trainVertexStackPos = new int[nbTrains];
+        trainVertexBottomPos = new int[nbTrains];
+        runView = new RevenueRunView(this);
+        
+        useParallelSearch = false;
+        
+        budgetCountdown = BUDGET_CHECK_INTERVAL;
+    }
+
+    /**
+     * Creates a worker for the parallel search:
+     * The static data is shared with the master, the dynamic data is private to the worker.
+     */
+    protected RevenueCalculator(RevenueCalculator master) {
+        
+        this.revenueAdapter = master.revenueAdapter;
+        this.nbVertexes = master.nbVertexes;
+        this.nbEdges = master.nbEdges;
+        this.nbTrains = master.nbTrains;
+        this.nbBonuses = master.nbBonuses;
+        
+        // share static vertex data
+        vertexValueByTrain = master.vertexValueByTrain;
+        vertexMajor = master.vertexMajor;
+        vertexMinor = master.vertexMinor;
+        vertexSink = master.vertexSink;
+        vertexNbBonusSets = master.vertexNbBonusSets;
+        neighborStart = master.neighborStart;
+        neighborVertices = master.neighborVertices;
+        neighborEdges = master.neighborEdges;
+        visitStart = master.visitStart;
+        visitVertices = master.visitVertices;
+        vertexBonusSets = master.vertexBonusSets;
+        startVertexes = master.startVertexes;
+        
+        // share static edge data
+        edgeGreedy = master.edgeGreedy;
+        edgeDistance = master.edgeDistance;
+        
+        // share static train data
+        trainMaxMajors = master.trainMaxMajors;
+        trainMaxMinors = master.trainMaxMinors;
+        trainMaxBonuses = master.trainMaxBonuses;
+        trainIgnoreMinors = master.trainIgnoreMinors;
+        trainIsH = master.trainIsH;
+        trainIsE = master.trainIsE;
+        
+        // share static bonus data
+        bonusValue = master.bonusValue;
+        bonusRequiresVertices = master.bonusRequiresVertices;
+        bonusActiveForTrain = master.bonusActiveForTrain;
+
+        // private dynamic train data
+        trainCurrentValue = new int[nbTrains];
+        trainMajors = new int[nbTrains];
+        trainMinors = new int[nbTrains];
+        trainBonuses = new int[nbTrains];
+        trainVisited = new boolean[nbTrains][nbVertexes];
+        trainStack = new int[nbTrains][nbVertexes + 1];
+        trainStackPos = new int[nbTrains];
+        trainBottomActive = new boolean[nbTrains];
+        trainStartEdge = new int[nbTrains];
+        trainDistance = new int[nbTrains];
+        trainStartIndex = new int[nbTrains];
+        trainVertexStack = new int[nbTrains][nbVertexes];
+        trainVertexStackPos = new int[nbTrains];
+        trainVertexBottomPos = new int[nbTrains];
+        
+        // private dynamic bonus data
+        bonusTrainVertices = new int[nbBonuses][nbTrains];
+        
+        // run settings
+        startTrainSet = master.startTrainSet;
+        finalTrainSet = master.finalTrainSet;
+        startTrain = master.startTrain;
+        finalTrain = master.finalTrain;
+        useRevenuePrediction = master.useRevenuePrediction;
+        useReachabilityBounds = master.useReachabilityBounds;
+        callDynamicModifiers = master.callDynamicModifiers;
+        useParallelSearch = false;
+        sharedBestValue = master.sharedBestValue;
+        budget = master.budget;
+        budgetExpired = master.budgetExpired;
+        budgetCountdown = BUDGET_CHECK_INTERVAL;
+        budgetEvaluations = 0;
+        
+        // current best run results start from the master values
+        currentBestValue = master.currentBestValue;
+        currentBestRun = new int[nbTrains][];
+        for (int j = 0; j < nbTrains; j++) {
+            currentBestRun[j] = master.currentBestRun[j].clone();
+        }
+        
+        // prediction data (read-only during the search)
+        maxCumulatedTrainRevenues = master.maxCumulatedTrainRevenues;
+        maxMajorRevenues = master.maxMajorRevenues;
+        maxMinorRevenues = master.maxMinorRevenues;
+        maxBonusRevenues = master.maxBonusRevenues;
+        reachMajorRevenues = master.reachMajorRevenues;
+        reachMinorRevenues = master.reachMinorRevenues;
+        reachBonusRevenues = master.reachBonusRevenues;
+        
+        runView = new RevenueRunView(this);
     }
+    
+    /**
+     * @return a new worker for the parallel search
+     */
+    abstract protected RevenueCalculator createWorker();
 
     final void setVertex(int id, boolean major, boolean minor, boolean sink) {
         vertexMajor[id] = major;
         vertexMinor[id] = minor;
         vertexSink[id] = sink;
-        // default neighbors && visit and bonus sets
-        vertexNbNeighbors[id] = 0;
-        vertexNbVisitSets[id] = 0;
+        // default bonus sets
         vertexNbBonusSets[id] = 0;
     }
     
@@ -177,26 +323,14 @@ abstract class RevenueCalculator {
         vertexValueByTrain[vertexId][trainId] = value;
     }
 
-    final void setVertexNeighbors(int id, int[] neighbors, int[] edges) {
-        // copy neighbors
-        for (int j=0; j < neighbors.length; j++) {
-                vertexNeighbors[id][j] = neighbors[j];
-                vertexEdges[id][j] = edges[j];
-        }
-        vertexNbNeighbors[id] = neighbors.length;
-        
-    }
-   
     final void setStartVertexes(int[] startVertexes) {
         this.startVertexes = startVertexes;
     }
     
     
-    void setEdge(int edgeId, boolean greedy, int distance) {
+    final void setEdge(int edgeId, boolean greedy, int distance) {
         edgeGreedy[edgeId] = greedy;
         edgeDistance[edgeId] = distance;
-        // default travel sets
-//        edgeNbTravelSets[edgeId] = 0;
     }
     
     final void setTrain(int id, int majors, int minors, boolean ignoreMinors, boolean isHTrain, boolean isETrain) {
@@ -208,16 +342,6 @@ abstract class RevenueCalculator {
         trainIsE[id] = isETrain;
     }
     
-    final void setVisitSet(int[] vertices) {
-        for (int j=0; j < vertices.length; j++) {
-            int vertexId = vertices[j];
-            for (int k=0; k < vertices.length; k++) {
-                if (k == j) continue;
-                vertexVisitSets[vertexId][vertexNbVisitSets[vertexId]++] = vertices[k];
-            }
-        }
-    }
-    
     
     final void setBonus(int id, int value, int[] vertices, boolean[] bonusForTrain) {
         log.info("RC: define bonus value = " + value + ", vertices = " + Arrays.toString(vertices) +
@@ -236,6 +360,38 @@ abstract class RevenueCalculator {
         callDynamicModifiers = activate;
     }
     
+    final void setParallelSearch(boolean activate) {
+        useParallelSearch = activate;
+    }
+    
+    final void setReachabilityBounds(boolean activate) {
+        useReachabilityBounds = activate;
+    }
+    
+    final void setBudget(RevenueBudget budget) {
+        this.budget = budget;
+        budgetExpired = (budget != null && budget.isExpired());
+        budgetCountdown = BUDGET_CHECK_INTERVAL;
+        budgetEvaluations = nbEvaluations;
+    }
+    
+    /**
+     * @return true if the last calculation was stopped by its budget
+     */
+    final boolean isBudgetExpired() {
+        return budgetExpired;
+    }
+    
+    private void checkBudget() {
+        budgetCountdown = BUDGET_CHECK_INTERVAL;
+        if (budget == null) return;
+        if (budget.check(nbEvaluations - budgetEvaluations)) {
+            budgetExpired = true;
+            log.info("RC: Calculation stopped by " + budget);
+        }
+        budgetEvaluations = nbEvaluations;
+    }
+    
     final int[][] getOptimalRun() {
         log.info("RC: currentBestRun = " + Arrays.deepToString(currentBestRun));
         return currentBestRun;
@@ -265,7 +421,12 @@ abstract class RevenueCalculator {
         statistics.append(nbEvaluations + " evaluations");
         if (useRevenuePrediction)
             statistics.append(", " + nbPredictions + " predictions");
-        statistics.append(" and " + nbEdgesTravelled + " edges travelled.");
+        if (useRevenuePrediction && useReachabilityBounds)
+            statistics.append(" (" + nbReachTerminations + " terminated by reachability bounds)");
+        statistics.append(" and " + nbEdgesTravelled + " edges travelled");
+        if (budgetExpired)
+            statistics.append(", stopped by budget");
+        statistics.append(".");
         return statistics.toString();
     }
     
@@ -287,7 +448,7 @@ abstract class RevenueCalculator {
             cumulatedRevenues += values[values.length - j];
             bestRevenues[j] = cumulatedRevenues;
         }
-        log.debug("Best Revenues = " + Arrays.toString(bestRevenues));
+        if (TRACE) log.debug("Best Revenues = " + Arrays.toString(bestRevenues));
         return bestRevenues;
     }
     
@@ -332,6 +493,115 @@ abstract class RevenueCalculator {
         log.info("maxMinorRevenues = " + Arrays.deepToString(maxMinorRevenues));
         log.info("maxBonusRevenues = " + Arrays.deepToString(maxBonusRevenues));
         log.info("maxCumulatedTrainRevenues = " + Arrays.toString(maxCumulatedTrainRevenues));
+        
+        if (useReachabilityBounds) {
+            initReachabilityValues(startTrain, finalTrain);
+        }
+    }
+    
+    /**
+     * Defines the prediction data for each start vertex:
+     * Only vertices that are reachable from the start vertex within the stations of the train are considered.
+     * A vertex is reachable if there is a path from the start vertex that does not pass a sink
+     * (except the start vertex itself) and does not contain more stations than the train is allowed to visit.
+     * As each run is a path through its start vertex, the run only visits reachable vertices.
+     * H-trains use the values of all vertices.
+     */
+    final private void initReachabilityValues(final int startTrain, final int finalTrain) {
+        
+        reachMajorRevenues = new int[nbTrains][startVertexes.length][];
+        reachMinorRevenues = new int[nbTrains][startVertexes.length][];
+        reachBonusRevenues = new int[nbTrains][startVertexes.length][];
+        for (int t=startTrain; t <= finalTrain; t++) {
+            int maxStations = trainMaxMajors[t];
+            if (!trainIgnoreMinors[t]) maxStations += trainMaxMinors[t];
+            int maxTrainRevenues = 0;
+            for (int s=0; s < startVertexes.length; s++) {
+                if (trainIsH[t]) {
+                    reachMajorRevenues[t][s] = maxMajorRevenues[t];
+                    reachMinorRevenues[t][s] = maxMinorRevenues[t];
+                    reachBonusRevenues[t][s] = maxBonusRevenues[t];
+                    maxTrainRevenues = maxCumulatedTrainRevenues[t];
+                    continue;
+                }
+                boolean[] reachable = reachableVertices(startVertexes[s], maxStations, trainIgnoreMinors[t]);
+                int[] majorValues = new int[nbVertexes];
+                int[] minorValues = new int[nbVertexes];
+                int[] bonusValues = new int[nbVertexes + nbBonuses];
+                int[] bonusVertices = new int[nbBonuses];
+                int major = 0, minor = 0, bonus = 0;
+                for (int v=0; v < nbVertexes; v++) {
+                    if (!reachable[v]) continue;
+                    for (int j=0; j < vertexNbBonusSets[v]; j++) {
+                        bonusVertices[vertexBonusSets[v][j]]++;
+                    }
+                    if (vertexValueByTrain[v][t] == 0) continue;
+                    if (vertexMajor[v]) {
+                        majorValues[major++] = vertexValueByTrain[v][t];
+                    } else if (vertexMinor[v]) {
+                        minorValues[minor++] = vertexValueByTrain[v][t];
+                    } else {
+                        bonusValues[bonus++] = vertexValueByTrain[v][t];
+                    }
+                }
+                // complex bonuses require all of their vertices
+                for (int b=0; b < nbBonuses; b++) {
+                    if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
+                    if (bonusVertices[b] < bonusRequiresVertices[b]) continue;
+                    bonusValues[bonus++] = bonusValue[b];
+                }
+                reachMajorRevenues[t][s] = bestRevenues(majorValues, trainMaxMajors[t]);
+                reachMinorRevenues[t][s] = bestRevenues(minorValues, trainMaxMinors[t]);
+                reachBonusRevenues[t][s] = bestRevenues(bonusValues, trainMaxBonuses[t]);
+                int trainRevenues = reachMajorRevenues[t][s][trainMaxMajors[t]] 
+                        + reachMinorRevenues[t][s][trainMaxMinors[t]] + reachBonusRevenues[t][s][trainMaxBonuses[t]];
+                maxTrainRevenues = Math.max(maxTrainRevenues, trainRevenues);
+            }
+            // the train cannot earn more than from its best start vertex
+            maxCumulatedTrainRevenues[t] = Math.min(maxCumulatedTrainRevenues[t], maxTrainRevenues);
+        }
+        log.info("maxCumulatedTrainRevenues (reachability) = " + Arrays.toString(maxCumulatedTrainRevenues));
+    }
+    
+    /**
+     * @param maxStations maximum number of stations on a path from the start vertex (including both ends)
+     * @param onlyMajors true => only majors count as stations (express trains)
+     * @return vertices that are reachable from the start vertex
+     */
+    final private boolean[] reachableVertices(final int startVertex, final int maxStations, final boolean onlyMajors) {
+        // minimum number of stations on a path from the start vertex (0-1 breadth first search)
+        int[] stations = new int[nbVertexes];
+        Arrays.fill(stations, Integer.MAX_VALUE);
+        stations[startVertex] = isStation(startVertex, onlyMajors) ? 1 : 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(startVertex);
+        while (!queue.isEmpty()) {
+            int vertexId = queue.pollFirst();
+            // runs do not pass sinks, except start vertices
+            if (vertexId != startVertex && vertexSink[vertexId]) continue;
+            for (int j = neighborStart[vertexId]; j < neighborStart[vertexId + 1]; j++) {
+                int neighborId = neighborVertices[j];
+                boolean station = isStation(neighborId, onlyMajors);
+                int neighborStations = stations[vertexId] + (station ? 1 : 0);
+                if (neighborStations > maxStations || neighborStations >= stations[neighborId]) continue;
+                stations[neighborId] = neighborStations;
+                if (station) {
+                    queue.addLast(neighborId);
+                } else {
+                    queue.addFirst(neighborId);
+                }
+            }
+        }
+        boolean[] reachable = new boolean[nbVertexes];
+        for (int v=0; v < nbVertexes; v++) {
+            reachable[v] = (stations[v] <= maxStations);
+        }
+        reachable[startVertex] = true;
+        return reachable;
+    }
+    
+    private boolean isStation(final int vertexId, final boolean onlyMajors) {
+        return vertexMajor[vertexId] || !onlyMajors && vertexMinor[vertexId];
     }
     
     final void initRuns(final int startTrain, final int finalTrain) {
@@ -361,11 +631,11 @@ abstract class RevenueCalculator {
         }
         
         // start prediction runs
-        nbEvaluations = 0; nbPredictions = 0; nbEdgesTravelled = 0;
+        nbEvaluations = 0; nbPredictions = 0; nbReachTerminations = 0; nbEdgesTravelled = 0; budgetEvaluations = 0;
 
         log.info("RC: start individual prediction Runs");
         int[] maxSingleTrainRevenues = new int[nbTrains]; 
-        for (int j = startTrain; j <= finalTrain; j++) {
+        for (int j = startTrain; j <= finalTrain && !budgetExpired; j++) {
             this.startTrain = j;
             this.finalTrain = j;
             currentBestValue = 0;
@@ -385,7 +655,7 @@ abstract class RevenueCalculator {
 
         log.info("RC: start combined prediction runs");
         this.finalTrain = finalTrain;
-        for (int j=finalTrain - 1; j > startTrain; j--) {
+        for (int j=finalTrain - 1; j > startTrain && !budgetExpired; j--) {
             this.startTrain = j;
 //            currentBestValue = 0;
             runTrain(j);
@@ -403,16 +673,157 @@ abstract class RevenueCalculator {
         this.startTrain = startTrain;
         this.finalTrain = finalTrain;
        
-        runTrain(startTrain);
+        // dynamic modifiers evaluate the run of the master, thus they require the serial search
+        if (budgetExpired) {
+            log.info("RC: budget expired before the calculation has started");
+        } else if (useParallelSearch && !callDynamicModifiers && startVertexes.length > 1) {
+            runTrainParallel(startTrain);
+        } else {
+            runTrain(startTrain);
+        }
 
-        // inform revenue listener via adapter
-        notifyRevenueAdapter(currentBestValue, true);
+        // inform revenue listener via adapter, a stopped calculation is not final
+        notifyRevenueAdapter(currentBestValue, !budgetExpired);
 
         return currentBestValue;
     }
    
+    /**
+     * Pool of the parallel search, it is not shared with other users of the common pool
+     * (e.g. the prerendering of tile images)
+     */
+    private static final class SearchPool {
+        private static final AtomicInteger threadNumber = new AtomicInteger();
+
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("RevenueSearch-" + threadNumber.incrementAndGet());
+                        return thread;
+                    }
+                }, null, false);
+    }
+
+    /**
+     * Runs the start train on the search pool:
+     * Each task uses its own worker and runs the train from one of the start vertexes,
+     * the final task covers the case that the train does not run at all.
+     * The workers share the best value found so far to keep the pruning effective.
+     * 
+     * The value is identical to the serial search, but the optimal run is not:
+     * the pruning stops each run that cannot exceed the shared value, thus of several runs
+     * with the optimal value the run found first (depending on the scheduling) is kept.
+     */
+    private void runTrainParallel(final int trainId) {
+        log.info("RC: parallel search over " + startVertexes.length + " start vertexes");
+
+        sharedBestValue = new AtomicInteger(currentBestValue);
+        final List<SearchTask> tasks = new ArrayList<SearchTask>();
+        for (int i=0; i <= startVertexes.length; i++) {
+            tasks.add(new SearchTask(createWorker(), trainId, i));
+        }
+        SearchPool.POOL.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        sharedBestValue = null;
+        
+        // collect results, of workers with equal values the first one is kept
+        // (other workers with the optimal value might have been pruned already)
+        for (SearchTask task:tasks) {
+            RevenueCalculator worker = task.worker;
+            nbEvaluations += worker.nbEvaluations;
+            nbPredictions += worker.nbPredictions;
+            nbReachTerminations += worker.nbReachTerminations;
+            nbEdgesTravelled += worker.nbEdgesTravelled;
+            budgetExpired |= worker.budgetExpired;
+            if (worker.currentBestValue > currentBestValue) {
+                currentBestValue = worker.currentBestValue;
+                for (int j = startTrainSet; j <= finalTrainSet; j++) {
+                    System.arraycopy(worker.currentBestRun[j], 0, currentBestRun[j], 0, nbVertexes + 1);
+                }
+            }
+        }
+    }
+    
+    private static final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RevenueCalculator worker;
+        private final int trainId;
+        private final int startVertexIndex;
+        
+        private SearchTask(RevenueCalculator worker, int trainId, int startVertexIndex) {
+            this.worker = worker;
+            this.trainId = trainId;
+            this.startVertexIndex = startVertexIndex;
+        }
+        
+        @Override
+        protected void compute() {
+            worker.runTrainPart(trainId, startVertexIndex);
+        }
+    }
+    
+    /**
+     * Runs the part of runTrain that starts at the start vertex with the given index.
+     * All previous start vertexes are already finished, thus they are marked as visited.
+     * An index equal to the number of start vertexes runs the train without any vertex.
+     */
+    private void runTrainPart(final int trainId, final int startVertexIndex) {
+        if (initTrain(trainId)) return;
+        
+        if (startVertexIndex == startVertexes.length) {
+            finalizeVertex(trainId, -1);
+            return;
+        }
+
+        for (int i=0; i < startVertexIndex; i++) {
+            trainVisited[trainId][startVertexes[i]] = true;
+        }
+        if (budgetExpired) return;
+        runStartVertex(trainId, startVertexIndex);
+        for (int i=0; i <= startVertexIndex; i++) {
+            trainVisited[trainId][startVertexes[i]] = false;
+        }
+    }
+    
+    /**
+     * Initializes the dynamic data of the train
+     * @return true if the train cannot beat the current best value
+     */
+    protected boolean initTrain(final int trainId) {
+        // initialize value
+        trainCurrentValue[trainId] = 0;
+        trainStartIndex[trainId] = -1;
+
+        // initialize train lengths
+        trainMajors[trainId] = trainMaxMajors[trainId];
+        trainMinors[trainId] = trainMaxMinors[trainId];
+        trainBonuses[trainId] = trainMaxBonuses[trainId];
+        
+        // initialize the positions
+        trainStackPos[trainId] = 0;
+        trainBottomActive[trainId] = false;
+        trainVertexStackPos[trainId] = 0;
+        trainVertexBottomPos[trainId] = 0;
+        
+        // initialize bonuses
+        for (int b=0; b < nbBonuses; b++) {
+            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
+        }
+        
+        // check if the revenue is enough
+        return useRevenuePrediction && predictRevenues(trainId);
+    }
+    
     abstract protected void runTrain(final int trainId);
     
+    abstract protected void runStartVertex(final int trainId, final int startVertexIndex);
+    
     abstract protected void runBottom(final int trainId);
 
     
@@ -422,13 +833,14 @@ abstract class RevenueCalculator {
     
     protected final boolean encounterVertex(final int trainId, final int vertexId, final boolean arrive) {
 
-        log.debug("RC: EncounterVertex, trainId = " + trainId + " vertexId = " + vertexId + " arrive = " + arrive);
+        if (TRACE) log.debug("RC: EncounterVertex, trainId = " + trainId + " vertexId = " + vertexId + " arrive = " + arrive);
         
         // set visit to true if arriving, otherwise you leave
         trainVisited[trainId][vertexId] = arrive;
 
         boolean stationVertex = false;
         if (arrive) {
+            if (--budgetCountdown == 0) checkBudget();
             trainCurrentValue[trainId] += vertexValueByTrain[vertexId][trainId];
             if (vertexMajor[vertexId]) {
                 trainMajors[trainId]--;
@@ -438,6 +850,7 @@ abstract class RevenueCalculator {
                 stationVertex = !trainIgnoreMinors[trainId];
             }
             countVisits++;
+            if (callDynamicModifiers) trainVertexStack[trainId][trainVertexStackPos[trainId]++] = vertexId;
         } else {
             trainCurrentValue[trainId] -= vertexValueByTrain[vertexId][trainId];
             if (vertexMajor[vertexId]) {
@@ -448,12 +861,13 @@ abstract class RevenueCalculator {
                 stationVertex = !trainIgnoreMinors[trainId];
             }
             countVisits--;
+            if (callDynamicModifiers) trainVertexStackPos[trainId]--;
         }   
         
         // check vertex sets
-        for (int j=0; j < vertexNbVisitSets[vertexId]; j++) {
-            trainVisited[trainId][vertexVisitSets[vertexId][j]] = arrive;
-            log.debug("RC: visited = " + arrive + " for vertex " + vertexVisitSets[vertexId][j] + " due to block rule");
+        for (int j=visitStart[vertexId]; j < visitStart[vertexId + 1]; j++) {
+            trainVisited[trainId][visitVertices[j]] = arrive;
+            if (TRACE) log.debug("RC: visited = " + arrive + " for vertex " + visitVertices[j] + " due to block rule");
         }
         
         // check bonus sets
@@ -462,25 +876,25 @@ abstract class RevenueCalculator {
             if (!bonusActiveForTrain[bonusId][trainId]) continue;
             if (arrive) { 
                 bonusTrainVertices[bonusId][trainId]--;
-                log.debug("RC: Decreased bonus " + bonusId + " to " + bonusTrainVertices[bonusId][trainId]);
+                if (TRACE) log.debug("RC: Decreased bonus " + bonusId + " to " + bonusTrainVertices[bonusId][trainId]);
                 if (bonusTrainVertices[bonusId][trainId] == 0) {
                    trainCurrentValue[trainId] += bonusValue[bonusId];
                    if (bonusValue[bonusId] > 0) trainBonuses[trainId]--; 
-                   log.debug("RC: Added bonus " + bonusId + " with value " + bonusValue[bonusId]);
+                   if (TRACE) log.debug("RC: Added bonus " + bonusId + " with value " + bonusValue[bonusId]);
                 }
             } else {
                 if (bonusTrainVertices[bonusId][trainId] == 0) {
                     trainCurrentValue[trainId] -= bonusValue[bonusId];
                     if (bonusValue[bonusId] > 0) trainBonuses[trainId]++; 
-                    log.debug("RC: Removed bonus " + bonusId + " with value " + bonusValue[bonusId]);
+                    if (TRACE) log.debug("RC: Removed bonus " + bonusId + " with value " + bonusValue[bonusId]);
                  }
                 bonusTrainVertices[bonusId][trainId]++;
-                log.debug("RC: Increases bonus " + bonusId + " to " + bonusTrainVertices[bonusId][trainId]);
+                if (TRACE) log.debug("RC: Increases bonus " + bonusId + " to " + bonusTrainVertices[bonusId][trainId]);
             }
         }
         
-        log.debug("RC: stationVertex = " + stationVertex);
-        log.debug("RC: Count Visits = " + countVisits);
+        if (TRACE) log.debug("RC: stationVertex = " + stationVertex);
+        if (TRACE) log.debug("RC: Count Visits = " + countVisits);
         return stationVertex;
     }
 
@@ -503,14 +917,17 @@ abstract class RevenueCalculator {
                 terminated = Terminated.WithEvaluation;
         }
         if (terminated != Terminated.NotYet) {
-            log.debug ("RC: Train " + trainId + " has terminated: " +
+            if (TRACE) log.debug ("RC: Train " + trainId + " has terminated: " +
             		"majors = " + trainMajors[trainId] + " minors = " + trainMinors[trainId]);
         }
         return terminated;
     }
     
     protected final void finalizeVertex(final int trainId, final int vertexId) {
-        log.debug("RC: Finalize Vertex id " + vertexId + " for train " + trainId);
+        if (TRACE) log.debug("RC: Finalize Vertex id " + vertexId + " for train " + trainId);
+        
+        // a stopped calculation only unwinds
+        if (budgetExpired) return;
         
         if (trainId == finalTrain) {
             evaluateResults();
@@ -534,10 +951,10 @@ abstract class RevenueCalculator {
 //            }
         }
 
-        if (callDynamicModifiers) totalValue += revenueAdapter.dynamicEvaluation();
+        if (callDynamicModifiers) totalValue += revenueAdapter.dynamicEvaluation(runView);
         
         nbEvaluations++;
-        log.debug("RC: current total value " + totalValue);
+        if (TRACE) log.debug("RC: current total value " + totalValue);
         
         // compare to current best result
         if (totalValue > currentBestValue) {
@@ -554,47 +971,26 @@ abstract class RevenueCalculator {
                 }
             }
             log.info("RC: Found better run with " + totalValue);
-            // inform revenue listener via adapter
-            notifyRevenueAdapter(currentBestValue, false);
+            // inform revenue listener via adapter, for parallel search only if it is the best of all workers
+            if (sharedBestValue == null) {
+                notifyRevenueAdapter(currentBestValue, false);
+            } else if (sharedBestValue.getAndAccumulate(totalValue, Math::max) < totalValue) {
+                notifyRevenueAdapter(totalValue, false);
+            }
         }
     }
     
     // predict revenues and returns true if best value can still be exceeded
     protected final boolean predictRevenues(final int trainId){
         // the potential revenues of the future trains
-        int totalValue = 0;
+        int futureValue = 0;
         if (trainId < finalTrain)
-             totalValue = maxCumulatedTrainRevenues[trainId + 1];
+             futureValue = maxCumulatedTrainRevenues[trainId + 1];
         
-        // predict the current train
-        int trainValue = trainCurrentValue[trainId];
-        if (trainIgnoreMinors[trainId]) {
-            // express train
-            trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
-        } else {
-            if (trainMinors[trainId] > 0){
-                trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
-                trainValue += maxMinorRevenues[trainId][trainMinors[trainId]];
-            } else { // <= 0
-                int trainStations = trainMajors[trainId] + trainMinors[trainId];
-                // trainStations can be zero or negative (for H trains)
-                if (trainStations > 0) {
-                    trainValue += maxMajorRevenues[trainId][trainStations]; 
-                }
-            }
-        }
-        // add potential bonuses
-        if (trainBonuses[trainId] != 0) {
-            trainValue += maxBonusRevenues[trainId][trainBonuses[trainId]];
-        }
-        log.debug("RC: Current train has predicted  value of " + trainValue);
-
-        // maximum value for the trainId including future trains
-        totalValue = Math.min(totalValue + trainValue, maxCumulatedTrainRevenues[trainId]); 
-        
-        // and add the past trains: current realized values
+        // and the past trains: current realized values
+        int pastValue = 0;
         for (int j = startTrain; j < trainId; j++) {
-          totalValue += trainCurrentValue[j];
+          pastValue += trainCurrentValue[j];
 //        check for two stations requirement not necessary if stationVertex approach works
 //            if (trainIgnoreMinors[j]) { 
 //                if (trainMaxMajors[j] - trainMajors[j] >= 2)
@@ -605,16 +1001,61 @@ abstract class RevenueCalculator {
 //            }
         }
 
-        if (callDynamicModifiers) totalValue += revenueAdapter.dynamicPrediction();
+        if (callDynamicModifiers) pastValue += revenueAdapter.dynamicPrediction(runView);
         
         nbPredictions++;
         
-        boolean terminate = (totalValue <= currentBestValue);
-        if (terminate) log.debug("Run terminated due to predicted value of " +  totalValue);
+        int bestValue = currentBestValue;
+        if (sharedBestValue != null) {
+            bestValue = Math.max(bestValue, sharedBestValue.get());
+        }
+
+        // predict the current train: maximum value for the trainId including future trains
+        int trainValue = predictTrainValue(trainId, maxMajorRevenues[trainId], maxMinorRevenues[trainId], 
+                maxBonusRevenues[trainId]);
+        int totalValue = Math.min(futureValue + trainValue, maxCumulatedTrainRevenues[trainId]) + pastValue;
+        boolean terminate = (totalValue <= bestValue);
+        
+        // use the values reachable from the start vertex
+        int startIndex = trainStartIndex[trainId];
+        if (!terminate && useReachabilityBounds && startIndex >= 0) {
+            trainValue = predictTrainValue(trainId, reachMajorRevenues[trainId][startIndex], 
+                    reachMinorRevenues[trainId][startIndex], reachBonusRevenues[trainId][startIndex]);
+            totalValue = Math.min(futureValue + trainValue, maxCumulatedTrainRevenues[trainId]) + pastValue;
+            terminate = (totalValue <= bestValue);
+            if (terminate) nbReachTerminations++;
+        }
+        if (TRACE && terminate) log.debug("Run terminated due to predicted value of " +  totalValue);
 
         return terminate;
     }
     
+    private int predictTrainValue(final int trainId, final int[] majorRevenues, final int[] minorRevenues, 
+            final int[] bonusRevenues) {
+        int trainValue = trainCurrentValue[trainId];
+        if (trainIgnoreMinors[trainId]) {
+            // express train
+            trainValue += majorRevenues[trainMajors[trainId]];
+        } else {
+            if (trainMinors[trainId] > 0){
+                trainValue += majorRevenues[trainMajors[trainId]];
+                trainValue += minorRevenues[trainMinors[trainId]];
+            } else { // <= 0
+                int trainStations = trainMajors[trainId] + trainMinors[trainId];
+                // trainStations can be zero or negative (for H trains)
+                if (trainStations > 0) {
+                    trainValue += majorRevenues[trainStations]; 
+                }
+            }
+        }
+        // add potential bonuses
+        if (trainBonuses[trainId] != 0) {
+            trainValue += bonusRevenues[trainBonuses[trainId]];
+        }
+        if (TRACE) log.debug("RC: Current train has predicted  value of " + trainValue);
+        return trainValue;
+    }
+    
     
     @Override
     public String toString() {
@@ -623,11 +1064,12 @@ abstract class RevenueCalculator {
         buffer.append("vertexValuesByTrain:" + Arrays.deepToString(vertexValueByTrain) + "\n");
         buffer.append("vertexMajor:" + Arrays.toString(vertexMajor) + "\n");
         buffer.append("vertexMinor:" + Arrays.toString(vertexMinor) + "\n");
-        buffer.append("vertexNeighbors:" + Arrays.deepToString(vertexNeighbors) + "\n");
-        buffer.append("vertexEdges:" + Arrays.deepToString(vertexEdges) + "\n");
-        buffer.append("vertexVisitSets:" + Arrays.deepToString(vertexVisitSets) + "\n");
+        buffer.append("neighborStart:" + Arrays.toString(neighborStart) + "\n");
+        buffer.append("neighborVertices:" + Arrays.toString(neighborVertices) + "\n");
+        buffer.append("neighborEdges:" + Arrays.toString(neighborEdges) + "\n");
+        buffer.append("visitStart:" + Arrays.toString(visitStart) + "\n");
+        buffer.append("visitVertices:" + Arrays.toString(visitVertices) + "\n");
         buffer.append("vertexBonusSets:" + Arrays.deepToString(vertexBonusSets) + "\n");
-        buffer.append("vertexNbVisitSets:" + Arrays.toString(vertexNbVisitSets) + "\n");
         buffer.append("vertexNbBonusSets:" + Arrays.toString(vertexNbBonusSets) + "\n");
         buffer.append("edgeGreedy:" + Arrays.toString(edgeGreedy) + "\n");
         buffer.append("edgeDistance:" + Arrays.toString(edgeDistance) + "\n");
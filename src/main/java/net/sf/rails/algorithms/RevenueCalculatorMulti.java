@@ -2,8 +2,9 @@ package net.sf.rails.algorithms;
 
 class RevenueCalculatorMulti extends RevenueCalculator {
 
-    protected final int[] edgeNbTravelSets;
-    protected final int[][] edgeTravelSets; // edge belongs to a travel set, dimension: nbEdges x nbTravelSets
+    // travel sets in CSR format: edges used by edge e are travelEdges[travelStart[e]] to travelEdges[travelStart[e+1]-1]
+    protected final int[] travelStart;
+    protected final int[] travelEdges;
 
     // dynamic edge data
     private final int[] edgeUsed;
@@ -12,15 +13,12 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     private final int[] startVertexActive;
     
       
-    public RevenueCalculatorMulti (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
-            int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
+    public RevenueCalculatorMulti (RevenueAdapter revenueAdapter, CompiledRevenueGraph graph, int nbTrains, int nbBonuses) {
     
-        // maxEdgeSet set to zero
-        super(revenueAdapter, nbVertexes, nbEdges, 
-                maxNeighbors, maxVertexSets, maxEdgeSets, nbTrains, nbBonuses);
+        super(revenueAdapter, graph, nbTrains, nbBonuses);
 
-        edgeNbTravelSets = new int[nbEdges];
-        edgeTravelSets = new int[nbEdges][maxEdgeSets];
+        travelStart = graph.travelStart;
+        travelEdges = graph.travelEdges;
         
         // edge used is integer here
         edgeUsed = new int[nbEdges];
@@ -29,86 +27,33 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
     }
     
-    @Override
-    final void setEdge(int edgeId, boolean greedy, int distance) {
-        super.setEdge(edgeId, greedy, distance);
-        // default number for travel sets
-        edgeNbTravelSets[edgeId] = 0;
+    protected RevenueCalculatorMulti(RevenueCalculatorMulti master) {
+        super(master);
+        
+        // travel sets are static data
+        travelStart = master.travelStart;
+        travelEdges = master.travelEdges;
+        
+        edgeUsed = new int[nbEdges];
+        startVertexActive = new int[nbTrains];
     }
     
-    // define edgeTravelSets
-    final void setTravelSet(int edgeId, int[] edges) {
-        for (int j=0; j < edges.length; j++) {
-            edgeTravelSets[edgeId][edgeNbTravelSets[edgeId]++] = edges[j];
-        }
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMulti(this);
     }
     
     @Override
     protected void runTrain(final int trainId) {
-        log.debug("RC: runTrain " + trainId);
-        
-        // initialize value
-        trainCurrentValue[trainId] = 0;
-
-        // initialize train lengths
-        trainMajors[trainId] = trainMaxMajors[trainId];
-        trainMinors[trainId] = trainMaxMinors[trainId];
-        trainBonuses[trainId] = trainMaxBonuses[trainId];
-        
-        // initialize the positions
-        trainStackPos[trainId] = 0;
-        trainBottomActive[trainId] = false;
+        if (TRACE) log.debug("RC: runTrain " + trainId);
         
-        // initialize bonuses
-        for (int b=0; b < nbBonuses; b++) {
-            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
-        }
-        
-        // check if the revenue is enough
-        if (useRevenuePrediction && predictRevenues(trainId))
+        // initialize train and check if the revenue is enough
+        if (initTrain(trainId))
             return;
 
         // try all startVertexes
-        for (int i=0; i < startVertexes.length; i++) {
-            int vertexId = startVertexes[i];
-            log.debug("RC: Using startVertex nr. " + i + " for train " + trainId);
-            boolean stationVertex = encounterVertex(trainId, vertexId, true);
-            if (stationVertex) {
-                // train cannot terminate at start vertex
-                if (useRevenuePrediction && predictRevenues(trainId)) {
-                    // cannot beat current best value => leave immediately
-                    encounterVertex(trainId, vertexId, false);
-                    // but keep them on the visited vertex list to avoid route duplication
-                    trainVisited[trainId][vertexId] = true;
-                    log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
-                    continue;
-                }
-            }
-
-            // then try all edges of it
-            startVertexActive[trainId] = vertexId;
-            // for startVertices the sink property is ignored
-            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                int edgeId = vertexEdges[vertexId][j];
-                if (edgeUsed[edgeId] != 0) continue; 
-                log.debug("RC: Testing Neighbor Nr. " + j + " of startVertex");
-                int neighborId = vertexNeighbors[vertexId][j];
-                if (trainVisited[trainId][neighborId]) {
-                    log.debug("RC: Hex already visited");
-                    continue;
-                }
-                travelEdge(trainId, edgeId);
-                trainStartEdge[trainId] = j; // store start edge
-                nextVertex(trainId, neighborId);
-                returnEdge(trainId, edgeId);
-                trainStackPos[trainId]--; // pull from stack
-            }
-
-            // no more edges to find
-            encounterVertex(trainId, vertexId, false);
-            // keep them on the visited vertex list to avoid route duplication
-            trainVisited[trainId][vertexId] = true;
-            log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+        for (int i=0; i < startVertexes.length && !budgetExpired; i++) {
+            runStartVertex(trainId, i);
         }
 
         // finished all tries
@@ -120,33 +65,78 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         // allow that the train does not run at all
         finalizeVertex(trainId, -1);
         
-        log.debug("RC: finishTrain " + trainId);
+        if (TRACE) log.debug("RC: finishTrain " + trainId);
+
+    }
 
+    @Override
+    protected final void runStartVertex(final int trainId, final int startVertexIndex) {
+        int vertexId = startVertexes[startVertexIndex];
+        if (TRACE) log.debug("RC: Using startVertex nr. " + startVertexIndex + " for train " + trainId);
+        trainStartIndex[trainId] = startVertexIndex;
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        if (stationVertex) {
+            // train cannot terminate at start vertex
+            if (useRevenuePrediction && predictRevenues(trainId)) {
+                // cannot beat current best value => leave immediately
+                encounterVertex(trainId, vertexId, false);
+                // but keep them on the visited vertex list to avoid route duplication
+                trainVisited[trainId][vertexId] = true;
+                if (TRACE) log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+                return;
+            }
+        }
+
+        // then try all edges of it
+        startVertexActive[trainId] = vertexId;
+        // for startVertices the sink property is ignored
+        for (int j = neighborStart[vertexId]; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+            int edgeId = neighborEdges[j];
+            if (edgeUsed[edgeId] != 0) continue; 
+            if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of startVertex");
+            int neighborId = neighborVertices[j];
+            if (trainVisited[trainId][neighborId]) {
+                if (TRACE) log.debug("RC: Hex already visited");
+                continue;
+            }
+            travelEdge(trainId, edgeId);
+            trainStartEdge[trainId] = j; // store start edge (position in neighbor arrays)
+            nextVertex(trainId, neighborId);
+            returnEdge(trainId, edgeId);
+            trainStackPos[trainId]--; // pull from stack
+        }
+
+        // no more edges to find
+        encounterVertex(trainId, vertexId, false);
+        // keep them on the visited vertex list to avoid route duplication
+        trainVisited[trainId][vertexId] = true;
+        if (TRACE) log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
     }
 
     @Override
     final protected void runBottom(final int trainId) {
-        log.debug("RC: runBottom " + trainId);
+        if (TRACE) log.debug("RC: runBottom " + trainId);
         
         // use startvertex, check if it is a sink
         int vertexId = startVertexActive[trainId];
         if (vertexSink[vertexId]) {
-            log.debug("RC: startvertex is sink, finished bottom of " + trainId);
+            if (TRACE) log.debug("RC: startvertex is sink, finished bottom of " + trainId);
             return;
         }
                 
         // push to stack
         trainBottomActive[trainId] = true; 
-        log.debug("RC: Restart at bottom at stack position " + trainStackPos[trainId]);
+        trainVertexBottomPos[trainId] = trainVertexStackPos[trainId];
+        if (TRACE) log.debug("RC: Restart at bottom at stack position " + trainStackPos[trainId]);
 //        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
         
-        for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
-            int edgeId = vertexEdges[vertexId][j]; 
+        for (int j = trainStartEdge[trainId] + 1; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+            int edgeId = neighborEdges[j]; 
             if (edgeUsed[edgeId] != 0) continue; 
-            int neighborId = vertexNeighbors[vertexId][j];
-            log.debug("RC: Testing Neighbor Nr. " + j + " of bottomVertex is " + neighborId);
+            int neighborId = neighborVertices[j];
+            if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of bottomVertex is " + neighborId);
             if (trainVisited[trainId][neighborId]) {
-                log.debug(" RC: Hex already visited");
+                if (TRACE) log.debug(" RC: Hex already visited");
                 continue;
             }
             travelEdge(trainId, edgeId);
@@ -157,7 +147,8 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         
 //        trainStackPos[trainId]--; // pull from stack
         trainBottomActive[trainId] = false;
-        log.debug("RC: finished bottom of " + trainId);
+        trainVertexBottomPos[trainId] = 0;
+        if (TRACE) log.debug("RC: finished bottom of " + trainId);
 
 
     }
@@ -181,13 +172,13 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         // 2a. visit neighbors, if train has not terminated and vertex is not a sink
         if (trainTerminated == Terminated.NotYet) {
             if (!vertexSink[vertexId]) {
-                for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                    int edgeId = vertexEdges[vertexId][j];
+                for (int j = neighborStart[vertexId]; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+                    int edgeId = neighborEdges[j];
                     if (edgeUsed[edgeId] != 0) continue; 
-                    int neighborId = vertexNeighbors[vertexId][j];
-                    log.debug("RC: Testing Neighbor Nr. " + j + " of " + vertexId + " is " + neighborId);
+                    int neighborId = neighborVertices[j];
+                    if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of " + vertexId + " is " + neighborId);
                     if (trainVisited[trainId][neighborId]) {
-                        log.debug("RC: Hex already visited");
+                        if (TRACE) log.debug("RC: Hex already visited");
                         continue;
                     }
                     travelEdge(trainId, edgeId);
@@ -211,16 +202,16 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     }
 
     protected void travelEdge(final int trainId, final int edgeId) {
-        log.debug("RC: Travel edge id " + edgeId);
+        if (TRACE) log.debug("RC: Travel edge id " + edgeId);
         edgeUsed[edgeId]++;
         trainStack[trainId][trainStackPos[trainId]++] = edgeId; // push to stack
         countEdges++; nbEdgesTravelled++;
-        log.debug("RC: Count Edges = " + countEdges);
+        if (TRACE) log.debug("RC: Count Edges = " + countEdges);
 
         // check edge sets
-        for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
-            edgeUsed[edgeTravelSets[edgeId][j]]++;
-            log.debug("RC: travelled edge " + edgeTravelSets[edgeId][j]  + " due to edge set.");
+        for (int j=travelStart[edgeId]; j < travelStart[edgeId + 1]; j++) {
+            edgeUsed[travelEdges[j]]++;
+            if (TRACE) log.debug("RC: travelled edge " + travelEdges[j]  + " due to edge set.");
         }
     }
     
@@ -230,16 +221,16 @@ class RevenueCalculatorMulti extends RevenueCalculator {
           if (edgeUsed[edgeId] != 0) {
               edgeUsed[edgeId]--;
               countEdges--;
-              log.debug("RC: Cleared edge id " + edgeId);
-              log.debug("RC: Count Edges = " + countEdges);
+              if (TRACE) log.debug("RC: Cleared edge id " + edgeId);
+              if (TRACE) log.debug("RC: Count Edges = " + countEdges);
      
               // check edge sets
-              for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
-                  edgeUsed[edgeTravelSets[edgeId][j]]--;
-                  log.debug("RC: Cleared edge " + edgeTravelSets[edgeId][j]  + " due to edge set.");
+              for (int j=travelStart[edgeId]; j < travelStart[edgeId + 1]; j++) {
+                  edgeUsed[travelEdges[j]]--;
+                  if (TRACE) log.debug("RC: Cleared edge " + travelEdges[j]  + " due to edge set.");
               }
           } else {
-              log.debug("RC: Error return edge id used: " + edgeId);
+              if (TRACE) log.debug("RC: Error return edge id used: " + edgeId);
           }
 
     }
@@ -2,21 +2,28 @@ package net.sf.rails.algorithms;
 
 class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
 
-    public RevenueCalculatorMultiHex (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
-            int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
+    public RevenueCalculatorMultiHex (RevenueAdapter revenueAdapter, CompiledRevenueGraph graph, int nbTrains, int nbBonuses) {
 
-        super(revenueAdapter, nbVertexes, nbEdges, 
-                maxNeighbors, maxVertexSets, maxEdgeSets, nbTrains, nbBonuses);
+        super(revenueAdapter, graph, nbTrains, nbBonuses);
 
     }
 
+    private RevenueCalculatorMultiHex(RevenueCalculatorMultiHex master) {
+        super(master);
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMultiHex(this);
+    }
+
     @Override
-    protected void runTrain(int trainId) {
+    protected boolean initTrain(int trainId) {
         // init train distance
         if (trainIsH[trainId]) {
             trainDistance[trainId] = trainMaxMajors[trainId];
         }
-        super.runTrain(trainId);
+        return super.initTrain(trainId);
     }
 
     @Override
@@ -39,7 +46,7 @@ class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
             // H-train can always travel a zero distance to a next node
             // thus always check until negative distance
             if (trainDistance[trainId] < 0){
-                log.debug ("RC: H-Train " + trainId + " has terminated: " +
+                if (TRACE) log.debug ("RC: H-Train " + trainId + " has terminated: " +
                         "distance = " + trainDistance[trainId]);
                 return Terminated.WithoutEvaluation;
             } else {
@@ -5,86 +5,36 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
     // dynamic edge data
     private final boolean[] edgeUsed;
   
-    public RevenueCalculatorSimple (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
-            int maxNeighbors, int maxVertexSets, int nbTrains, int nbBonuses) {
+    public RevenueCalculatorSimple (RevenueAdapter revenueAdapter, CompiledRevenueGraph graph, int nbTrains, int nbBonuses) {
     
-        // maxEdgeSet set to zero
-        super(revenueAdapter, nbVertexes, nbEdges, 
-                maxNeighbors, maxVertexSets, 0, nbTrains, nbBonuses);
+        super(revenueAdapter, graph, nbTrains, nbBonuses);
 
         // edge used is boolean here
         edgeUsed = new boolean[nbEdges];
 
     }
     
+   private RevenueCalculatorSimple(RevenueCalculatorSimple master) {
+       super(master);
+       edgeUsed = new boolean[nbEdges];
+   }
+   
+   @Override
+   protected RevenueCalculator createWorker() {
+       return new RevenueCalculatorSimple(this);
+   }
+    
    @Override
    protected final void runTrain(final int trainId) {
-        log.debug("RC: runTrain " + trainId);
-        
-        // initialize value
-        trainCurrentValue[trainId] = 0;
-
-        // initialize train lengths
-        trainMajors[trainId] = trainMaxMajors[trainId];
-        trainMinors[trainId] = trainMaxMinors[trainId];
-        trainBonuses[trainId] = trainMaxBonuses[trainId];
+        if (TRACE) log.debug("RC: runTrain " + trainId);
         
-        // initialize the positions
-        trainStackPos[trainId] = 0;
-        trainBottomActive[trainId] = false;
-        
-        // initialize bonuses
-        for (int b=0; b < nbBonuses; b++) {
-            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
-        }
-        
-        // check if the revenue is enough
-        if (useRevenuePrediction && predictRevenues(trainId))
+        // initialize train and check if the revenue is enough
+        if (initTrain(trainId))
             return;
 
         // try all startVertexes
-        for (int i=0; i < startVertexes.length; i++) {
-            int vertexId = startVertexes[i];
-            log.debug("RC: Using startVertex nr. " + i + " for train " + trainId);
-            boolean stationVertex = encounterVertex(trainId, vertexId, true);
-            trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
-            if (stationVertex) {
-                // train cannot terminate at start vertex
-                if (useRevenuePrediction && predictRevenues(trainId)) {
-                    // cannot beat current best value => leave immediately
-                    encounterVertex(trainId, vertexId, false);
-                    trainStackPos[trainId]--; // pull from stack
-                    // but keep them on the visited vertex list to avoid route duplication
-                    trainVisited[trainId][vertexId] = true;
-                    log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
-                    continue;
-                }
-            }
-
-            // then try all edges of it
-            // for startVertices the sink property is ignored
-            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                int edgeId = vertexEdges[vertexId][j];
-                if (edgeUsed[edgeId]) continue; 
-                log.debug("RC: Testing Neighbor Nr. " + j + " of startVertex");
-                int neighborId = vertexNeighbors[vertexId][j];
-                if (trainVisited[trainId][neighborId]) {
-                    log.debug("RC: Hex already visited");
-                    continue;
-                }
-                if (travelEdge(trainId, edgeId, true)) {
-                    trainStartEdge[trainId] = j; // store start edge
-                    nextVertex(trainId, neighborId, edgeGreedy[edgeId]);
-                    returnEdge(trainId, edgeId);
-                }
-            }
-
-            // no more edges to find
-            encounterVertex(trainId, vertexId, false);
-            trainStackPos[trainId]--; // pull from stack
-            // keep them on the visited vertex list to avoid route duplication
-            trainVisited[trainId][vertexId] = true;
-            log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+        for (int i=0; i < startVertexes.length && !budgetExpired; i++) {
+            runStartVertex(trainId, i);
         }
 
         // finished all tries
@@ -96,32 +46,79 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         // allow that the train does not run at all
         finalizeVertex(trainId, -1);
         
-        log.debug("RC: finishTrain " + trainId);
+        if (TRACE) log.debug("RC: finishTrain " + trainId);
     }
 
+   @Override
+   protected final void runStartVertex(final int trainId, final int startVertexIndex) {
+        int vertexId = startVertexes[startVertexIndex];
+        if (TRACE) log.debug("RC: Using startVertex nr. " + startVertexIndex + " for train " + trainId);
+        trainStartIndex[trainId] = startVertexIndex;
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
+        if (stationVertex) {
+            // train cannot terminate at start vertex
+            if (useRevenuePrediction && predictRevenues(trainId)) {
+                // cannot beat current best value => leave immediately
+                encounterVertex(trainId, vertexId, false);
+                trainStackPos[trainId]--; // pull from stack
+                // but keep them on the visited vertex list to avoid route duplication
+                trainVisited[trainId][vertexId] = true;
+                if (TRACE) log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+                return;
+            }
+        }
+
+        // then try all edges of it
+        // for startVertices the sink property is ignored
+        for (int j = neighborStart[vertexId]; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+            int edgeId = neighborEdges[j];
+            if (edgeUsed[edgeId]) continue; 
+            if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of startVertex");
+            int neighborId = neighborVertices[j];
+            if (trainVisited[trainId][neighborId]) {
+                if (TRACE) log.debug("RC: Hex already visited");
+                continue;
+            }
+            if (travelEdge(trainId, edgeId, true)) {
+                trainStartEdge[trainId] = j; // store start edge (position in neighbor arrays)
+                nextVertex(trainId, neighborId, edgeGreedy[edgeId]);
+                returnEdge(trainId, edgeId);
+            }
+        }
+
+        // no more edges to find
+        encounterVertex(trainId, vertexId, false);
+        trainStackPos[trainId]--; // pull from stack
+        // keep them on the visited vertex list to avoid route duplication
+        trainVisited[trainId][vertexId] = true;
+        if (TRACE) log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+   }
+
    @Override
    protected final void runBottom(final int trainId) {
-       log.debug("RC: runBottom " +trainId);
+       if (TRACE) log.debug("RC: runBottom " +trainId);
        
        // use startvertex, check if it is a sink
        int vertexId = trainStack[trainId][0];
        if (vertexSink[vertexId]) {
-           log.debug("RC: startvertex is sink, finished bottom of " + trainId);
+           if (TRACE) log.debug("RC: startvertex is sink, finished bottom of " + trainId);
            return;
        }
                
        trainBottomActive[trainId] = true;
+       trainVertexBottomPos[trainId] = trainVertexStackPos[trainId];
        // push to stack
-       log.debug("RC: Restart at bottom at stack position " + trainStackPos[trainId]);
+       if (TRACE) log.debug("RC: Restart at bottom at stack position " + trainStackPos[trainId]);
        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
        
-       for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
-           int edgeId = vertexEdges[vertexId][j]; 
+       for (int j = trainStartEdge[trainId] + 1; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+           int edgeId = neighborEdges[j]; 
            if (edgeUsed[edgeId]) continue; 
-           int neighborId = vertexNeighbors[vertexId][j];
-           log.debug("RC: Testing Neighbor Nr. " + j + " of bottomVertex is " + neighborId);
+           int neighborId = neighborVertices[j];
+           if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of bottomVertex is " + neighborId);
            if (trainVisited[trainId][neighborId]) {
-               log.debug(" RC: Hex already visited");
+               if (TRACE) log.debug(" RC: Hex already visited");
                continue;
            }
            if (travelEdge(trainId, edgeId, true)) {
@@ -132,7 +129,8 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        
        trainStackPos[trainId]--; // pull from stack
        trainBottomActive[trainId] = false;
-       log.debug("RC: finished bottom of " + trainId);
+       trainVertexBottomPos[trainId] = 0;
+       if (TRACE) log.debug("RC: finished bottom of " + trainId);
 
    }
    
@@ -157,13 +155,13 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        // 2a. visit neighbors, if train has not terminated and vertex is not a sink
        if (trainTerminated == Terminated.NotYet) {
            if (!vertexSink[vertexId]) {
-               for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                   int edgeId = vertexEdges[vertexId][j];
+               for (int j = neighborStart[vertexId]; j < neighborStart[vertexId + 1] && !budgetExpired; j++) {
+                   int edgeId = neighborEdges[j];
                    if (edgeUsed[edgeId]) continue;
-                   int neighborId = vertexNeighbors[vertexId][j];
-                   log.debug("RC: Testing Neighbor Nr. " + j + " of " + vertexId + " is " + neighborId);
+                   int neighborId = neighborVertices[j];
+                   if (TRACE) log.debug("RC: Testing Neighbor Nr. " + j + " of " + vertexId + " is " + neighborId);
                    if (trainVisited[trainId][neighborId]) {
-                       log.debug("RC: Hex already visited");
+                       if (TRACE) log.debug("RC: Hex already visited");
                        continue;
                    }
                    if (travelEdge(trainId, edgeId, previousGreedy)) {
@@ -189,12 +187,12 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
  
    protected final boolean travelEdge(final int trainId, final int edgeId, final boolean previousGreedy) {
        if (previousGreedy || edgeGreedy[edgeId]) {
-           log.debug("RC: Travel edge id " + edgeId);
+           if (TRACE) log.debug("RC: Travel edge id " + edgeId);
            edgeUsed[edgeId] = true;
 //           edgeUsed[edgeId]++;
            // trainEdgeStack[trainId][trainStackPos[trainId]] = edgeId;
            countEdges++; nbEdgesTravelled++;
-           log.debug("RC: Count Edges = " + countEdges);
+           if (TRACE) log.debug("RC: Count Edges = " + countEdges);
 
            // check edge sets
 //           for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
@@ -204,7 +202,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
            
            return true;
        } else {
-           log.debug("RC: Cannot travel edge id " + edgeId + ", because of greedy rule");
+           if (TRACE) log.debug("RC: Cannot travel edge id " + edgeId + ", because of greedy rule");
            return false;
        }
    }
@@ -214,10 +212,10 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        if (edgeUsed[edgeId]) {
            edgeUsed[edgeId] = false;
            countEdges--;
-           log.debug("RC: Cleared edge id " + edgeId);
-           log.debug("RC: Count Edges = " + countEdges);
+           if (TRACE) log.debug("RC: Cleared edge id " + edgeId);
+           if (TRACE) log.debug("RC: Count Edges = " + countEdges);
        } else {
-           log.debug("RC: Error return edge id used: " + edgeId);
+           if (TRACE) log.debug("RC: Error return edge id used: " + edgeId);
        }
    }
     
@@ -25,18 +25,26 @@ public interface RevenueDynamicModifier {
     /** 
      * Allows to change the value for the prediction
      * If several dynamic modifiers are active simultaneously, their prediction values are added up.  
-     * @param runs Current run of the revenue calculator
+     * This is called inside the revenue search, thus it should not allocate any objects.
+     * @param run View on the current run of the revenue calculator
      * @return value used to change the prediction
      */
-    public int predictionValue(List<RevenueTrainRun> runs);
+    public int predictionValue(RevenueRunView run);
     
     /** 
-     * Allows to change the value for the supplied runs from the revenue calculator
-     * @param runs Current run of the revenue calculator
-     * @param optimalRuns true => after optimization, false => during optimization
+     * Allows to change the value for the current run of the revenue calculator
+     * This is called inside the revenue search, thus it should not allocate any objects.
+     * @param run View on the current run of the revenue calculator
      * @return value used to change the run results
      */
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns);
+    public int evaluationValue(RevenueRunView run);
+    
+    /** 
+     * Allows to change the value of the optimal run after the optimization
+     * @param optimalRuns Optimized run from the revenue calculator (after adjustOptimalRun)
+     * @return value used to change the run results
+     */
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns);
     
     /** 
      * Allows to adjust the run list of the optimal train run output 
@@ -161,6 +161,26 @@ public final class RevenueManager extends RailsManager implements Configurable {
         return result;
     }
 
+    /**
+     * Calculates the optimal revenues of all companies that are able to run trains
+     * @param useMultiGraph true => multigraph, false => simplegraph
+     * @return batch with the results by company and the statistics of the calculation
+     */
+    public RevenueBatch calculateRevenues(boolean useMultiGraph) {
+        RailsRoot root = getRoot();
+        RevenueBatch batch = RevenueBatch.create(root, RevenueBatch.getOperatingCompanies(root),
+                root.getPhaseManager().getCurrentPhase());
+        batch.calculate(useMultiGraph);
+        return batch;
+    }
+
+    /**
+     * @return true if there are map or route graph modifiers
+     */
+    boolean hasGraphModifiers() {
+        return !graphModifiers.isEmpty();
+    }
+
     void activateMapGraphModifiers(NetworkGraph graph) {
         for (NetworkGraphModifier modifier:graphModifiers.view()) {
             modifier.modifyMapGraph(graph);
@@ -183,6 +203,20 @@ public final class RevenueManager extends RailsManager implements Configurable {
         }
     }
 
+    /**
+     * @return the static modifiers that are active for the current revenue adapter
+     */
+    List<RevenueStaticModifier> getActiveStaticModifiers() {
+        return new ArrayList<RevenueStaticModifier>(activeStaticModifiers);
+    }
+
+    /**
+     * @return the dynamic modifiers that are active for the current revenue adapter
+     */
+    List<RevenueDynamicModifier> getActiveDynamicModifiers() {
+        return new ArrayList<RevenueDynamicModifier>(activeDynamicModifiers);
+    }
+
     /**
      * @param revenueAdapter
      * @return true if there are active dynamic modifiers
@@ -218,25 +252,22 @@ public final class RevenueManager extends RailsManager implements Configurable {
     }
 
     /**
-     * @param run the current run
-     * @param optimal flag if this is the found optimal run
+     * @param run view on the current run of the revenue calculator
      * @return total value of dynamic modifiers
      */
-    int evaluationValue(List<RevenueTrainRun> run, boolean optimal) {
-        // this allows dynamic modifiers to change the optimal run
-        // however this is forbidden outside the optimal run!
+    int evaluationValue(RevenueRunView run) {
          int value = 0;
          for (RevenueDynamicModifier modifier:activeDynamicModifiers) {
-             value += modifier.evaluationValue(run, optimal);
+             value += modifier.evaluationValue(run);
          }
          return value;
      }
 
     /**
+     * @param run view on the current run of the revenue calculator
      * @return total prediction value of dynamic modifiers
      */
-    int predictionValue(List<RevenueTrainRun> run) {
-        // do not change the optimal run!
+    int predictionValue(RevenueRunView run) {
          int value = 0;
          for (RevenueDynamicModifier modifier:activeDynamicModifiers) {
              value += modifier.predictionValue(run);
@@ -244,6 +275,18 @@ public final class RevenueManager extends RailsManager implements Configurable {
          return value;
      }
     
+    /**
+     * @param optimalRun the found optimal run (already adjusted)
+     * @return total value of dynamic modifiers for the optimal run
+     */
+    int optimalRunValue(List<RevenueTrainRun> optimalRun) {
+         int value = 0;
+         for (RevenueDynamicModifier modifier:activeDynamicModifiers) {
+             value += modifier.optimalRunValue(optimalRun);
+         }
+         return value;
+     }
+    
     /**
      * 
      * @param revenueAdapter
@@ -0,0 +1,19 @@
+package net.sf.rails.algorithms;
+
+/**
+ * Dynamic modifiers implement RevenueModifierState to allow the reuse
+ * of revenue results (see {@link RevenueCache}).
+ *
+ * Revenue calculations with active dynamic modifiers that do not implement it
+ * are not cached, as the state defined by prepareModifier is unknown.
+ */
+public interface RevenueModifierState {
+
+    /**
+     * Called after prepareModifier returned true
+     * @return description of all values prepared for the calculation
+     * that are not part of the revenueAdapter (e.g. bonus values), empty if there are none
+     */
+    public String getModifierState();
+
+}
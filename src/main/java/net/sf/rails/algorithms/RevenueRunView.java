@@ -0,0 +1,170 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * RevenueRunView is a read-only view on the current run of the revenue calculator.
+ *
+ * It is used by the dynamic modifiers during the optimization:
+ * The view reads the arrays of the calculator directly and reuses its buffers,
+ * thus no objects are allocated during the evaluations and predictions.
+ *
+ * Vertices are identified by their ids inside the revenue calculator.
+ * The ids follow the {@link NetworkVertex.ValueOrder}, thus a lower id has a higher (or equal) value.
+ *
+ * Results of methods that return arrays are only valid until the next call to the view.
+ */
+public final class RevenueRunView {
+
+    private final RevenueCalculator rc;
+
+    // reusable buffers
+    private final int[] vertexBuffer;
+    private final int[] bonusBuffer;
+
+    RevenueRunView(RevenueCalculator rc) {
+        this.rc = rc;
+        vertexBuffer = new int[rc.nbVertexes];
+        bonusBuffer = new int[rc.nbBonuses];
+    }
+
+    public int getNumberOfTrains() {
+        return rc.nbTrains;
+    }
+
+    public NetworkTrain getTrain(int trainId) {
+        return rc.revenueAdapter.getTrains().get(trainId);
+    }
+
+    /**
+     * @return the vertex with the given id in the revenue calculator
+     */
+    public NetworkVertex getVertex(int vertexId) {
+        return rc.revenueAdapter.getRCVertex(vertexId);
+    }
+
+    public boolean isMajor(int vertexId) {
+        return rc.vertexMajor[vertexId];
+    }
+
+    public boolean isMinor(int vertexId) {
+        return rc.vertexMinor[vertexId];
+    }
+
+    /**
+     * @return value of the vertex for the train (including simple revenue bonuses)
+     */
+    public int getVertexValue(int trainId, int vertexId) {
+        return rc.vertexValueByTrain[vertexId][trainId];
+    }
+
+    /**
+     * @return number of vertices visited by the train, each vertex is counted once
+     */
+    public int getNumberOfVertices(int trainId) {
+        if (trainId < rc.startTrainSet || trainId > rc.finalTrainSet) return 0;
+        return rc.trainVertexStackPos[trainId];
+    }
+
+    /**
+     * @param index position in the order of visits, the bottom run follows the head run
+     */
+    public int getVertexId(int trainId, int index) {
+        return rc.trainVertexStack[trainId][index];
+    }
+
+    /**
+     * @return true if train has a valid run (at least two vertices)
+     */
+    public boolean hasValidRun(int trainId) {
+        return getNumberOfVertices(trainId) >= 2;
+    }
+
+    /**
+     * @return id of the vertex with the initial base token, -1 if the train does not run
+     */
+    public int getBaseVertexId(int trainId) {
+        if (getNumberOfVertices(trainId) == 0) return -1;
+        return rc.trainVertexStack[trainId][0];
+    }
+
+    /**
+     * @return id of the first vertex of the run, which is the end of the head run if there is a bottom run
+     */
+    public int getFirstVertexId(int trainId) {
+        if (getNumberOfVertices(trainId) == 0) return -1;
+        int bottomPos = rc.trainVertexBottomPos[trainId];
+        if (bottomPos > 0) {
+            return rc.trainVertexStack[trainId][bottomPos - 1];
+        } else {
+            return rc.trainVertexStack[trainId][0];
+        }
+    }
+
+    /**
+     * @return id of the last vertex of the run
+     */
+    public int getLastVertexId(int trainId) {
+        int nbVertices = getNumberOfVertices(trainId);
+        if (nbVertices == 0) return -1;
+        if (rc.trainVertexBottomPos[trainId] == nbVertices) {
+            // bottom run has started, but no vertex is visited yet
+            return rc.trainVertexStack[trainId][0];
+        } else {
+            return rc.trainVertexStack[trainId][nbVertices - 1];
+        }
+    }
+
+    public boolean containsVertex(int trainId, NetworkVertex vertex) {
+        int nbVertices = getNumberOfVertices(trainId);
+        for (int j=0; j < nbVertices; j++) {
+            if (rc.revenueAdapter.getRCVertex(rc.trainVertexStack[trainId][j]) == vertex) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return current value of the train run (including all revenue bonuses)
+     */
+    public int getRunValue(int trainId) {
+        if (getNumberOfVertices(trainId) == 0) return 0;
+        return rc.trainCurrentValue[trainId];
+    }
+
+    /**
+     * @return the vertex ids of the train run sorted by value (descending),
+     * the length of the result is given by getNumberOfVertices
+     */
+    public int[] getVertexIdsByValue(int trainId) {
+        int nbVertices = getNumberOfVertices(trainId);
+        System.arraycopy(rc.trainVertexStack[trainId], 0, vertexBuffer, 0, nbVertices);
+        Arrays.sort(vertexBuffer, 0, nbVertices);
+        return vertexBuffer;
+    }
+
+    /**
+     * @param vertexIds defines a subset of vertices that are used to calculate the run value
+     * @param nbVertexIds number of vertices in the subset
+     * @return total value of the vertices in the subset for the train
+     * This includes all revenue bonuses defined in the calculator
+     */
+    public int getRunValueForVertices(int trainId, int[] vertexIds, int nbVertexIds) {
+        int value = 0;
+        for (int j=0; j < nbVertexIds; j++) {
+            int vertexId = vertexIds[j];
+            value += rc.vertexValueByTrain[vertexId][trainId];
+            // count the vertices of the (complex) bonuses
+            for (int b=0; b < rc.vertexNbBonusSets[vertexId]; b++) {
+                bonusBuffer[rc.vertexBonusSets[vertexId][b]]++;
+            }
+        }
+        for (int b=0; b < rc.nbBonuses; b++) {
+            if (bonusBuffer[b] == rc.bonusRequiresVertices[b] && rc.bonusActiveForTrain[b][trainId]) {
+                value += rc.bonusValue[b];
+            }
+            bonusBuffer[b] = 0;
+        }
+        return value;
+    }
+
+}
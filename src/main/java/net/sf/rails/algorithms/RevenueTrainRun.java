@@ -16,6 +16,8 @@ import net.sf.rails.ui.swing.hexmap.HexMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * Links the results from the revenue calculator to the rails program Each
  * object defines the run of one train
@@ -138,6 +140,62 @@ public class RevenueTrainRun implements Comparable<RevenueTrainRun> {
         edges.add(edge);
     }
 
+    /**
+     * @return the run stored by vertex identifiers and the index of the train,
+     * null if the train is not part of the trains of the revenue adapter
+     */
+    RevenueCache.Run toCachedRun() {
+        int trainIndex = revenueAdapter.getTrains().indexOf(train);
+        if (trainIndex == -1) return null;
+        ImmutableList.Builder<String> vertexIds = ImmutableList.builder();
+        for (NetworkVertex vertex : vertices) {
+            vertexIds.add(vertex.getIdentifier());
+        }
+        ImmutableList.Builder<RevenueCache.Edge> edgeIds = ImmutableList.builder();
+        for (NetworkEdge edge : edges) {
+            ImmutableList.Builder<String> hiddenVertexIds = ImmutableList.builder();
+            for (NetworkVertex vertex : edge.getHiddenVertices()) {
+                hiddenVertexIds.add(vertex.getIdentifier());
+            }
+            edgeIds.add(new RevenueCache.Edge(edge.getSource().getIdentifier(),
+                    edge.getTarget().getIdentifier(), edge.isGreedy(), edge.getDistance(),
+                    hiddenVertexIds.build()));
+        }
+        return new RevenueCache.Run(trainIndex, getRunValue(), vertexIds.build(), edgeIds.build());
+    }
+
+    /**
+     * @return the stored run with the train and the vertices of the revenue adapter,
+     * null if the run does not fit to the revenue adapter
+     * @param vertices vertices of the revenue adapter by their identifiers
+     */
+    static RevenueTrainRun createFromCachedRun(RevenueAdapter revenueAdapter, RevenueCache.Run cachedRun,
+            Map<String, NetworkVertex> vertices) {
+        if (cachedRun.getTrainIndex() >= revenueAdapter.getTrains().size()) return null;
+        RevenueTrainRun run = new RevenueTrainRun(revenueAdapter,
+                revenueAdapter.getTrains().get(cachedRun.getTrainIndex()));
+        for (String vertexId : cachedRun.getVertices()) {
+            NetworkVertex vertex = vertices.get(vertexId);
+            if (vertex == null) return null;
+            run.vertices.add(vertex);
+        }
+        for (RevenueCache.Edge cachedEdge : cachedRun.getEdges()) {
+            NetworkVertex source = vertices.get(cachedEdge.getSource());
+            NetworkVertex target = vertices.get(cachedEdge.getTarget());
+            if (source == null || target == null) return null;
+            // hidden vertices are only used to draw the run
+            List<NetworkVertex> hiddenVertices = new ArrayList<NetworkVertex>();
+            for (String vertexId : cachedEdge.getHiddenVertices()) {
+                NetworkVertex vertex = vertices.get(vertexId);
+                if (vertex != null) hiddenVertices.add(vertex);
+            }
+            run.edges.add(new NetworkEdge(source, target, cachedEdge.isGreedy(),
+                    cachedEdge.getDistance(), hiddenVertices));
+        }
+        if (run.getRunValue() != cachedRun.getValue()) return null;
+        return run;
+    }
+
     /** defines the vertices from the list of edges */
     void convertEdgesToVertices() {
         vertices = new ArrayList<NetworkVertex>();
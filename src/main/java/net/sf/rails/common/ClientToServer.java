@@ -0,0 +1,131 @@
+package net.sf.rails.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Instances of this class carry a player action from the client (GUI or script)
+ * to the server (game engine), see {@link ServerToClient} for the answer.
+ *
+ * The action is either an {@link net.sf.rails.util.ActionCodec} record
+ * (with the definitions of the client encoder that were not sent before)
+ * or the index of one of the possible actions of the last answer.
+ * A request without action only returns the current possible actions.
+ *
+ * Over a socket the request is written as plain data (see {@link #writeTo(DataOutput)}),
+ * thus the server does not deserialize objects of the client.
+ */
+public class ClientToServer {
+
+    /** limit of the length of definitions and records */
+    private static final int MAX_LENGTH = 1 << 20;
+
+    private byte[] definitions = null;
+
+    private byte[] record = null;
+
+    private int actionIndex = -1;
+
+    private boolean replay = false;
+
+    /**
+     * @return request without action
+     */
+    public static ClientToServer create() {
+        return new ClientToServer();
+    }
+
+    /**
+     * @param definitions the definitions of the encoder added since the last request, null if none
+     * @param record the encoded action
+     */
+    public static ClientToServer createFromRecord(byte[] definitions, byte[] record) {
+        ClientToServer request = new ClientToServer();
+        request.definitions = definitions;
+        request.record = record;
+        return request;
+    }
+
+    /**
+     * @param actionIndex index of the action in the possible actions of the last answer
+     */
+    public static ClientToServer createFromIndex(int actionIndex) {
+        ClientToServer request = new ClientToServer();
+        request.actionIndex = actionIndex;
+        return request;
+    }
+
+    public byte[] getDefinitions() {
+        return definitions;
+    }
+
+    public byte[] getRecord() {
+        return record;
+    }
+
+    public int getActionIndex() {
+        return actionIndex;
+    }
+
+    public boolean hasAction() {
+        return record != null || actionIndex >= 0;
+    }
+
+    /**
+     * @return true if the action is processed as in the reload of a saved game
+     * (no automatic pass actions, see {@link net.sf.rails.game.GameManager#processOnReload})
+     */
+    public boolean isReplay() {
+        return replay;
+    }
+
+    public ClientToServer setReplay(boolean replay) {
+        this.replay = replay;
+        return this;
+    }
+
+    /**
+     * Writes the request as plain data
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(replay);
+        out.writeInt(actionIndex);
+        writeBytes(out, definitions);
+        writeBytes(out, record);
+    }
+
+    /**
+     * Reads a request written by {@link #writeTo(DataOutput)}
+     * @throws IOException if the data is not a valid request
+     */
+    public static ClientToServer readFrom(DataInput in) throws IOException {
+        ClientToServer request = new ClientToServer();
+        request.replay = in.readBoolean();
+        request.actionIndex = in.readInt();
+        request.definitions = readBytes(in);
+        request.record = readBytes(in);
+        return request;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length + " of request data");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+}
@@ -25,7 +25,7 @@ public class LocalText extends ResourceBundle {
 
     protected static Locale locale;
 
-    protected static ResourceBundle localisedText;
+    protected static volatile ResourceBundle localisedText;
 
     protected static Logger log =
             LoggerFactory.getLogger(LocalText.class);
@@ -55,38 +55,7 @@ public class LocalText extends ResourceBundle {
         
         /* Load the texts */
         if (localisedText == null) {
-            /*
-             * Check what locale has been configured, if any. If not, we use the
-             * default assigned above.
-             */
-            String item;
-            if (Util.hasValue(item = Config.get("language"))) {
-                language = item.toLowerCase();
-            }
-            if (Util.hasValue(item = Config.get("country"))) {
-                country = item.toUpperCase();
-                localeCode = language + "_" + country;
-            }
-            if (Util.hasValue(item = Config.get("locale"))) {
-                localeCode = item;
-                if (localeCode.length() >= 2)
-                    language = localeCode.substring(0, 2);
-                if (localeCode.length() >= 5)
-                    country = localeCode.substring(3, 5);
-            }
-            log.debug("Language=" + language + ", country=" + country
-                      + ", locale=" + localeCode);
-
-            /* Create the locale and get the resource bundle. */
-            locale = new Locale(language, country);
-
-            try {
-                localisedText =
-                        ResourceBundle.getBundle("LocalisedText", locale);
-            } catch (MissingResourceException e) {
-                System.err.println("Unable to locate LocalisedText resource: "
-                                   + e);
-            }
+            loadLocalisedText();
         }
 
         /* If the key contains a space, something is wrong, check who did that! */
@@ -127,6 +96,44 @@ public class LocalText extends ResourceBundle {
 
     }
 
+    // texts are shared by all games, thus the loading is synchronized
+    private static synchronized void loadLocalisedText() {
+        if (localisedText != null) return;
+
+        /*
+         * Check what locale has been configured, if any. If not, we use the
+         * default assigned above.
+         */
+        String item;
+        if (Util.hasValue(item = Config.get("language"))) {
+            language = item.toLowerCase();
+        }
+        if (Util.hasValue(item = Config.get("country"))) {
+            country = item.toUpperCase();
+            localeCode = language + "_" + country;
+        }
+        if (Util.hasValue(item = Config.get("locale"))) {
+            localeCode = item;
+            if (localeCode.length() >= 2)
+                language = localeCode.substring(0, 2);
+            if (localeCode.length() >= 5)
+                country = localeCode.substring(3, 5);
+        }
+        log.debug("Language=" + language + ", country=" + country
+                  + ", locale=" + localeCode);
+
+        /* Create the locale and get the resource bundle. */
+        locale = new Locale(language, country);
+
+        try {
+            localisedText =
+                    ResourceBundle.getBundle("LocalisedText", locale);
+        } catch (MissingResourceException e) {
+            System.err.println("Unable to locate LocalisedText resource: "
+                               + e);
+        }
+    }
+
     public static void setLocale(String localeCode) {
 
         LocalText.localeCode = localeCode;
@@ -21,6 +21,11 @@ import com.google.common.collect.Lists;
 /**
  * ReportBuffer stores messages of the game progress.
  *
+ * The observer (ReportWindow) receives the html paragraph of each report set:
+ * On close the new report set is appended, on undo/redo only the paragraphs that
+ * change the active highlight are replaced. The full text is only created
+ * for new observers and after an undo followed by a new action, it is bounded to the latest report sets.
+ *
  * Also used for regression testing comparing the output of the report buffer.
  */
 
@@ -31,6 +36,9 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     /** Indicator string to find the active message position in the parsed html document */
     public static final String ACTIVE_MESSAGE_INDICATOR = "(**)";
 
+    /** Maximum number of report sets in the full text, the observer keeps at most as many paragraphs */
+    public static final int MAX_FULL_TEXT_REPORTS = 1000;
+
     // static data
     private final Deque<ReportSet> pastReports = Lists.newLinkedList();
     private final Deque<ReportSet> futureReports = Lists.newLinkedList();
@@ -43,6 +51,8 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     // dynamic data
     private ReportSet.Builder currentReportBuilder;
     private ReportBuffer.Observer observer;
+    // active report set of the observer text
+    private ReportSet observedActive;
 
 
     private ReportBuffer(ReportManager parent, String id) {
@@ -55,12 +65,17 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
         return buffer;
     }
     
+    /**
+     * Adds the observer, it has to start with the text of {@link #getCurrentText()}
+     */
     public void addObserver(ReportBuffer.Observer observer) {
         this.observer = observer;
+        this.observedActive = pastReports.peekLast();
     }
     
     public void removeObserver() {
         this.observer = null;
+        this.observedActive = null;
     }
     
     /**
@@ -82,17 +97,24 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
 
         StringBuilder s = new StringBuilder();
         s.append("<html>");
-        for (ReportSet rs:Iterables.concat(pastReports, futureReports)) {
-            String text = rs.getAsHtml(currentChangeSet);
-            if (text == null) continue;
-            s.append("<p>");
-            if (text != null) s.append(text);
-            s.append("</p>");
+        int skipped = Math.max(0, pastReports.size() + futureReports.size() - MAX_FULL_TEXT_REPORTS);
+        for (ReportSet rs:Iterables.skip(Iterables.concat(pastReports, futureReports), skipped)) {
+            String paragraph = getAsParagraph(rs, currentChangeSet);
+            if (paragraph != null) s.append(paragraph);
         }
         s.append("</html>");
         
         return s.toString();
     }
+
+    /**
+     * @return html paragraph of the report set, null if it is empty
+     */
+    private String getAsParagraph(ReportSet rs, ChangeSet currentChangeSet) {
+        String text = rs.getAsHtml(currentChangeSet);
+        if (text == null) return null;
+        return "<p id=" + rs.getId() + ">" + text + "</p>";
+    }
     
     /**
      * Returns all messages for the recent active player
@@ -116,9 +138,31 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     private void updateObserver() {
         if (observer != null) {
             observer.update(getCurrentText());
+            observedActive = pastReports.peekLast();
         }
     }
 
+    /**
+     * Moves the active highlight of the observer text to the last past report set
+     * @param appended true if the last past report set is new
+     */
+    private void updateObserverActive(boolean appended) {
+        if (observer == null) return;
+        ReportSet active = pastReports.peekLast();
+        if (active == observedActive && !appended) return;
+
+        ChangeSet current = changeStack.getClosedChangeSet();
+        if (observedActive != null) {
+            observer.replace(observedActive.getId(), getAsParagraph(observedActive, current));
+        }
+        if (appended) {
+            observer.append(active.getId(), getAsParagraph(active, current));
+        } else if (active != null) {
+            observer.replace(active.getId(), getAsParagraph(active, current));
+        }
+        observedActive = active;
+    }
+
     // ChangeReport methods
     @Override
     public void init(ChangeStack changeStack) {
@@ -129,14 +173,19 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     public void updateOnClose() {
         ChangeSet current = changeStack.getClosedChangeSet();
         ReportSet currentSet = currentReportBuilder.build(current);
+        boolean undone = !futureReports.isEmpty();
         pastReports.addLast(currentSet);
         futureReports.clear();
         
         // a new builder
         currentReportBuilder = ReportSet.builder();
  
-        // update observer (ReportWindow)
-        updateObserver();
+        // update observer (ReportWindow), the undone report sets have to be removed
+        if (undone) {
+            updateObserver();
+        } else {
+            updateObserverActive(true);
+        }
     }
 
     @Override
@@ -153,7 +202,7 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     
     @Override
     public void updateAfterUndoRedo() {
-        updateObserver();
+        updateObserverActive(false);
     }
  
     /**
@@ -180,8 +229,20 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     
     public static interface Observer {
         
-        void append(String text);
+        /**
+         * Appends the paragraph of a new report set, it is the active one
+         */
+        void append(String id, String paragraph);
+
+        /**
+         * Replaces the paragraph of a report set
+         * @param paragraph the new paragraph, null removes it
+         */
+        void replace(String id, String paragraph);
         
+        /**
+         * Replaces the full text
+         */
         void update(String newText);
         
     }
@@ -38,6 +38,13 @@ class ReportSet {
         }
     }
 
+    /**
+     * @return id of the html paragraph of the report set
+     */
+    String getId() {
+        return "report" + changeSet.getIndex();
+    }
+
     ImmutableList<String> getAsList() {
         return messages;
     }
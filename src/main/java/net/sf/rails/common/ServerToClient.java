@@ -1,13 +1,26 @@
 package net.sf.rails.common;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.game.state.Observer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 
 /**
  * Instances of this class are intended to carry all data that
  * (after the foreseen client/server split) would be sent from
  * the server (game enigine) to the client (GUI) after completion
  * of the processing of each player action.
- * All contents of this class must be Serializable.
+ * Over a socket the answer is written as plain data (see {@link #writeTo(DataOutput)}),
+ * the GUI hints and the observer updates are only available in the same process.
  * <p>This class is still in its infancy. Over time it will probably
  * absorb the current PossibleActions and DisplayBuffer classes,
  * and also include many details that the GUI now obtains
@@ -15,12 +28,101 @@ import java.io.Serializable;
  * @author VosE
  *
  */
-public class ServerToClient implements Serializable {
+public class ServerToClient {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** limit of the length of byte arrays and strings */
+    private static final int MAX_LENGTH = 1 << 24;
+
+    /** limit of the number of elements of lists and maps */
+    private static final int MAX_SIZE = 1 << 20;
+
+    /**
+     * Update of the report text, see {@link ReportBuffer.Observer}
+     */
+    public static final class ReportUpdate {
+
+        public enum Type {APPEND, REPLACE, UPDATE}
+
+        private final Type type;
+        private final String id;
+        private final String text;
+
+        public ReportUpdate(Type type, String id, String text) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+        }
 
-    public static final long serialVersionUID = 1L;
+        public Type getType() {
+            return type;
+        }
 
+        /**
+         * @return id of the paragraph, null for UPDATE
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return html paragraph (null if the paragraph was removed) or full text for UPDATE
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Applies the update to the observer
+         */
+        public void applyTo(ReportBuffer.Observer observer) {
+            switch (type) {
+            case APPEND:
+                observer.append(id, text);
+                break;
+            case REPLACE:
+                observer.replace(id, text);
+                break;
+            case UPDATE:
+                observer.update(text);
+                break;
+            }
+        }
+    }
+
+    private boolean result = false;
+
+    // GuiHints is a game item, it is only available in the same process
     private GuiHints guiHints = null;
 
+    // observers are part of the GUI, after a client/server split
+    // the client maps the model texts to its observers instead
+    private Map<Observer, String> observerUpdates = Collections.emptyMap();
+
+    private ImmutableMap<String, String> modelTexts = ImmutableMap.of();
+
+    private byte[] actionDefinitions = null;
+
+    private ImmutableList<byte[]> actionRecords = ImmutableList.of();
+
+    private ImmutableList<String> actionTexts = ImmutableList.of();
+
+    private ImmutableList<String> messages = ImmutableList.of();
+
+    private ImmutableList<ReportUpdate> reportUpdates = ImmutableList.of();
+
+    /**
+     * @return result of the processing of the action
+     */
+    public boolean getResult() {
+        return result;
+    }
+
+    public void setResult(boolean result) {
+        this.result = result;
+    }
+
     public GuiHints getUiHints() {
         return guiHints;
     }
@@ -29,5 +131,209 @@ public class ServerToClient implements Serializable {
         this.guiHints = guiHints;
     }
 
+    /**
+     * @return text updates of the observers (latest text per observer) caused by the action
+     */
+    public Map<Observer, String> getObserverUpdates() {
+        return observerUpdates;
+    }
+
+    public void setObserverUpdates(Map<Observer, String> observerUpdates) {
+        this.observerUpdates = observerUpdates;
+    }
+
+    /**
+     * Applies the observer updates, has to be called on the thread of the observers
+     * (the event dispatch thread for the Swing GUI)
+     */
+    public void applyObserverUpdates() {
+        for (Map.Entry<Observer, String> update:getObserverUpdates().entrySet()) {
+            update.getKey().update(update.getValue());
+        }
+    }
+
+    /**
+     * @return texts of the models changed by the action by full URI of the model
+     */
+    public ImmutableMap<String, String> getModelTexts() {
+        return modelTexts;
+    }
+
+    public void setModelTexts(ImmutableMap<String, String> modelTexts) {
+        this.modelTexts = modelTexts;
+    }
+
+    /**
+     * @return definitions of the server encoder required by the action records
+     * that were not sent before, null if there are none
+     */
+    public byte[] getActionDefinitions() {
+        return actionDefinitions;
+    }
+
+    /**
+     * @return the possible actions after the action, encoded by {@link net.sf.rails.util.ActionCodec}
+     */
+    public ImmutableList<byte[]> getActionRecords() {
+        return actionRecords;
+    }
+
+    /**
+     * @return the texts of the possible actions, in the sequence of the records
+     */
+    public ImmutableList<String> getActionTexts() {
+        return actionTexts;
+    }
+
+    public void setPossibleActions(byte[] definitions, List<byte[]> records, List<String> texts) {
+        this.actionDefinitions = definitions;
+        this.actionRecords = ImmutableList.copyOf(records);
+        this.actionTexts = ImmutableList.copyOf(texts);
+    }
+
+    /**
+     * @return messages of the DisplayBuffer
+     */
+    public ImmutableList<String> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<String> messages) {
+        this.messages = ImmutableList.copyOf(messages);
+    }
+
+    /**
+     * @return updates of the report text, in the sequence of the ReportBuffer
+     */
+    public ImmutableList<ReportUpdate> getReportUpdates() {
+        return reportUpdates;
+    }
+
+    public void setReportUpdates(List<ReportUpdate> reportUpdates) {
+        this.reportUpdates = ImmutableList.copyOf(reportUpdates);
+    }
+
+    /**
+     * Writes the answer as plain data, without the GUI hints and the observer updates
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(result);
+        out.writeInt(modelTexts.size());
+        for (Map.Entry<String, String> modelText:modelTexts.entrySet()) {
+            writeString(out, modelText.getKey());
+            writeString(out, modelText.getValue());
+        }
+        writeBytes(out, actionDefinitions);
+        out.writeInt(actionRecords.size());
+        for (byte[] record:actionRecords) {
+            writeBytes(out, record);
+        }
+        writeStrings(out, actionTexts);
+        writeStrings(out, messages);
+        out.writeInt(reportUpdates.size());
+        for (ReportUpdate reportUpdate:reportUpdates) {
+            out.writeByte(reportUpdate.getType().ordinal());
+            writeString(out, reportUpdate.getId());
+            writeString(out, reportUpdate.getText());
+        }
+    }
+
+    /**
+     * Reads an answer written by {@link #writeTo(DataOutput)}
+     * @throws IOException if the data is not a valid answer
+     */
+    public static ServerToClient readFrom(DataInput in) throws IOException {
+        ServerToClient answer = new ServerToClient();
+        answer.result = in.readBoolean();
+        ImmutableMap.Builder<String, String> modelTexts = ImmutableMap.builder();
+        for (int i = readSize(in); i > 0; i--) {
+            modelTexts.put(readText(in), readText(in));
+        }
+        answer.modelTexts = modelTexts.build();
+        answer.actionDefinitions = readBytes(in);
+        ImmutableList.Builder<byte[]> actionRecords = ImmutableList.builder();
+        for (int i = readSize(in); i > 0; i--) {
+            byte[] record = readBytes(in);
+            if (record == null) throw new IOException("Missing action record in answer data");
+            actionRecords.add(record);
+        }
+        answer.actionRecords = actionRecords.build();
+        answer.actionTexts = readStrings(in);
+        answer.messages = readStrings(in);
+        List<ReportUpdate> reportUpdates = Lists.newArrayList();
+        for (int i = readSize(in); i > 0; i--) {
+            int type = in.readByte();
+            if (type < 0 || type >= ReportUpdate.Type.values().length) {
+                throw new IOException("Invalid type " + type + " of report update");
+            }
+            reportUpdates.add(new ReportUpdate(ReportUpdate.Type.values()[type], readString(in), readString(in)));
+        }
+        answer.reportUpdates = ImmutableList.copyOf(reportUpdates);
+        return answer;
+    }
+
+    private static int readSize(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IOException("Invalid size " + size + " of answer data");
+        }
+        return size;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length + " of answer data");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a string as UTF-8 bytes, unlike {@link DataOutput#writeUTF} without limit of 64K
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(UTF8));
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}
+     */
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, UTF8);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value:values) {
+            writeString(out, value);
+        }
+    }
+
+    private static ImmutableList<String> readStrings(DataInput in) throws IOException {
+        ImmutableList.Builder<String> values = ImmutableList.builder();
+        for (int i = readSize(in); i > 0; i--) {
+            values.add(readText(in));
+        }
+        return values.build();
+    }
+
+    private static String readText(DataInput in) throws IOException {
+        String value = readString(in);
+        if (value == null) throw new IOException("Missing string in answer data");
+        return value;
+    }
 
 }
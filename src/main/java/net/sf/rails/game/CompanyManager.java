@@ -9,6 +9,7 @@ import net.sf.rails.common.LocalText;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.Tag;
+import net.sf.rails.game.financial.PublicCertificate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,11 @@ public class CompanyManager extends RailsManager implements Configurable {
     protected Map<String, String> aliases = null;
 
     private int numberOfPublicCompanies = 0;
+    private int numberOfPrivateCompanies = 0;
+
+    /** A map allowing to find certificates by unique id */
+    private final Map<String, PublicCertificate> certificatesByUniqueId =
+        new HashMap<String, PublicCertificate>();
 
     protected static Logger log =
             LoggerFactory.getLogger(CompanyManager.class);
@@ -149,6 +155,7 @@ public class CompanyManager extends RailsManager implements Configurable {
 
                 /* Private or public */
                 if (company instanceof PrivateCompany) {
+                    ((PrivateCompany)company).setPrivateNumber (numberOfPrivateCompanies++);
                     mPrivateCompanies.put(name, (PrivateCompany) company);
                     lPrivateCompanies.add((PrivateCompany) company);
 
@@ -234,6 +241,14 @@ public class CompanyManager extends RailsManager implements Configurable {
         }
     }
 
+    public void addCertificate(PublicCertificate certificate) {
+        certificatesByUniqueId.put(certificate.getUniqueId(), certificate);
+    }
+
+    public PublicCertificate getCertificateByUniqueId(String certId) {
+        return certificatesByUniqueId.get(certId);
+    }
+
     public String checkAliasInCertId (String certId) {
         String[] parts = certId.split("-");
         String realName = checkAlias (parts[0]);
@@ -0,0 +1,117 @@
+package net.sf.rails.game;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.game.state.StateManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * GameEngine runs the actions of a game on a single thread that owns the game
+ * (see {@link RailsRoot#setContext(RailsRoot)}).
+ *
+ * The observer updates of the state framework are deferred while the engine runs,
+ * they are returned with the result of each action as {@link ServerToClient}
+ * and have to be applied on the thread of the observers.
+ */
+public final class GameEngine {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(GameEngine.class);
+
+    /** time to finish the submitted tasks at shutdown */
+    private static final long SHUTDOWN_SECONDS = 10;
+
+    private final RailsRoot root;
+    private final StateManager stateManager;
+    private final ExecutorService executor;
+
+    public GameEngine(final RailsRoot root) {
+        this.root = root;
+        this.stateManager = root.getStateManager();
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        RailsRoot.setContext(root);
+                        runnable.run();
+                    }
+                }, "GameEngine-" + root.getGameName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        stateManager.deferObserverUpdates(true);
+    }
+
+    public RailsRoot getRoot() {
+        return root;
+    }
+
+    /**
+     * Submits the action to the game manager
+     * @return the result and the observer updates of the action
+     */
+    public Future<ServerToClient> process(final PossibleAction action) {
+        return executor.submit(new Callable<ServerToClient>() {
+            public ServerToClient call() {
+                ServerToClient update = new ServerToClient();
+                try {
+                    update.setResult(root.getGameManager().process(action));
+                    update.setUiHints(root.getGameManager().getUIHints());
+                } finally {
+                    update.setObserverUpdates(stateManager.takeObserverUpdates());
+                }
+                return update;
+            }
+        });
+    }
+
+    /**
+     * Submits a task that reads or changes the game outside of an action
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Runs the task after all tasks submitted before
+     */
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Stops the engine thread after closing the recovery save,
+     * the observers are updated immediately afterwards
+     */
+    public void shutdown() {
+        executor.submit(new Runnable() {
+            public void run() {
+                root.getGameManager().closeRecoverySave();
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("GameEngine of " + root.getGameName() + " did not stop in time");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        stateManager.deferObserverUpdates(false);
+        log.debug("GameEngine of " + root.getGameName() + " stopped");
+    }
+
+}
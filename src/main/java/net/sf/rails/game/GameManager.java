@@ -23,6 +23,8 @@ import net.sf.rails.game.round.RoundFacade;
 import net.sf.rails.game.special.SpecialBonusTokenLay;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.state.*;
+import net.sf.rails.util.ActionHashChain;
+import net.sf.rails.util.GameJournal;
 import net.sf.rails.util.GameLoader;
 import net.sf.rails.util.GameSaver;
 import net.sf.rails.util.Util;
@@ -38,7 +40,7 @@ import rails.game.correct.*;
  * This class manages the playing rounds by supervising all implementations of
  * Round. Currently everything is hardcoded &agrave; la 1830.
  */
-public class GameManager extends RailsManager implements Configurable, Owner {
+public class GameManager extends RailsManager implements Configurable, Owner, ChangeReplayer {
 
     protected Class<? extends StockRound> stockRoundClass = StockRound.class;
     protected Class<? extends OperatingRound> operatingRoundClass =
@@ -127,6 +129,9 @@ public class GameManager extends RailsManager implements Configurable, Owner {
 
     protected final ArrayListState<PossibleAction> executedActions = ArrayListState.create(this, "executedActions");
 
+    /** Rolling hashes of the executed actions (not a state, it follows executedActions on access) */
+    protected final ActionHashChain actionHashes = ActionHashChain.create();
+
     /** Special properties that can be used by other players or companies
      * than just the owner (such as buyable bonus tokens as in 1856).
      */
@@ -135,6 +140,12 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     /** indicates that the recoverySave already issued a warning, avoids displaying several warnings */
     protected boolean recoverySaveWarning = true;
 
+    /** name of the recovery save file in the autosave folder, null if the recovery save is off */
+    protected String recoveryFileName = null;
+
+    /** journal of the recovery save, created at the first recoverySave */
+    protected GameJournal recoveryJournal = null;
+
     /** Flag to skip a subsequent Done action (if present) during reloading.
      * <br>This is a fix to maintain backwards compatibility when redundant
      * actions are skipped in new code versions (such as the bypassing of
@@ -153,7 +164,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     protected Map<String, Object> objectStorage = new HashMap<String, Object>();
     protected Map<String, Integer> storageIds = new HashMap<String, Integer>();
     
-    private static int revenueSpinnerIncrement = 10;
+    private int revenueSpinnerIncrement = 10;
     //Used for Storing the PublicCompany to be Founded by a formationround
     private PublicCompany nationalToFound;
     
@@ -167,7 +178,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     /**
      * @return the revenueSpinnerIncrement
      */
-    public static int getRevenueSpinnerIncrement() {
+    public int getRevenueSpinnerIncrement() {
         return revenueSpinnerIncrement;
     }
 
@@ -416,6 +427,24 @@ public class GameManager extends RailsManager implements Configurable, Owner {
 
     public void init() {
         showCompositeORNumber =  !"simple".equalsIgnoreCase(Config.get("or.number_format"));
+
+        // retention policy of undo/redo
+        ChangeStack changeStack = getRoot().getStateManager().getChangeStack();
+        changeStack.addChangeReplayer(this);
+        changeStack.setRetentionPolicy(getIntegerConfig("undo.retention.changesets"),
+                1024L * getIntegerConfig("undo.retention.kilobytes"));
+    }
+
+    private static int getIntegerConfig(String key) {
+        String setting = Config.get(key);
+        if (Util.hasValue(setting)) {
+            try {
+                return Integer.parseInt(setting.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid setting of " + key + ": " + setting);
+            }
+        }
+        return 0;
     }
 
     public void startGame() {
@@ -741,6 +770,12 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         if (result && !(action instanceof GameAction) && !(startGameAction)) {
             changeStack.close(action);
         }
+
+        // append the executed actions (or undo) to the recovery journal
+        if (result && action != null && !startGameAction) {
+            recoverySave();
+            if (isGameOver()) closeRecoverySave();
+        }
         
         // only pass available => execute automatically
         if (!isGameOver() && possibleActions.containsOnlyPass()) {
@@ -849,6 +884,31 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return result;
     }
 
+    /**
+     * Replays the actions of collapsed ChangeSets after an undo into a checkpoint of the ChangeStack
+     */
+    public boolean replay(List<ChangeAction> actions) {
+        possibleActions.clear();
+        getCurrentRound().setPossibleActions();
+        // the actions are processed like on a reload
+        boolean wasReloading = isReloading();
+        setReloading(true);
+        try {
+            for (ChangeAction action:actions) {
+                if (!processOnReload((PossibleAction) action)) {
+                    return false;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Replay failed", e);
+            DisplayBuffer.add(this, LocalText.getText("LoadFailed", e.getMessage()));
+            return false;
+        } finally {
+            setReloading(wasReloading);
+        }
+        return true;
+    }
+
     public boolean processOnReload(PossibleAction action) {
 
         getRoot().getReportManager().getDisplayBuffer().clear();
@@ -919,21 +979,47 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return true;
     }
 
+    /**
+     * @return rolling hashes of the executed actions
+     */
+    public ActionHashChain getActionHashes() {
+        actionHashes.update(executedActions.view());
+        return actionHashes;
+    }
+
     public void finishLoading () {
         guiHints.clearVisibilityHints();
     }
 
+    /**
+     * Activates the recovery save of the game, it is off for games without user interface
+     * @param fileName name of the file in the autosave folder (see {@link GameSaver#autosaveFile}),
+     * each game of the JVM requires its own file, null switches the recovery save off
+     */
+    public void setRecoverySave(String fileName) {
+        closeRecoverySave();
+        recoveryFileName = fileName;
+    }
+
     /** recoverySave method
-     * Uses filePath defined in save.recovery.filepath
+     * The first call writes all executed actions to a journal in the autosave folder,
+     * further calls only append the new actions (or the undo)
      *  */
     protected void recoverySave() {
-        if (Config.get("save.recovery.active", "yes").equalsIgnoreCase("no")) return;
+        if (recoveryFileName == null) return;
 
-        GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
         try {
-            gameSaver.autoSave();
+            if (recoveryJournal == null) {
+                GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
+                recoveryJournal = gameSaver.autoSaveJournal(recoveryFileName,
+                        GameJournal.Sync.fromConfig(Config.get("save.recovery.sync")));
+            } else {
+                recoveryJournal.update(executedActions.view(), getCurrentPlayer().getId());
+            }
             recoverySaveWarning = false;
         } catch (IOException e) {
+            // start with a new journal at the next action
+            closeRecoverySave();
             // suppress warning after first occurrence
             if (!recoverySaveWarning) {
                 DisplayBuffer.add(this, LocalText.getText("RecoverySaveFailed", e.getMessage()));
@@ -943,8 +1029,38 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         }
     }
 
+    /**
+     * Closes the journal of the recovery save, the next recoverySave starts a new journal
+     */
+    public void closeRecoverySave() {
+        if (recoveryJournal == null) return;
+        try {
+            recoveryJournal.close();
+        } catch (IOException e) {
+            log.debug("close of recovery journal failed", e);
+        }
+        recoveryJournal = null;
+    }
+
+    /**
+     * Stores the game as journal (used for the autosave of play-by-email games)
+     * @param filePath of the file to save the game to
+     */
+    public boolean saveJournal(String filePath) {
+        GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
+        try {
+            gameSaver.saveJournal(new File(filePath));
+            return true;
+        } catch (IOException e) {
+            DisplayBuffer.add(this, LocalText.getText("SaveFailed", e.getMessage()));
+            log.error("save failed", e);
+            return false;
+        }
+    }
+
     protected boolean save(GameAction saveAction) {
         GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
+        gameSaver.setActionHashes(getActionHashes().toArray());
         File file = new File(saveAction.getFilepath());
         try {
             gameSaver.saveGame(file);
@@ -967,7 +1083,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         String filepath = reloadAction.getFilepath();
 
         
-        if (!gameLoader.reloadGameFromFile(new File(filepath))) {
+        if (!gameLoader.reloadGameFromFile(getRoot(), new File(filepath))) {
             return false;
         }
         
@@ -984,22 +1100,30 @@ public class GameManager extends RailsManager implements Configurable, Owner {
 
         /* gameLoader actions get compared to the executed actions of the current game */
         List<PossibleAction> savedActions = gameLoader.getActions();
+        int nbExecuted = executedActions.size();
 
         setReloading(true);
 
         // Check size
-        if (savedActions.size() < executedActions.size()) {
+        if (savedActions.size() < nbExecuted) {
             DisplayBuffer.add(this, LocalText.getText("LOAD_FAILED_MESSAGE",
             "loaded file has less actions than current game"));
             return true;
         }
 
-        // Check action identity
+        // Check action identity:
+        // if the hash of the last executed action matches, all executed actions match
         int index = 0;
+        long[] savedHashes = gameLoader.getActionHashes();
+        if (savedHashes != null
+                && (nbExecuted == 0 || savedHashes[nbExecuted - 1] == getActionHashes().get(nbExecuted - 1))) {
+            log.debug("Action hashes match for " + nbExecuted + " executed actions");
+            index = nbExecuted;
+        }
         PossibleAction executedAction;
         try {
-            for (PossibleAction savedAction : savedActions) {
-                if (index < executedActions.size()) {
+            for (PossibleAction savedAction : savedActions.subList(index, savedActions.size())) {
+                if (index < nbExecuted) {
                     executedAction = executedActions.get(index);
                     if (!savedAction.equalsAsAction(executedAction)) {
                         DisplayBuffer.add(this, LocalText.getText("LoadFailed",
@@ -1009,7 +1133,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                         return true;
                     }
                 } else {
-                    if (index == executedActions.size()) {
+                    if (index == nbExecuted) {
                         log.info("Finished comparing old actions, starting to process new actions");
                     }
                     // Found a new action: execute it
@@ -7,6 +7,11 @@ import java.util.Iterator;
  * HexSides define a BitSet(6) that define booleans on those sides
  */
 public class HexSidesSet implements Iterable<HexSide> {
+    /**
+     * Mask of all six sides
+     */
+    public static final int ALL_SIDES = 0x3F;
+    
     private final BitSet sides;
     
     private HexSidesSet(BitSet sides) {
@@ -21,22 +26,38 @@ public class HexSidesSet implements Iterable<HexSide> {
         return new HexSidesSet(sides);
     }
     
+    /**
+     * @param mask bit n set for HexSide n
+     */
+    public static HexSidesSet createFromMask(int mask) {
+        return new HexSidesSet(BitSet.valueOf(new long[] {mask & ALL_SIDES}));
+    }
+    
+    /**
+     * @return mask with bit n + rotation set for each bit n of the mask
+     */
+    public static int rotateMask(int mask, HexSide rotation) {
+        int r = rotation.getTrackPointNumber();
+        if (r == 0) return mask;
+        return ((mask << r) | (mask >>> (6 - r))) & ALL_SIDES;
+    }
+    
     public static HexSidesSet rotated(HexSidesSet base, HexSide rotation) {
         if (rotation == HexSide.defaultRotation()) return base;
-        
-        HexSidesSet.Builder sidesBuilder = HexSidesSet.builder();
-        for (HexSide side:HexSide.all()) {
-            if (base.get(side)) {
-                sidesBuilder.setRotated(side, rotation.negative());
-            }
-        }
-        return sidesBuilder.build();
+        return createFromMask(rotateMask(base.getMask(), rotation.negative()));
     }
     
     public BitSet getSides() {
         return sides;
     }
     
+    /**
+     * @return bit n set for HexSide n
+     */
+    public int getMask() {
+        return sides.isEmpty() ? 0 : (int) sides.toLongArray()[0] & ALL_SIDES;
+    }
+    
     public boolean get(HexSide side) {
         return sides.get(side.getTrackPointNumber());
     }
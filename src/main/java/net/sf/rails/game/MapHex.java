@@ -19,6 +19,7 @@ import net.sf.rails.game.model.RailsModel;
 import net.sf.rails.game.state.GenericState;
 import net.sf.rails.game.state.HashBiMapState;
 import net.sf.rails.game.state.HashMapState;
+import net.sf.rails.game.state.Observable;
 import net.sf.rails.game.state.PortfolioSet;
 import net.sf.rails.util.Util;
 import org.slf4j.Logger;
@@ -419,6 +420,14 @@ public class MapHex extends RailsModel implements RailsOwner, Configurable {
         return currentTileRotation.value();
     }
 
+    /**
+     * @return the states that define the track structure of the hex
+     * (current tile, its rotation and the related stops)
+     */
+    public ImmutableSet<Observable> getTrackStates() {
+        return ImmutableSet.<Observable>of(currentTile, currentTileRotation, stops);
+    }
+
     public int getTileCost() {
         if (isPreprintedTileCurrent()) {
             return getTileCost(0);
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedSet;
 
+import net.sf.rails.algorithms.MapGraphCache;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
@@ -29,6 +30,8 @@ public class MapManager extends RailsManager implements Configurable {
     private ImmutableMap<MapHex.Coordinates, MapHex> hexes;
     private ImmutableTable<MapHex, HexSide, MapHex> hexTable;
 
+    private MapGraphCache mapGraphCache;
+
     private MapHex.Coordinates minimum;
     private MapHex.Coordinates maximum;
 
@@ -128,6 +131,9 @@ public class MapManager extends RailsManager implements Configurable {
         }
         hexTable = hexTableBuilder.build();
 
+        // maintains the map graph of the track structure
+        mapGraphCache = MapGraphCache.create(this);
+
         for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
             List<MapHex> homeHexes = company.getHomeHexes();
             if (homeHexes != null) {
@@ -180,6 +186,10 @@ public class MapManager extends RailsManager implements Configurable {
         return hexTable.get(hex, side);
     }
 
+    public MapGraphCache getMapGraphCache() {
+        return mapGraphCache;
+    }
+
     public MapHex getHex(String locationCode) {
         // MapManager is a RailsManager so it is possible to locate by id
         return (MapHex) locate(locationCode);
@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 
@@ -356,7 +357,11 @@ public class PlayerManager extends RailsManager implements Configurable {
         public String toText() {
             // FIXME: This has to be checked if this returns the correct structure
             // and may be it is better to use another method instead of toText?
-            return Util.joinWithDelimiter(playerOrder.view().toArray(new String[0]), ";");
+            List<String> playerIds = Lists.newArrayList();
+            for (Player player:playerOrder) {
+                playerIds.add(player.getId());
+            }
+            return Util.joinWithDelimiter(playerIds.toArray(new String[0]), ";");
         }
     }
     
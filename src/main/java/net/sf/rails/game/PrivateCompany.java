@@ -24,8 +24,6 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableSet;
 
 
-// FIXME: Move static field numberOfPrivateCompanies to CompanyManager
-
 public class PrivateCompany extends RailsOwnableItem<PrivateCompany> implements Company, Certificate, Closeable {
 
     private static Logger log = LoggerFactory.getLogger(PrivateCompany.class);
@@ -36,8 +34,6 @@ public class PrivateCompany extends RailsOwnableItem<PrivateCompany> implements
     public static final int NO_PRICE_LIMIT = -1;    
 
     
-    // FIXME: See above, this has to be fixed
-    protected static int numberOfPrivateCompanies = 0;
     protected int privateNumber; // For internal use
 
     protected int basePrice = 0;
@@ -101,7 +97,6 @@ public class PrivateCompany extends RailsOwnableItem<PrivateCompany> implements
      */
     public PrivateCompany(RailsItem parent, String id) {
         super(parent, id, PrivateCompany.class);
-        this.privateNumber = numberOfPrivateCompanies++;
     }
 
     /**
@@ -314,6 +309,10 @@ public class PrivateCompany extends RailsOwnableItem<PrivateCompany> implements
         return privateNumber;
     }
 
+    public void setPrivateNumber(int number) {
+        privateNumber = number;
+    }
+
     /**
      * @return Base Price
      */
@@ -1,5 +1,6 @@
 package net.sf.rails.game;
 
+import net.sf.rails.algorithms.RevenueCache;
 import net.sf.rails.algorithms.RevenueManager;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.DisplayBuffer;
@@ -21,20 +22,47 @@ import net.sf.rails.game.state.Root;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Preconditions;
-
 public class RailsRoot extends Root implements RailsItem {
 
     private static final Logger log =
             LoggerFactory.getLogger(RailsRoot.class);
     
-    // currently we assume that there is only one instance running
-    // thus it is possible to retrieve that version
-    // TODO: Replace this by a full support of concurrent usage
-    private static RailsRoot instance;
+    // several games can run in one JVM: each thread is bound to the game it runs
+    private static final ThreadLocal<RailsRoot> context = new ThreadLocal<RailsRoot>();
     
+    /**
+     * Returns the game of the current thread context.
+     * Code that has access to an item of the game should use item.getRoot() instead.
+     * @return the game bound to the current thread
+     * @throws IllegalStateException if the current thread is not bound to a game
+     */
     public static RailsRoot getInstance() {
-        return instance;
+        RailsRoot root = context.get();
+        if (root == null) {
+            throw new IllegalStateException("No game bound to thread " + Thread.currentThread().getName());
+        }
+        return root;
+    }
+
+    /**
+     * @return the game bound to the current thread, null if there is none
+     */
+    public static RailsRoot getBoundInstance() {
+        return context.get();
+    }
+
+    /**
+     * Binds the current thread to a game, until {@link #clearContext()} is called
+     */
+    public static void setContext(RailsRoot root) {
+        context.set(root);
+    }
+
+    /**
+     * Removes the binding of the current thread
+     */
+    public static void clearContext() {
+        context.remove();
     }
 
     // Base XML file
@@ -59,6 +87,9 @@ public class RailsRoot extends Root implements RailsItem {
     
     // Other Managers
     private ReportManager reportManager;
+    
+    // Caches
+    private final RevenueCache revenueCache = RevenueCache.create();
 
     private RailsRoot(GameData gameData) {
         super();
@@ -74,10 +105,12 @@ public class RailsRoot extends Root implements RailsItem {
         this.gameData = gameData;
     }
     
+    /**
+     * Creates a new game and binds it to the current thread
+     */
     public static RailsRoot create(GameData gameData) throws ConfigurationException {
-        Preconditions.checkState(instance == null, 
-                "Currently only a single instance of RailsRoot is allowed");
-        instance = new RailsRoot(gameData);
+        RailsRoot instance = new RailsRoot(gameData);
+        setContext(instance);
         log.debug("RailsRoot: instance created");
         instance.init();
         log.debug("RailsRoot: instance initialized");
@@ -224,6 +257,10 @@ public class RailsRoot extends Root implements RailsItem {
         return reportManager;
     }
     
+    public RevenueCache getRevenueCache() {
+        return revenueCache;
+    }
+    
     
     /**
      * @return the gameName
@@ -256,7 +293,10 @@ public class RailsRoot extends Root implements RailsItem {
         return this;
     }
     
+    /**
+     * Removes the game of the current thread
+     */
     public static void clearInstance() {
-        instance = null;
+        context.remove();
     }
 }
@@ -0,0 +1,241 @@
+package net.sf.rails.game;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.algorithms.NetworkAdapter;
+import net.sf.rails.algorithms.NetworkGraph;
+import net.sf.rails.common.GameOption;
+import rails.game.action.LayTile;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+/**
+ * TileLays defines the legal tile lays of a LayTile action:
+ * the allowed rotations of the tile upgrades of a hex and the conditions of each upgrade.
+ *
+ * The rotations are based on the upgrade table of the TileUpgrades (built at configuration),
+ * the conditions are shared with the user interface (see TileHexUpgrade).
+ */
+public final class TileLays {
+
+    /**
+     * Values of the game option RouteAlgorithm
+     */
+    public static final String PERMISSIVE = "PERMISSIVE";
+    public static final String RESTRICTIVE = "RESTRICTIVE";
+    public static final String SEMI_RESTRICTIVE = "SEMI-RESTRICTIVE";
+
+    /**
+     * A legal tile lay: the upgrade of the hex in one of the allowed rotations
+     */
+    public static final class Lay {
+        private final MapHex hex;
+        private final TileUpgrade upgrade;
+        private final HexSidesSet rotations;
+
+        private Lay(MapHex hex, TileUpgrade upgrade, HexSidesSet rotations) {
+            this.hex = hex;
+            this.upgrade = upgrade;
+            this.rotations = rotations;
+        }
+
+        public MapHex getHex() {
+            return hex;
+        }
+
+        public TileUpgrade getUpgrade() {
+            return upgrade;
+        }
+
+        public Tile getTile() {
+            return upgrade.getTargetTile();
+        }
+
+        /**
+         * @return allowed rotations (map orientation)
+         */
+        public HexSidesSet getRotations() {
+            return rotations;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("hex", hex.getId())
+                    .add("tile", upgrade.getTargetTile().getId())
+                    .add("rotations", rotations)
+                    .toString();
+        }
+    }
+
+    private TileLays() {}
+
+    /**
+     * @return all legal tile lays of the action, the hexes of generic lays are defined by the route of the company
+     */
+    public static List<Lay> getLegalLays(RailsRoot root, LayTile action) {
+        ImmutableList.Builder<Lay> lays = ImmutableList.builder();
+        Phase phase = root.getPhaseManager().getCurrentPhase();
+        switch (action.getType()) {
+        case LayTile.GENERIC:
+            addConnectedLays(root, action, phase, lays);
+            break;
+        case LayTile.SPECIAL_PROPERTY:
+            if (action.getSpecialProperty().requiresConnection()) {
+                addConnectedLays(root, action, phase, lays);
+            } else {
+                addLocatedLays(action, phase, lays);
+            }
+            break;
+        case LayTile.LOCATION_SPECIFIC:
+            addLocatedLays(action, phase, lays);
+            break;
+        case LayTile.CORRECTION:
+            for (MapHex hex:root.getMapManager().getHexes()) {
+                for (TileUpgrade upgrade:hex.getCurrentTile().getTileUpgrades()) {
+                    addIfLegal(action, hex, upgrade, getRotations(hex, upgrade, null, null, true), phase, lays);
+                }
+            }
+            break;
+        default:
+        }
+        return lays.build();
+    }
+
+    private static void addConnectedLays(RailsRoot root, LayTile action, Phase phase,
+            ImmutableList.Builder<Lay> lays) {
+        NetworkGraph graph = NetworkAdapter.create(root).getRouteGraph(action.getCompany(), true);
+        Map<MapHex, HexSidesSet> mapHexSides = graph.getReachableSides();
+        Multimap<MapHex, Station> mapHexStations = graph.getPassableStations();
+        String routeAlgorithm = GameOption.getValue(root, "RouteAlgorithm");
+
+        boolean allLocations = (action.getLocations() == null || action.getLocations().isEmpty());
+        for (MapHex hex:Sets.union(mapHexSides.keySet(), mapHexStations.keySet())) {
+            if (!allLocations && !action.getLocations().contains(hex)) continue;
+            for (TileUpgrade upgrade:hex.getCurrentTile().getTileUpgrades()) {
+                HexSidesSet connected = requiresConnection(action, hex, upgrade) ? mapHexSides.get(hex) : null;
+                HexSidesSet rotations = getRotations(hex, upgrade, connected, mapHexStations.get(hex),
+                        isRestrictive(routeAlgorithm, upgrade));
+                addIfLegal(action, hex, upgrade, rotations, phase, lays);
+            }
+        }
+    }
+
+    private static void addLocatedLays(LayTile action, Phase phase, ImmutableList.Builder<Lay> lays) {
+        for (MapHex hex:action.getLocations()) {
+            Collection<TileUpgrade> upgrades;
+            if (action.getTiles() == null || action.getTiles().isEmpty()) {
+                upgrades = hex.getCurrentTile().getTileUpgrades();
+            } else {
+                ImmutableList.Builder<TileUpgrade> specific = ImmutableList.builder();
+                for (Tile targetTile:action.getTiles()) {
+                    specific.add(hex.getCurrentTile().getSpecificUpgrade(targetTile));
+                }
+                upgrades = specific.build();
+            }
+            for (TileUpgrade upgrade:upgrades) {
+                addIfLegal(action, hex, upgrade, getRotations(hex, upgrade, null, null, true), phase, lays);
+            }
+        }
+    }
+
+    private static void addIfLegal(LayTile action, MapHex hex, TileUpgrade upgrade, HexSidesSet rotations,
+            Phase phase, ImmutableList.Builder<Lay> lays) {
+        if (!rotations.isEmpty() && isAllowed(action, hex, upgrade, phase)) {
+            lays.add(new Lay(hex, upgrade, rotations));
+        }
+    }
+
+    /**
+     * @return true if the new track of the upgrade has to connect to the route of the company
+     */
+    public static boolean isRestrictive(String routeAlgorithm, TileUpgrade upgrade) {
+        if (RESTRICTIVE.equalsIgnoreCase(routeAlgorithm)) {
+            return true;
+        } else if (SEMI_RESTRICTIVE.equalsIgnoreCase(routeAlgorithm)) {
+            return !upgrade.getTargetTile().hasStations();
+        }
+        return false;
+    }
+
+    /**
+     * @return false for yellow tiles on the home of the company and special properties without connection
+     */
+    public static boolean requiresConnection(LayTile action, MapHex hex, TileUpgrade upgrade) {
+        if (upgrade.getTargetTile().getColourText().equalsIgnoreCase(TileColour.YELLOW.name())
+                && hex.isHomeFor(action.getCompany())) {
+            return false;
+        } else if (action.getType() == LayTile.SPECIAL_PROPERTY
+                && action.getSpecialProperty().getLocations().contains(hex)) {
+            return action.getSpecialProperty().requiresConnection();
+        }
+        return true;
+    }
+
+    /**
+     * @param connected sides reached by the route (map orientation), null if no connection is required
+     * @param stations stations reached by the route, null if none
+     * @return allowed rotations of the upgrade (map orientation)
+     */
+    public static HexSidesSet getRotations(MapHex hex, TileUpgrade upgrade, HexSidesSet connected,
+            Collection<Station> stations, boolean restrictive) {
+        HexSide tileRotation = hex.getCurrentTileRotation();
+        // encode HexSides according to the tile current orientation
+        if (connected != null) {
+            connected = HexSidesSet.rotated(connected, tileRotation);
+        }
+        HexSidesSet invalidSides = null;
+        if (hex.getInvalidSides() != null) {
+            invalidSides = HexSidesSet.rotated(hex.getInvalidSides(), tileRotation);
+        }
+        return upgrade.getAllowedRotations(connected, invalidSides, tileRotation, stations, restrictive);
+    }
+
+    /**
+     * @return true if all conditions of the upgrade apart from the rotations are met
+     */
+    public static boolean isAllowed(LayTile action, MapHex hex, TileUpgrade upgrade, Phase phase) {
+        return !isHexBlocked(hex) && !isHexReserved(action, hex) && isTileAvailable(upgrade)
+                && upgrade.isAllowedForHex(hex) && upgrade.isAllowedForPhase(phase)
+                && isColourAllowed(upgrade, phase) && hasColourRight(action, upgrade)
+                && hasEnoughCash(action, hex);
+    }
+
+    public static boolean isHexBlocked(MapHex hex) {
+        return hex.isBlockedByPrivateCompany();
+    }
+
+    public static boolean isHexReserved(LayTile action, MapHex hex) {
+        return hex.isReservedForCompany() && hex.getReservedForCompany() != action.getCompany();
+    }
+
+    public static boolean isTileAvailable(TileUpgrade upgrade) {
+        return upgrade.getTargetTile().getFreeCount() != 0;
+    }
+
+    public static boolean isColourAllowed(TileUpgrade upgrade, Phase phase) {
+        return phase.isTileColourAllowed(upgrade.getTargetTile().getColourText());
+    }
+
+    public static boolean hasColourRight(LayTile action, TileUpgrade upgrade) {
+        if (action.getTileColours() == null) {
+            return true;
+        }
+        Integer tileLays = action.getTileColours().get(upgrade.getTargetTile().getColourText());
+        return (tileLays != null && tileLays != 0);
+    }
+
+    public static boolean hasEnoughCash(LayTile action, MapHex hex) {
+        // correction action does not require cash
+        if (action.getType() == LayTile.CORRECTION) {
+            return true;
+        }
+        return action.getCompany().getCash() >= action.getPotentialCost(hex);
+    }
+
+}
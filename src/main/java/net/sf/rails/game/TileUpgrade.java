@@ -139,6 +139,13 @@ public class TileUpgrade implements Upgrade {
     private Map<HexSide, Rotation> rotations;
     private HexSidesSet rotationSides;
 
+    /**
+     * Upgrade table of the rotations as HexSidesSet masks (indexed by rotation)
+     */
+    private int rotationMask;
+    private final int[] connectedMasks = new int[6];
+    private final int[] newTrackMasks = new int[6];
+
     /**
      * Hexes where the upgrade can be executed
      */
@@ -245,10 +252,13 @@ public class TileUpgrade implements Upgrade {
             if (rotation != null) {
                 sideBuilder.set(side);
                 rotationBuilder.put(side, rotation);
+                connectedMasks[side.getTrackPointNumber()] = rotation.getConnectedSides().getMask();
+                newTrackMasks[side.getTrackPointNumber()] = rotation.getSidesWithNewTrack().getMask();
             }
         }
         rotationSides = sideBuilder.build();
         rotations = rotationBuilder.build();
+        rotationMask = rotationSides.getMask();
     }
 
     private void parsePhases(RailsRoot root) throws ConfigurationException {
@@ -297,25 +307,17 @@ public class TileUpgrade implements Upgrade {
     }
 
 
-    private boolean checkInvalidSides(Rotation rotation, HexSidesSet impassable) {
-        log.debug("Check rotation " + rotation + " against  impassable" + impassable);
-        if (impassable == null) return false; // null implies that no station exists
-        return (rotation.getConnectedSides().intersects(impassable));
-    }
-
-    private boolean checkSideConnectivity(Rotation rotation, HexSidesSet connected, boolean restrictive) {
-        log.debug("Check rotation " + rotation + " against " + connected);
-        if (connected == null) return true; // null implies no connectivity required
-        if (restrictive && !rotation.getSidesWithNewTrack().isEmpty()) {
-            return rotation.getSidesWithNewTrack().intersects(connected);
+    private boolean checkSideConnectivity(int side, int connected, boolean restrictive) {
+        if (restrictive && newTrackMasks[side] != 0) {
+            return (newTrackMasks[side] & connected) != 0;
         } else {
-            return (rotation.getConnectedSides().intersects(connected));
+            return (connectedMasks[side] & connected) != 0;
         }
     }
 
     private boolean checkStationConnectivity(Rotation rotation, Collection<Station> stations) {
-        if (rotation.getStationMapping() == null) return false;
-        log.debug("Check Stations " + stations + ", rotation = " + rotation);
+        if (rotation.getStationMapping() == null || stations == null) return false;
+        if (log.isDebugEnabled()) log.debug("Check Stations " + stations + ", rotation = " + rotation);
         for (Station station : stations) {
             Station targetStation = rotation.getStationMapping().get(station);
             if (targetStation != null && rotation.getStationsWithNewTrack().contains(targetStation)) {
@@ -333,21 +335,34 @@ public class TileUpgrade implements Upgrade {
         return rotations.get(rotation);
     }
 
+    /**
+     * @param connected sides connected to the route (tile orientation), null if no connectivity is required
+     * @param impassable sides that cannot be connected (tile orientation), null if none
+     * @param baseRotation rotation of the current tile
+     * @param stations stations connected to the route
+     * @param restrictive true => new track has to connect to the route (if there is new track to the sides)
+     * @return allowed rotations (map orientation)
+     */
     public HexSidesSet getAllowedRotations(HexSidesSet connected, HexSidesSet impassable, HexSide baseRotation,
                                            Collection<Station> stations, boolean restrictive) {
 
-        HexSidesSet.Builder builder = HexSidesSet.builder();
-        for (HexSide side : rotationSides) {
-            Rotation rotation = rotations.get(side);
-            if (checkInvalidSides(rotation, impassable)) continue;
-            if (checkSideConnectivity(rotation, connected, restrictive) ||
-                    checkStationConnectivity(rotation, stations)) {
-                builder.set(side.rotate(baseRotation));
+        int connectedMask = (connected == null) ? 0 : connected.getMask();
+        int impassableMask = (impassable == null) ? 0 : impassable.getMask();
+        int allowed = 0;
+        for (int side = 0; side < 6; side++) {
+            if ((rotationMask & (1 << side)) == 0) continue;
+            if ((connectedMasks[side] & impassableMask) != 0) continue;
+            if (connected == null || checkSideConnectivity(side, connectedMask, restrictive)
+                    || checkStationConnectivity(rotations.get(HexSide.get(side)), stations)) {
+                allowed |= 1 << side;
             }
         }
-        HexSidesSet allowed = builder.build();
-        log.debug("allowed = " + allowed + "hexSides = " + connected + "impassable =" + impassable + " rotationSides = " + rotationSides);
-        return allowed;
+        HexSidesSet allowedSides = HexSidesSet.createFromMask(HexSidesSet.rotateMask(allowed, baseRotation));
+        if (log.isDebugEnabled()) {
+            log.debug("allowed = " + allowedSides + "hexSides = " + connected + "impassable =" + impassable
+                    + " rotationSides = " + rotationSides);
+        }
+        return allowedSides;
     }
 
     private Rotation processRotations(HexSide side) {
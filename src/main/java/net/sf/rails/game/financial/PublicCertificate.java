@@ -1,8 +1,6 @@
 package net.sf.rails.game.financial;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.SortedSet;
 
 import net.sf.rails.common.LocalText;
@@ -89,11 +87,6 @@ public class PublicCertificate extends RailsOwnableItem<PublicCertificate> imple
     /** Index within company (to be maintained in the IPO) */
     protected int indexInCompany;
 
-    /** A map allowing to find certificates by unique id */
-    // FIXME: Remove static map, replace by other location mechanisms
-    protected static Map<String, PublicCertificate> certMap =
-            new HashMap<String, PublicCertificate>();
-
     
     protected static Logger log =
             LoggerFactory.getLogger(PublicCertificate.class);
@@ -134,7 +127,7 @@ public class PublicCertificate extends RailsOwnableItem<PublicCertificate> imple
     /** Set the certificate's unique ID, for use in deserializing */
     public void setUniqueId(String name, int index) {
         certId = name + "-" + index;
-        certMap.put(certId, this);
+        getRoot().getCompanyManager().addCertificate(this);
     }
 
     /** Set the certificate's unique ID */
@@ -146,8 +139,8 @@ public class PublicCertificate extends RailsOwnableItem<PublicCertificate> imple
         return indexInCompany;
     }
 
-    public static PublicCertificate getByUniqueId(String certId) {
-        return certMap.get(certId);
+    public static PublicCertificate getByUniqueId(RailsItem item, String certId) {
+        return item.getRoot().getCompanyManager().getCertificateByUniqueId(certId);
     }
 
     
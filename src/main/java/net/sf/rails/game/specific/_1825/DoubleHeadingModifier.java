@@ -7,6 +7,8 @@ import java.util.List;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -14,7 +16,7 @@ import net.sf.rails.common.LocalText;
  * Double heading modifier
  * Allows two trains to run as a longer train (double heading)
  */
-public class DoubleHeadingModifier implements RevenueDynamicModifier {
+public class DoubleHeadingModifier implements RevenueDynamicModifier, RevenueModifierState {
 
     private final static String TRAIN_SINGLE = "2";
     private final static String DOUBLEHEAD_NAME = "2&2";
@@ -45,7 +47,7 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
     /** 
      * the prediction value itself is zero, as the add value stems from the train above
      */
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return 0;
     }
 
@@ -77,22 +79,39 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
     
     
     /**
-     * - checks if runs start and end at major stations
-     * - allows doubleheading
+     * allows doubleheading: removes the revenues of the two lowest 2-trains for each running double heading train 
      */
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
-
+    public int evaluationValue(RevenueRunView run) {
+        // count the number of 2-trains replaced by double heading trains
+        int nbReplaced = 0;
+        for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+            if (run.getTrain(trainId).getTrainName().equals(DOUBLEHEAD_NAME) && run.getRunValue(trainId) != 0) {
+                nbReplaced += 2;
+            }
+        }
+        if (nbReplaced == 0) return 0;
 
-        if (optimalRuns) return 0; // optimalRuns are adjusted 
-        
-        // count the adjustments
+        // remove the 2-trains with the lowest revenues (ranked without sorting)
         int changeRevenues = 0;
-        for (RevenueTrainRun run:identifyDoubleHeadingTrains(runs)) {
-            changeRevenues -= run.getRunValue();
+        for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+            if (!run.getTrain(trainId).getTrainName().equals(TRAIN_SINGLE)) continue;
+            int value = run.getRunValue(trainId);
+            int rank = 0;
+            for (int otherId=0; otherId < run.getNumberOfTrains(); otherId++) {
+                if (otherId == trainId || !run.getTrain(otherId).getTrainName().equals(TRAIN_SINGLE)) continue;
+                int otherValue = run.getRunValue(otherId);
+                if (otherValue < value || otherValue == value && otherId < trainId) rank++;
+            }
+            if (rank < nbReplaced) changeRevenues -= value;
         }
         return changeRevenues;
     }
 
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
+        // optimalRuns are adjusted
+        return 0;
+    }
+
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
         // remove the double heading runs from the revenue list
         optimalRuns.removeAll(identifyDoubleHeadingTrains(optimalRuns));
@@ -117,6 +136,10 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
         return 0;
     }
 
+    public String getModifierState() {
+        return "";
+    }
+
     public String prettyPrint(RevenueAdapter adapter) {
         return LocalText.getText("DoubleHeadingModifier1825", DOUBLEHEAD_NAME, TRAIN_SINGLE, TRAIN_DOUBLE);
     }
@@ -5,17 +5,19 @@ import java.util.List;
 
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 
 
-public class TerminateAtMajorModifier implements RevenueDynamicModifier {
+public class TerminateAtMajorModifier implements RevenueDynamicModifier, RevenueModifierState {
 
     public boolean prepareModifier(RevenueAdapter revenueAdapter) {
         // always active
         return true;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         // cannot be predicted
         return 0;
     }
@@ -32,17 +34,23 @@ public class TerminateAtMajorModifier implements RevenueDynamicModifier {
         return invalidRuns;
     }
     
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
-        // optimal runs is already adjusted
-        if (optimalRuns) return 0;
-        // otherwise check invalid runs
+    public int evaluationValue(RevenueRunView run) {
+        // check if runs end and start at major stations
         int changeRevenues = 0;
-        for (RevenueTrainRun run:identifyInvalidRuns(runs)) {
-            changeRevenues -= run.getRunValue();
+        for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+            if (!run.hasValidRun(trainId)) continue;
+            if (!run.isMajor(run.getFirstVertexId(trainId)) || !run.isMajor(run.getLastVertexId(trainId))) {
+                changeRevenues -= run.getRunValue(trainId);
+            }
         }
         return changeRevenues;
     }
 
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
+        // optimal runs is already adjusted
+        return 0;
+    }
+
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
         // set invalid runs to be empty
         for (RevenueTrainRun run:identifyInvalidRuns(optimalRuns)) {
@@ -59,6 +67,10 @@ public class TerminateAtMajorModifier implements RevenueDynamicModifier {
         return 0;
     }
 
+    public String getModifierState() {
+        return "";
+    }
+
     public String prettyPrint(RevenueAdapter adapter) {
         // nothing to do
         return null;
@@ -6,6 +6,8 @@ import java.util.List;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -15,7 +17,7 @@ import net.sf.rails.common.LocalText;
  * implementation allows several tgv trains
  * @author freystef
  */
-public class TGVModifier implements RevenueDynamicModifier {
+public class TGVModifier implements RevenueDynamicModifier, RevenueModifierState {
 
     final private String TGV_NAME = "TGV";
     
@@ -48,12 +50,17 @@ public class TGVModifier implements RevenueDynamicModifier {
         }
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         // nothing to do here
         return 0;
     }
 
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
+    public int evaluationValue(RevenueRunView run) {
+        // nothing to do here
+        return 0;
+    }
+
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
         // nothing to do here
         return 0;
     }
@@ -75,6 +82,10 @@ public class TGVModifier implements RevenueDynamicModifier {
         return value;
     }
 
+    public String getModifierState() {
+        return String.valueOf(nbTGV);
+    }
+
     public String prettyPrint(RevenueAdapter adapter) {
         return LocalText.getText("TGVModifier");
     }
@@ -8,6 +8,9 @@ import net.sf.rails.algorithms.NetworkEdge;
 import net.sf.rails.algorithms.NetworkGraph;
 import net.sf.rails.algorithms.NetworkGraphModifier;
 import net.sf.rails.algorithms.NetworkVertex;
+import net.sf.rails.common.parser.Configurable;
+import net.sf.rails.common.parser.ConfigurationException;
+import net.sf.rails.common.parser.Tag;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.RailsRoot;
@@ -17,18 +20,26 @@ import org.slf4j.LoggerFactory;
 import org.jgrapht.graph.SimpleGraph;
 
 
-public class ItalyTileModifier implements NetworkGraphModifier {
+public class ItalyTileModifier implements NetworkGraphModifier, Configurable {
 
     protected static Logger log =
         LoggerFactory.getLogger(ItalyTileModifier.class);
 
 
+    private RailsRoot root;
+
+    public void configureFromXML(Tag tag) throws ConfigurationException {
+        // does nothing
+    }
+
+    public void finishConfiguration(RailsRoot root) throws ConfigurationException {
+        this.root = root;
+    }
+
     @Override
     public void modifyMapGraph(NetworkGraph mapGraph) {
         
-        // TODO (Rails 2.0): Add root reference to modifiers
         SimpleGraph<NetworkVertex, NetworkEdge> graph = mapGraph.getGraph();
-        RailsRoot root = RailsRoot.getInstance();
         List<MapHex> italyMapHexes = new ArrayList<MapHex> ();
         // 1. check Phase
         // this is a violation of the assumption that the track network only dependents on the map configuration
@@ -9,7 +9,7 @@ import net.sf.rails.game.StartPacket;
 
 public class CompanyManager_1862 extends CompanyManager {
 
-    static int startNumber = 1;
+    private int startNumber = 1;
 
     public CompanyManager_1862(RailsRoot parent, String id) {
         super(parent, id);
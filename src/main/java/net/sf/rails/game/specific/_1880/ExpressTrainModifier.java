@@ -13,9 +13,11 @@ import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 
-    public class ExpressTrainModifier implements RevenueDynamicModifier {
+    public class ExpressTrainModifier implements RevenueDynamicModifier, RevenueModifierState {
         
         private static final String TRAIN_6E = "6E";
         private static final String TRAIN_8E = "8E";
@@ -69,6 +71,54 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return expressVertices.build();
         }
      
+        /**
+         * Allocation-free version of extractExpressRun:
+         * the vertices of the express run are moved to the front of vertexIds
+         * @param vertexIds the vertex ids of the run sorted by value
+         * @return number of vertices of the express run
+         */
+        private int extractExpressRun(RevenueRunView run, int trainId, int[] vertexIds, int length) {
+            int nbVertices = run.getNumberOfVertices(trainId);
+            int baseVertexId = run.getBaseVertexId(trainId);
+
+            int nbExpressVertices = 0;
+            int inRunNumber = 1;
+            for (int j=0; j < nbVertices; j++) {
+                int vertexId = vertexIds[j];
+                if (vertexId == baseVertexId || !run.getVertex(vertexId).isStation()) {
+                    // keep base and ferry malus vertices
+                    vertexIds[nbExpressVertices++] = vertexId;
+                } else if (inRunNumber < length) {
+                    // add vertices until length is reached
+                    vertexIds[nbExpressVertices++] = vertexId;
+                    inRunNumber ++;
+                }
+            }
+            return nbExpressVertices;
+        }
+
+        private int valueChange(RevenueRunView run) {
+            int value = 0;
+            //Find out which Express Train is involved
+            for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+                String trainName = run.getTrain(trainId).getTrainName();
+                int length;
+                if (TRAIN_6E.equals(trainName)) {
+                    length = 6;
+                } else if (TRAIN_8E.equals(trainName)) {
+                    length = 8;
+                } else {
+                    continue;
+                }
+                if (!run.hasValidRun(trainId)) continue;
+                int[] vertexIds = run.getVertexIdsByValue(trainId);
+                int nbExpressVertices = extractExpressRun(run, trainId, vertexIds, length);
+                int expressRunValue = run.getRunValueForVertices(trainId, vertexIds, nbExpressVertices);
+                value += expressRunValue - run.getRunValue(trainId);
+            }
+            return value;
+        }
+     
         private int valueChange(List<RevenueTrainRun> runs, boolean optimalRuns) {
             int value = 0;
             //Find out which Express Train is involved
@@ -90,12 +140,16 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return value;
         }
         
-        public int predictionValue(List<RevenueTrainRun> runs) {
-            return valueChange(runs, false);
+        public int predictionValue(RevenueRunView run) {
+            return valueChange(run);
         }
        
-        public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
-            return valueChange(runs, optimalRuns);
+        public int evaluationValue(RevenueRunView run) {
+            return valueChange(run);
+        }
+
+        public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
+            return valueChange(optimalRuns, true);
         }
 
         public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
@@ -119,6 +173,10 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return 0;
         }
 
+        public String getModifierState() {
+            return String.valueOf(hasExpress);
+        }
+
         public String prettyPrint(RevenueAdapter revenueAdapter) {
             return null;
         }
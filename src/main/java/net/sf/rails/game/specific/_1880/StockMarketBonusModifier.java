@@ -4,6 +4,8 @@ import java.util.List;
 
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.PublicCompany;
@@ -13,7 +15,7 @@ import net.sf.rails.game.PublicCompany;
  * implement as a dynamic ex-post modifier
  */
 
-public class StockMarketBonusModifier implements RevenueDynamicModifier {
+public class StockMarketBonusModifier implements RevenueDynamicModifier, RevenueModifierState {
 
     private int bonusValue;
 
@@ -27,11 +29,15 @@ public class StockMarketBonusModifier implements RevenueDynamicModifier {
         return false;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return bonusValue;
     }
 
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
+    public int evaluationValue(RevenueRunView run) {
+        return bonusValue;
+    }
+
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
         return bonusValue;
     }
 
@@ -45,6 +51,10 @@ public class StockMarketBonusModifier implements RevenueDynamicModifier {
         return 0;
     }
 
+    public String getModifierState() {
+        return String.valueOf(bonusValue);
+    }
+
     public String prettyPrint(RevenueAdapter revenueAdapter) {
         return LocalText.getText("1880StockMarketBonus", bonusValue);
     }
@@ -8,9 +8,9 @@ import java.util.Set;
 
 import com.google.common.base.Objects;
 
-import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Train;
 import net.sf.rails.game.TrainManager;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 import rails.game.action.UseSpecialProperty;
@@ -74,6 +74,28 @@ public class AssignNamedTrains extends UseSpecialProperty {
         }
     }
     
+    protected AssignNamedTrains(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        trainIds = in.readStrings();
+        numberOfTrains = in.readInt();
+        numberOfTokens = in.readInt();
+        preTrainds = in.readStrings();
+        postTrainds = in.readStrings();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeStrings(trainIds);
+        out.writeInt(numberOfTrains);
+        out.writeInt(numberOfTokens);
+        out.writeStrings(preTrainds);
+        out.writeStrings(postTrainds);
+    }
+
     @Override
     public String toMenu() {
         return ((NameTrains) specialProperty).toMenu();
@@ -147,8 +169,11 @@ public class AssignNamedTrains extends UseSpecialProperty {
             ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
-        TrainManager trainManager = RailsRoot.getInstance().getTrainManager();
+    private void resolveItems() {
+        TrainManager trainManager = getRoot().getTrainManager();
 
         nameableTrains = new ArrayList<NameableTrain>();
         if (trainIds != null) {
@@ -180,7 +205,6 @@ public class AssignNamedTrains extends UseSpecialProperty {
                 }
             }
         }
-
     }
 
 }
@@ -8,6 +8,8 @@ import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueBonus;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueStaticModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.GameOption;
@@ -19,7 +21,7 @@ import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Train;
 
 
-public class NamedTrainRevenueModifier implements RevenueStaticModifier, RevenueDynamicModifier, Configurable {
+public class NamedTrainRevenueModifier implements RevenueStaticModifier, RevenueDynamicModifier, RevenueModifierState, Configurable {
 
     private boolean dynamic;
     private List<RevenueBonus> bonuses;
@@ -101,11 +103,34 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
         return true;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return bonusMaximum;
     }
 
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
+    public int evaluationValue(RevenueRunView run) {
+        int bonusValue = 0;
+        // due to the geography (off-map areas!) each train can only score one bonus
+        // (indexed loops avoid the iterators)
+        for (int b=0; b < bonuses.size(); b++) {
+            RevenueBonus bonus = bonuses.get(b);
+            for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+                if (containsAllVertices(run, trainId, bonus.getVertices())) {
+                    bonusValue += bonus.getValue();
+                    continue; // each bonus can only be scored once
+                }
+            }
+        }
+        return bonusValue;
+    }
+
+    private boolean containsAllVertices(RevenueRunView run, int trainId, List<NetworkVertex> vertices) {
+        for (int j=0; j < vertices.size(); j++) {
+            if (!run.containsVertex(trainId, vertices.get(j))) return false;
+        }
+        return true;
+    }
+
+    public int optimalRunValue(List<RevenueTrainRun> runs) {
         int bonusValue = 0;
         // due to the geography (off-map areas!) each train can only score one bonus
         for (RevenueBonus bonus:bonuses) {
@@ -133,6 +158,10 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
         return 0;
     }
     
+    public String getModifierState() {
+        return bonuses + ":" + bonusMaximum;
+    }
+
     public String prettyPrint(RevenueAdapter revenueAdapter) {
 
         List<RevenueTrainRun> runs = revenueAdapter.getOptimalRun();
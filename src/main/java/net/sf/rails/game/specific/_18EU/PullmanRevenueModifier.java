@@ -7,11 +7,13 @@ import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueModifierState;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
 
-public class PullmanRevenueModifier implements RevenueDynamicModifier {
+public class PullmanRevenueModifier implements RevenueDynamicModifier, RevenueModifierState {
 
     private boolean hasPullman;
     private int maxValue;
@@ -34,8 +36,21 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return true;
     }
 
-    public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
-        return pullmanValue(runs);
+    public int evaluationValue(RevenueRunView run) {
+        int maximum = 0;
+        for (int trainId=0; trainId < run.getNumberOfTrains(); trainId++) {
+            for (int j=0; j < run.getNumberOfVertices(trainId); j++) {
+                NetworkVertex vertex = run.getVertex(run.getVertexId(trainId, j));
+                if (!vertex.isMajor()) continue;
+                maximum = Math.max(maximum, vertex.getValue());
+            }
+            if (maximum == maxValue) break; 
+        }
+        return maximum;
+    }
+    
+    public int optimalRunValue(List<RevenueTrainRun> optimalRuns) {
+        return pullmanValue(optimalRuns);
     }
     
     private int pullmanValue(List<RevenueTrainRun> trainRuns) {
@@ -47,7 +62,7 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return maximum; 
     }
     
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return maxValue;
     }
 
@@ -64,6 +79,10 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         // do nothing here (all is done by changing the evaluation value)
     }
 
+    public String getModifierState() {
+        return hasPullman + ":" + maxValue;
+    }
+
     public String prettyPrint(RevenueAdapter revenueAdapter) {
         return LocalText.getText("Pullman") + " = " + pullmanValue(revenueAdapter.getOptimalRun());
     }
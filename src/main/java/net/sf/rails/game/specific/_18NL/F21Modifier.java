@@ -6,6 +6,9 @@ import net.sf.rails.algorithms.NetworkEdge;
 import net.sf.rails.algorithms.NetworkGraph;
 import net.sf.rails.algorithms.NetworkGraphModifier;
 import net.sf.rails.algorithms.NetworkVertex;
+import net.sf.rails.common.parser.Configurable;
+import net.sf.rails.common.parser.ConfigurationException;
+import net.sf.rails.common.parser.Tag;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.RailsRoot;
@@ -17,12 +20,21 @@ import org.jgrapht.graph.SimpleGraph;
  * Removes F21 from the map if value is equal to zero
  */
 
-public class F21Modifier implements NetworkGraphModifier {
+public class F21Modifier implements NetworkGraphModifier, Configurable {
+
+    private RailsRoot root;
+
+    public void configureFromXML(Tag tag) throws ConfigurationException {
+        // does nothing
+    }
+
+    public void finishConfiguration(RailsRoot root) throws ConfigurationException {
+        this.root = root;
+    }
 
     @Override
     public void modifyMapGraph(NetworkGraph mapGraph) {
         
-        RailsRoot root = RailsRoot.getInstance();
         SimpleGraph<NetworkVertex, NetworkEdge> graph = mapGraph.getGraph();
 
         // Check if F21 has zero value
@@ -14,6 +14,8 @@ import com.google.common.collect.ImmutableList;
 public final class ArrayListState<E> extends State implements Iterable<E>  {
 
     private final ArrayList<E> list;
+    // immutable copy of the list, shared until the next change
+    private ImmutableList<E> view;
 
     private ArrayListState(Item parent, String id, Collection<E> collection) {
         super(parent, id);
@@ -103,7 +105,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      * removes all elements 
      */
     public void clear() {
-        for (E element:ImmutableList.copyOf(list)) {
+        for (E element:view()) {
             remove(element);
         }
     }
@@ -113,7 +115,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      */
     public void setTo(List<E> newList) {
         int index = 0;
-        List<E> copyList = ImmutableList.copyOf(list);
+        List<E> copyList = view();
         for (E element:newList) {
             if (index < copyList.size()) {
                 if (element.equals(copyList.get(index))) {
@@ -135,10 +137,13 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
     
     /**
      * creates an immutable view of the list
-     * @return immutable copy
+     * @return immutable copy (the same copy is returned until the list changes)
      */
     public ImmutableList<E> view() {
-        return ImmutableList.copyOf(list);
+        if (view == null) {
+            view = ImmutableList.copyOf(list);
+        }
+        return view;
     }
 
     public int size() {
@@ -162,7 +167,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      * @return a suitable iterator for ArrayListState
      */
     public Iterator<E> iterator() {
-        return ImmutableList.copyOf(list).iterator();
+        return view().iterator();
     }
     
     @Override
@@ -176,6 +181,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
         } else {
             list.remove(index);
         }
+        view = null;
     }
 
     
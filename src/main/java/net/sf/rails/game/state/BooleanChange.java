@@ -30,6 +30,10 @@ public final class BooleanChange extends Change {
         return state;
     }
 
+    @Override boolean replacesValue() {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "Change for " + state + ": From " + oldValue + " to " + newValue; 
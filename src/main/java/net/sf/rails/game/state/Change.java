@@ -14,4 +14,12 @@ public abstract class Change {
     abstract void undo();  
     public abstract State getState();
 
+    /**
+     * @return true if execute and undo replace the complete value of the state
+     * (thus a sequence of such changes of one state is reverted by its first change)
+     */
+    boolean replacesValue() {
+        return false;
+    }
+
 }
@@ -0,0 +1,17 @@
+package net.sf.rails.game.state;
+
+import java.util.List;
+
+/**
+ * A ChangeReplayer restores the ChangeSets of collapsed actions by processing the actions again.
+ * It is required for an undo to a position inside of a checkpoint of the ChangeStack.
+ */
+public interface ChangeReplayer {
+
+    /**
+     * Replays the actions, each action has to close a ChangeSet
+     * @return true if all actions were processed
+     */
+    public boolean replay(List<ChangeAction> actions);
+
+}
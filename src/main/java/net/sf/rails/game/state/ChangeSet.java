@@ -1,6 +1,7 @@
 package net.sf.rails.game.state;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
@@ -22,12 +23,20 @@ public class ChangeSet {
     private static final Logger log = LoggerFactory.getLogger(ChangeSet.class);
 
     // static fields
-    private final List<Change> changes;
     private final ChangeAction action;
     private final int index;
 
-    ChangeSet(List<Change> changes, ChangeAction action, int index) {
+    // released if the ChangeSet is collapsed into a checkpoint
+    private List<Change> changes;
+    private ImmutableSet<State> states;
+    private boolean compacted = false;
+
+    /**
+     * @param states the states of the changes (collected by the ChangeStack while the changes are added)
+     */
+    ChangeSet(List<Change> changes, ImmutableSet<State> states, ChangeAction action, int index) {
         this.changes = changes;
+        this.states = states;
         this.action = action;
         this.index = index;
     }
@@ -38,11 +47,7 @@ public class ChangeSet {
      * @return set of all states affected by Changes
      */
     ImmutableSet<State> getStates() {
-        ImmutableSet.Builder<State> builder = new ImmutableSet.Builder<State>();
-        for (Change change : changes) {
-            builder.add(change.getState());
-        }
-        return builder.build();
+        return states;
     }
 
     /**
@@ -73,6 +78,31 @@ public class ChangeSet {
         }
     }
 
+    /**
+     * releases the changes, they are stored in a checkpoint of the ChangeStack afterwards
+     *
+     * @return the changes of the ChangeSet
+     */
+    List<Change> compact() {
+        checkState(!compacted, "ChangeSet is already compacted");
+        List<Change> released = changes;
+        changes = ImmutableList.of();
+        states = ImmutableSet.of();
+        compacted = true;
+        return released;
+    }
+
+    /**
+     * @return true if the changes are part of a checkpoint
+     */
+    boolean isCompacted() {
+        return compacted;
+    }
+
+    int getNumberOfChanges() {
+        return changes.size();
+    }
+
     /**
      * returns the ChangeAction associated with the ChangeSet
      *
@@ -99,6 +129,7 @@ public class ChangeSet {
                 .add("action", action)
                 .add("Owner", getOwner())
                 .add("Index", index)
+                .add("Compacted", compacted)
                 .toString();
     }
 }
\ No newline at end of file
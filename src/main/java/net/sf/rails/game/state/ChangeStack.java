@@ -2,16 +2,38 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+/**
+ * ChangeStack stores the ChangeSets for undo and redo.
+ *
+ * A retention policy (see {@link #setRetentionPolicy(int, long)}) limits the memory used:
+ * If the number or the estimated size of the ChangeSets is exceeded, the oldest ChangeSets
+ * are collapsed into a checkpoint. The checkpoint stores only the first and the last change
+ * of states that replace their value (e.g. IntegerState), the ChangeSets keep their action and index.
+ * Undo and redo move over the checkpoint as a whole. An undo to an index inside of
+ * the checkpoint replays all collapsed actions from the start of the checkpoint (see {@link ChangeReplayer})
+ * and undoes the replayed ChangeSets up to the index, thus redo stays possible.
+ */
 public class ChangeStack {
 
     private static final Logger log =
@@ -20,18 +42,33 @@ public class ChangeStack {
     // static fields
     private final StateManager stateManager;
 
-    private final Deque<ChangeSet> undoStack = Lists.newLinkedList();
-    private final Deque<ChangeSet> redoStack = Lists.newLinkedList();
+    // estimated memory usage of the objects
+    static final int ESTIMATED_CHANGE_SIZE = 40;
+    static final int ESTIMATED_CHANGESET_SIZE = 64;
+
+    private final Deque<ChangeSet> undoStack = new ArrayDeque<ChangeSet>();
+    private final Deque<ChangeSet> redoStack = new ArrayDeque<ChangeSet>();
     
     private ChangeReporter reporter; // assigned once
+    private ChangeReplayer replayer; // assigned once
+
+    // retention policy (0 = unlimited)
+    private int maxChangeSets = 0;
+    private long maxBytes = 0;
+
+    // collapsed ChangeSets
+    private Checkpoint checkpoint;
+
+    // true while the actions of the checkpoint are replayed, the retention policy is suspended
+    private boolean replaying = false;
 
-    // dynamic fields
-    private ImmutableList.Builder<Change> changeBuilder;
+    // dynamic fields: changes and states of the open ChangeSet (reused for each ChangeSet)
+    private final ArrayList<Change> openChanges = new ArrayList<Change>();
+    private final LinkedHashSet<State> openStates = new LinkedHashSet<State>();
 
     private ChangeStack(StateManager stateManager) {
         this.stateManager = stateManager;
         reporter = null;
-        changeBuilder = ImmutableList.builder();
     }
     
     /**
@@ -52,6 +89,25 @@ public class ChangeStack {
         log.debug("Added ChangeReporter " + reporter);
     }
 
+    /**
+     * Add ChangeReplayer, it is required to undo to an index inside of a checkpoint
+     */
+    public void addChangeReplayer(ChangeReplayer replayer) {
+        this.replayer = replayer;
+        log.debug("Added ChangeReplayer " + replayer);
+    }
+
+    /**
+     * Defines the retention policy of the ChangeStack, it is applied on the next close
+     * @param maxChangeSets maximum number of ChangeSets that are not collapsed (0 = unlimited)
+     * @param maxBytes maximum estimated size of the ChangeSets that are not collapsed (0 = unlimited)
+     */
+    public void setRetentionPolicy(int maxChangeSets, long maxBytes) {
+        this.maxChangeSets = Math.max(0, maxChangeSets);
+        this.maxBytes = Math.max(0, maxBytes);
+        log.debug("Retention policy: maxChangeSets = " + this.maxChangeSets + ", maxBytes = " + this.maxBytes);
+    }
+
     /**
      * @return the previous (closed) changeSet, null if empty
      */
@@ -64,14 +120,15 @@ public class ChangeStack {
      */
     void addChange(Change change) {
         log.debug("ChangeSet: Add " + change);
-        changeBuilder.add(change);
+        openChanges.add(change);
+        openStates.add(change.getState());
         // immediate execution and information of models
         change.execute();
         change.getState().informTriggers(change);
     }
     
     private boolean checkRequirementsForClose(ChangeAction action) {
-        if (changeBuilder.build().isEmpty() || action == null) {
+        if (openChanges.isEmpty() || action == null) {
             return false;
         } else {
             return true;
@@ -80,12 +137,17 @@ public class ChangeStack {
     
     public void close(ChangeAction action) {
         if (checkRequirementsForClose(action)) {
-            // this has to be done before the changeBuilder closes
+            // this has to be done before the open changes are cleared
             int index = undoStack.size() + 1;
-            ChangeSet closeSet = new ChangeSet(changeBuilder.build(), action, index);
+            ChangeSet closeSet = new ChangeSet(ImmutableList.copyOf(openChanges), 
+                    ImmutableSet.copyOf(openStates), action, index);
             log.debug("<<< Closed changeSet " + closeSet);
             undoStack.addLast(closeSet);
             redoStack.clear();
+            // a checkpoint on the redo stack is removed as well
+            if (checkpoint != null && checkpoint.firstIndex >= index) {
+                checkpoint = null;
+            }
 
             if (reporter != null) {
                 reporter.updateOnClose();
@@ -95,11 +157,86 @@ public class ChangeStack {
             restart();
             // inform direct and indirect observers
             updateObservers(closeSet.getStates());
+
+            applyRetentionPolicy();
         }
     }
 
+    private void applyRetentionPolicy() {
+        if (replaying || maxChangeSets == 0 && maxBytes == 0) return;
+
+        // the initial and the collapsed ChangeSets are not retained
+        List<ChangeSet> retained = Lists.newArrayList(Iterables.filter(
+                Iterables.skip(undoStack, 1), Predicates.not(COMPACTED)));
+
+        // collapse to half of the limits, thus this is not required on each close
+        int nbCompact = 0;
+        if (maxChangeSets != 0 && retained.size() > maxChangeSets) {
+            nbCompact = retained.size() - maxChangeSets / 2;
+        }
+        if (maxBytes != 0) {
+            long bytes = 0;
+            for (ChangeSet set:retained) {
+                bytes += estimateSize(set.getNumberOfChanges());
+            }
+            if (bytes > maxBytes) {
+                int n = 0;
+                for (ChangeSet set:retained) {
+                    if (bytes <= maxBytes / 2) break;
+                    bytes -= estimateSize(set.getNumberOfChanges());
+                    n++;
+                }
+                nbCompact = Math.max(nbCompact, n);
+            }
+        }
+        // the latest ChangeSet is always kept
+        nbCompact = Math.min(nbCompact, retained.size() - 1);
+        if (nbCompact > 0) {
+            compact(retained.subList(0, nbCompact));
+        }
+    }
+
+    private void compact(List<ChangeSet> sets) {
+        List<Change> changes = Lists.newArrayList();
+        int firstIndex = sets.get(0).getIndex();
+        if (checkpoint != null) {
+            changes.addAll(checkpoint.changes);
+            firstIndex = checkpoint.firstIndex;
+        }
+        for (ChangeSet set:sets) {
+            changes.addAll(set.compact());
+        }
+        int lastIndex = sets.get(sets.size() - 1).getIndex();
+        checkpoint = new Checkpoint(firstIndex, lastIndex, mergeChanges(changes));
+        log.info("Collapsed " + sets.size() + " ChangeSets into " + checkpoint + ", " + getMemoryReport());
+    }
+
+    /**
+     * For states that replace their value only the first and the last change are kept
+     */
+    static ImmutableList<Change> mergeChanges(List<Change> changes) {
+        List<Change> merged = Lists.newArrayListWithCapacity(changes.size());
+        Set<State> changedStates = Sets.newHashSet();
+        Map<State, Integer> lastPositions = Maps.newHashMap();
+        for (Change change:changes) {
+            if (change.replacesValue()) {
+                State state = change.getState();
+                if (!changedStates.add(state)) {
+                    // replace the previous last change
+                    Integer lastPosition = lastPositions.put(state, merged.size());
+                    if (lastPosition != null) {
+                        merged.set(lastPosition, null);
+                    }
+                }
+            }
+            merged.add(change);
+        }
+        return ImmutableList.copyOf(Iterables.filter(merged, Predicates.notNull()));
+    }
+
     private void restart() {
-        changeBuilder = ImmutableList.builder();
+        openChanges.clear();
+        openStates.clear();
     }
     
     
@@ -124,9 +261,9 @@ public class ChangeStack {
      */
     public void undo() {
         checkState(isUndoPossible(), "Undo not possible");
-        ChangeSet undoSet = executeUndo();
+        Set<State> states = executeUndo();
         restart();
-        updateObservers(undoSet.getStates());
+        updateObservers(states);
 
         if (reporter != null) {
             reporter.updateAfterUndoRedo();
@@ -136,31 +273,92 @@ public class ChangeStack {
     /**
      * Example: Undo-Stack has 4 elements (1,2,3,4), size = 4
      * Undo to index 2, requires removing the latest element, such that size = 3
+     * 
+     * If the index is inside of a checkpoint, the undo moves to the start of the checkpoint,
+     * the ChangeReplayer replays the actions of the checkpoint and the undo continues up to the index.
      */
     
     public void undo(int index) {
         checkState(isUndoPossible() && index < undoStack.size() , "Undo not possible");
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
         while (undoStack.size() > index) {
-            states.addAll(executeUndo().getStates());
+            states.addAll(executeUndo());
         }
         restart();
         updateObservers(states.build());
         if (reporter != null) {
             reporter.updateAfterUndoRedo();
         }
+
+        if (undoStack.size() < index) {
+            replay(index);
+        }
     }
 
-    private ChangeSet executeUndo() {
-        ChangeSet undoSet = undoStack.pollLast();
+    /**
+     * Replays all actions of the checkpoint, which closes a ChangeSet for each of them,
+     * and undoes the new ChangeSets up to the index.
+     * The ChangeSets after the checkpoint are restored on the redo stack afterwards.
+     */
+    private void replay(int index) {
+        if (replayer == null) {
+            log.warn("No ChangeReplayer defined, undo stopped at index " + undoStack.size());
+            return;
+        }
+        List<ChangeAction> actions = Lists.newArrayList();
+        List<ChangeSet> redoSets = Lists.newArrayList();
+        for (ChangeSet set:redoStack) {
+            if (set.isCompacted()) {
+                actions.add(set.getAction());
+            } else {
+                redoSets.add(set);
+            }
+        }
+        int start = undoStack.size();
+        log.debug("Replay " + actions.size() + " actions from index " + start);
+        replaying = true;
+        boolean replayed;
+        try {
+            replayed = replayer.replay(actions);
+        } finally {
+            replaying = false;
+        }
+        if (!replayed || undoStack.size() != start + actions.size()) {
+            // the ChangeSets after the checkpoint do not fit to the replayed ChangeSets
+            log.warn("Replay stopped at index " + undoStack.size() + ", redo is not possible");
+            return;
+        }
+        // the redo stack was cleared by the replayed ChangeSets
+        redoStack.addAll(redoSets);
+        if (index < undoStack.size()) {
+            undo(index);
+        }
+    }
+
+    private Set<State> executeUndo() {
+        if (undoStack.peekLast().isCompacted()) {
+            // the checkpoint is undone as a whole
+            log.debug("Undo " + checkpoint);
+            checkpoint.unexecute();
+            while (undoStack.peekLast().isCompacted()) {
+                moveToRedoStack();
+            }
+            return checkpoint.getStates();
+        }
+        ChangeSet undoSet = moveToRedoStack();
         log.debug("UndoSet = " + undoSet);
         undoSet.unexecute();
+        return undoSet.getStates();
+    }
+
+    private ChangeSet moveToRedoStack() {
+        ChangeSet undoSet = undoStack.pollLast();
         redoStack.addFirst(undoSet);
-        
+
         if (reporter != null) {
             reporter.informOnUndo();
         }
-        
+
         return undoSet;
     }
     
@@ -181,21 +379,24 @@ public class ChangeStack {
     public void redo() {
         checkState(isRedoPossible(), "Redo not possible");
         
-        ChangeSet redoSet = executeRedo();
+        Set<State> states = executeRedo();
         restart();
-        updateObservers(redoSet.getStates());
+        updateObservers(states);
         if (reporter != null) {
             reporter.updateAfterUndoRedo();
         }
     }
 
+    /**
+     * If the index is inside of a checkpoint, the redo moves to the end of the checkpoint
+     */
     public void redo(int index) {
         checkState(index > undoStack.size() && index <= undoStack.size() + redoStack.size(), 
                 "Redo not possible");
 
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
         while (undoStack.size() < index) {
-            states.addAll(executeRedo().getStates());
+            states.addAll(executeRedo());
         }
         restart();
         updateObservers(states.build());
@@ -204,16 +405,30 @@ public class ChangeStack {
         }
     }
     
-    private ChangeSet executeRedo() {
-        ChangeSet redoSet = redoStack.pollFirst();
+    private Set<State> executeRedo() {
+        if (redoStack.peekFirst().isCompacted()) {
+            // the checkpoint is redone as a whole
+            log.debug("Redo " + checkpoint);
+            checkpoint.reexecute();
+            while (!redoStack.isEmpty() && redoStack.peekFirst().isCompacted()) {
+                moveToUndoStack();
+            }
+            return checkpoint.getStates();
+        }
+        ChangeSet redoSet = moveToUndoStack();
         log.debug("RedoSet = " + redoSet);
         redoSet.reexecute();
+        return redoSet.getStates();
+    }
+
+    private ChangeSet moveToUndoStack() {
+        ChangeSet redoSet = redoStack.pollFirst();
         undoStack.addLast(redoSet);
-        
+
         if (reporter != null) {
             reporter.informOnRedo();
         }
-        
+
         return redoSet;
     }
 
@@ -231,4 +446,94 @@ public class ChangeStack {
         return redoStack.size() + undoStack.size();
     }
 
+    /**
+     * @return number of changes stored (including the checkpoint)
+     */
+    public int getNumberOfChanges() {
+        int changes = (checkpoint == null) ? 0 : checkpoint.changes.size();
+        for (ChangeSet set:Iterables.concat(undoStack, redoStack)) {
+            changes += set.getNumberOfChanges();
+        }
+        return changes;
+    }
+
+    /**
+     * @return estimated memory usage of the ChangeSets and changes in bytes
+     */
+    public long getEstimatedSize() {
+        return (long) getMaximumIndex() * ESTIMATED_CHANGESET_SIZE + estimateSize(getNumberOfChanges());
+    }
+
+    private static long estimateSize(int nbChanges) {
+        return (long) nbChanges * ESTIMATED_CHANGE_SIZE;
+    }
+
+    /**
+     * @return report of the memory usage of the ChangeStack
+     */
+    public String getMemoryReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("ChangeSets = " + getMaximumIndex());
+        report.append(", Changes = " + getNumberOfChanges());
+        if (checkpoint != null) {
+            report.append(" (checkpoint " + checkpoint.firstIndex + "-" + checkpoint.lastIndex
+                    + " with " + checkpoint.changes.size() + " changes)");
+        }
+        report.append(", estimated size = " + getEstimatedSize() / 1024 + " KB");
+        return report.toString();
+    }
+
+    private static final Predicate<ChangeSet> COMPACTED =
+            new Predicate<ChangeSet>() {
+        public boolean apply(ChangeSet set) {
+            return set.isCompacted();
+        }
+    };
+
+    /**
+     * Checkpoint stores the merged changes of the collapsed ChangeSets from firstIndex to lastIndex
+     */
+    private static class Checkpoint {
+        private final int firstIndex;
+        private final int lastIndex;
+        private final ImmutableList<Change> changes;
+        private final ImmutableSet<State> states;
+
+        private Checkpoint(int firstIndex, int lastIndex, ImmutableList<Change> changes) {
+            this.firstIndex = firstIndex;
+            this.lastIndex = lastIndex;
+            this.changes = changes;
+            ImmutableSet.Builder<State> builder = ImmutableSet.builder();
+            for (Change change:changes) {
+                builder.add(change.getState());
+            }
+            this.states = builder.build();
+        }
+
+        private ImmutableSet<State> getStates() {
+            return states;
+        }
+
+        private void reexecute() {
+            for (Change change:changes) {
+                change.execute();
+            }
+        }
+
+        private void unexecute() {
+            for (Change change:changes.reverse()) {
+                change.undo();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("firstIndex", firstIndex)
+                    .add("lastIndex", lastIndex)
+                    .add("changes", changes.size())
+                    .toString();
+        }
+    }
+
 }
@@ -25,6 +25,10 @@ public final class GenericStateChange<E> extends Change {
         return state;
     }
 
+    @Override boolean replacesValue() {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "Change for " + state + ": Replace " + previous + " by " + next ;
@@ -29,6 +29,10 @@ public final class IntegerChange extends Change {
         return state;
     }
 
+    @Override boolean replacesValue() {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "Change for " + state + ": From " + oldValue + " to " + newValue; 
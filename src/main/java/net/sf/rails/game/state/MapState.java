@@ -16,6 +16,11 @@ import com.google.common.collect.Sets;
 
 public abstract class MapState<K,V> extends State implements Iterable<V> {
 
+    // immutable copies of the map, shared until the next change
+    private ImmutableMap<K,V> view;
+    private ImmutableSet<K> keySet;
+    private ImmutableCollection<V> values;
+
     protected MapState(Item parent, String id) {
         super(parent, id);
     }
@@ -91,7 +96,7 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
      * removes all mappings from the getMap()
      */
     public void clear() {
-        for (K key : ImmutableSet.copyOf(getMap().keySet())) {
+        for (K key : viewKeySet()) {
             remove (key);
         }
     }
@@ -126,21 +131,42 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
     
     /**
      * creates an immutable copy of the getMap()
-     * @return immutable version of the getMap()
+     * @return immutable version of the getMap() (the same copy is returned until the map changes)
      */
     public ImmutableMap<K,V> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    protected ImmutableMap<K,V> createView() {
         return ImmutableMap.copyOf(getMap());
     }
     
     /**
      * creates an immutable copy of the keyset
-     * @return immutable keyset of the getMap()
+     * @return immutable keyset of the getMap() (the same copy is returned until the map changes)
      */
     public ImmutableSet<K> viewKeySet() {
-        return ImmutableSet.copyOf(getMap().keySet());
+        if (keySet == null) {
+            keySet = ImmutableSet.copyOf(getMap().keySet());
+        }
+        return keySet;
     }
     
-    public abstract ImmutableCollection<V> viewValues();
+    /**
+     * creates an immutable copy of the values
+     * @return immutable values of the getMap() (the same copy is returned until the map changes)
+     */
+    public ImmutableCollection<V> viewValues() {
+        if (values == null) {
+            values = createValues();
+        }
+        return values;
+    }
+
+    protected abstract ImmutableCollection<V> createValues();
 
     public Iterator<V> iterator() {
         return viewValues().iterator();
@@ -152,6 +178,9 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
         } else {
             getMap().put(key, value);
         }
+        view = null;
+        keySet = null;
+        values = null;
     }
     
     @Override
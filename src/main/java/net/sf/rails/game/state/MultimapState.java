@@ -1,12 +1,14 @@
 package net.sf.rails.game.state;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 /**
@@ -14,6 +16,15 @@ import com.google.common.collect.Multimap;
  */
 public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     
+    // number of changes of the multimap (including undo), allows to cache derived data
+    private int modificationCount = 0;
+
+    // immutable copies of the multimap, shared until the next change
+    private final Map<K, ImmutableSet<V>> valuesByKey = Maps.newHashMap();
+    private ImmutableSet<K> keySet;
+    private ImmutableCollection<V> values;
+    private ImmutableMultimap<K,V> view;
+
     protected MultimapState(Item parent, String id) {
         super(parent, id);
     }
@@ -33,9 +44,22 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
         return true;
     }
 
+    /**
+     * @return immutable copy of the values for the key (the same copy is returned until the multimap changes)
+     */
     public ImmutableSet<V> get(K key) {
+        ImmutableSet<V> keyValues = valuesByKey.get(key);
+        if (keyValues == null) {
+            keyValues = createKeyValues(key);
+            valuesByKey.put(key, keyValues);
+        }
+        return keyValues;
+    }
+
+    protected ImmutableSet<V> createKeyValues(K key) {
         return ImmutableSet.copyOf(getMap().get(key));
     }
+
     public boolean remove(K key, V value) {
         if (!getMap().containsEntry(key, value)) return false;
         new MultimapChange<K,V>(this, key, value, false);
@@ -71,6 +95,13 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     }
     
     public ImmutableSet<K> keySet() {
+        if (keySet == null) {
+            keySet = createKeySet();
+        }
+        return keySet;
+    }
+
+    protected ImmutableSet<K> createKeySet() {
         return ImmutableSet.copyOf(getMap().keySet());
     }
 
@@ -78,15 +109,29 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      * @return all values of the multimap
      */
     public ImmutableCollection<V> values() {
+        if (values == null) {
+            values = createValues();
+        }
+        return values;
+    }
+
+    protected ImmutableCollection<V> createValues() {
         // ImmutableCollection.copyOf does not exist, uses List instead
         return ImmutableList.copyOf(getMap().values());
     }
     
     /**
      * creates an immutable copy of the Multimap
-     * @return immutable version of the Multimap
+     * @return immutable version of the Multimap (the same copy is returned until the multimap changes)
      */
     public ImmutableMultimap<K,V> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    protected ImmutableMultimap<K,V> createView() {
         return ImmutableMultimap.copyOf(getMap());
     }
     
@@ -94,7 +139,7 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      * @return an iterator over all values
      */
     public Iterator<V> iterator() {
-        return ImmutableList.copyOf(getMap().values()).iterator();
+        return values().iterator();
     }
     
     @Override
@@ -102,11 +147,23 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
         return getMap().toString();
     }
     
+    /**
+     * @return number of executed and undone changes of the multimap
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+
     void change(K key, V value, boolean addToMap) {
         if (addToMap) {
             getMap().put(key, value);
         } else {
             getMap().remove(key, value);
         }
+        modificationCount++;
+        valuesByKey.clear();
+        keySet = null;
+        values = null;
+        view = null;
     }
 }
@@ -2,7 +2,6 @@ package net.sf.rails.game.state;
 
 import java.util.Iterator;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSortedSet;
 
@@ -40,7 +39,7 @@ public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>
 
     @Override
     public ImmutableSortedSet<T> items() {
-        return ImmutableSortedSet.copyOf(portfolio.values());
+        return portfolio.values();
     }
     
     @Override
@@ -66,7 +65,7 @@ public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>
      * @return collection of distinct keys
      */
     public ImmutableSortedSet<K> keySet() {
-        return ImmutableSortedSet.copyOf(portfolio.keySet());
+        return portfolio.keySet();
     }
 
     /**
@@ -85,7 +84,7 @@ public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>
     }
 
     public Iterator<T> iterator() {
-        return ImmutableSet.copyOf(portfolio.values()).iterator();
+        return portfolio.values().iterator();
     }
     
     @Override
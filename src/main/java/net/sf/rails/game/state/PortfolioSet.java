@@ -2,7 +2,6 @@ package net.sf.rails.game.state;
 
 import java.util.Iterator;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 
 /**
@@ -38,7 +37,7 @@ public final class PortfolioSet<T extends Ownable> extends Portfolio<T> {
 
     @Override
     public ImmutableSortedSet<T> items() {
-        return ImmutableSortedSet.copyOf(portfolio);
+        return portfolio.view();
     }
     
     @Override
@@ -52,7 +51,7 @@ public final class PortfolioSet<T extends Ownable> extends Portfolio<T> {
     }
 
     public Iterator<T> iterator() {
-        return ImmutableSet.copyOf(portfolio).iterator();
+        return portfolio.view().iterator();
     }
 
     @Override
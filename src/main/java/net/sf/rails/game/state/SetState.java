@@ -7,6 +7,9 @@ import com.google.common.collect.ImmutableSet;
 
 public abstract class SetState<E> extends State implements Iterable<E>  {
     
+    // immutable copy of the set, shared until the next change
+    private ImmutableSet<E> view;
+
     protected SetState(Item parent, String id) {
         super(parent, id);
     }
@@ -48,15 +51,22 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
      * removes all elements
      */
     public void clear() {
-        for (E element:ImmutableSet.copyOf(getSet())) {
+        for (E element:view()) {
             remove(element);
         }
     }
 
     /**
-     * @return immutable view of getSet()
+     * @return immutable view of getSet() (the same copy is returned until the set changes)
      */
     public ImmutableSet<E> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    protected ImmutableSet<E> createView() {
         return ImmutableSet.copyOf(getSet());
     }
 
@@ -89,6 +99,7 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
         } else {
             getSet().remove(element);
         }
+        view = null;
     }
 
 }
@@ -2,7 +2,9 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
@@ -10,9 +12,12 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -35,6 +40,18 @@ public final class StateManager extends Manager{
     // gui eleemnts do not have a state of their own (with respect to the game engine)
     private final HashMultimap<Observable, Observer> observers = 
             HashMultimap.create();
+    // observer updates collected while they are deferred (latest text by observer), null if not deferred
+    private Map<Observer, String> deferredUpdates;
+    // texts of the updated models by full URI (for remote clients), null if not collected
+    private Map<String, String> modelTexts;
+
+    // update order of the models is cached (not a state, it is recalculated if the models state changes)
+    private int modelsModificationCount = -1;
+    // all models in topological order and their index in that order
+    private ImmutableList<Model> modelOrder;
+    private Map<Model, Integer> modelRanks;
+    // models to update by observable
+    private final Map<Observable, ImmutableList<Model>> modelsToUpdate = Maps.newHashMap();
     
     // initialized later in init()
     private PortfolioManager portfolioManager;
@@ -93,14 +110,14 @@ public final class StateManager extends Manager{
     /** 
      * Remove combination of observer to observable 
      */
-    boolean removeObserver(Observer observer, Observable observable) {
+    synchronized boolean removeObserver(Observer observer, Observable observable) {
         return observers.remove(observable, observer);
     }
     
     /**
      * Set of all observers that observe the observable
      */
-    ImmutableSet<Observer> getObservers(Observable observable) {
+    synchronized ImmutableSet<Observer> getObservers(Observable observable) {
         return ImmutableSet.copyOf(observers.get(observable));
     }
     
@@ -147,9 +164,9 @@ public final class StateManager extends Manager{
         }
         
         // check if there are models
-        ImmutableSet<Model> initModels = getModels(state);
-        if (initModels.isEmpty()) return;
-        ImmutableList<Model> allModels = getModelsToUpdate(initModels);
+        if (!models.containsKey(state)) return;
+        validateModelOrder();
+        ImmutableList<Model> allModels = getModelsToUpdate(state);
 
         // Inform indirect triggers
         for (Model m:allModels) {
@@ -164,31 +181,80 @@ public final class StateManager extends Manager{
      * A set of observables is given as input
      * and then calculates all observer to update in the correct sequence
      * 
-     * It uses a topological sort based on DFS
+     * The models of each observable are sorted once (topological sort based on DFS)
+     * and merged by their position in the order of all models.
      * 
      * @param observables that have been updated
      * @return sorted list of all models to be updated
+     * @throws IllegalStateException if the models of an observable contain a cycle
      */
     ImmutableList<Model> getModelsToUpdate(Collection<? extends Observable> observables) {
-        // Topological sort
-        // Initialize (we do not use WHITE explicitly, but implicit)
+        validateModelOrder();
+        if (observables.size() == 1) {
+            return getModelsToUpdate(Iterables.getOnlyElement(observables));
+        }
+        // mark the models to update, each model is updated once
+        BitSet marked = new BitSet(modelOrder.size());
+        for (Observable o:observables) {
+            for (Model m:getModelsToUpdate(o)) {
+                marked.set(modelRanks.get(m));
+            }
+        }
+        ImmutableList.Builder<Model> toUpdate = ImmutableList.builder();
+        for (int i = marked.nextSetBit(0); i >= 0; i = marked.nextSetBit(i + 1)) {
+            toUpdate.add(modelOrder.get(i));
+        }
+        return toUpdate.build();
+    }
+
+    /**
+     * @return sorted list of the models to update for one observable (requires a valid model order)
+     */
+    private ImmutableList<Model> getModelsToUpdate(Observable observable) {
+        if (!models.containsKey(observable)) return ImmutableList.of();
+        ImmutableList<Model> toUpdate = modelsToUpdate.get(observable);
+        if (toUpdate == null) {
+            final Map<Observable, Color> colors = Maps.newHashMap();
+            final LinkedList<Model> topoList = Lists.newLinkedList();
+            topoSort(observable, colors, topoList, true);
+            toUpdate = ImmutableList.copyOf(topoList);
+            modelsToUpdate.put(observable, toUpdate);
+        }
+        return toUpdate;
+    }
+
+    /**
+     * Sorts all models again, if the models have changed since the last sort
+     */
+    private void validateModelOrder() {
+        if (modelsModificationCount == models.getModificationCount()) return;
+
+        // cycles are only reported if an observable of the cycle is updated
         final Map<Observable, Color> colors = Maps.newHashMap();
         final LinkedList<Model> topoList = Lists.newLinkedList();
-        
-        // For all states
-        for (Observable s: observables) {
-            topoSort(s, colors, topoList);
+        for (Observable o:models.keySet()) {
+            if (!colors.containsKey(o)) {
+                topoSort(o, colors, topoList, false);
+            }
+        }
+        modelOrder = ImmutableList.copyOf(topoList);
+        modelRanks = Maps.newHashMapWithExpectedSize(modelOrder.size());
+        for (int i = 0; i < modelOrder.size(); i++) {
+            modelRanks.put(modelOrder.get(i), i);
         }
-        return ImmutableList.copyOf(topoList);
+        modelsToUpdate.clear();
+        modelsModificationCount = models.getModificationCount();
+        log.debug("Sorted " + modelOrder.size() + " models");
     }
     
     private static enum Color {WHITE, GREY, BLACK};
-    private void topoSort(final Observable v, final Map<Observable, Color> colors, final LinkedList<Model> topoList) {
+    private void topoSort(final Observable v, final Map<Observable, Color> colors, final LinkedList<Model> topoList, 
+            boolean failOnCycle) {
         colors.put(v, Color.GREY);
         for (Model m:getModels(v)) {
             if (!colors.containsKey(m)) {
-                topoSort(m, colors, topoList);
-            } else if (colors.get(m) == Color.GREY) {
+                topoSort(m, colors, topoList, failOnCycle);
+            } else if (colors.get(m) == Color.GREY && failOnCycle) {
                 throw new IllegalStateException("Graph of Observables contains Cycle");
             }
         }
@@ -205,7 +271,7 @@ public final class StateManager extends Manager{
             // cache StateText
             String stateText = s.toText();
             for (Observer o:observers) {
-                o.update(stateText);
+                updateObserver(o, stateText);
                 log.debug("State " + s + " updates observer " + o);
             }
         }
@@ -213,16 +279,85 @@ public final class StateManager extends Manager{
         // all indirect observers
         for (Model m:getModelsToUpdate(states)) {
             Set<Observer> observers = getObservers(m);
-            if (observers.isEmpty()) continue;
+            boolean collect = collectsModelTexts();
+            if (observers.isEmpty() && !collect) continue;
             // cache ModelText
             String modelText = m.toText();
+            if (collect) collectModelText(m, modelText);
             for (Observer o:observers) {
-                o.update(modelText);
+                updateObserver(o, modelText);
                 log.debug("Model " + m + " updates observer " + o);
             }
         }
     }
     
+    private void updateObserver(Observer observer, String text) {
+        synchronized (this) {
+            if (deferredUpdates != null) {
+                deferredUpdates.put(observer, text);
+                return;
+            }
+        }
+        observer.update(text);
+    }
+    
+    /**
+     * Defers the updates of the observers until they are taken by {@link #takeObserverUpdates()}
+     * (used if the game engine runs on another thread than the observers)
+     * @param defer true to collect the updates, false to update the observers immediately again
+     */
+    public synchronized void deferObserverUpdates(boolean defer) {
+        if (defer && deferredUpdates == null) {
+            deferredUpdates = Maps.newLinkedHashMap();
+        } else if (!defer) {
+            deferredUpdates = null;
+        }
+    }
+    
+    /**
+     * @return the observer updates deferred since the last call, only the latest text of each observer
+     * (empty if the updates are not deferred)
+     */
+    public synchronized Map<Observer, String> takeObserverUpdates() {
+        if (deferredUpdates == null || deferredUpdates.isEmpty()) return Collections.emptyMap();
+        // the text of an observer can be null, thus no ImmutableMap
+        Map<Observer, String> updates = Collections.unmodifiableMap(Maps.newLinkedHashMap(deferredUpdates));
+        deferredUpdates.clear();
+        return updates;
+    }
+    
+    private synchronized boolean collectsModelTexts() {
+        return modelTexts != null;
+    }
+    
+    private synchronized void collectModelText(Model model, String text) {
+        // models without text are sent as empty text
+        if (modelTexts != null) modelTexts.put(model.getFullURI(), Strings.nullToEmpty(text));
+    }
+    
+    /**
+     * Collects the texts of all updated models (observed or not) until they are taken by {@link #takeModelTexts()}
+     * @param collect true to start, false to stop collecting
+     */
+    public synchronized void collectModelTexts(boolean collect) {
+        if (collect && modelTexts == null) {
+            modelTexts = Maps.newLinkedHashMap();
+        } else if (!collect) {
+            modelTexts = null;
+        }
+    }
+    
+    /**
+     * @return the latest texts of the models updated since the last call by full URI of the model
+     * (empty if the texts are not collected)
+     */
+    public synchronized ImmutableMap<String, String> takeModelTexts() {
+        if (modelTexts == null || modelTexts.isEmpty()) return ImmutableMap.of();
+        ImmutableMap<String, String> texts = ImmutableMap.copyOf(modelTexts);
+        modelTexts.clear();
+        return texts;
+    }
+    
     // StateManager getters for sub-components
     //////////////////////////////////////////
     
@@ -31,6 +31,10 @@ public final class StringChange extends Change {
         return state;
     }
 
+    @Override boolean replacesValue() {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "Change for " + state + ": From \"" + oldValue + "\" to \"" + newValue + "\""; 
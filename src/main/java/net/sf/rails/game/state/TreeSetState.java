@@ -4,6 +4,8 @@ import java.util.Collection;
 import java.util.TreeSet;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableSortedSet;
+
 public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
 
     private final TreeSet<E> set;
@@ -36,4 +38,17 @@ public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
         return set;
     }
 
+    /**
+     * @return immutable sorted view of the set (the same copy is returned until the set changes)
+     */
+    @Override
+    public ImmutableSortedSet<E> view() {
+        return (ImmutableSortedSet<E>) super.view();
+    }
+
+    @Override
+    protected ImmutableSortedSet<E> createView() {
+        return ImmutableSortedSet.copyOfSorted(set);
+    }
+
 }
@@ -0,0 +1,19 @@
+package net.sf.rails.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.ServerToClient;
+
+/**
+ * Client side of the connection to a {@link GameSession}
+ */
+public interface GameChannel extends Closeable {
+
+    /**
+     * Sends the request and waits for the answer
+     */
+    public ServerToClient send(ClientToServer request) throws IOException;
+
+}
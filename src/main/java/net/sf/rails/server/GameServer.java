@@ -0,0 +1,184 @@
+package net.sf.rails.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GameServer accepts TCP connections of {@link SocketGameChannel}s,
+ * each connection plays its own game (created by the game factory) in a {@link GameSession}.
+ *
+ * Requests and answers are plain data (see {@link ClientToServer#writeTo} and {@link ServerToClient#writeTo}),
+ * no objects are serialized. Each answer starts with a flag, true for a ServerToClient
+ * and false for the message of an exception of the request.
+ */
+public final class GameServer implements Closeable {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(GameServer.class);
+
+    private final ServerSocket serverSocket;
+    private final Callable<RailsRoot> gameFactory;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+
+    /**
+     * @param port the port to listen to, 0 for any free port
+     * @param gameFactory creates the game of a new connection
+     */
+    public GameServer(int port, Callable<RailsRoot> gameFactory) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.gameFactory = gameFactory;
+    }
+
+    /**
+     * @return a game factory that creates the game of the file in its start position
+     */
+    public static Callable<RailsRoot> gameFactory(final File gameFile) {
+        return new Callable<RailsRoot>() {
+            public RailsRoot call() throws Exception {
+                GameLoader gameLoader = new GameLoader();
+                if (!gameLoader.createStartFromFile(gameFile)) {
+                    throw gameLoader.getException();
+                }
+                return gameLoader.getRoot();
+            }
+        };
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts to accept connections on a background thread
+     */
+    public void start() {
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "GameServer-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) log.error("Accept of connection failed", e);
+                return;
+            }
+            connections.execute(new Runnable() {
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    private void serve(Socket socket) {
+        GameSession session = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            session = new GameSession(gameFactory.call());
+            // the game is bound to the engine thread of the session
+            RailsRoot.clearContext();
+            log.debug("Session of " + session.getRoot().getGameName() + " for " + socket.getRemoteSocketAddress());
+
+            while (true) {
+                ClientToServer request;
+                try {
+                    request = ClientToServer.readFrom(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                ServerToClient answer;
+                try {
+                    answer = session.process(request);
+                } catch (Exception e) {
+                    log.warn("Request of " + socket.getRemoteSocketAddress() + " failed", e);
+                    out.writeBoolean(false);
+                    ServerToClient.writeString(out, String.valueOf(e));
+                    out.flush();
+                    continue;
+                }
+                out.writeBoolean(true);
+                answer.writeTo(out);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            log.debug("Connection closed by " + socket.getRemoteSocketAddress());
+        } catch (Exception e) {
+            log.error("Session of " + socket.getRemoteSocketAddress() + " failed", e);
+        } finally {
+            if (session != null) session.close();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Close of connection failed", e);
+            }
+        }
+    }
+
+    /**
+     * Stops to accept connections and closes the open connections
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * Serves games of a save file (in its start position) on a local port
+     *
+     * @param args [-port n] save file
+     */
+    public static void main(String[] args) throws Exception {
+        ConfigManager.initConfiguration(false);
+
+        int port = 0;
+        File gameFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else {
+                gameFile = new File(args[i]);
+            }
+        }
+        if (gameFile == null) {
+            System.err.println("Usage: GameServer [-port n] savefile");
+            System.exit(1);
+        }
+        GameServer server = new GameServer(port, gameFactory(gameFile));
+        System.out.println("# serving " + gameFile + " on port " + server.getPort());
+        server.accept();
+    }
+
+}
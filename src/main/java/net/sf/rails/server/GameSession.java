@@ -0,0 +1,162 @@
+package net.sf.rails.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.DisplayBuffer;
+import net.sf.rails.common.ReportBuffer;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.common.ServerToClient.ReportUpdate;
+import net.sf.rails.game.GameEngine;
+import net.sf.rails.game.GameManager;
+import net.sf.rails.game.Player;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.ActionCodec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.NullAction;
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * GameSession is the server side of one game for a client without direct access to the game objects.
+ *
+ * Each request is processed on the {@link GameEngine} of the game, the answer contains the delta of the action:
+ * the texts of the changed models, the possible actions, the messages and the report updates.
+ * The possible actions are encoded by the encoder of the session,
+ * the actions of the client are decoded with the definitions of the client,
+ * their ids are resolved against the game of the session.
+ */
+public final class GameSession implements Closeable {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(GameSession.class);
+
+    private final RailsRoot root;
+    private final GameEngine engine;
+
+    // used on the engine thread only
+    private final ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+    private final ActionCodec.Decoder decoder;
+    private final List<ReportUpdate> reportUpdates = Lists.newArrayList();
+    private List<PossibleAction> possibleActions = ImmutableList.of();
+
+    public GameSession(RailsRoot root) {
+        this.root = root;
+        this.engine = new GameEngine(root);
+        this.decoder = new ActionCodec.Decoder(root);
+        root.getStateManager().collectModelTexts(true);
+        root.getReportManager().getReportBuffer().addObserver(new ReportBuffer.Observer() {
+            public void append(String id, String paragraph) {
+                reportUpdates.add(new ReportUpdate(ReportUpdate.Type.APPEND, id, paragraph));
+            }
+            public void replace(String id, String paragraph) {
+                reportUpdates.add(new ReportUpdate(ReportUpdate.Type.REPLACE, id, paragraph));
+            }
+            public void update(String text) {
+                reportUpdates.clear();
+                reportUpdates.add(new ReportUpdate(ReportUpdate.Type.UPDATE, null, text));
+            }
+        });
+    }
+
+    public RailsRoot getRoot() {
+        return root;
+    }
+
+    /**
+     * Processes the request on the game engine
+     * @throws IOException if the action of the request cannot be decoded
+     */
+    public ServerToClient process(final ClientToServer request) throws IOException {
+        try {
+            return engine.submit(new Callable<ServerToClient>() {
+                public ServerToClient call() throws IOException {
+                    return processOnEngine(request);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the game engine", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private ServerToClient processOnEngine(ClientToServer request) throws IOException {
+        GameManager gameManager = root.getGameManager();
+        ServerToClient update = new ServerToClient();
+
+        if (request.getDefinitions() != null) {
+            decoder.define(request.getDefinitions());
+        }
+        PossibleAction action = null;
+        if (request.getRecord() != null) {
+            action = decoder.decode(request.getRecord());
+        } else if (request.getActionIndex() >= 0) {
+            if (request.getActionIndex() >= possibleActions.size()) {
+                throw new IOException("Possible action " + request.getActionIndex() + " does not exist");
+            }
+            action = possibleActions.get(request.getActionIndex());
+            Player player = root.getPlayerManager().getCurrentPlayer();
+            if (player != null) action.setPlayerName(player.getId());
+        } else if (possibleActions.isEmpty()) {
+            // first request: create the possible actions, as after the load of a game
+            action = new NullAction(NullAction.Mode.START_GAME);
+        }
+
+        if (action == null) {
+            update.setResult(true);
+        } else if (request.isReplay()) {
+            gameManager.setReloading(true);
+            try {
+                update.setResult(gameManager.processOnReload(action));
+            } finally {
+                gameManager.setReloading(false);
+            }
+        } else {
+            update.setResult(gameManager.process(action));
+        }
+        log.debug("Processed " + action + " with result " + update.getResult());
+
+        possibleActions = gameManager.getPossibleActions().getList();
+        List<byte[]> records = Lists.newArrayListWithCapacity(possibleActions.size());
+        List<String> texts = Lists.newArrayListWithCapacity(possibleActions.size());
+        for (PossibleAction possibleAction:possibleActions) {
+            records.add(encoder.encode(possibleAction));
+            texts.add(possibleAction.toString());
+        }
+        update.setPossibleActions(encoder.hasDefinitions() ? encoder.takeDefinitions() : null, records, texts);
+
+        update.setModelTexts(root.getStateManager().takeModelTexts());
+        update.setObserverUpdates(root.getStateManager().takeObserverUpdates());
+        DisplayBuffer displayBuffer = root.getReportManager().getDisplayBuffer();
+        String[] messages = displayBuffer.get();
+        if (messages != null) update.setMessages(ImmutableList.copyOf(messages));
+        update.setReportUpdates(reportUpdates);
+        reportUpdates.clear();
+        return update;
+    }
+
+    /**
+     * Stops the game engine of the session
+     */
+    public void close() {
+        root.getReportManager().getReportBuffer().removeObserver();
+        root.getStateManager().collectModelTexts(false);
+        engine.shutdown();
+    }
+
+}
@@ -0,0 +1,30 @@
+package net.sf.rails.server;
+
+import java.io.IOException;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.ServerToClient;
+
+/**
+ * In-process channel to a game session, the messages are passed without serialization
+ */
+public final class LoopbackChannel implements GameChannel {
+
+    private final GameSession session;
+
+    public LoopbackChannel(GameSession session) {
+        this.session = session;
+    }
+
+    public ServerToClient send(ClientToServer request) throws IOException {
+        return session.process(request);
+    }
+
+    /**
+     * Closes the session
+     */
+    public void close() {
+        session.close();
+    }
+
+}
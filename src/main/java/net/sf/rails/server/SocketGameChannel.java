@@ -0,0 +1,44 @@
+package net.sf.rails.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.ServerToClient;
+
+/**
+ * Channel to a game session of a {@link GameServer} over a TCP socket,
+ * requests and answers are written as plain data
+ */
+public final class SocketGameChannel implements GameChannel {
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+
+    public SocketGameChannel(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    public ServerToClient send(ClientToServer request) throws IOException {
+        request.writeTo(out);
+        out.flush();
+        if (!in.readBoolean()) {
+            // error message of the server
+            throw new IOException(ServerToClient.readString(in));
+        }
+        return ServerToClient.readFrom(in);
+    }
+
+    public void close() throws IOException {
+        socket.close();
+    }
+
+}
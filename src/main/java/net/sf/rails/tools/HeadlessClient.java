@@ -0,0 +1,306 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.server.GameChannel;
+import net.sf.rails.server.GameServer;
+import net.sf.rails.server.GameSession;
+import net.sf.rails.server.LoopbackChannel;
+import net.sf.rails.server.SocketGameChannel;
+import net.sf.rails.util.ActionCodec;
+import net.sf.rails.util.GameLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * HeadlessClient plays the actions of a save file against game sessions, without user interface.
+ * Several clients run in parallel, each in its own session of a game in the start position of the file.
+ *
+ * The sessions are reached in-process (default), by TCP through a local {@link GameServer} (-tcp)
+ * or by TCP through a running GameServer of the same save file (-connect host:port).
+ *
+ * The summary is printed as tab separated lines:
+ * client, processed actions, index of the rejected action (-1 if none), model texts received, time in ms, actions per second
+ */
+public final class HeadlessClient {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(HeadlessClient.class);
+
+    /**
+     * Actions of a save file encoded as ActionCodec records
+     */
+    public static final class Script {
+        private final byte[] definitions;
+        private final ImmutableList<byte[]> records;
+
+        private Script(byte[] definitions, ImmutableList<byte[]> records) {
+            this.definitions = definitions;
+            this.records = records;
+        }
+
+        public static Script load(File gameFile) throws Exception {
+            GameLoader gameLoader = new GameLoader();
+            try {
+                if (!gameLoader.createStartFromFile(gameFile)) {
+                    throw gameLoader.getException();
+                }
+                ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+                ImmutableList.Builder<byte[]> records = ImmutableList.builder();
+                for (PossibleAction action:gameLoader.getActions()) {
+                    records.add(encoder.encode(action));
+                }
+                return new Script(encoder.takeDefinitions(), records.build());
+            } finally {
+                RailsRoot.clearInstance();
+            }
+        }
+
+        public int size() {
+            return records.size();
+        }
+    }
+
+    /**
+     * Result of one client
+     */
+    public static final class Result {
+        private final int client;
+        private final int actions;
+        private final int rejected;
+        private final int modelTexts;
+        private final long millis;
+        private final String error;
+
+        private Result(int client, int actions, int rejected, int modelTexts, long millis, String error) {
+            this.client = client;
+            this.actions = actions;
+            this.rejected = rejected;
+            this.modelTexts = modelTexts;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        /**
+         * @return number of actions processed
+         */
+        public int getActions() {
+            return actions;
+        }
+
+        /**
+         * @return index of the action rejected by the server, -1 if none
+         */
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return number of model texts received
+         */
+        public int getModelTexts() {
+            return modelTexts;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return description of the exception of the client, null if none
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isPassed() {
+            return rejected < 0 && error == null;
+        }
+
+        public String toSummary() {
+            long throughput = millis == 0 ? 0 : actions * 1000L / millis;
+            return client + "\t" + actions + "\t" + rejected + "\t" + modelTexts + "\t" + millis + "\t" + throughput
+                    + (error == null ? "" : "\t" + error.replaceAll("[\t\r\n]", " "));
+        }
+    }
+
+    private HeadlessClient() {}
+
+    /**
+     * @return factory of in-process channels to new sessions of the game file
+     */
+    public static Callable<GameChannel> loopbackChannels(File gameFile) {
+        final Callable<RailsRoot> games = GameServer.gameFactory(gameFile);
+        return new Callable<GameChannel>() {
+            public GameChannel call() throws Exception {
+                GameSession session = new GameSession(games.call());
+                // the game is bound to the engine thread of the session
+                RailsRoot.clearContext();
+                return new LoopbackChannel(session);
+            }
+        };
+    }
+
+    /**
+     * @return factory of TCP channels to the game server
+     */
+    public static Callable<GameChannel> socketChannels(final String host, final int port) {
+        return new Callable<GameChannel>() {
+            public GameChannel call() throws IOException {
+                return new SocketGameChannel(host, port);
+            }
+        };
+    }
+
+    /**
+     * Plays the script with each client in parallel
+     * @return results in the order of the clients
+     */
+    public static List<Result> run(final Script script, int clients, final Callable<GameChannel> channels)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Result>> futures = Lists.newArrayList();
+            for (int c = 0; c < clients; c++) {
+                final int client = c;
+                futures.add(executor.submit(new Callable<Result>() {
+                    public Result call() {
+                        return play(client, script, channels);
+                    }
+                }));
+            }
+            ImmutableList.Builder<Result> results = ImmutableList.builder();
+            for (int c = 0; c < clients; c++) {
+                try {
+                    results.add(futures.get(c).get());
+                } catch (ExecutionException e) {
+                    log.error("Client " + c + " failed", e.getCause());
+                    results.add(new Result(c, 0, -1, 0, 0, String.valueOf(e.getCause())));
+                }
+            }
+            return results.build();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays the script with one client in the current thread
+     */
+    public static Result play(int client, Script script, Callable<GameChannel> channels) {
+        long start = System.nanoTime();
+        int actions = 0, modelTexts = 0;
+        GameChannel channel = null;
+        try {
+            channel = channels.call();
+            ServerToClient answer = channel.send(ClientToServer.create());
+            for (int i = 0; i < script.size(); i++) {
+                answer = channel.send(ClientToServer.createFromRecord(i == 0 ? script.definitions : null,
+                        script.records.get(i)).setReplay(true));
+                modelTexts += answer.getModelTexts().size();
+                if (!answer.getResult()) {
+                    log.warn("Client " + client + ": action " + i + " rejected " + answer.getMessages());
+                    return new Result(client, actions, i, modelTexts, (System.nanoTime() - start) / 1000000, null);
+                }
+                actions++;
+            }
+            return new Result(client, actions, -1, modelTexts, (System.nanoTime() - start) / 1000000, null);
+        } catch (Exception e) {
+            log.error("Client " + client + " failed", e);
+            return new Result(client, actions, -1, modelTexts, (System.nanoTime() - start) / 1000000, e.toString());
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Close of channel failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the results and a total line
+     * @return true if all clients passed
+     */
+    public static boolean printSummary(List<Result> results, PrintStream out) {
+        out.println("# client\tactions\trejected\tmodel texts\tms\tactions/s\terror");
+        boolean passed = true;
+        long actions = 0, millis = 0;
+        for (Result result:results) {
+            out.println(result.toSummary());
+            passed &= result.isPassed();
+            actions += result.getActions();
+            millis = Math.max(millis, result.getMillis());
+        }
+        out.println("# total\t" + actions + "\t" + millis + "\t" + (millis == 0 ? 0 : actions * 1000L / millis));
+        return passed;
+    }
+
+    /**
+     * @param args [-clients n] [-tcp | -connect host:port] save file
+     * The exit code is 1 if a client failed.
+     */
+    public static void main(String[] args) throws Exception {
+        ConfigManager.initConfiguration(true);
+
+        int clients = 1;
+        boolean tcp = false;
+        String connect = null;
+        File gameFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-clients") && i + 1 < args.length) {
+                clients = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-tcp")) {
+                tcp = true;
+            } else if (args[i].equals("-connect") && i + 1 < args.length) {
+                connect = args[++i];
+            } else {
+                gameFile = new File(args[i]);
+            }
+        }
+        if (gameFile == null) {
+            System.err.println("Usage: HeadlessClient [-clients n] [-tcp | -connect host:port] savefile");
+            System.exit(1);
+        }
+
+        Script script = Script.load(gameFile);
+        GameServer server = null;
+        Callable<GameChannel> channels;
+        if (connect != null) {
+            int colon = connect.lastIndexOf(':');
+            channels = socketChannels(connect.substring(0, colon), Integer.parseInt(connect.substring(colon + 1)));
+        } else if (tcp) {
+            server = new GameServer(0, GameServer.gameFactory(gameFile));
+            server.start();
+            channels = socketChannels(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort());
+        } else {
+            channels = loopbackChannels(gameFile);
+        }
+
+        List<Result> results = run(script, clients, channels);
+        if (server != null) server.close();
+        boolean passed = printSummary(results, System.out);
+        System.exit(passed ? 0 : 1);
+    }
+
+}
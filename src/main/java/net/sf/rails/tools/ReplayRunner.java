@@ -0,0 +1,295 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * ReplayRunner replays a corpus of saved games without user interface
+ * and compares the report of each game with the report file next to the save file.
+ *
+ * The games run in parallel, each worker thread is bound to the game it replays
+ * (see {@link RailsRoot#setContext(RailsRoot)}).
+ *
+ * The summary is printed as tab separated lines:
+ * status, game file, number of actions, replay time in ms, actions per second, first difference
+ */
+public final class ReplayRunner {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ReplayRunner.class);
+
+    private static final int MAX_RECURSION_LEVEL = 5;
+
+    public enum Status {
+        /** report identical to the report file */
+        PASSED,
+        /** report differs from the report file */
+        FAILED,
+        /** the game could not be loaded or replayed */
+        ERROR,
+        /** no report file to compare with */
+        NO_REPORT
+    }
+
+    /**
+     * Result of the replay of one game
+     */
+    public static final class Result {
+        private final File gameFile;
+        private final Status status;
+        private final int actions;
+        private final long millis;
+        private final String difference;
+
+        private Result(File gameFile, Status status, int actions, long millis, String difference) {
+            this.gameFile = gameFile;
+            this.status = status;
+            this.actions = actions;
+            this.millis = millis;
+            this.difference = difference;
+        }
+
+        public File getGameFile() {
+            return gameFile;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return number of actions in the save file
+         */
+        public int getActions() {
+            return actions;
+        }
+
+        /**
+         * @return time of load and replay
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return description of the first difference or of the error, empty if passed
+         */
+        public String getDifference() {
+            return difference;
+        }
+
+        public String toSummary() {
+            long throughput = millis == 0 ? 0 : actions * 1000L / millis;
+            return status + "\t" + gameFile.getPath() + "\t" + actions + "\t" + millis + "\t" + throughput
+                    + "\t" + difference.replaceAll("[\t\r\n]", " ");
+        }
+    }
+
+    private final int threads;
+
+    public ReplayRunner(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Adds the save files of the directory and its subdirectories (sorted by name)
+     */
+    public static void findGameFiles(File directory, List<File> gameFiles) {
+        findGameFiles(directory, gameFiles, 0);
+    }
+
+    private static void findGameFiles(File directory, List<File> gameFiles, int level) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        Arrays.sort(files);
+        String extension = "." + Config.get("save.filename.extension");
+        for (File file:files) {
+            if (file.isDirectory()) {
+                if (level < MAX_RECURSION_LEVEL) findGameFiles(file, gameFiles, level + 1);
+            } else if (file.getName().endsWith(extension)) {
+                gameFiles.add(file);
+            }
+        }
+    }
+
+    /**
+     * Replays the games in parallel
+     * @return results in the order of the game files
+     */
+    public List<Result> run(List<File> gameFiles) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = Lists.newArrayList();
+            for (final File gameFile:gameFiles) {
+                futures.add(executor.submit(new Callable<Result>() {
+                    public Result call() {
+                        return replay(gameFile);
+                    }
+                }));
+            }
+            ImmutableList.Builder<Result> results = ImmutableList.builder();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    log.error("Replay of " + gameFiles.get(i) + " failed", e.getCause());
+                    results.add(new Result(gameFiles.get(i), Status.ERROR, 0, 0, String.valueOf(e.getCause())));
+                }
+            }
+            return results.build();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays one game in the current thread
+     */
+    public static Result replay(File gameFile) {
+        log.debug("Replay of " + gameFile);
+        long start = System.nanoTime();
+        try {
+            GameLoader gameLoader = new GameLoader();
+            boolean loaded = gameLoader.createFromFile(gameFile);
+            long millis = (System.nanoTime() - start) / 1000000;
+            int actions = gameLoader.getActions() == null ? 0 : gameLoader.getActions().size();
+            if (!loaded) {
+                return new Result(gameFile, Status.ERROR, actions, millis,
+                        String.valueOf(gameLoader.getException()));
+            }
+            List<String> report = gameLoader.getRoot().getReportManager().getReportBuffer().getAsList();
+            List<String> expected = readReport(gameFile);
+            if (expected == null) {
+                return new Result(gameFile, Status.NO_REPORT, actions, millis, "");
+            }
+            String difference = compareReports(expected, report);
+            return new Result(gameFile, difference == null ? Status.PASSED : Status.FAILED, actions, millis,
+                    difference == null ? "" : difference);
+        } catch (Exception e) {
+            log.error("Replay of " + gameFile + " failed", e);
+            return new Result(gameFile, Status.ERROR, 0, (System.nanoTime() - start) / 1000000, e.toString());
+        } finally {
+            RailsRoot.clearInstance();
+        }
+    }
+
+    /**
+     * @return report file content, null if there is no report file
+     */
+    private static List<String> readReport(File gameFile) throws FileNotFoundException {
+        String name = gameFile.getName();
+        File reportFile = new File(gameFile.getParentFile(), name.substring(0, name.lastIndexOf('.'))
+                + "." + Config.get("report.filename.extension"));
+        if (!reportFile.exists()) return null;
+        Scanner reportScanner = new Scanner(new FileReader(reportFile));
+        List<String> report = Lists.newArrayList();
+        while (reportScanner.hasNext()) {
+            report.add(reportScanner.nextLine());
+        }
+        reportScanner.close();
+        return report;
+    }
+
+    /**
+     * @return description of the first different line, null if the reports are identical
+     */
+    private static String compareReports(List<String> expected, List<String> actual) {
+        int size = Math.min(expected.size(), actual.size());
+        for (int line = 0; line < size; line++) {
+            if (!expected.get(line).equals(actual.get(line))) {
+                return "line " + (line + 1) + ": expected \"" + expected.get(line)
+                        + "\" but was \"" + actual.get(line) + "\"";
+            }
+        }
+        if (expected.size() > size) {
+            return "line " + (size + 1) + ": expected \"" + expected.get(size) + "\" but report ended";
+        }
+        if (actual.size() > size) {
+            return "line " + (size + 1) + ": expected end of report but was \"" + actual.get(size) + "\"";
+        }
+        return null;
+    }
+
+    /**
+     * Prints the results and a total line
+     * @return true if all games with a report passed
+     */
+    public static boolean printSummary(List<Result> results, PrintStream out) {
+        out.println("# status\tgame\tactions\tms\tactions/s\tdifference");
+        int[] counts = new int[Status.values().length];
+        long actions = 0, millis = 0;
+        for (Result result:results) {
+            out.println(result.toSummary());
+            counts[result.getStatus().ordinal()]++;
+            actions += result.getActions();
+            millis += result.getMillis();
+        }
+        StringBuilder total = new StringBuilder("# total\t" + results.size() + "\t" + actions + "\t" + millis);
+        for (Status status:Status.values()) {
+            total.append("\t" + status + "=" + counts[status.ordinal()]);
+        }
+        out.println(total);
+        return counts[Status.FAILED.ordinal()] == 0 && counts[Status.ERROR.ordinal()] == 0;
+    }
+
+    /**
+     * Replays all save files below the directories (default: the test save directory)
+     *
+     * @param args [-threads n] directories or save files
+     * The exit code is 1 if a game failed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        // the report files are created with the test configuration (see TestGameBuilder)
+        ConfigManager.initConfiguration(true);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<File> gameFiles = Lists.newArrayList();
+        boolean pathsGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                File file = new File(args[i]);
+                pathsGiven = true;
+                if (file.isDirectory()) {
+                    findGameFiles(file, gameFiles);
+                } else {
+                    gameFiles.add(file);
+                }
+            }
+        }
+        if (!pathsGiven) {
+            findGameFiles(new File(Config.get("save.directory")), gameFiles);
+        }
+        Collections.sort(gameFiles);
+
+        long start = System.nanoTime();
+        List<Result> results = new ReplayRunner(threads).run(gameFiles);
+        boolean passed = printSummary(results, System.out);
+        System.out.println("# elapsed\t" + (System.nanoTime() - start) / 1000000 + "\tthreads=" + threads);
+        System.exit(passed ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,15 @@
+package net.sf.rails.ui.swing;
+
+/**
+ * Follow-up of an action processed by the {@link GameUIManager},
+ * called on the event dispatch thread after the game engine has processed the action
+ * and the windows are updated
+ */
+public interface ActionFollowUp {
+
+    /**
+     * @param result false if the action failed
+     */
+    public void done(boolean result);
+
+}
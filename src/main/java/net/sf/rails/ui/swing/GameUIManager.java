@@ -7,6 +7,10 @@ import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import javax.swing.*;
 import javax.swing.plaf.FontUIResource;
@@ -20,6 +24,7 @@ import net.sf.rails.game.state.Observer;
 import net.sf.rails.javafx.windows.FXStockChartWindow;
 import net.sf.rails.sound.SoundManager;
 import net.sf.rails.ui.swing.elements.*;
+import net.sf.rails.util.GameSaver;
 import net.sf.rails.util.Util;
 
 import org.slf4j.Logger;
@@ -49,6 +54,12 @@ public class GameUIManager implements DialogOwner {
     public static ImageLoader imageLoader;
 
     protected RailsRoot railsRoot;
+    // runs the actions outside of the event dispatch thread
+    protected GameEngine gameEngine;
+    // the windows show snapshots while the game engine runs, null if the engine is idle
+    private List<SnapshotGlassPane> engineGlassPanes = null;
+    // actions and follow-ups that arrived while the game engine was running, run in order afterwards
+    private final Deque<Runnable> pendingTasks = new ArrayDeque<Runnable>();
     protected PossibleAction lastAction;
     protected ActionPerformer activeWindow = null;
     protected StartRound startRound;
@@ -132,6 +143,12 @@ public class GameUIManager implements DialogOwner {
 
         instance = this;
         this.railsRoot = root;
+        bindEventDispatchThread(root);
+        // the game of the user interface is the only game that uses the recovery save
+        if (!"no".equalsIgnoreCase(Config.get("save.recovery.active"))) {
+            railsRoot.getGameManager().setRecoverySave(GameSaver.autosaveFile);
+        }
+        gameEngine = new GameEngine(root);
         uiHints = railsRoot.getGameManager().getUIHints();
         savePrefix = railsRoot.getGameName();
         gameWasLoaded = wasLoaded;
@@ -149,6 +166,28 @@ public class GameUIManager implements DialogOwner {
        }
     }
 
+    /**
+     * Binds the event dispatch thread to the game of the user interface,
+     * init is called on the thread that has created or loaded the game
+     */
+    private static void bindEventDispatchThread(final RailsRoot root) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            RailsRoot.setContext(root);
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    RailsRoot.setContext(root);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     private void initWindowSettings () {
 
         windowSettings = new WindowSettings (railsRoot.getGameName());
@@ -156,6 +195,7 @@ public class GameUIManager implements DialogOwner {
     }
 
     public void terminate () {
+        gameEngine.shutdown();
         getWindowSettings ().save();
         if (orWindow != null) orWindow.saveLayout();
         System.exit(0);
@@ -283,13 +323,35 @@ public class GameUIManager implements DialogOwner {
         gameUIInit(false); // false indicates reload
 
         splashWindow.notifyOfStep(SplashWindow.STEP_INIT_LOADED_GAME);
-        processAction(new NullAction(NullAction.Mode.START_GAME));
-        statusWindow.setGameActions();
+        processAction(new NullAction(NullAction.Mode.START_GAME), new ActionFollowUp() {
+            public void done(boolean result) {
+                statusWindow.setGameActions();
+            }
+        });
     }
 
     public boolean processAction(PossibleAction action) {
+        return processAction(action, null);
+    }
+
+    /**
+     * Processes the action on the game engine and returns immediately.
+     * The windows show snapshots without accepting input until the result
+     * is applied on the event dispatch thread. Actions requested meanwhile
+     * are processed in order afterwards.
+     * @param followUp called with the result after the windows are updated, null if none
+     * @return true, the result is passed to the follow-up
+     */
+    public boolean processAction(final PossibleAction action, final ActionFollowUp followUp) {
 
-        boolean result = true;
+        if (isEngineBusy()) {
+            runWhenIdle(new Runnable() {
+                public void run() {
+                    processAction(action, followUp);
+                }
+            });
+            return true;
+        }
 
         // In some cases an Undo requires a different follow-up
         lastAction = action;
@@ -298,51 +360,74 @@ public class GameUIManager implements DialogOwner {
             // If the action is null, we can skip processing
             // and continue with following up a previous action.
             // This occurs after a nonmodal Message dialog.
-            result = previousResult;
+            followUp(followUp, finishAction(previousResult));
+            return true;
+        }
 
-        } else {
+        final Player oldPlayer = getCurrentPlayer();
+        final boolean wasMyTurn = oldPlayer.getId().equals(localPlayerName);
 
-            Player oldPlayer = getCurrentPlayer();
-            boolean wasMyTurn = oldPlayer.getId().equals(localPlayerName);
-
-            // Notify the Sound Manager about this action, as it could lead to
-            // playing sfx or music.
-            // Notification has to be done before action processing so that
-            // resulting sfx are played in the correct order (first the action
-            // related sfx and then model-change related sfx)
-            SoundManager.notifyOfActionProcessing(railsRoot, action);
-
-            // Process the action on the server
-            result = previousResult = processOnServer (action);
-
-            // Process any autosaving and turn relinquishing, resp. autoloading and turn pickup
-            if (autoSaveLoadInitialized && autoSaveLoadStatus != AutoLoadPoller.OFF) {
-                Player newPlayer = getCurrentPlayer();
-                boolean isMyTurn = newPlayer.getId().equals(localPlayerName);
-                if (newPlayer != oldPlayer) {
-                    if (wasMyTurn && !isMyTurn) {
-                        autoSave (newPlayer.getId());
-                        autoLoadPoller.setLastSavedFilename(lastSavedFilename);
-                        autoLoadPoller.setActive(true);
-                        log.info ("Relinquishing turn to "+newPlayer.getId());
-                    } else if (!wasMyTurn && isMyTurn) {
-                        autoLoadPoller.setActive(false);
-                        setCurrentDialog(new MessageDialog(null, this,
-                                (JFrame) activeWindow,
-                                LocalText.getText("Message"),
-                                LocalText.getText("YourTurn", localPlayerName)),
-                                null);
-                        log.info ("Resuming turn as "+localPlayerName);
-                    } else {
-                        log.info(newPlayer.getId()+" now has the turn");
-                    }
-                    myTurn = isMyTurn;
+        // Notify the Sound Manager about this action, as it could lead to
+        // playing sfx or music.
+        // Notification has to be done before action processing so that
+        // resulting sfx are played in the correct order (first the action
+        // related sfx and then model-change related sfx)
+        SoundManager.notifyOfActionProcessing(railsRoot, action);
+
+        // Process the action on the server
+        processOnServer(action, new Consumer<Boolean>() {
+            public void accept(Boolean result) {
+                previousResult = result;
+                actionProcessed(oldPlayer, wasMyTurn, result, followUp);
+            }
+        });
+        return true;
+    }
+
+    private void actionProcessed(Player oldPlayer, boolean wasMyTurn, final boolean result,
+            final ActionFollowUp followUp) {
+
+        // Process any autosaving and turn relinquishing, resp. autoloading and turn pickup
+        if (autoSaveLoadInitialized && autoSaveLoadStatus != AutoLoadPoller.OFF) {
+            final Player newPlayer = getCurrentPlayer();
+            boolean isMyTurn = newPlayer.getId().equals(localPlayerName);
+            if (newPlayer != oldPlayer) {
+                myTurn = isMyTurn;
+                if (wasMyTurn && !isMyTurn) {
+                    autoSave (newPlayer.getId(), new Runnable() {
+                        public void run() {
+                            autoLoadPoller.setLastSavedFilename(lastSavedFilename);
+                            autoLoadPoller.setActive(true);
+                            log.info ("Relinquishing turn to "+newPlayer.getId());
+                            followUp(followUp, finishAction(result));
+                        }
+                    });
+                    return;
+                } else if (!wasMyTurn && isMyTurn) {
+                    autoLoadPoller.setActive(false);
+                    setCurrentDialog(new MessageDialog(null, this,
+                            (JFrame) activeWindow,
+                            LocalText.getText("Message"),
+                            LocalText.getText("YourTurn", localPlayerName)),
+                            null);
+                    log.info ("Resuming turn as "+localPlayerName);
                 } else {
-                    log.info(oldPlayer.getId()+" keeps the turn");
+                    log.info(newPlayer.getId()+" now has the turn");
                 }
+            } else {
+                log.info(oldPlayer.getId()+" keeps the turn");
             }
         }
 
+        followUp(followUp, finishAction(result));
+    }
+
+    /**
+     * Updates the windows after an action
+     * @return the result of the action, or of the immediate action of the active window
+     */
+    private boolean finishAction(boolean result) {
+
         // Check in which round we are now,
         // and make sure that the right window is active.
         updateUI();
@@ -370,9 +455,20 @@ public class GameUIManager implements DialogOwner {
         return activeWindow.processImmediateAction();
     }
 
-    protected boolean processOnServer (PossibleAction action) {
+    /**
+     * Calls the follow-up, after the game engine has processed the actions
+     * started by the immediate action of the active window
+     */
+    private void followUp(final ActionFollowUp followUp, final boolean result) {
+        if (followUp == null) return;
+        runWhenIdle(new Runnable() {
+            public void run() {
+                followUp.done(result);
+            }
+        });
+    }
 
-        boolean result;
+    protected void processOnServer (PossibleAction action, final Consumer<Boolean> callback) {
 
         action.setActed();
         action.setPlayerName(getCurrentPlayer().getId());
@@ -384,13 +480,95 @@ public class GameUIManager implements DialogOwner {
             action.setPlayerName(player.getId());
         }
 
-        // Process the action on the server
-        result = railsRoot.getGameManager().process(action);
+        // Process the action on the game engine thread
+        // and apply the resulting observer updates on the event dispatch thread
+        setEngineBusy();
+        whenEngineDone(gameEngine.process(action), new Consumer<ServerToClient>() {
+            public void accept(ServerToClient update) {
+                update.applyObserverUpdates();
+                // Follow-up the result
+                log.debug("==Result from server: " + update.getResult());
+                callback.accept(update.getResult());
+            }
+        });
+    }
+
+    /**
+     * @return true while the game engine runs a task of the event dispatch thread,
+     * meanwhile the windows must not read the game
+     */
+    public boolean isEngineBusy() {
+        return engineGlassPanes != null;
+    }
+
+    /**
+     * Replaces the windows by their snapshots, has to be called before a task
+     * is submitted to the game engine
+     */
+    private void setEngineBusy() {
+        engineGlassPanes = SnapshotGlassPane.installAll();
+    }
+
+    private void setEngineIdle() {
+        SnapshotGlassPane.uninstallAll(engineGlassPanes);
+        engineGlassPanes = null;
+    }
+
+    /**
+     * Runs the task now if the game engine is idle, otherwise after the running task
+     */
+    private void runWhenIdle(Runnable task) {
+        if (isEngineBusy()) {
+            pendingTasks.add(task);
+        } else {
+            task.run();
+        }
+    }
 
-        // Follow-up the result
-        log.debug("==Result from server: " + result);
+    /**
+     * Passes the result of a task of the game engine to the callback on the event dispatch thread,
+     * the windows show their snapshots until then (see {@link #setEngineBusy()}).
+     * An exception of the task is thrown on the event dispatch thread.
+     */
+    private <T> void whenEngineDone(final Future<T> future, final Consumer<T> callback) {
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return future.get();
+            }
 
-        return result;
+            @Override
+            protected void done() {
+                setEngineIdle();
+                try {
+                    callback.accept(getEngineResult(this));
+                } finally {
+                    while (!isEngineBusy() && !pendingTasks.isEmpty()) {
+                        pendingTasks.poll().run();
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    private static <T> T getEngineResult(SwingWorker<T, Void> worker) {
+        try {
+            return worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the game engine", e);
+        } catch (ExecutionException e) {
+            // the worker wraps the ExecutionException of the game engine
+            Throwable cause = e.getCause();
+            if (cause instanceof ExecutionException) cause = cause.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException("Game engine failed", cause);
+        }
+    }
+
+    public GameEngine getGameEngine() {
+        return gameEngine;
     }
 
     public boolean displayServerMessage() {
@@ -814,17 +992,29 @@ public class GameUIManager implements DialogOwner {
 
     }
 
-    protected void autoSave (String newPlayer) {
+    /**
+     * Saves the game as journal on the game engine
+     * @param continuation runs on the event dispatch thread after the save
+     */
+    protected void autoSave (String newPlayer, final Runnable continuation) {
         lastSavedFilename = savePrefix + "_"
         + saveDateTimeFormat.format(new Date()) + "_"
         + newPlayer + "."
         + saveExtension;
-        GameAction saveAction = new GameAction(GameAction.Mode.SAVE);
-        saveAction.setFilepath(saveDirectory + "/" + lastSavedFilename);
+        final String filePath = saveDirectory + "/" + lastSavedFilename;
         log.debug("Autosaving to "+lastSavedFilename);
-        processOnServer (saveAction);
-
-        saveAutoSavedFilename (lastSavedFilename);
+        // the autosave is stored as journal
+        setEngineBusy();
+        whenEngineDone(gameEngine.submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return railsRoot.getGameManager().saveJournal(filePath);
+            }
+        }), new Consumer<Boolean>() {
+            public void accept(Boolean saved) {
+                saveAutoSavedFilename (lastSavedFilename);
+                continuation.run();
+            }
+        });
     }
 
     protected void saveAutoSavedFilename (String lastSavedFilename) {
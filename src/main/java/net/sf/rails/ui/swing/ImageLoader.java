@@ -1,8 +1,23 @@
 package net.sf.rails.ui.swing;
 
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.util.*;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -17,13 +32,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 
 /**
  * This class handles loading our tile images. It provides BufferedImages to be
  * associated with the Hex.
+ * 
+ * The transcoded images and the rotated images of the map are kept in bounded caches
+ * (see {@link TileImageCache}), the parsed SVG documents of the least recently used tiles
+ * are removed above {@link #SVG_DOCUMENTS}.
+ * 
+ * The tiles of a game are transcoded in advance on a worker pool (see {@link #prerender}),
+ * painting uses {@link #getReadyTile} to show a placeholder until the image of a tile is ready.
+ * The worker pool transcodes the tiles of the painted zoom step first, tiles of zoom steps
+ * that are no longer near the painted zoom step are dropped.
  */
 public class ImageLoader {
 
@@ -32,9 +58,35 @@ public class ImageLoader {
 
     private final DocumentBuilder svgDocBuilder; 
 
-    private final Map<String, Document> svgMap = Maps.newHashMap();
-    private final HashBasedTable<String, Integer, BufferedImage> tileImages = 
-            HashBasedTable.create();
+    public static final int SVG_DOCUMENTS = 128;
+
+    private final Map<String, Document> svgMap =
+            new LinkedHashMap<String, Document>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                    return size() > SVG_DOCUMENTS;
+                }
+            };
+    // tiles without (valid) svg file, these are not transcoded again
+    private final Set<String> missingTiles = Sets.newConcurrentHashSet();
+
+    private final TileImageCache tileImages = TileImageCache.create("tiles");
+    private final TileImageCache rotatedImages = TileImageCache.create("rotated");
+    private final TileImageCache upgradeImages =
+            TileImageCache.create("upgrades", TileImageCache.getDefaultPixels() / 4);
+
+    // transcodings on the worker pool that are not finished yet
+    private final ConcurrentMap<TileImageCache.Key, PrerenderTask> pending =
+            Maps.newConcurrentMap();
+    private final ThreadPoolExecutor prerenderPool;
+    private final AtomicLong submissions = new AtomicLong();
+    // incremented if the zoom factors change, images of former generations are discarded
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile int paintedZoomStep = -1;
+    private volatile Runnable prerenderListener;
+    private final AtomicBoolean listenerScheduled = new AtomicBoolean();
 
     private double[] zoomFactors = new double[21];
 
@@ -67,50 +119,280 @@ public class ImageLoader {
             // do nothing
         }
         svgDocBuilder = db;
-    }
-
-    private BufferedImage getSVGTile(String tileID, double zoomFactor) {
-        String fn = "tile" + tileID + ".svg";
-
-        BufferedImage image = null;
 
-        try {
-            if (!svgMap.containsKey(tileID)) {
-                 Document doc = null;
+        // leave one processor for the user interface, idle threads terminate
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        prerenderPool = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(64, PRERENDER_PRIORITY), new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ImageLoader-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        prerenderPool.allowCoreThreadTimeOut(true);
+    }
 
+    private Document getSVGDocument(String tileID) throws Exception {
+        // the document builder is not thread-safe
+        synchronized (svgMap) {
+            Document doc = svgMap.get(tileID);
+            if (doc == null) {
+                String fn = "tile" + tileID + ".svg";
                 // Step 3: parse the input file to get a Document object
-                doc = 
-                        svgDocBuilder.parse(ResourceLoader.getInputStream(fn,
-                                directory));
+                doc = svgDocBuilder.parse(ResourceLoader.getInputStream(fn, directory));
                 // Cache the doc
                 svgMap.put(tileID, doc);
                 log.debug("SVG document for tile id " + tileID + " succeeded ");
             }
+            return doc;
+        }
+    }
+
+    private BufferedImage getSVGTile(String tileID, double zoomFactor) {
+        BufferedImage image = null;
+
+        try {
+            Document doc = getSVGDocument(tileID);
             BufferedImageTranscoder t = new BufferedImageTranscoder();
             t.addTranscodingHint(ImageTranscoder.KEY_MAX_WIDTH, new Float(svgWidth * zoomFactor));
             t.addTranscodingHint(ImageTranscoder.KEY_MAX_HEIGHT, new Float(svgHeight * zoomFactor));
-            TranscoderInput input = new TranscoderInput(svgMap.get(tileID));
-            t.transcode(input, null);
+            // the transcoder copies the document, which is not safe for concurrent reads
+            synchronized (doc) {
+                t.transcode(new TranscoderInput(doc), null);
+            }
             image = t.getImage();
             log.debug("SVG transcoding for tile id " + tileID + " and zoomFactor " + zoomFactor + " succeeded ");
 
         } catch (Exception e) {
             log.error("SVG transcoding for tile id " + tileID + " failed with "
                       + e);
+            missingTiles.add(tileID);
             return null;
         }
 
         return image;
     }
 
+    /**
+     * @return the transcoded image, transcodes the tile in the current thread if it is not ready.
+     * A pending transcoding is taken from the worker pool, the current thread waits only
+     * if a worker is transcoding the tile already.
+     */
     public BufferedImage getTile(String tileID, int zoomStep) {
-        if (tileImages.contains(tileID, zoomStep)) {
-            return tileImages.get(tileID, zoomStep);
-        } else {
-            BufferedImage image = getSVGTile(tileID, getZoomFactor(zoomStep));
-            tileImages.put(tileID, zoomStep, image);
-            return image;
+        if (missingTiles.contains(tileID)) return null;
+
+        TileImageCache.Key key = TileImageCache.key(tileID, 0, zoomStep);
+        BufferedImage image = tileImages.get(key);
+        if (image != null) return image;
+
+        PrerenderTask task = pending.get(key);
+        if (task != null) {
+            // does nothing if a worker has started the task
+            prerenderPool.remove(task);
+            task.run();
+            try {
+                image = task.get();
+                if (image != null) return image;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (CancellationException e) {
+                log.debug("Transcoding of tile id " + tileID + " cancelled");
+            } catch (ExecutionException e) {
+                log.debug("Transcoding of tile id " + tileID + " failed", e.getCause());
+            }
+            // a transcoding of a former zoom adjustment is repeated below
+            if (missingTiles.contains(tileID)) return null;
+        }
+
+        image = getSVGTile(tileID, getZoomFactor(zoomStep));
+        if (image != null) {
+            tileImages.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * @return the transcoded image if it is ready, otherwise null and the tile is transcoded on the worker pool
+     */
+    public BufferedImage getReadyTile(String tileID, int zoomStep) {
+        if (missingTiles.contains(tileID)) return null;
+
+        BufferedImage image = tileImages.get(TileImageCache.key(tileID, 0, zoomStep));
+        if (image == null) {
+            submitTile(tileID, zoomStep);
+        }
+        return image;
+    }
+
+    /**
+     * @return true if the svg file of the tile cannot be transcoded
+     */
+    public boolean isMissing(String tileID) {
+        return missingTiles.contains(tileID);
+    }
+
+    /**
+     * Transcodes the tiles for the zoom step and its neighbouring zoom steps on the worker pool,
+     * the tiles of the zoom step first. Tiles that are cached or pending are skipped.
+     * 
+     * @param zoomStep the zoom step of the map, the prerender listener is informed about its tiles
+     */
+    public void prerender(Collection<String> tileIDs, int zoomStep) {
+        if (zoomStep != paintedZoomStep) {
+            paintedZoomStep = zoomStep;
+            reprioritize(zoomStep);
+        }
+        for (int step:new int[] {zoomStep, zoomStep - 1, zoomStep + 1}) {
+            if (step < 0 || step >= zoomFactors.length) continue;
+            for (String tileID:tileIDs) {
+                submitTile(tileID, step);
+            }
+        }
+        log.debug("Prerender of zoom step " + zoomStep + ": " + pending.size() + " tiles pending");
+    }
+
+    /**
+     * Cancels the pending tiles that are not near the zoom step and
+     * reorders the queue of the worker pool by the distance to the zoom step
+     */
+    private void reprioritize(int zoomStep) {
+        List<Runnable> queued = new ArrayList<Runnable>();
+        prerenderPool.getQueue().drainTo(queued);
+        int cancelled = 0;
+        for (Runnable runnable:queued) {
+            PrerenderTask task = (PrerenderTask) runnable;
+            task.priority = Math.abs(task.zoomStep - zoomStep);
+            if (task.priority > 1) {
+                task.cancel(false);
+                cancelled++;
+            } else {
+                prerenderPool.getQueue().add(task);
+            }
         }
+        log.debug("Prerender of zoom step " + zoomStep + ": " + cancelled + " tiles of other zoom steps cancelled");
+    }
+
+    /**
+     * @param listener is run on the EDT after tiles of the painted zoom step are ready
+     */
+    public void setPrerenderListener(Runnable listener) {
+        this.prerenderListener = listener;
+    }
+
+    private void submitTile(final String tileID, final int zoomStep) {
+        final TileImageCache.Key key = TileImageCache.key(tileID, 0, zoomStep);
+        if (missingTiles.contains(tileID) || tileImages.contains(key) || pending.containsKey(key)) return;
+
+        // the zoom factors are only accessed on the submitting thread
+        final double zoomFactor = getZoomFactor(zoomStep);
+        final int submitted = generation.get();
+        PrerenderTask task = new PrerenderTask(key, submissions.incrementAndGet(), new Callable<BufferedImage>() {
+            public BufferedImage call() {
+                if (generation.get() != submitted) return null;
+                BufferedImage image = getSVGTile(tileID, zoomFactor);
+                if (image == null) return null;
+                synchronized (tileImages) {
+                    if (generation.get() != submitted) return null;
+                    tileImages.put(key, image);
+                }
+                return image;
+            }
+        });
+        task.priority = Math.abs(zoomStep - paintedZoomStep);
+        if (pending.putIfAbsent(key, task) == null) {
+            prerenderPool.execute(task);
+        }
+    }
+
+    private static final Comparator<Runnable> PRERENDER_PRIORITY = new Comparator<Runnable>() {
+        public int compare(Runnable r1, Runnable r2) {
+            PrerenderTask t1 = (PrerenderTask) r1, t2 = (PrerenderTask) r2;
+            if (t1.priority != t2.priority) return t1.priority < t2.priority ? -1 : 1;
+            return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+        }
+    };
+
+    /**
+     * Transcoding of a tile on the worker pool, ordered by the distance of its zoom step
+     * to the painted zoom step and then by submission
+     */
+    private final class PrerenderTask extends FutureTask<BufferedImage> {
+
+        private final TileImageCache.Key key;
+        private final int zoomStep;
+        private final long sequence;
+        // only changed while the task is not queued
+        private volatile int priority;
+
+        private PrerenderTask(TileImageCache.Key key, long sequence, Callable<BufferedImage> callable) {
+            super(callable);
+            this.key = key;
+            this.zoomStep = key.getZoomStep();
+            this.sequence = sequence;
+        }
+
+        @Override
+        protected void done() {
+            pending.remove(key, this);
+            // discarded images are requested again by the next paint
+            if (zoomStep == paintedZoomStep) {
+                informListener();
+            }
+        }
+    }
+
+    private void informListener() {
+        final Runnable listener = prerenderListener;
+        // tiles finished before the listener has run are covered by that run
+        if (listener == null || !listenerScheduled.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                listenerScheduled.set(false);
+                listener.run();
+            }
+        });
+    }
+
+    /**
+     * @return cache of the rotated tile images used to paint the map (see GUITile)
+     */
+    public TileImageCache getRotatedImages() {
+        return rotatedImages;
+    }
+
+    /**
+     * @return cache of the rotated and cropped tile images of the upgrade panel (see GUITile)
+     */
+    public TileImageCache getUpgradeImages() {
+        return upgradeImages;
+    }
+
+    /**
+     * @return the transcoded, rotated and upgrade panel image caches
+     */
+    public List<TileImageCache> getCaches() {
+        return ImmutableList.of(tileImages, rotatedImages, upgradeImages);
+    }
+
+    /**
+     * @return hits, misses and evictions of the image caches
+     */
+    public String getCacheStatistics() {
+        return Joiner.on(", ").join(getCaches());
+    }
+
+    /**
+     * @return an empty image in the format of the screen, ARGB if there is no screen
+     */
+    public static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
     }
 
     public double getZoomFactor (int zoomStep) {
@@ -136,7 +418,16 @@ public class ImageLoader {
         }
         
         //invalidate buffered tile scalings
-        tileImages.clear();
+        log.debug("Image caches before zoom adjustment: " + getCacheStatistics());
+        synchronized (tileImages) {
+            generation.incrementAndGet();
+            tileImages.clear();
+        }
+        for (PrerenderTask task:pending.values()) {
+            task.cancel(false);
+        }
+        rotatedImages.clear();
+        upgradeImages.clear();
     }
     
     public void resetAdjustmentFactor() {
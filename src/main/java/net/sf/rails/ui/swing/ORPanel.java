@@ -611,7 +611,7 @@ implements ActionListener, KeyListener, RevenueListener {
             f = revenue[i] = new Field(c.getLastRevenueModel());
             addField(f, revXOffset, revYOffset + i, 1, 1, 0, visible);
           
-            f = revenueSelect[i] = new Spinner(0, 0, 0, GameManager.getRevenueSpinnerIncrement());
+            f = revenueSelect[i] = new Spinner(0, 0, 0, c.getRoot().getGameManager().getRevenueSpinnerIncrement());
             //align spinner size with field size 
             //(so that changes to visibility don't affect panel sizing)
             f.setPreferredSize(revenue[i].getPreferredSize());
@@ -800,7 +800,8 @@ implements ActionListener, KeyListener, RevenueListener {
                 for (String addTrain:addTrainList) {
                     ra.addTrainByString(addTrain);
                 }
-                ra.initRevenueCalculator(true); // true => multigraph, false => simplegraph
+                // true => multigraph, false => simplegraph
+                ra.initRevenueCalculator(true, RevenueAdapter.isParallelSearchConfigured());
                 log.debug("Revenue Adapter:" + ra);
                 int revenueValue = ra.calculateRevenue();
                 log.debug("Revenue Value:" + revenueValue);
@@ -1063,7 +1064,7 @@ implements ActionListener, KeyListener, RevenueListener {
 
             RailsRoot root = orUIManager.getGameUIManager().getRoot();
             revenueAdapter = RevenueAdapter.createRevenueAdapter(root, orComp, root.getPhaseManager().getCurrentPhase());
-            revenueAdapter.initRevenueCalculator(true);
+            revenueAdapter.initRevenueCalculator(true, RevenueAdapter.isParallelSearchConfigured());
             revenueAdapter.addRevenueListener(this);
             revenueThread = new Thread(revenueAdapter);
             revenueThread.start();
@@ -109,6 +109,18 @@ public class ORUIManager implements DialogOwner {
 
     protected final GUIHexUpgrades hexUpgrades = GUIHexUpgrades.create();
 
+    // follow-ups of processed actions
+    private final ActionFollowUp selectHexOnFailure = new ActionFollowUp() {
+        public void done(boolean result) {
+            if (!result) setLocalStep(LocalSteps.SelectHex);
+        }
+    };
+    private final ActionFollowUp updateMessageOnSuccess = new ActionFollowUp() {
+        public void done(boolean result) {
+            if (result) updateMessage();
+        }
+    };
+
     /* Local substeps */
     public static enum LocalSteps {
         Inactive, SelectHex, SelectUpgrade, SetRevenue, SelectPayout }
@@ -716,9 +728,7 @@ public class ORUIManager implements DialogOwner {
         
         relayBaseTokens (allowance);
 
-        if (!orWindow.process(allowance)) {
-            setLocalStep(LocalSteps.SelectHex);
-        }
+        orWindow.process(allowance, selectHexOnFailure);
     }
 
     private void layToken(TokenHexUpgrade upgrade) {
@@ -738,9 +748,7 @@ public class ORUIManager implements DialogOwner {
         action.setChosenHex(hex);
         action.setChosenStation(upgrade.getSelectedStop().getRelatedNumber());
         
-        if (!orWindow.process(action)) {
-            setLocalStep(LocalSteps.SelectHex);
-        }
+        orWindow.process(action, selectHexOnFailure);
     }
 
     /**
@@ -871,22 +879,24 @@ public class ORUIManager implements DialogOwner {
         // Assumption for now: always BonusToken
         // We might use it later for BaseTokens too.
 
-        HexMap map = mapPanel.getMap();
-        GUIHex selectedHex = map.getSelectedHex();
+        final HexMap map = mapPanel.getMap();
+        final GUIHex selectedHex = map.getSelectedHex();
 
         if (selectedHex != null) {
             LayToken executedAction = (LayToken) action;
 
             executedAction.setChosenHex(selectedHex.getHex());
 
-            if (orWindow.process(executedAction)) {
-                // FIXME: Should this be setInactive(), please check
-                upgradePanel.setActive();
-                map.selectHex(null);
-                //ensure painting the token (model update currently does not arrive at UI)
-                map.repaintTokens(selectedHex.getBounds());
-                selectedHex = null;
-            }
+            orWindow.process(executedAction, new ActionFollowUp() {
+                public void done(boolean result) {
+                    if (!result) return;
+                    // FIXME: Should this be setInactive(), please check
+                    upgradePanel.setActive();
+                    map.selectHex(null);
+                    //ensure painting the token (model update currently does not arrive at UI)
+                    map.repaintTokens(selectedHex.getBounds());
+                }
+            });
         }
     }
 
@@ -939,9 +949,7 @@ public class ORUIManager implements DialogOwner {
                     chosenAction.setAmount(chosenAction.getAmount());
                 }
 
-                if (orWindow.process(chosenAction)) {
-                    updateMessage();
-                }
+                orWindow.process(chosenAction, updateMessageOnSuccess);
             }
         }
     }
@@ -1196,9 +1204,7 @@ public class ORUIManager implements DialogOwner {
                 } else {
                     chosenAction.setPrice(maxPrice);
                 }
-                if (orWindow.process(chosenAction)) {
-                    updateMessage();
-                }
+                orWindow.process(chosenAction, updateMessageOnSuccess);
             }
         }
 
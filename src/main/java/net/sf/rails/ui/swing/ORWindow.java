@@ -217,11 +217,19 @@ public class ORWindow extends DockingFrame implements ActionPerformer {
     }
 
     public boolean process(PossibleAction action) {
+        return process(action, null);
+    }
+
+    /**
+     * @param followUp called with the result after the action is processed, null if none
+     * (see {@link GameUIManager#processAction(PossibleAction, ActionFollowUp)})
+     */
+    public boolean process(PossibleAction action, ActionFollowUp followUp) {
 
         // Add the actor for safety checking in the server
         if (action != null) action.setPlayerName(orPanel.getORPlayer());
         // Process the action
-        boolean result = gameUIManager.processAction(action);
+        boolean result = gameUIManager.processAction(action, followUp);
         // Display any error message
         //displayServerMessage();
 
@@ -8,6 +8,7 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 
@@ -15,6 +16,9 @@ import javax.swing.*;
 import javax.swing.event.HyperlinkEvent;
 import javax.swing.event.HyperlinkListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
 import javax.swing.text.html.HTMLDocument;
 
 import net.sf.rails.common.Config;
@@ -310,14 +314,105 @@ public class ReportWindow extends JFrame implements
         SoundManager.notifyOfTimeWarp(timeWarpMode);
     }
     
+    /**
+     * Scrolls to the paragraph with the id
+     */
+    private void scrollTo(final String id) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                Element element = ((HTMLDocument)editorPane.getDocument()).getElement(id);
+                if (element != null) {
+                    editorPane.setCaretPosition(element.getStartOffset());
+                }
+            }
+        });
+    }
+
     // ReportBuffer.Observer methods
     
-    // FIXME: Rails 2.0 Not used so far 
-    public void append(String text) {
-        // do nothing
+    public void append(final String id, final String paragraph) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // the report buffer is updated by the game engine thread
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    append(id, paragraph);
+                }
+            });
+            return;
+        }
+        HTMLDocument document = (HTMLDocument)editorPane.getDocument();
+        Element body = document.getElement(document.getDefaultRootElement(),
+                StyleConstants.NameAttribute, HTML.Tag.BODY);
+        try {
+            document.insertBeforeEnd(body, paragraph);
+        } catch (BadLocationException e) {
+            log.warn("Append to report window failed", e);
+            update(reportBuffer.getCurrentText());
+            return;
+        } catch (IOException e) {
+            log.warn("Append to report window failed", e);
+            update(reportBuffer.getCurrentText());
+            return;
+        }
+        trimParagraphs(document, body, ReportBuffer.MAX_FULL_TEXT_REPORTS);
+        scrollTo(id);
     }
 
-    public void update(String text) { 
+    /**
+     * Removes the oldest paragraphs of the body above maxParagraphs,
+     * the same limit applies to the full text of the report buffer
+     */
+    static void trimParagraphs(HTMLDocument document, Element body, int maxParagraphs) {
+        while (body.getElementCount() > maxParagraphs) {
+            document.removeElement(body.getElement(0));
+        }
+    }
+
+    public void replace(final String id, final String paragraph) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    replace(id, paragraph);
+                }
+            });
+            return;
+        }
+        HTMLDocument document = (HTMLDocument)editorPane.getDocument();
+        Element element = document.getElement(id);
+        if (element == null) {
+            // paragraph was empty or is not part of the text
+            if (paragraph != null) update(reportBuffer.getCurrentText());
+            return;
+        }
+        if (paragraph == null) {
+            document.removeElement(element);
+            return;
+        }
+        try {
+            document.setOuterHTML(element, paragraph);
+        } catch (BadLocationException e) {
+            log.warn("Replace in report window failed", e);
+            update(reportBuffer.getCurrentText());
+            return;
+        } catch (IOException e) {
+            log.warn("Replace in report window failed", e);
+            update(reportBuffer.getCurrentText());
+            return;
+        }
+        if (paragraph.contains(ReportBuffer.ACTIVE_MESSAGE_INDICATOR)) {
+            scrollTo(id);
+        }
+    }
+
+    public void update(final String text) { 
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    update(text);
+                }
+            });
+            return;
+        }
         log.debug("Update dynamic report window");
         // set the content of the pane to the current
         editorPane.setText(text);
@@ -0,0 +1,103 @@
+package net.sf.rails.ui.swing;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Window;
+import java.awt.event.KeyAdapter;
+import java.awt.event.MouseAdapter;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.RootPaneContainer;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Glass pane that shows a snapshot of its window while the game engine processes an action.
+ *
+ * The windows read the game state while painting, thus the layered pane of the window
+ * (menu bar and content) is hidden meanwhile: its components neither paint nor receive input.
+ */
+final class SnapshotGlassPane extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RootPaneContainer window;
+    private final Component previousGlassPane;
+    private final boolean previousGlassPaneVisible;
+    private final Component previousFocusOwner;
+    private final BufferedImage snapshot;
+
+    private SnapshotGlassPane(RootPaneContainer window) {
+        this.window = window;
+        this.previousGlassPane = window.getGlassPane();
+        this.previousGlassPaneVisible = previousGlassPane.isVisible();
+        this.previousFocusOwner = ((Window) window).getMostRecentFocusOwner();
+
+        JLayeredPane layeredPane = window.getLayeredPane();
+        snapshot = new BufferedImage(Math.max(1, layeredPane.getWidth()),
+                Math.max(1, layeredPane.getHeight()), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = snapshot.createGraphics();
+        layeredPane.paint(g);
+        g.dispose();
+
+        // consume the input
+        MouseAdapter mouseAdapter = new MouseAdapter() {};
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+        addKeyListener(new KeyAdapter() {});
+        setFocusable(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.drawImage(snapshot, 0, 0, null);
+    }
+
+    private void install() {
+        window.setGlassPane(this);
+        setVisible(true);
+        window.getLayeredPane().setVisible(false);
+        requestFocusInWindow();
+    }
+
+    private void uninstall() {
+        window.getLayeredPane().setVisible(true);
+        window.setGlassPane(previousGlassPane);
+        previousGlassPane.setVisible(previousGlassPaneVisible);
+        if (previousFocusOwner != null) previousFocusOwner.requestFocusInWindow();
+    }
+
+    /**
+     * Replaces the content of all showing windows by their snapshot,
+     * has to be called on the event dispatch thread while the game is not changed
+     * @return the installed glass panes
+     */
+    static List<SnapshotGlassPane> installAll() {
+        List<SnapshotGlassPane> glassPanes = Lists.newArrayList();
+        for (Window window:Window.getWindows()) {
+            if (window.isShowing() && window instanceof RootPaneContainer) {
+                SnapshotGlassPane glassPane = new SnapshotGlassPane((RootPaneContainer) window);
+                glassPane.install();
+                glassPanes.add(glassPane);
+            }
+        }
+        return glassPanes;
+    }
+
+    /**
+     * Shows the content of the windows again
+     */
+    static void uninstallAll(List<SnapshotGlassPane> glassPanes) {
+        for (SnapshotGlassPane glassPane:glassPanes) {
+            glassPane.uninstall();
+        }
+    }
+
+}
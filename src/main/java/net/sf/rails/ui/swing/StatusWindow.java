@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 import rails.game.action.*;
 import rails.game.correct.CorrectionModeAction;
 
+import com.google.common.base.Joiner;
+
 
 /**
  * This is the Window used for displaying nearly all of the rails.game status.
@@ -60,6 +62,8 @@ KeyListener, ActionPerformer {
 
     protected static final String CONFIG_CMD = "Config";
 
+    protected static final String IMAGE_CACHES_CMD = "ImageCaches";
+
     protected static final String BUY_CMD = "Buy";
 
     protected static final String SELL_CMD = "Sell";
@@ -219,6 +223,14 @@ KeyListener, ActionPerformer {
         menuItem.addActionListener(this);
         optMenu.add(menuItem);
 
+        optMenu.addSeparator();
+
+        menuItem = new JMenuItem(LocalText.getText("IMAGE_CACHES"));
+        menuItem.setActionCommand(IMAGE_CACHES_CMD);
+        menuItem.setMnemonic(KeyEvent.VK_I);
+        menuItem.addActionListener(this);
+        optMenu.add(menuItem);
+
         menuBar.add(optMenu);
 
         undoItem = new ActionMenuItem(LocalText.getText("UNDO"));
@@ -647,6 +659,10 @@ KeyListener, ActionPerformer {
             gameUIManager.autoSaveLoadGame();
         } else if (command.equals(SAVESTATUS_CMD)) {
             gameUIManager.saveGameStatus();
+        } else if (command.equals(IMAGE_CACHES_CMD)) {
+            JOptionPane.showMessageDialog(this,
+                    Joiner.on("\n").join(GameUIManager.getImageLoader().getCaches()),
+                    LocalText.getText("IMAGE_CACHES"), JOptionPane.INFORMATION_MESSAGE);
         } else if (executedAction == null) {
             ;
         } else if (executedAction instanceof GameAction) {
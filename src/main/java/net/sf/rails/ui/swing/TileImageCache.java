@@ -0,0 +1,209 @@
+package net.sf.rails.ui.swing;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+/**
+ * TileImageCache stores images of tiles keyed by tile id, rotation and zoom step.
+ *
+ * The cache is bounded by the number of pixels of the stored images,
+ * the least recently used images are removed first.
+ * Hits, misses and evictions are counted to be displayed by the user interface.
+ */
+public final class TileImageCache {
+
+    /**
+     * Number of pixels of 256 tiles at the largest zoom step (about 256 MB)
+     */
+    public static final long MAXIMUM_PIXELS = 256L * 512 * 512;
+
+    /**
+     * Number of pixels of 16 tiles at the largest zoom step (about 16 MB)
+     */
+    public static final long MINIMUM_PIXELS = 16L * 512 * 512;
+
+    // each cache uses at most this part of the maximum heap size
+    private static final int HEAP_SHARE = 16;
+
+    // images are stored as ARGB
+    private static final int BYTES_PER_PIXEL = 4;
+
+    public static final class Key {
+        private final String tileId;
+        private final int rotation;
+        private final int zoomStep;
+
+        private Key(String tileId, int rotation, int zoomStep) {
+            this.tileId = tileId;
+            this.rotation = rotation;
+            this.zoomStep = zoomStep;
+        }
+
+        public String getTileId() {
+            return tileId;
+        }
+
+        public int getRotation() {
+            return rotation;
+        }
+
+        public int getZoomStep() {
+            return zoomStep;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return rotation == other.rotation && zoomStep == other.zoomStep
+                    && tileId.equals(other.tileId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(tileId, rotation, zoomStep);
+        }
+
+        @Override
+        public String toString() {
+            return tileId + "/" + rotation + "/" + zoomStep;
+        }
+    }
+
+    private final String name;
+    private final long maximumPixels;
+    private final Map<Key, BufferedImage> images =
+            new LinkedHashMap<Key, BufferedImage>(16, 0.75f, true);
+
+    private long pixels = 0;
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0;
+
+    private TileImageCache(String name, long maximumPixels) {
+        this.name = name;
+        this.maximumPixels = maximumPixels;
+    }
+
+    /**
+     * Creates a cache bounded by {@link #getDefaultPixels()}
+     */
+    public static TileImageCache create(String name) {
+        return new TileImageCache(name, getDefaultPixels());
+    }
+
+    public static TileImageCache create(String name, long maximumPixels) {
+        return new TileImageCache(name, maximumPixels);
+    }
+
+    /**
+     * @return number of pixels that fit into 1/16 of the maximum heap size,
+     * within {@link #MINIMUM_PIXELS} and {@link #MAXIMUM_PIXELS}
+     */
+    public static long getDefaultPixels() {
+        return getDefaultPixels(Runtime.getRuntime().maxMemory());
+    }
+
+    static long getDefaultPixels(long maxMemory) {
+        long pixels = maxMemory / HEAP_SHARE / BYTES_PER_PIXEL;
+        return Math.max(MINIMUM_PIXELS, Math.min(MAXIMUM_PIXELS, pixels));
+    }
+
+    /**
+     * @param rotation rotation of the image in steps of 30 degrees (0 for the unrotated image)
+     */
+    public static Key key(String tileId, int rotation, int zoomStep) {
+        return new Key(tileId, rotation, zoomStep);
+    }
+
+    /**
+     * @return the stored image, null if there is none
+     */
+    public synchronized BufferedImage get(Key key) {
+        BufferedImage image = images.get(key);
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    public synchronized boolean contains(Key key) {
+        return images.containsKey(key);
+    }
+
+    /**
+     * Stores the image and removes the least recently used images if the cache is full.
+     * An image larger than the cache is not stored.
+     */
+    public synchronized void put(Key key, BufferedImage image) {
+        long imagePixels = pixelsOf(image);
+        if (imagePixels > maximumPixels) return;
+
+        BufferedImage previous = images.put(key, image);
+        if (previous != null) {
+            pixels -= pixelsOf(previous);
+        }
+        pixels += imagePixels;
+
+        Iterator<BufferedImage> eldest = images.values().iterator();
+        while (pixels > maximumPixels && eldest.hasNext()) {
+            pixels -= pixelsOf(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long pixelsOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        pixels = 0;
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    public synchronized long getPixels() {
+        return pixels;
+    }
+
+    public long getMaximumPixels() {
+        return maximumPixels;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("name", name)
+                .add("size", images.size())
+                .add("pixels", pixels)
+                .add("maximum", maximumPixels)
+                .add("hits", hits)
+                .add("misses", misses)
+                .add("evictions", evictions)
+                .toString();
+    }
+
+}
@@ -224,6 +224,7 @@ public class GUIHex implements Observer {
     private static final int BAR_WIDTH = 5;
 
     private static final Color highlightedFillColor = new Color(255,255,255,128);
+    private static final Color placeholderFillColor = new Color(192,192,192,128);
     private static final Color highlightedBorderColor = Color.BLACK;
     private static final Stroke highlightedBorderStroke = new BasicStroke(3);
 
@@ -506,8 +507,12 @@ public class GUIHex implements Observer {
         Tile visibleTile = this.getVisibleTile();
         HexSide visibleRotation = this.getVisibleRotation();
         
-        GUITile.paintTile(g2, dimensions.center, this, visibleTile, visibleRotation, 
-                state.getScale(), hexMap.getZoomStep());
+        if (!GUITile.paintTile(g2, dimensions.center, this, visibleTile, visibleRotation, 
+                state.getScale(), hexMap.getZoomStep())) {
+            // the tile is repainted by the HexMap as soon as its image is ready
+            g2.setColor(placeholderFillColor);
+            g2.fill(dimensions.hexagon);
+        }
     }
 
     public void paintBars(Graphics2D g) {
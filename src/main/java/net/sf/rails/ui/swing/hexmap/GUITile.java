@@ -11,7 +11,7 @@ import net.sf.rails.game.Tile;
 import net.sf.rails.ui.swing.GUIGlobals;
 import net.sf.rails.ui.swing.GameUIManager;
 import net.sf.rails.ui.swing.ImageLoader;
-import net.sf.rails.ui.swing.hexmap.GUIHex.HexPoint;
+import net.sf.rails.ui.swing.TileImageCache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +20,8 @@ import org.slf4j.LoggerFactory;
  * This class provides code to paint tiles
  * 
  * In Rails 1.x this used to be a class with object instances, one object per visible Tile
+ * 
+ * The rotated tile images are cached by the ImageLoader, painting only scales and translates them.
  */
 public class GUITile {
     private static final Logger log =
@@ -29,53 +31,105 @@ public class GUITile {
     public static final double SVG_Y_CENTER_LOC = 0.426;
 
     // FIXME: Merge the two following tile painting routines
-    public static void paintTile(Graphics2D g2, GUIHex.HexPoint origin, GUIHex hex, Tile tile, HexSide rotation, double tileScale, int zoomStep) {
+    /**
+     * @return false if the image of the tile is not transcoded yet (the caller paints a placeholder)
+     */
+    public static boolean paintTile(Graphics2D g2, GUIHex.HexPoint origin, GUIHex hex, Tile tile, HexSide rotation, double tileScale, int zoomStep) {
 
         // Preprinted tiles can have a different picture ID, defined per hex or per tile.
         // MapHex refers back to Tile if necessary
         String picId = hex.getHex().getPictureId(tile);
         
-        ImageLoader imageLoader = GameUIManager.getImageLoader();
-        BufferedImage tileImage = imageLoader.getTile(picId, zoomStep);
-
-        if (tileImage != null) {
-
-            double radians = MapOrientation.rotationInRadians(tile, rotation);
-            HexPoint center = new HexPoint(
-                    tileImage.getWidth() * SVG_X_CENTER_LOC * tileScale,
-                    tileImage.getHeight()* SVG_Y_CENTER_LOC * tileScale
-            );
-            HexPoint difference = HexPoint.difference(origin, center);
-            AffineTransform af = AffineTransform.getTranslateInstance(difference.getX(), difference.getY());
-            af.rotate(radians, center.getX(), center.getY());
-            af.scale(tileScale, tileScale);
+        double radians = MapOrientation.rotationInRadians(tile, rotation);
+        BufferedImage rotatedImage = getRotatedImage(picId, radians, zoomStep);
 
-            AffineTransformOp aop = new AffineTransformOp(af,
-                    GUIGlobals.getRenderingHints());
-            // FIXME: Change this to a sub-pixel approach
-            // compare with 
-            // http://stackoverflow.com/questions/8676909/drawing-an-image-using-sub-pixel-level-accuracy-using-graphics2d
-            //g2.drawImage(tileImage, aop, (int) difference.getX(), (int) difference.getY());
-            // already a first approach, integrated into the affine transform, however it does not
-            // increase the quality of the map
-            g2.drawImage(tileImage, aop, 0, 0);
-            
-        } else {
+        if (rotatedImage != null) {
+            // the rotated image is square with the tile center in its center
+            double halfSize = rotatedImage.getWidth() / 2.0 * tileScale;
+            AffineTransform af = AffineTransform.getTranslateInstance(
+                    origin.getX() - halfSize, origin.getY() - halfSize);
+            af.scale(tileScale, tileScale);
+            g2.drawImage(rotatedImage, af, null);
+        } else if (GameUIManager.getImageLoader().isMissing(picId)) {
             log.error("No image for tile "+ tile +" on hex "+hex.toText());
+        } else {
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * @return rotation in steps of 30 degrees, used as key of the image caches
+     */
+    private static int rotationSteps(double radians) {
+        int steps = (int) Math.round(radians / (Math.PI / 6)) % 12;
+        return steps < 0 ? steps + 12 : steps;
+    }
+
+    /**
+     * Provides the tile image rotated around the tile center (defined by SVG_X_CENTER_LOC and SVG_Y_CENTER_LOC).
+     * The image is square with the tile center in the center of the image.
+     * Images are cached per picture id, rotation and zoomStep.
+     * @return null if the tile image is not ready
+     */
+    private static BufferedImage getRotatedImage(String picId, double radians, int zoomStep) {
+        ImageLoader imageLoader = GameUIManager.getImageLoader();
+        TileImageCache.Key key = TileImageCache.key(picId, rotationSteps(radians), zoomStep);
+        BufferedImage rotatedImage = imageLoader.getRotatedImages().get(key);
+        if (rotatedImage != null) return rotatedImage;
+
+        BufferedImage tileImage = imageLoader.getReadyTile(picId, zoomStep);
+        if (tileImage == null) return null;
+
+        double xCenter = tileImage.getWidth() * SVG_X_CENTER_LOC;
+        double yCenter = tileImage.getHeight() * SVG_Y_CENTER_LOC;
+        // the size has to contain the image corners with the largest distance to the center
+        double radius = Math.hypot(Math.max(xCenter, tileImage.getWidth() - xCenter),
+                Math.max(yCenter, tileImage.getHeight() - yCenter));
+        int size = 2 * (int) Math.ceil(radius);
+
+        rotatedImage = ImageLoader.createCompatibleImage(size, size);
+        Graphics2D g = rotatedImage.createGraphics();
+        try {
+            GUIGlobals.setRenderingHints(g);
+            g.translate(size / 2.0, size / 2.0);
+            g.rotate(radians);
+            g.translate(-xCenter, -yCenter);
+            g.drawImage(tileImage, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        imageLoader.getRotatedImages().put(key, rotatedImage);
+        return rotatedImage;
     }
 
     /**
      * Provides the image of the tile based on the zoomStep.
      * tileScale is not considered for producing this image.
+     * Images are cached per picture id, rotation and zoomStep.
      */
     public static BufferedImage getTileImage(Tile tile, HexSide rotation, int zoomStep) {
 
+        String picId = tile.getPictureId();
+        double radians = MapOrientation.rotationInRadians(tile, rotation);
+
+        ImageLoader imageLoader = GameUIManager.getImageLoader();
+        TileImageCache.Key key = TileImageCache.key(picId, rotationSteps(radians), zoomStep);
+        BufferedImage tileImage = imageLoader.getUpgradeImages().get(key);
+        if (tileImage == null) {
+            tileImage = createTileImage(tile, picId, radians, zoomStep);
+            if (tileImage != null) {
+                imageLoader.getUpgradeImages().put(key, tileImage);
+            }
+        }
+        return tileImage;
+    }
+
+    private static BufferedImage createTileImage(Tile tile, String picId, double radians, int zoomStep) {
+
         // STEP 1: GET IMAGE FROM SVG
         // image not centered as there will be a bottom border to assign square bounds to the image
 
-        String picId = tile.getPictureId();
-
         ImageLoader imageLoader = GameUIManager.getImageLoader();
         BufferedImage uncenteredTileImage = imageLoader.getTile(picId, zoomStep);
 
@@ -107,7 +161,6 @@ public class GUITile {
         // STEP 3: ROTATE TILE IMAGE
         // feasible only now since there are enough margins to ensure tile won't exceed bounds
 
-        double radians = MapOrientation.rotationInRadians(tile, rotation);
         int xCenter = Math.round(centeredTileImage.getWidth() / 2.0f );
         int yCenter = Math.round(centeredTileImage.getHeight() / 2.0f );
 
@@ -130,11 +183,14 @@ public class GUITile {
             croppedHeight = wideDiagonal;
         }
 
-        BufferedImage croppedTileImage = rotatedTileImage.getSubimage(
-                xCenter - croppedWidth / 2,
-                yCenter - croppedHeight / 2,
-                croppedWidth,
-                croppedHeight );
+        // copy of the sub image, the cache should not keep the complete rotated image
+        BufferedImage croppedTileImage = ImageLoader.createCompatibleImage(croppedWidth, croppedHeight);
+        Graphics2D g = croppedTileImage.createGraphics();
+        try {
+            g.drawImage(rotatedTileImage, -(xCenter - croppedWidth / 2), -(yCenter - croppedHeight / 2), null);
+        } finally {
+            g.dispose();
+        }
 
         return croppedTileImage;
     }
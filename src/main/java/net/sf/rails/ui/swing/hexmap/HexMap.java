@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JComponent;
 import javax.swing.JLayeredPane;
@@ -40,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 
 
 /**
@@ -546,6 +548,9 @@ public abstract class HexMap implements MouseListener, MouseMotionListener {
 
     protected Map<MapHex, GUIHex> hex2gui;
 
+    // picture ids of the tiles that are transcoded in advance, the tiles on the map first
+    private Collection<String> prerenderTiles;
+
     // dynamic variables
     
 
@@ -626,10 +631,32 @@ public abstract class HexMap implements MouseListener, MouseMotionListener {
         
         currentSize = (Dimension) originalSize.clone();
         setPreferredSize(originalSize);
+        initPrerender();
         // always call zoom to adjust scaling
         zoom();
     }
 
+    private void initPrerender() {
+        Set<String> pictureIds = Sets.newLinkedHashSet();
+        for (MapHex hex:mapManager.getHexes()) {
+            Tile tile = hex.getCurrentTile();
+            if (tile != null && isTilePainted(tile)) {
+                pictureIds.add(hex.getPictureId(tile));
+            }
+        }
+        for (Tile tile:mapManager.getRoot().getTileManager().getTiles()) {
+            pictureIds.add(tile.getPictureId());
+        }
+        prerenderTiles = ImmutableList.copyOf(pictureIds);
+
+        // replaces the placeholders of tiles that were not ready
+        GameUIManager.getImageLoader().setPrerenderListener(new Runnable() {
+            public void run() {
+                tilesLayer.repaint();
+            }
+        });
+    }
+
     /**
      * defines settings from the config files
      */
@@ -754,6 +781,9 @@ public abstract class HexMap implements MouseListener, MouseMotionListener {
         currentSize.width = (int) (originalSize.width * zoomFactor);
         currentSize.height = (int) (originalSize.height * zoomFactor);
         setPreferredSize(currentSize);
+        if (prerenderTiles != null) {
+            GameUIManager.getImageLoader().prerender(prerenderTiles, zoomStep);
+        }
     }
 
     protected void setScale() {
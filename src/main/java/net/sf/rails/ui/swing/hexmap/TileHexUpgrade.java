@@ -53,17 +53,7 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
         ImmutableSet.Builder<TileHexUpgrade> upgrades = ImmutableSet.builder();
         for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
             TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-            if (routeAlgorithm.equalsIgnoreCase("PERMISSIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, false);
-            } else if (routeAlgorithm.equalsIgnoreCase("RESTRICTIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, true);
-            } else if (routeAlgorithm.equalsIgnoreCase("SEMI-RESTRICTIVE")) {
-                if (upgrade.getTargetTile().hasStations()) {
-                    hexUpgrade.findValidRotations(connected, stations, false);
-                } else {
-                    hexUpgrade.findValidRotations(connected, stations, true);
-                }
-            }
+            hexUpgrade.findValidRotations(connected, stations, TileLays.isRestrictive(routeAlgorithm, upgrade));
             upgrades.add(hexUpgrade);
         }
         return upgrades.build();
@@ -103,29 +93,15 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     private void findValidRotations(HexSidesSet connectedSides, Collection<Station> stations, boolean restrictive) {
         MapHex modelHex = hex.getHex();
 
-        // encode HexSides according to the tile current orientation
-        if (connectedSides != null) {
-            connectedSides = HexSidesSet.rotated(connectedSides, modelHex.getCurrentTileRotation());
-        }
-        // check invalid sides
-        HexSidesSet invalidSides = null;
-        if (modelHex.getInvalidSides() != null) {
-            invalidSides = HexSidesSet.rotated(modelHex.getInvalidSides(), modelHex.getCurrentTileRotation());
-        }
-
         if (requiresConnection()) {
-            HexSidesSet permissive = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, false);
-            if (restrictive) {
-                rotations = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                        modelHex.getCurrentTileRotation(), stations, true);
-                permissiveRoutePossible = !permissive.isEmpty();
-            } else {
-                rotations = permissive;
+            rotations = TileLays.getRotations(modelHex, upgrade, connectedSides, stations, restrictive);
+            // the restrictive rotations are a subset of the permissive ones
+            if (restrictive && rotations.isEmpty()) {
+                permissiveRoutePossible = !TileLays.getRotations(modelHex, upgrade, connectedSides, stations, false)
+                        .isEmpty();
             }
         } else {
-            rotations = upgrade.getAllowedRotations(null, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, restrictive);
+            rotations = TileLays.getRotations(modelHex, upgrade, null, stations, restrictive);
         }
         // initialize selected Rotation
         selectedRotation = rotations.getNext(HexSide.defaultRotation());
@@ -171,15 +147,15 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     public boolean hexIsBlocked() {
-        return hex.getHex().isBlockedByPrivateCompany();
+        return TileLays.isHexBlocked(hex.getHex());
     }
 
     public boolean hexIsReserved() {
-        return hex.getHex().isReservedForCompany() && hex.getHex().getReservedForCompany() != action.getCompany();
+        return TileLays.isHexReserved(action, hex.getHex());
     }
 
     public boolean noTileAvailable() {
-        return upgrade.getTargetTile().getFreeCount() == 0;
+        return !TileLays.isTileAvailable(upgrade);
     }
 
     public boolean notAllowedForHex() {
@@ -191,15 +167,11 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     public boolean tileColourNotAllowed(Phase phase) {
-        return !phase.isTileColourAllowed(upgrade.getTargetTile().getColourText());
+        return !TileLays.isColourAllowed(upgrade, phase);
     }
 
     public boolean tileColourRightMissing() {
-        if (action.getTileColours() == null) {
-            return false;
-        }
-        Integer tileLays = action.getTileColours().get(upgrade.getTargetTile().getColourText());
-        return (tileLays == null || tileLays == 0);
+        return !TileLays.hasColourRight(action, upgrade);
     }
 
     public boolean noRouteToNewTrack() {
@@ -207,26 +179,11 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     public boolean notEnoughCash() {
-        // correction action does not require cash 
-        if (action.getType() == LayTile.CORRECTION) {
-            return false;
-        }
-        return action.getCompany().getCash() < this.getCost();
+        return !TileLays.hasEnoughCash(action, hex.getHex());
     }
 
     public boolean requiresConnection() {
-        // Yellow Tile on Company Home
-        if (upgrade.getTargetTile().getColourText().equalsIgnoreCase(TileColour.YELLOW.name())
-                && hex.getHex().isHomeFor(action.getCompany())) {
-            return false;
-            // Special Property with specified hexes and require connection
-            // TODO: Do we require the second test
-        } else if (action.getType() == LayTile.SPECIAL_PROPERTY
-                && action.getSpecialProperty().getLocations().contains(hex)) {
-            return action.getSpecialProperty().requiresConnection();
-        }
-        return true;
-
+        return TileLays.requiresConnection(action, hex.getHex(), upgrade);
     }
 
     public LayTile getAction() {
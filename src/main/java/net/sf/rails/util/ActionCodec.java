@@ -0,0 +1,515 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.rails.game.RailsRoot;
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * ActionCodec is a compact binary encoding of PossibleActions with explicit field schemas.
+ *
+ * Each action class writes its fields in {@link PossibleAction#writeFields(Output)} and reads them
+ * in its decoding constructor, a constructor with a single {@link Input} argument. Superclasses come first,
+ * and each class starts its fields with the version of its schema, so a class can still read the fields
+ * of its older versions. A record contains the class name of the action followed by these fields.
+ *
+ * Integers are stored as zigzag varints. Strings (ids of companies, hexes, tiles, trains etc.) are
+ * stored only once in definitions and referenced by varint ids. The definitions of new strings are taken
+ * from the encoder and have to be passed to the decoder before the records that use them.
+ *
+ * The decoder instantiates only concrete PossibleAction classes of the (net.sf.)rails.game packages
+ * by their decoding constructor, the ids of the fields are resolved against the game of the decoder.
+ *
+ * Encoder and Decoder are not thread-safe.
+ */
+public final class ActionCodec {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** packages of the action classes */
+    private static final String[] ACTION_PACKAGES = {"rails.game.", "net.sf.rails.game."};
+
+    /** limit of the string length, longer strings are considered as corrupt */
+    private static final int MAX_STRING_LENGTH = 1 << 16;
+
+    // decoding constructors by class name
+    private static final Map<String, Constructor<? extends PossibleAction>> constructors =
+            new ConcurrentHashMap<String, Constructor<? extends PossibleAction>>();
+
+    private ActionCodec() {}
+
+    /**
+     * Output of the fields of an action
+     */
+    public static final class Output {
+
+        private final DataOutputStream out;
+        // encoder that defines the strings, without encoder strings are written inline
+        private final Encoder encoder;
+
+        private Output(DataOutputStream out, Encoder encoder) {
+            this.out = out;
+            this.encoder = encoder;
+        }
+
+        /**
+         * Writes the version of the field schema of a class, it precedes the fields of the class
+         */
+        public void writeVersion(int version) throws IOException {
+            writeVarint(out, version);
+        }
+
+        public void writeInt(int value) throws IOException {
+            writeVarint(out, zigzag(value));
+        }
+
+        /**
+         * Writes the number of the elements of a collection, the elements follow
+         */
+        public void writeSize(int size) throws IOException {
+            writeVarint(out, size + 1);
+        }
+
+        public void writeBoolean(boolean value) throws IOException {
+            out.writeBoolean(value);
+        }
+
+        public void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarint(out, 0);
+            } else if (encoder != null) {
+                writeVarint(out, encoder.define(value) + 1);
+            } else {
+                byte[] bytes = value.getBytes(UTF8);
+                writeVarint(out, bytes.length + 1);
+                out.write(bytes);
+            }
+        }
+
+        public void writeStrings(String[] values) throws IOException {
+            if (values == null) {
+                writeVarint(out, 0);
+                return;
+            }
+            writeVarint(out, values.length + 1);
+            for (String value:values) {
+                writeString(value);
+            }
+        }
+
+        public void writeStrings(Collection<String> values) throws IOException {
+            writeStrings(values == null ? null : values.toArray(new String[values.size()]));
+        }
+
+        public void writeInts(int[] values) throws IOException {
+            if (values == null) {
+                writeVarint(out, 0);
+                return;
+            }
+            writeVarint(out, values.length + 1);
+            for (int value:values) {
+                writeInt(value);
+            }
+        }
+
+        public void writeBits(BitSet values) throws IOException {
+            writeInts(values == null ? null : values.stream().toArray());
+        }
+
+        public void writeEnum(Enum<?> value) throws IOException {
+            writeString(value == null ? null : value.name());
+        }
+
+        /**
+         * Writes a map in the order of its keys, so equal maps have the same encoding
+         */
+        public void writeIntegerMap(Map<String, Integer> values) throws IOException {
+            if (values == null) {
+                writeVarint(out, 0);
+                return;
+            }
+            SortedMap<String, Integer> sorted = ImmutableSortedMap.copyOf(values);
+            writeVarint(out, sorted.size() + 1);
+            for (Map.Entry<String, Integer> entry:sorted.entrySet()) {
+                writeString(entry.getKey());
+                writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Input of the fields of an action
+     */
+    public static final class Input {
+
+        private final ByteArrayInputStream bytes;
+        private final DataInputStream in;
+        private final Decoder decoder;
+        private String type;
+
+        private Input(byte[] record, Decoder decoder) {
+            this.bytes = new ByteArrayInputStream(record);
+            this.in = new DataInputStream(bytes);
+            this.decoder = decoder;
+        }
+
+        /**
+         * @return the game of the decoder, the ids of the fields refer to its items
+         */
+        public RailsRoot getRoot() {
+            return decoder.root;
+        }
+
+        /**
+         * @param current the current version of the field schema of the class
+         * @return the version of the fields that follow
+         * @throws InvalidObjectException if the version is unknown
+         */
+        public int readVersion(int current) throws IOException {
+            long version = readVarint(in);
+            if (version < 1 || version > current) {
+                throw new InvalidObjectException("Version " + version + " of " + type
+                        + " is unknown, current version is " + current);
+            }
+            return (int) version;
+        }
+
+        public int readInt() throws IOException {
+            return (int) unzigzag(readVarint(in));
+        }
+
+        /**
+         * @return number of the elements of a collection
+         */
+        public int readSize() throws IOException {
+            int size = readLength();
+            if (size < 0) {
+                throw new StreamCorruptedException("Missing size in " + type);
+            }
+            return size;
+        }
+
+        public boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        public String readString() throws IOException {
+            long id = readVarint(in);
+            if (id == 0) return null;
+            if (id < 0 || id > decoder.strings.size()) {
+                throw new StreamCorruptedException("Undefined string " + id + " in " + type);
+            }
+            return decoder.strings.get((int) id - 1);
+        }
+
+        public String[] readStrings() throws IOException {
+            int length = readLength();
+            if (length < 0) return null;
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        public List<String> readStringList() throws IOException {
+            String[] values = readStrings();
+            return values == null ? null : Lists.newArrayList(values);
+        }
+
+        public int[] readInts() throws IOException {
+            int length = readLength();
+            if (length < 0) return null;
+            int[] values = new int[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readInt();
+            }
+            return values;
+        }
+
+        /**
+         * @throws InvalidObjectException if a bit index is negative
+         */
+        public BitSet readBits() throws IOException {
+            int[] indices = readInts();
+            if (indices == null) return null;
+            BitSet values = new BitSet();
+            for (int index:indices) {
+                if (index < 0) {
+                    throw new InvalidObjectException("Negative bit index " + index + " in " + type);
+                }
+                values.set(index);
+            }
+            return values;
+        }
+
+        /**
+         * @throws InvalidObjectException if the enum has no constant of the name
+         */
+        public <E extends Enum<E>> E readEnum(Class<E> enumType) throws IOException {
+            String name = readString();
+            if (name == null) return null;
+            try {
+                return Enum.valueOf(enumType, name);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidObjectException("Unknown " + enumType.getSimpleName() + " " + name
+                        + " in " + type);
+            }
+        }
+
+        public Map<String, Integer> readIntegerMap() throws IOException {
+            int size = readLength();
+            if (size < 0) return null;
+            Map<String, Integer> values = Maps.newHashMap();
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                values.put(key, readInt());
+            }
+            return values;
+        }
+
+        /**
+         * @return length of an array, -1 for null
+         */
+        private int readLength() throws IOException {
+            long length = readVarint(in) - 1;
+            // each element requires at least one byte
+            if (length < -1 || length > bytes.available()) {
+                throw new StreamCorruptedException("Invalid length " + length + " in " + type);
+            }
+            return (int) length;
+        }
+    }
+
+    /**
+     * Encodes actions, strings are defined once per encoder
+     */
+    public static final class Encoder {
+
+        private final Map<String, Integer> stringIds = Maps.newHashMap();
+        private final ByteArrayOutputStream definitionBytes = new ByteArrayOutputStream();
+        private final DataOutputStream definitions = new DataOutputStream(definitionBytes);
+
+        /**
+         * @return record of the action, it requires the definitions of the encoder
+         * @throws InvalidClassException if the action cannot be decoded
+         */
+        public byte[] encode(PossibleAction action) throws IOException {
+            getConstructor(action.getClass().getName());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            Output out = new Output(new DataOutputStream(bytes), this);
+            out.writeString(action.getClass().getName());
+            action.writeFields(out);
+            return bytes.toByteArray();
+        }
+
+        /**
+         * @return true if the encoded actions have added definitions
+         */
+        public boolean hasDefinitions() {
+            return definitionBytes.size() > 0;
+        }
+
+        /**
+         * @return the definitions added since the last call
+         */
+        public byte[] takeDefinitions() {
+            byte[] result = definitionBytes.toByteArray();
+            definitionBytes.reset();
+            return result;
+        }
+
+        private int define(String string) throws IOException {
+            Integer id = stringIds.get(string);
+            if (id == null) {
+                id = stringIds.size();
+                stringIds.put(string, id);
+                byte[] bytes = string.getBytes(UTF8);
+                writeVarint(definitions, bytes.length);
+                definitions.write(bytes);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Decodes actions for a game
+     */
+    public static final class Decoder {
+
+        private final RailsRoot root;
+        private final List<String> strings = Lists.newArrayList();
+
+        /**
+         * @param root the game of the decoded actions
+         */
+        public Decoder(RailsRoot root) {
+            this.root = root;
+        }
+
+        /**
+         * Adds the definitions of an encoder
+         */
+        public void define(byte[] definitions) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(definitions));
+            while (in.available() > 0) {
+                long length = readVarint(in);
+                if (length < 0 || length > MAX_STRING_LENGTH) {
+                    throw new StreamCorruptedException("Invalid string length " + length);
+                }
+                byte[] bytes = new byte[(int) length];
+                in.readFully(bytes);
+                strings.add(new String(bytes, UTF8));
+            }
+        }
+
+        /**
+         * @throws InvalidClassException if the record is not an action of the (net.sf.)rails.game packages
+         * @throws IOException if the record cannot be decoded
+         */
+        public PossibleAction decode(byte[] record) throws IOException {
+            Input in = new Input(record, this);
+            in.type = in.readString();
+            Constructor<? extends PossibleAction> constructor = getConstructor(in.type);
+            PossibleAction action;
+            try {
+                action = constructor.newInstance(in);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                throw new IOException("Cannot decode " + in.type, cause);
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Cannot decode " + in.type, e);
+            }
+            if (in.bytes.available() > 0) {
+                throw new StreamCorruptedException("Record of " + in.type + " has "
+                        + in.bytes.available() + " unread bytes");
+            }
+            return action;
+        }
+    }
+
+    /**
+     * @return the decoding constructor of a concrete action class of the (net.sf.)rails.game packages
+     * @throws InvalidClassException if there is no such class
+     */
+    private static Constructor<? extends PossibleAction> getConstructor(String className)
+            throws InvalidClassException {
+        if (className == null) {
+            throw new InvalidClassException("Action without class");
+        }
+        Constructor<? extends PossibleAction> constructor = constructors.get(className);
+        if (constructor != null) return constructor;
+
+        boolean inPackage = false;
+        for (String actionPackage:ACTION_PACKAGES) {
+            inPackage |= className.startsWith(actionPackage);
+        }
+        if (!inPackage) {
+            throw new InvalidClassException(className, "not an action class");
+        }
+        Class<?> actionClass;
+        try {
+            actionClass = Class.forName(className, false, ActionCodec.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new InvalidClassException(className, "unknown class");
+        }
+        if (!PossibleAction.class.isAssignableFrom(actionClass)
+                || Modifier.isAbstract(actionClass.getModifiers())) {
+            throw new InvalidClassException(className, "not an action class");
+        }
+        try {
+            constructor = actionClass.asSubclass(PossibleAction.class).getDeclaredConstructor(Input.class);
+        } catch (NoSuchMethodException e) {
+            throw new InvalidClassException(className, "no decoding constructor");
+        }
+        constructor.setAccessible(true);
+        constructors.put(className, constructor);
+        return constructor;
+    }
+
+    /**
+     * @return hash of the encoded fields of the action, it is identical for
+     * all copies of an action (independent of the JVM and of the save format)
+     */
+    static long fingerprint(PossibleAction action) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        Output out = new Output(new DataOutputStream(bytes), null);
+        try {
+            out.writeString(action.getClass().getName());
+            action.writeFields(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return hash(bytes.toByteArray());
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static long combine(long hash, long value) {
+        // finalizer of MurmurHash3 to spread the bits of the value
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET;
+        for (byte b:bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+}
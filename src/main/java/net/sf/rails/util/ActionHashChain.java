@@ -0,0 +1,117 @@
+package net.sf.rails.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ActionHashChain is a rolling hash over a list of actions:
+ * The hash of an action combines the hash of the previous action with the fingerprint
+ * of the encoded fields of the action (see {@link ActionCodec}). Thus two lists of actions
+ * with the same hash at an index share all actions up to that index.
+ *
+ * The chain keeps the hashed actions to extend or truncate itself if the list of actions changes.
+ */
+public final class ActionHashChain {
+
+    /** hash before the first action */
+    public static final long START = 0x5261696c73L; // Rails
+
+    // hashed actions (compared by identity)
+    private final List<PossibleAction> actions = Lists.newArrayList();
+    private long[] hashes = new long[64];
+
+    private ActionHashChain() {}
+
+    public static ActionHashChain create() {
+        return new ActionHashChain();
+    }
+
+    /**
+     * @return chain of the actions
+     */
+    public static ActionHashChain of(List<PossibleAction> actions) {
+        ActionHashChain chain = new ActionHashChain();
+        chain.update(actions);
+        return chain;
+    }
+
+    /**
+     * @return hash of the action following an action with the previous hash
+     */
+    public static long next(long previous, PossibleAction action) {
+        return ActionCodec.combine(previous, ActionCodec.fingerprint(action));
+    }
+
+    /**
+     * @return number of actions at the start of the list that are identical to the hashed actions
+     */
+    public int commonPrefix(List<PossibleAction> actions) {
+        int common = 0;
+        int size = Math.min(this.actions.size(), actions.size());
+        while (common < size && this.actions.get(common) == actions.get(common)) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Removes the hashes of all actions from index size onwards
+     */
+    public void truncate(int size) {
+        actions.subList(size, actions.size()).clear();
+    }
+
+    /**
+     * @return the hash of the added action
+     */
+    public long add(PossibleAction action) {
+        int index = actions.size();
+        if (index == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+        }
+        hashes[index] = next(index == 0 ? START : hashes[index - 1], action);
+        actions.add(action);
+        return hashes[index];
+    }
+
+    /**
+     * Adapts the chain to the list of actions, only changed actions are hashed
+     */
+    public void update(List<PossibleAction> actions) {
+        int common = commonPrefix(actions);
+        truncate(common);
+        for (PossibleAction action:actions.subList(common, actions.size())) {
+            add(action);
+        }
+    }
+
+    /**
+     * @return hash of the action at index
+     */
+    public long get(int index) {
+        if (index < 0 || index >= actions.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + actions.size());
+        }
+        return hashes[index];
+    }
+
+    /**
+     * @return hash of the last action, START if it is empty
+     */
+    public long getLast() {
+        return actions.isEmpty() ? START : hashes[actions.size() - 1];
+    }
+
+    public int size() {
+        return actions.size();
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(hashes, actions.size());
+    }
+
+}
@@ -17,6 +17,7 @@ class GameIOData {
     private String date;
     private long fileVersionID;
     private List<PossibleAction> actions;
+    private long[] actionHashes = null;
     
     GameIOData(GameData gameData, String version, String date, Long fileVersionID, List<PossibleAction> actions) {
         this.gameData = gameData;
@@ -68,6 +69,14 @@ class GameIOData {
     List<PossibleAction> getActions() {
         return actions;
     }
+
+    void setActionHashes(long[] actionHashes) {
+        this.actionHashes = actionHashes;
+    }
+
+    long[] getActionHashes() {
+        return actionHashes;
+    }
     
     String metaDataAsText() {
         StringBuilder s = new StringBuilder();
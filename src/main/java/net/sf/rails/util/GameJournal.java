@@ -0,0 +1,320 @@
+package net.sf.rails.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+
+/**
+ * GameJournal is an append-only save file of a Rails game.
+ *
+ * The file starts with a magic number and a header record (game name, options and players),
+ * followed by length-prefixed records that are appended while the game is played:
+ * Each executed action is stored as one record with its {@link ActionHashChain} hash followed by
+ * the action encoded by the {@link ActionCodec}, preceded by a definitions record if the action
+ * requires new definitions. An undo that is followed by new actions
+ * is stored as a truncate record with the number of remaining actions, it does not remove definitions.
+ * Records are flushed to the operating system immediately, they are synced to the disk
+ * depending on the {@link Sync} policy. An incomplete last record (e.g. after a crash) is ignored,
+ * as well as all records starting with an invalid one.
+ */
+public final class GameJournal implements Closeable {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(GameJournal.class);
+
+    /** Magic number at the start of a journal, legacy save files start with the serialization magic 0xACED */
+    private static final int MAGIC = 0x524A4E4C; // RJNL
+    private static final short FORMAT_VERSION = 2;
+
+    /** limit of the record length, longer records are considered as corrupt */
+    private static final int MAX_RECORD_LENGTH = 1 << 24;
+
+    // record types
+    private static final byte HEADER = 0;
+    private static final byte ACTION = 1;
+    private static final byte TRUNCATE = 2;
+    private static final byte DEFINITIONS = 3;
+
+    /**
+     * Defines when records are synced to the disk
+     */
+    public enum Sync {
+        /** leave it to the operating system */
+        NEVER,
+        /** if the current player changes */
+        PLAYER,
+        /** after each action */
+        ACTION;
+
+        /**
+         * @return sync policy for the configuration value, PLAYER as default
+         */
+        public static Sync fromConfig(String value) {
+            if (Util.hasValue(value)) {
+                for (Sync sync:values()) {
+                    if (sync.name().equalsIgnoreCase(value)) return sync;
+                }
+                log.warn("Unknown sync policy " + value);
+            }
+            return PLAYER;
+        }
+    }
+
+    /**
+     * Records of a journal file (already truncated)
+     */
+    static final class Contents {
+        private final byte[] header;
+        private final List<byte[]> definitions;
+        private final List<byte[]> actions;
+        private final long[] hashes;
+
+        private Contents(byte[] header, List<byte[]> definitions, List<byte[]> actions, long[] hashes) {
+            this.header = header;
+            this.definitions = definitions;
+            this.actions = actions;
+            this.hashes = hashes;
+        }
+
+        byte[] getHeader() {
+            return header;
+        }
+
+        List<byte[]> getDefinitions() {
+            return definitions;
+        }
+
+        List<byte[]> getActions() {
+            return actions;
+        }
+
+        /**
+         * @return hashes of the actions
+         */
+        long[] getHashes() {
+            return hashes;
+        }
+    }
+
+    private final File file;
+    private final FileOutputStream fileStream;
+    private final DataOutputStream out;
+    private final Sync sync;
+    private final ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+
+    // actions written to the journal and their hashes
+    private final ActionHashChain journaled = ActionHashChain.create();
+    private String lastSyncedPlayer;
+
+    private GameJournal(File file, Sync sync) throws IOException {
+        this.file = file;
+        this.fileStream = new FileOutputStream(file);
+        this.out = new DataOutputStream(new BufferedOutputStream(fileStream));
+        this.sync = sync;
+    }
+
+    /**
+     * Creates a new journal file, an existing file is overwritten
+     * @param header the serialized header objects (see {@link GameSaver})
+     * @param actions the actions to start with
+     */
+    static GameJournal create(File file, Sync sync, byte[] header, List<PossibleAction> actions)
+            throws IOException {
+        GameJournal journal = new GameJournal(file, sync);
+        journal.out.writeInt(MAGIC);
+        journal.out.writeShort(FORMAT_VERSION);
+        journal.writeRecord(HEADER, header);
+        for (PossibleAction action:actions) {
+            journal.writeAction(action);
+        }
+        journal.out.flush();
+        journal.fileStream.getChannel().force(false);
+        log.debug("Created journal " + file.getPath() + " with " + actions.size() + " actions");
+        return journal;
+    }
+
+    /**
+     * Appends the differences between the journal and the executed actions
+     * @param actions the executed actions of the game
+     * @param currentPlayer the name of the current player, used for syncing
+     */
+    public void update(List<PossibleAction> actions, String currentPlayer) throws IOException {
+        // common part of the journal and the actions
+        int common = journaled.commonPrefix(actions);
+        if (common == journaled.size() && common == actions.size()) return;
+
+        if (common < journaled.size()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4);
+            new DataOutputStream(bytes).writeInt(common);
+            writeRecord(TRUNCATE, bytes.toByteArray());
+            journaled.truncate(common);
+        }
+        for (PossibleAction action:actions.subList(common, actions.size())) {
+            writeAction(action);
+        }
+        out.flush();
+
+        if (sync == Sync.ACTION || sync == Sync.PLAYER && currentPlayer != null
+                && !currentPlayer.equals(lastSyncedPlayer)) {
+            sync();
+            lastSyncedPlayer = currentPlayer;
+        }
+    }
+
+    /**
+     * Forces all records to the disk
+     */
+    public void sync() throws IOException {
+        out.flush();
+        fileStream.getChannel().force(false);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of actions in the journal
+     */
+    public int size() {
+        return journaled.size();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeAction(PossibleAction action) throws IOException {
+        byte[] record = encoder.encode(action);
+        if (encoder.hasDefinitions()) {
+            writeRecord(DEFINITIONS, encoder.takeDefinitions());
+        }
+        long hash = journaled.add(action);
+        out.writeInt(8 + record.length);
+        out.writeByte(ACTION);
+        out.writeLong(hash);
+        out.write(record);
+    }
+
+    private void writeRecord(byte type, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeByte(type);
+        out.write(payload);
+    }
+
+    /**
+     * @param in stream that supports mark/reset, it is reset to the start
+     * @return true if the stream starts with a journal
+     */
+    static boolean isJournal(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads the records of a journal, truncate records are applied.
+     *
+     * All records are read before the method returns, as a truncate record can remove
+     * any of the previous action records. The records stay encoded in memory,
+     * the actions are decoded on first access (see GameLoader).
+     */
+    static Contents read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("File is not a Rails journal");
+        }
+        short version = in.readShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Journal format " + version + " is incompatible with current format "
+                    + FORMAT_VERSION);
+        }
+
+        byte[] header = null;
+        List<byte[]> definitions = Lists.newArrayList();
+        List<byte[]> actions = Lists.newArrayList();
+        List<Long> hashes = Lists.newArrayList();
+        records:
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (length < 0 || length > MAX_RECORD_LENGTH) {
+                log.warn("Journal contains a record of invalid length " + length
+                        + ", it and all further records are ignored");
+                break;
+            }
+            byte[] payload;
+            byte type;
+            try {
+                type = in.readByte();
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                log.warn("Journal ends with an incomplete record, it is ignored");
+                break;
+            }
+            switch (type) {
+            case HEADER:
+                header = payload;
+                break;
+            case ACTION:
+                if (payload.length < 8) {
+                    log.warn("Journal contains an action record without hash, it and all further records are ignored");
+                    break records;
+                }
+                hashes.add(new DataInputStream(new ByteArrayInputStream(payload)).readLong());
+                actions.add(Arrays.copyOfRange(payload, 8, payload.length));
+                break;
+            case DEFINITIONS:
+                definitions.add(payload);
+                break;
+            case TRUNCATE:
+                int size = payload.length == 4 ?
+                        new DataInputStream(new ByteArrayInputStream(payload)).readInt() : -1;
+                if (size < 0 || size > actions.size()) {
+                    log.warn("Journal contains an invalid truncate record, it and all further records are ignored");
+                    break records;
+                }
+                actions.subList(size, actions.size()).clear();
+                hashes.subList(size, hashes.size()).clear();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+            }
+        }
+        if (header == null) {
+            throw new IOException("Journal without header");
+        }
+        return new Contents(header, ImmutableList.copyOf(definitions), ImmutableList.copyOf(actions),
+                Longs.toArray(hashes));
+    }
+
+}
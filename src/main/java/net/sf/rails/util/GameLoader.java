@@ -1,11 +1,17 @@
 package net.sf.rails.util;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.AbstractList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -46,6 +52,7 @@ public class GameLoader {
 
     // object data
     private ObjectInputStream ois = null;
+    private GameJournal.Contents journal = null;
     private RailsRoot railsRoot = null;
     private Exception exception = null;
 
@@ -126,7 +133,19 @@ public class GameLoader {
         // FIXME: Removed the filename replacement expression
         // check if this still works
         // String filename = filePath.replaceAll(".*[/\\\\]", "");
-        ois = new RailsObjectInputStream(this, new FileInputStream(gameFile));
+        InputStream in = new BufferedInputStream(new FileInputStream(gameFile));
+        if (GameJournal.isJournal(in)) {
+            // since Rails 2.0: journal with header and action records
+            try {
+                journal = GameJournal.read(in);
+            } finally {
+                in.close();
+            }
+            ois = new RailsObjectInputStream(this, new ByteArrayInputStream(journal.getHeader()));
+        } else {
+            journal = null;
+            ois = new RailsObjectInputStream(this, in);
+        }
 
         Object object = ois.readObject();
         String version;
@@ -194,6 +213,17 @@ public class GameLoader {
      */
     @SuppressWarnings("unchecked")
     public void convertGameData() throws Exception  {
+        if (journal != null) {
+            // actions are read lazily from the journal records
+            gameIOData.setActions(new JournalActions(journal));
+            gameIOData.setActionHashes(journal.getHashes());
+            log.debug("file load: found " + journal.getActions().size() + " journal records");
+            journal = null;
+            ois.close();
+            ois = null;
+            return;
+        }
+
         // Read game actions into gameData.listOfActions
             // read next object in stream
         Object actionObject = null;
@@ -223,6 +253,29 @@ public class GameLoader {
             }
             break;
         }
+
+        // since Rails 2.0: hashes of the actions
+        if (actionObject instanceof long[]) {
+            long[] actionHashes = (long[]) actionObject;
+            int nbActions = gameIOData.getActions() == null ? 0 : gameIOData.getActions().size();
+            if (actionHashes.length == nbActions) {
+                gameIOData.setActionHashes(actionHashes);
+            } else {
+                log.warn("Number of action hashes does not match the actions, hashes are ignored");
+            }
+            try {
+                actionObject = ois.readObject();
+            } catch (EOFException e) {
+                actionObject = null;
+            }
+            // positions of the segments, the footer follows
+            if (actionObject instanceof long[]) {
+                ois.close();
+                ois = null;
+                return;
+            }
+        }
+
         /**
       todo: the code below is far from perfect, but robust
          */
@@ -263,8 +316,18 @@ public class GameLoader {
         if (gameIOData != null && gameIOData.getActions() != null) {
             // set possible actions for first action
             gameManager.getCurrentRound().setPossibleActions();
-            for (PossibleAction action : gameIOData.getActions()) {
+            Iterator<PossibleAction> actions = gameIOData.getActions().iterator();
+            while (actions.hasNext()) {
                 count++;
+                PossibleAction action;
+                try {
+                    action = actions.next();
+                } catch (IllegalStateException e) {
+                    log.error("Replay of game interrupted", e);
+                    String message = LocalText.getText("LoadInterrupted", count);
+                    exception = new RailsReplayException(message);
+                    break;
+                }
                 if (!gameManager.processOnReload(action)) {
                     log.warn("Replay of game interrupted");
                     String message = LocalText.getText("LoadInterrupted", count);
@@ -296,6 +359,13 @@ public class GameLoader {
     public List<PossibleAction> getActions() {
         return gameIOData.getActions();
     }
+
+    /**
+     * @return rolling hashes of the actions (see {@link ActionHashChain}), null if the file has no hashes
+     */
+    public long[] getActionHashes() {
+        return gameIOData.getActionHashes();
+    }
     
     public String getGameDataAsText() {
         return gameIOData.metaDataAsText() + gameIOData.gameOptionsAsText() + gameIOData.playerNamesAsText();
@@ -306,6 +376,16 @@ public class GameLoader {
      * @return false if exception occurred
      */
     public boolean createFromFile(File gameFile)  {
+        if (!createStartFromFile(gameFile)) return false;
+        // 5th: replay game
+        return replayGame();
+    }
+
+    /**
+     * Creates the game of the file in its start position, the actions are retrieved but not replayed
+     * @return false if exception occurred
+     */
+    public boolean createStartFromFile(File gameFile) {
 
         try {
             // 1st: loadGameData
@@ -326,10 +406,148 @@ public class GameLoader {
             exception = e;
             return false;
         }
-        // 5th: replay game
-        return replayGame();
+        return true;
     }
     
+    /**
+     * List of the actions of a journal, each action is decoded on first access
+     * A record that cannot be read throws an IllegalStateException.
+     */
+    private class JournalActions extends AbstractList<PossibleAction> {
+
+        private final byte[][] records;
+        private final PossibleAction[] actions;
+        private final ActionCodec.Decoder decoder;
+
+        private JournalActions(GameJournal.Contents journal) throws IOException {
+            List<byte[]> records = journal.getActions();
+            this.records = records.toArray(new byte[records.size()][]);
+            this.actions = new PossibleAction[records.size()];
+            this.decoder = new ActionCodec.Decoder(getRoot());
+            for (byte[] definitions:journal.getDefinitions()) {
+                decoder.define(definitions);
+            }
+        }
+
+        @Override
+        public PossibleAction get(int index) {
+            if (actions[index] == null) {
+                try {
+                    actions[index] = decoder.decode(records[index]);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot read journal action " + index, e);
+                }
+                // the record is not required anymore
+                records[index] = null;
+            }
+            return actions[index];
+        }
+
+        @Override
+        public int size() {
+            return actions.length;
+        }
+    }
+
+    /**
+     * @return the actions of a save file with segments, null if the file has no valid footer
+     */
+    private SegmentedActions readSegmentedActions(File file) throws IOException, ClassNotFoundException {
+        long hashesPosition;
+        RandomAccessFile footer = new RandomAccessFile(file, "r");
+        try {
+            if (footer.length() < GameSaver.FOOTER_LENGTH) return null;
+            footer.seek(footer.length() - GameSaver.FOOTER_LENGTH);
+            hashesPosition = footer.readLong();
+            int segmentSize = footer.readInt();
+            if (footer.readInt() != GameSaver.FOOTER_MAGIC || segmentSize != GameSaver.SEGMENT_SIZE
+                    || hashesPosition <= 0 || hashesPosition >= footer.length()) {
+                return null;
+            }
+        } finally {
+            footer.close();
+        }
+
+        ObjectInputStream in = openSegment(file, hashesPosition);
+        try {
+            long[] hashes = (long[]) in.readObject();
+            long[] positions = (long[]) in.readObject();
+            if (positions.length != (hashes.length + GameSaver.SEGMENT_SIZE - 1) / GameSaver.SEGMENT_SIZE) {
+                log.warn("Number of segments does not match the action hashes, segments are ignored");
+                return null;
+            }
+            return new SegmentedActions(file, hashes, positions);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return stream of the segment at the position, it starts without references to previous objects
+     */
+    private ObjectInputStream openSegment(File file, long position) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(position);
+            return new RailsObjectInputStream(this, new SequenceInputStream(
+                    new ByteArrayInputStream(STREAM_HEADER), new BufferedInputStream(in)));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** header of an object stream: magic number and version */
+    private static final byte[] STREAM_HEADER = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+
+    /**
+     * List of the actions of a save file with segments, each segment is deserialized on first access
+     * An action that cannot be read throws an IllegalStateException.
+     */
+    private class SegmentedActions extends AbstractList<PossibleAction> {
+
+        private final File file;
+        private final long[] hashes;
+        private final long[] positions;
+        private final PossibleAction[] actions;
+
+        private SegmentedActions(File file, long[] hashes, long[] positions) {
+            this.file = file;
+            this.hashes = hashes;
+            this.positions = positions;
+            this.actions = new PossibleAction[hashes.length];
+        }
+
+        @Override
+        public PossibleAction get(int index) {
+            if (actions[index] == null) {
+                int segment = index / GameSaver.SEGMENT_SIZE;
+                int start = segment * GameSaver.SEGMENT_SIZE;
+                int end = Math.min(start + GameSaver.SEGMENT_SIZE, actions.length);
+                try {
+                    ObjectInputStream in = openSegment(file, positions[segment]);
+                    try {
+                        for (int i = start; i < end; i++) {
+                            actions[i] = (PossibleAction) in.readObject();
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot read saved action " + index, e);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Cannot read saved action " + index, e);
+                }
+            }
+            return actions[index];
+        }
+
+        @Override
+        public int size() {
+            return actions.length;
+        }
+    }
+
     /**
      * A subclass of ObjectInputStream for Rails
      *  
@@ -349,9 +567,12 @@ public class GameLoader {
             super(in);
             this.loader = loader;
         }
-        
+
+        /**
+         * @return root of the loader, without loader the game bound to the current thread
+         */
         public RailsRoot getRoot() {
-            return loader.getRoot();
+            return loader != null ? loader.getRoot() : RailsRoot.getInstance();
         }
         
 //        @Override
@@ -370,13 +591,28 @@ public class GameLoader {
 //        }
     }
 
-    public boolean reloadGameFromFile(File file) {
+    /**
+     * Loads the game data of a file for a reload into a running game.
+     * The actions of save files with segments are read on first access, thus only those
+     * after the actions already executed by the game are deserialized (see {@link GameSaver}).
+     */
+    public boolean reloadGameFromFile(RailsRoot root, File file) {
 
         try {
             // 1st: loadGameData
             loadGameData(file);
             
-            railsRoot = RailsRoot.getInstance();
+            railsRoot = root;
+            SegmentedActions segmentedActions = journal == null ? readSegmentedActions(file) : null;
+            if (segmentedActions != null) {
+                ois.close();
+                ois = null;
+                gameIOData.setActions(segmentedActions);
+                gameIOData.setActionHashes(segmentedActions.hashes);
+                log.debug("file load: found " + segmentedActions.size() + " actions in "
+                        + segmentedActions.positions.length + " segments");
+                return true;
+            }
            // 2nd: convert game data (retrieve actions)
             convertGameData();        
             
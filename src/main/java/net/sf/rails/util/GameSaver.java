@@ -1,5 +1,8 @@
 package net.sf.rails.util;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -17,6 +20,8 @@ import org.slf4j.LoggerFactory;
 
 import rails.game.action.PossibleAction;
 
+import com.google.common.io.CountingOutputStream;
+
 
 /**
  * GameLoader is responsible to load a saved Rails game
@@ -35,6 +40,16 @@ public class GameSaver {
     public static final long saveFileVersionID =
         saveFileHeaderVersionID * PossibleAction.serialVersionUID;
 
+    /**
+     * Number of actions per segment of a save file, each segment can be read on its own.
+     * The footer at the end of the file locates the action hashes and the segments.
+     */
+    static final int SEGMENT_SIZE = 256;
+    /** Magic number at the end of a save file with footer */
+    static final int FOOTER_MAGIC = 0x52534547; // RSEG
+    /** Length of the footer: position of the hashes, segment size and magic number */
+    static final int FOOTER_LENGTH = 16;
+
     // static data for autosave
     public static final String autosaveFolder = "autosave";
     public static final String autosaveFile = "18xx_autosave.rails";
@@ -61,6 +76,15 @@ public class GameSaver {
      */
     public GameSaver(GameLoader gameLoader) {
         this(gameLoader.getRoot().getGameData(), gameLoader.getActions());
+        setActionHashes(gameLoader.getActionHashes());
+    }
+
+    /**
+     * Sets the rolling hashes of the actions, otherwise they are calculated on save
+     * @param actionHashes one hash per action (see {@link ActionHashChain})
+     */
+    public void setActionHashes(long[] actionHashes) {
+        gameIOData.setActionHashes(actionHashes);
     }
 
     /**
@@ -70,20 +94,101 @@ public class GameSaver {
     public void saveGame(File file) throws IOException {
         log.info("Trying to save file to " + file.getAbsoluteFile());
 
-        ObjectOutputStream oos =
-            new ObjectOutputStream(new FileOutputStream(file));
+        CountingOutputStream out =
+            new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        writeHeader(oos);
+        // since Rails 2.0: each segment starts with a reset of the stream, thus
+        // it does not refer to objects of previous segments and can be read on its own
+        List<PossibleAction> actions = gameIOData.getActions();
+        long[] segments = new long[(actions.size() + SEGMENT_SIZE - 1) / SEGMENT_SIZE];
+        int index = 0;
+        for (PossibleAction action : actions) {
+            if (index % SEGMENT_SIZE == 0) {
+                segments[index / SEGMENT_SIZE] = startSegment(oos, out);
+            }
+            oos.writeObject(action);
+            index++;
+        }
+        // since Rails 2.0: hashes of the actions to speed up reloads
+        long[] actionHashes = gameIOData.getActionHashes();
+        if (actionHashes == null) {
+            actionHashes = ActionHashChain.of(actions).toArray();
+        }
+        long hashesPosition = startSegment(oos, out);
+        oos.writeObject(actionHashes);
+        // older versions read the positions of the segments as user comments and ignore them
+        oos.writeObject(segments);
+        oos.flush();
+        DataOutputStream footer = new DataOutputStream(out);
+        footer.writeLong(hashesPosition);
+        footer.writeInt(SEGMENT_SIZE);
+        footer.writeInt(FOOTER_MAGIC);
+        footer.close();
+        log.info("File save successfull");
+    }
+
+    /**
+     * @return position of the segment in the file
+     */
+    private static long startSegment(ObjectOutputStream oos, CountingOutputStream out) throws IOException {
+        oos.reset();
+        oos.flush();
+        return out.getCount();
+    }
+
+    private void writeHeader(ObjectOutputStream oos) throws IOException {
         oos.writeObject(gameIOData.getVersion());
         oos.writeObject(gameIOData.getDate());
         oos.writeObject(gameIOData.getFileVersionID());
         oos.writeObject(gameIOData.getGameData().getGameName());
         oos.writeObject(gameIOData.getGameData().getGameOptions().getOptions());
         oos.writeObject(gameIOData.getGameData().getPlayers());
-        for (PossibleAction action : gameIOData.getActions()) {
-            oos.writeObject(action);
-        }
+    }
+
+    /**
+     * Stores the game to a journal file, further actions are appended by the journal
+     * @param file to save game to
+     * @param sync policy of the journal
+     */
+    public GameJournal createJournal(File file, GameJournal.Sync sync) throws IOException {
+        log.info("Trying to create journal " + file.getAbsoluteFile());
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(header);
+        writeHeader(oos);
         oos.close();
+        return GameJournal.create(file, sync, header.toByteArray(), gameIOData.getActions());
+    }
+
+    /**
+     * Stores the game to a journal file and closes it
+     * @param file to save game to
+     */
+    public void saveJournal(File file) throws IOException {
+        createJournal(file, GameJournal.Sync.NEVER).close();
         log.info("File save successfull");
     }
+
+    /**
+     * Creates a journal as autosave file, the previous autosave file becomes the backup
+     * @param fileName name of the file in the autosave folder, each game requires its own file
+     * @param sync policy of the journal
+     */
+    public GameJournal autoSaveJournal(String fileName, GameJournal.Sync sync) throws IOException {
+        File directory = SystemOS.get().getConfigurationFolder(autosaveFolder, true);
+        File recoveryFile = new File(directory, fileName);
+        if (recoveryFile.exists()) {
+            File backupFile = new File(directory, fileName + ".bak");
+            if (backupFile.exists()) backupFile.delete();
+            if (!recoveryFile.renameTo(backupFile)) {
+                String message = LocalText.getText("RecoveryRenameFailed");
+                throw new IOException(message);
+            }
+            log.debug("Recovery file renamed to " + backupFile.getPath());
+        }
+        return createJournal(recoveryFile, sync);
+    }
     
     /**
      * stores game to autosave file
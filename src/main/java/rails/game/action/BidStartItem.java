@@ -1,8 +1,11 @@
 package rails.game.action;
 
+import java.io.IOException;
+
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.StartItem;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -42,6 +45,27 @@ public class BidStartItem extends StartItemAction {
 
     }
 
+    protected BidStartItem(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        minimumBid = in.readInt();
+        bidIncrement = in.readInt();
+        selected = in.readBoolean();
+        selectForAuction = in.readBoolean();
+        actualBid = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(minimumBid);
+        out.writeInt(bidIncrement);
+        out.writeBoolean(selected);
+        out.writeBoolean(selectForAuction);
+        out.writeInt(actualBid);
+    }
+
     public int getMinimumBid() {
         return minimumBid;
     }
@@ -9,6 +9,7 @@ import net.sf.rails.game.PrivateCompany;
 import net.sf.rails.game.special.SellBonusToken;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.state.Owner;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -48,6 +49,32 @@ public class BuyBonusToken extends PossibleORAction {
         this.locationString = specialProperty.getLocationNameString();
     }
 
+    protected BuyBonusToken(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        privateCompanyName = in.readString();
+        sellerName = in.readString();
+        specialPropertyId = in.readInt();
+        name = in.readString();
+        price = in.readInt();
+        value = in.readInt();
+        locationString = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(privateCompanyName);
+        out.writeString(sellerName);
+        out.writeInt(specialPropertyId);
+        out.writeString(name);
+        out.writeInt(price);
+        out.writeInt(value);
+        out.writeString(locationString);
+    }
+
     /**
      * @return Returns the privateCompany.
      */
@@ -124,7 +151,10 @@ public class BuyBonusToken extends PossibleORAction {
             ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
+    private void resolveItems() {
         privateCompany =
                 getCompanyManager().getPrivateCompany(privateCompanyName);
         if (sellerName.equalsIgnoreCase("Bank")) {
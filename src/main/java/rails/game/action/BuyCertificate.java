@@ -11,6 +11,8 @@ import net.sf.rails.game.*;
 import net.sf.rails.game.financial.PublicCertificate;
 import net.sf.rails.game.model.PortfolioModel;
 import net.sf.rails.game.model.PortfolioOwner;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -48,7 +50,7 @@ public class BuyCertificate extends PossibleAction {
     public BuyCertificate(PublicCompany company, int sharePerCert,
             PortfolioOwner from,
             int price, int maximumNumber) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.company = company;
         this.sharePerCert = sharePerCert;
         this.from = from.getPortfolioModel();
@@ -68,7 +70,33 @@ public class BuyCertificate extends PossibleAction {
 
     /** Required for deserialization */
     public BuyCertificate() {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
+    }
+
+    protected BuyCertificate(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        certUniqueId = in.readString();
+        companyName = in.readString();
+        sharePerCert = in.readInt();
+        fromName = in.readString();
+        price = in.readInt();
+        maximumNumber = in.readInt();
+        numberBought = in.readInt();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(certUniqueId);
+        out.writeString(companyName);
+        out.writeInt(sharePerCert);
+        out.writeString(fromName);
+        out.writeInt(price);
+        out.writeInt(maximumNumber);
+        out.writeInt(numberBought);
     }
 
 
@@ -175,7 +203,11 @@ public class BuyCertificate extends PossibleAction {
 
         numberBought = fields.get("numberBought", numberBought);
 
-        RailsRoot root = RailsRoot.getInstance();
+        resolveItems();
+    }
+
+    private void resolveItems() {
+        RailsRoot root = getRoot();
 
         /* Check for aliases (old company names) */
         CompanyManager companyManager = root.getCompanyManager();
@@ -184,7 +216,7 @@ public class BuyCertificate extends PossibleAction {
         if (certUniqueId != null) {
             // Old style
             certUniqueId = companyManager.checkAliasInCertId(certUniqueId);
-            certificate = PublicCertificate.getByUniqueId(certUniqueId);
+            certificate = PublicCertificate.getByUniqueId(root, certUniqueId);
             // TODO: This function needs a compatible replacement 
             from = getGameManager().getPortfolioByName(fromName);
             company = certificate.getCompany();
@@ -197,7 +229,5 @@ public class BuyCertificate extends PossibleAction {
             from = getGameManager().getPortfolioByUniqueName(fromName);
             // We don't need the certificate anymore.
         }
-
-
     }
 }
@@ -6,6 +6,7 @@ import java.io.ObjectInputStream;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.PrivateCompany;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -33,6 +34,26 @@ public class BuyPrivate extends PossibleORAction {
         this.maximumPrice = maximumPrice;
     }
 
+    protected BuyPrivate(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        privateCompanyName = in.readString();
+        minimumPrice = in.readInt();
+        maximumPrice = in.readInt();
+        price = in.readInt();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(privateCompanyName);
+        out.writeInt(minimumPrice);
+        out.writeInt(maximumPrice);
+        out.writeInt(price);
+    }
+
     /**
      * @return Returns the maximumPrice.
      */
@@ -102,7 +123,10 @@ public class BuyPrivate extends PossibleORAction {
             ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
+    private void resolveItems() {
         privateCompany =
                 getCompanyManager().getPrivateCompany(privateCompanyName);
     }
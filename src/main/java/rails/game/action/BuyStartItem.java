@@ -1,11 +1,15 @@
 package rails.game.action;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.SortedSet;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
 
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.StartItem;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -50,6 +54,32 @@ public class BuyStartItem extends StartItemAction {
         this(startItem, price, selected, false);
     }
 
+    protected BuyStartItem(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        price = in.readInt();
+        selected = in.readBoolean();
+        sharePriceToSet = in.readBoolean();
+        companyNeedingSharePrice = in.readString();
+        setSharePriceOnly = in.readBoolean();
+        List<String> spaces = in.readStringList();
+        if (spaces != null) startSpaces = Sets.newTreeSet(spaces);
+        associatedSharePrice = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(price);
+        out.writeBoolean(selected);
+        out.writeBoolean(sharePriceToSet);
+        out.writeString(companyNeedingSharePrice);
+        out.writeBoolean(setSharePriceOnly);
+        out.writeStrings(startSpaces);
+        out.writeInt(associatedSharePrice);
+    }
+
     public int getPrice() {
         return price;
     }
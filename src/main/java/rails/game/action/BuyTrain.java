@@ -13,6 +13,7 @@ import net.sf.rails.game.TrainType;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.special.SpecialTrainBuy;
 import net.sf.rails.game.state.Owner;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -73,6 +74,48 @@ public class BuyTrain extends PossibleORAction {
         this.typeName = type.getName();
     }
 
+    protected BuyTrain(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        trainUniqueId = in.readString();
+        typeName = in.readString();
+        fromName = in.readString();
+        fixedCost = in.readInt();
+        forcedBuyIfNoRoute = in.readBoolean();
+        trainsForExchangeUniqueIds = in.readStrings();
+        forcedExchange = in.readBoolean();
+        presidentMustAddCash = in.readBoolean();
+        presidentMayAddCash = in.readBoolean();
+        presidentCashToAdd = in.readInt();
+        specialPropertyId = in.readInt();
+        extraMessage = in.readString();
+        pricePaid = in.readInt();
+        addedCash = in.readInt();
+        exchangedTrainUniqueId = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(trainUniqueId);
+        out.writeString(typeName);
+        out.writeString(fromName);
+        out.writeInt(fixedCost);
+        out.writeBoolean(forcedBuyIfNoRoute);
+        out.writeStrings(trainsForExchangeUniqueIds);
+        out.writeBoolean(forcedExchange);
+        out.writeBoolean(presidentMustAddCash);
+        out.writeBoolean(presidentMayAddCash);
+        out.writeInt(presidentCashToAdd);
+        out.writeInt(specialPropertyId);
+        out.writeString(extraMessage);
+        out.writeInt(pricePaid);
+        out.writeInt(addedCash);
+        out.writeString(exchangedTrainUniqueId);
+    }
+
     public BuyTrain setTrainsForExchange(Set<Train> trains) {
         trainsForExchange = trains;
         if (trains != null) {
@@ -138,7 +181,7 @@ public class BuyTrain extends PossibleORAction {
      */
     public Train getTrain() {
         if (train == null) {
-            train = RailsRoot.getInstance().getTrainManager().getTrainByUniqueId(trainUniqueId);
+            train = getRoot().getTrainManager().getTrainByUniqueId(trainUniqueId);
         }
         return train;
     }
@@ -285,7 +328,11 @@ public class BuyTrain extends PossibleORAction {
         exchangedTrainUniqueId = (String) fields.get("exchangedTrainUniqueId", exchangedTrainUniqueId);
         extraMessage = (String) fields.get("extraMessage", extraMessage);
 
-        RailsRoot root = RailsRoot.getInstance();
+        resolveItems();
+    }
+
+    private void resolveItems() {
+        RailsRoot root = getRoot();
         TrainManager trainManager = root.getTrainManager();
         CompanyManager companyManager = root.getCompanyManager();
 
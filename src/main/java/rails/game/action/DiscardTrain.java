@@ -9,10 +9,10 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 
 import net.sf.rails.game.PublicCompany;
-import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Train;
 import net.sf.rails.game.TrainManager;
 import net.sf.rails.game.TrainType;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -52,6 +52,24 @@ public class DiscardTrain extends PossibleORAction {
         this.forced = forced;
     }
 
+    protected DiscardTrain(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        ownedTrainsUniqueIds = in.readStrings();
+        forced = in.readBoolean();
+        discardedTrainUniqueId = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeStrings(ownedTrainsUniqueIds);
+        out.writeBoolean(forced);
+        out.writeString(discardedTrainUniqueId);
+    }
+
     public Set<Train> getOwnedTrains() {
         return ownedTrains;
     }
@@ -117,8 +135,11 @@ public class DiscardTrain extends PossibleORAction {
             ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
-        TrainManager trainManager = RailsRoot.getInstance().getTrainManager();
+    private void resolveItems() {
+        TrainManager trainManager = getRoot().getTrainManager();
 
         if (discardedTrainUniqueId != null) {
             discardedTrain = trainManager.getTrainByUniqueId(discardedTrainUniqueId);
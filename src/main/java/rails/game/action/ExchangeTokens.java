@@ -5,6 +5,7 @@ import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 import com.google.common.base.Objects;
@@ -36,6 +37,33 @@ public class ExchangeTokens extends PossibleORAction {
         this.maxNumberToExchange = maxNumberToExchange;
     }
 
+    protected ExchangeTokens(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        int size = in.readSize();
+        for (int i = 0; i < size; i++) {
+            ExchangeableToken token = new ExchangeableToken(in.readString(), in.readString());
+            token.setSelected(in.readBoolean());
+            tokensToExchange.add(token);
+        }
+        minNumberToExchange = in.readInt();
+        maxNumberToExchange = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeSize(tokensToExchange.size());
+        for (ExchangeableToken token:tokensToExchange) {
+            out.writeString(token.getCityName());
+            out.writeString(token.getOldCompanyName());
+            out.writeBoolean(token.isSelected());
+        }
+        out.writeInt(minNumberToExchange);
+        out.writeInt(maxNumberToExchange);
+    }
+
     public void setExchangedTokens(List<ExchangeableToken> exchangedTokens) {
         for (ExchangeableToken t : exchangedTokens) {
             t.setSelected(true);
@@ -11,6 +11,8 @@ import java.util.List;
 
 import net.sf.rails.game.Company;
 import net.sf.rails.game.CompanyManager;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -33,7 +35,7 @@ public class FoldIntoNational extends PossibleAction {
     public static final long serialVersionUID = 1L;
 
     public FoldIntoNational(List<Company> companies) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.foldableCompanies = companies;
         foldableCompanyNames = Util.joinNamesWithDelimiter(foldableCompanies, ",");
     }
@@ -42,6 +44,22 @@ public class FoldIntoNational extends PossibleAction {
         this (Arrays.asList(new Company[] {company}));
     }
 
+    protected FoldIntoNational(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        foldableCompanyNames = in.readString();
+        foldedCompanyNames = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(foldableCompanyNames);
+        out.writeString(foldedCompanyNames);
+    }
+
     public List<Company> getFoldedCompanies() {
         return foldedCompanies;
     }
@@ -110,10 +128,13 @@ public class FoldIntoNational extends PossibleAction {
     /** Deserialize */
     private void readObject(ObjectInputStream in) throws IOException,
             ClassNotFoundException {
-        
-        Company company;
 
         in.defaultReadObject();
+        resolveItems();
+    }
+
+    private void resolveItems() {
+        Company company;
 
         CompanyManager cmgr = getCompanyManager();
         if (foldableCompanyNames != null) {
@@ -1,5 +1,9 @@
 package rails.game.action;
 
+import java.io.IOException;
+
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 import com.google.common.base.Objects;
@@ -24,10 +28,27 @@ public class GameAction extends PossibleAction {
     protected int moveStackIndex = -1; // target moveStackIndex, only for FORCED_UNDO and REDO
 
     public GameAction(Mode mode) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.mode = mode;
     }
 
+    protected GameAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        mode = in.readEnum(Mode.class);
+        filePath = in.readString();
+        moveStackIndex = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeEnum(mode);
+        out.writeString(filePath);
+        out.writeInt(moveStackIndex);
+    }
+
     public void setFilepath(String filepath) {
         this.filePath = filepath;
     }
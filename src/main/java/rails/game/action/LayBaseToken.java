@@ -12,6 +12,7 @@ import net.sf.rails.game.MapManager;
 import net.sf.rails.game.Stop;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.special.SpecialBaseTokenLay;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -86,6 +87,26 @@ public class LayBaseToken extends LayToken {
     
     
 
+    protected LayBaseToken(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        type = in.readInt();
+        chosenStation = in.readInt();
+
+        if (specialPropertyId > 0) {
+            specialProperty =
+                (SpecialBaseTokenLay) SpecialProperty.getByUniqueId(getRoot(), specialPropertyId);
+        }
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(type);
+        out.writeInt(chosenStation);
+    }
+
     @Deprecated
     public int getChosenStation() {
         return chosenStation;
@@ -14,6 +14,7 @@ import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Token;
 import net.sf.rails.game.special.SpecialBonusTokenLay;
 import net.sf.rails.game.special.SpecialProperty;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.Util;
 
 /**
@@ -36,6 +37,27 @@ public class LayBonusToken extends LayToken {
         this.tokenId = token.getUniqueId();
     }
 
+    protected LayBonusToken(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        tokenId = in.readString();
+
+        if (tokenId != null) {
+            token = Token.getByUniqueId(getRoot(), BonusToken.class, tokenId);
+        }
+        if (specialPropertyId > 0) {
+            specialProperty =
+                    (SpecialBonusTokenLay) SpecialProperty.getByUniqueId(getRoot(), specialPropertyId);
+        }
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(tokenId);
+    }
+
     public void finishConfiguration (RailsRoot root)
     throws ConfigurationException {
         token.prepareForRemoval(root.getPhaseManager());
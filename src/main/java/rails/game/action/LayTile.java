@@ -13,6 +13,7 @@ import net.sf.rails.game.Tile;
 import net.sf.rails.game.TileManager;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.special.SpecialTileLay;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -104,6 +105,44 @@ public class LayTile extends PossibleORAction implements Comparable<LayTile> {
         }
     }
     
+    protected LayTile(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        type = in.readInt();
+        locationNames = in.readString();
+        tileColours = in.readIntegerMap();
+        tileIds = in.readInts();
+        sTileIds = in.readStrings();
+        specialPropertyId = in.readInt();
+        relayBaseTokens = in.readBoolean();
+        laidTileId = in.readInt();
+        sLaidTileId = in.readString();
+        chosenHexName = in.readString();
+        orientation = in.readInt();
+        relaidBaseTokens = in.readIntegerMap();
+        relaidBaseTokensString = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(type);
+        out.writeString(locationNames);
+        out.writeIntegerMap(tileColours);
+        out.writeInts(tileIds);
+        out.writeStrings(sTileIds);
+        out.writeInt(specialPropertyId);
+        out.writeBoolean(relayBaseTokens);
+        out.writeInt(laidTileId);
+        out.writeString(sLaidTileId);
+        out.writeString(chosenHexName);
+        out.writeInt(orientation);
+        out.writeIntegerMap(relaidBaseTokens);
+        out.writeString(relaidBaseTokensString);
+    }
+
     /**
      * @return Returns the chosenHex.
      */
@@ -320,6 +359,10 @@ public class LayTile extends PossibleORAction implements Comparable<LayTile> {
         relaidBaseTokens = (Map<String,Integer>)fields.get("relaidBaseTokens", relaidBaseTokens);
         relaidBaseTokensString = (String) fields.get("relaidBaseTokensString", relaidBaseTokensString);
 
+        resolveItems();
+    }
+
+    private void resolveItems() {
         MapManager mmgr = getRoot().getMapManager();
         TileManager tmgr = getRoot().getTileManager();
         locations = new ArrayList<MapHex>();
@@ -359,7 +402,6 @@ public class LayTile extends PossibleORAction implements Comparable<LayTile> {
         if (chosenHexName != null && chosenHexName.length() > 0) {
             chosenHex = mmgr.getHex(chosenHexName);
         }
-
     }
 
     private void buildLocationNameString() {
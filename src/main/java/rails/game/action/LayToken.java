@@ -1,15 +1,19 @@
 package rails.game.action;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.MapHex;
+import net.sf.rails.game.MapManager;
 import net.sf.rails.game.special.SpecialBaseTokenLay;
 import net.sf.rails.game.special.SpecialBonusTokenLay;
 import net.sf.rails.game.special.SpecialProperty;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
+import net.sf.rails.util.Util;
 
 /**
  * Rails 2.0: Updated equals and toString methods
@@ -72,6 +76,34 @@ public abstract class LayToken extends PossibleORAction {
         this.locations = null;
     }
 
+    protected LayToken(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        locationNames = in.readString();
+        specialPropertyId = in.readInt();
+        chosenHexName = in.readString();
+
+        MapManager mmgr = getRoot().getMapManager();
+        locations = new ArrayList<MapHex>();
+        if (Util.hasValue(locationNames)) {
+            for (String hexName : locationNames.split(",")) {
+                locations.add(mmgr.getHex(hexName));
+            }
+        }
+        if (Util.hasValue(chosenHexName)) {
+            chosenHex = mmgr.getHex(chosenHexName);
+        }
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(locationNames);
+        out.writeInt(specialPropertyId);
+        out.writeString(chosenHexName);
+    }
+
     /**
      * @return Returns the chosenHex.
      */
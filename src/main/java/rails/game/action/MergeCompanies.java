@@ -11,6 +11,8 @@ import com.google.common.base.Objects;
 import net.sf.rails.game.CompanyManager;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 
@@ -39,7 +41,7 @@ public class MergeCompanies extends PossibleAction {
      */
     public MergeCompanies(PublicCompany mergingCompany,
             List<PublicCompany> targetCompanies, boolean forced) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.mergingCompany = mergingCompany;
         this.mergingCompanyName = mergingCompany.getId();
         this.targetCompanies = targetCompanies;
@@ -68,9 +70,44 @@ public class MergeCompanies extends PossibleAction {
         this (mergingCompany, Arrays.asList(new PublicCompany[] {targetCompany}), forced);
     }
 
+    protected MergeCompanies(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        mergingCompanyName = in.readString();
+        targetCompanyNames = in.readString();
+        if (in.readBoolean()) {
+            int size = in.readSize();
+            canReplaceToken = new ArrayList<Boolean>(size);
+            for (int i = 0; i < size; i++) {
+                canReplaceToken.add(in.readBoolean());
+            }
+        }
+        selectedTargetCompanyName = in.readString();
+        replaceToken = in.readBoolean();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(mergingCompanyName);
+        out.writeString(targetCompanyNames);
+        // older saved files have no canReplaceToken
+        out.writeBoolean(canReplaceToken != null);
+        if (canReplaceToken != null) {
+            out.writeSize(canReplaceToken.size());
+            for (Boolean canReplace:canReplaceToken) {
+                out.writeBoolean(canReplace);
+            }
+        }
+        out.writeString(selectedTargetCompanyName);
+        out.writeBoolean(replaceToken);
+    }
+
     /** Required for deserialization */
     public MergeCompanies() {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
     }
 
     public PublicCompany getMergingCompany() {
@@ -153,6 +190,10 @@ public class MergeCompanies extends PossibleAction {
         selectedTargetCompanyName = (String) fields.get("selectedTargetCompanyName", selectedTargetCompanyName);
         replaceToken = fields.get("replaceToken", replaceToken);
 
+        resolveItems();
+    }
+
+    private void resolveItems() {
         CompanyManager cmgr = getCompanyManager();
 
         mergingCompany = cmgr.getPublicCompany(mergingCompanyName);
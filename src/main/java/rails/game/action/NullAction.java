@@ -1,8 +1,11 @@
 package rails.game.action;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 import com.google.common.base.Objects;
@@ -25,11 +28,31 @@ public class NullAction extends PossibleAction {
     protected int mode; 
 
     public NullAction(Mode mode) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.mode_enum = mode;
         this.mode = mode.ordinal();
     }
 
+    protected NullAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        optionalLabel = in.readString();
+        // the codec stores the name of the mode
+        mode_enum = in.readEnum(Mode.class);
+        if (mode_enum == null) {
+            throw new InvalidObjectException("NullAction without mode");
+        }
+        mode = mode_enum.ordinal();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(optionalLabel);
+        out.writeEnum(mode_enum);
+    }
+
     public Mode getMode() {
         return mode_enum;
     }
@@ -11,6 +11,7 @@ import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.round.Activity;
 import net.sf.rails.game.state.ChangeAction;
 import net.sf.rails.game.state.ChangeActionOwner;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.GameLoader.RailsObjectInputStream;
 import net.sf.rails.util.RailsObjects;
 
@@ -48,7 +49,8 @@ public abstract class PossibleAction implements ChangeAction, Serializable {
 
     // TODO: Replace this by a constructor argument for the player
     public PossibleAction(Activity activity) {
-        root = RailsRoot.getInstance();
+        // actions created outside of an activity belong to the game of the current thread
+        root = (activity != null) ? activity.getRoot() : RailsRoot.getInstance();
         player = getRoot().getPlayerManager().getCurrentPlayer();
         if (player != null) {
             playerName = player.getId();
@@ -57,6 +59,31 @@ public abstract class PossibleAction implements ChangeAction, Serializable {
         this.activity = activity;
     }
 
+    /**
+     * Decodes an action of the game of the input (see {@link ActionCodec}),
+     * each concrete action class requires such a constructor
+     */
+    protected PossibleAction(ActionCodec.Input in) throws IOException {
+        in.readVersion(1);
+        playerName = in.readString();
+        playerIndex = in.readInt();
+        acted = in.readBoolean();
+
+        root = in.getRoot();
+        resolvePlayer();
+    }
+
+    /**
+     * Writes the fields of the action that are read by its decoding constructor (see {@link ActionCodec}).
+     * Subclasses with fields write them after those of the superclass, starting with the version of their fields.
+     */
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        out.writeVersion(1);
+        out.writeString(playerName);
+        out.writeInt(playerIndex);
+        out.writeBoolean(acted);
+    }
+
     public String getPlayerName() {
         return playerName;
     }
@@ -184,10 +211,16 @@ public abstract class PossibleAction implements ChangeAction, Serializable {
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         
+        // actions are bound to the game that loads them
         if (in instanceof RailsObjectInputStream) {
             root = ((RailsObjectInputStream) in).getRoot();
+        } else {
+            root = RailsRoot.getInstance();
         }
-        
+        resolvePlayer();
+    }
+
+    private void resolvePlayer() {
         if (playerName != null) {
             player = getRoot().getPlayerManager().getPlayerByName(playerName);
         } else {
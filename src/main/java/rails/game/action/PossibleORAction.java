@@ -7,7 +7,9 @@ import com.google.common.base.Objects;
 
 import net.sf.rails.game.OperatingRound;
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.round.Activity;
 import net.sf.rails.game.round.RoundFacade;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -30,7 +32,7 @@ public abstract class PossibleORAction extends PossibleAction {
      *
      */
     public PossibleORAction() {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         // TODO: The company field should be set from outside and not inside the action classes themselves
         RoundFacade round = getRoot().getGameManager().getCurrentRound();
         if (round instanceof OperatingRound) {
@@ -39,6 +41,22 @@ public abstract class PossibleORAction extends PossibleAction {
         }
     }
 
+    protected PossibleORAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyName = in.readString();
+
+        if (Util.hasValue(companyName))
+            company = getCompanyManager().getPublicCompany(companyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyName);
+    }
+
     public PublicCompany getCompany() {
         return company;
     }
@@ -9,6 +9,7 @@ import com.google.common.base.Objects;
 
 import net.sf.rails.game.CompanyManager;
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -43,6 +44,22 @@ public class ReachDestinations extends PossibleORAction {
     /** Required for deserialization */
     public ReachDestinations() {}
 
+    protected ReachDestinations(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        possibleCompanyNames = in.readString();
+        reachedCompanyNames = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(possibleCompanyNames);
+        out.writeString(reachedCompanyNames);
+    }
+
     public List<PublicCompany> getPossibleCompanies() {
         return possibleCompanies;
     }
@@ -101,7 +118,10 @@ public class ReachDestinations extends PossibleORAction {
             ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
+    private void resolveItems() {
         CompanyManager cmgr = getCompanyManager();
 
         possibleCompanies = new ArrayList<PublicCompany>();
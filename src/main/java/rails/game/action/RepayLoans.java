@@ -6,6 +6,8 @@ import java.io.ObjectInputStream;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -27,7 +29,7 @@ public class RepayLoans extends PossibleAction {
 
     public RepayLoans(PublicCompany company, int minNumber, int maxNumber,
             int price) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.company = company;
         this.companyName = company.getId();
         this.minNumber = minNumber;
@@ -35,6 +37,29 @@ public class RepayLoans extends PossibleAction {
         this.price = price;
     }
 
+    protected RepayLoans(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyName = in.readString();
+        minNumber = in.readInt();
+        maxNumber = in.readInt();
+        price = in.readInt();
+        numberRepaid = in.readInt();
+
+        company = getCompanyManager().getPublicCompany(companyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyName);
+        out.writeInt(minNumber);
+        out.writeInt(maxNumber);
+        out.writeInt(price);
+        out.writeInt(numberRepaid);
+    }
+
     public int getMinNumber() {
         return minNumber;
     }
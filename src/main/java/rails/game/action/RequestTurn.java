@@ -7,6 +7,8 @@ import com.google.common.base.Objects;
 
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.Player;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -19,13 +21,26 @@ public class RequestTurn extends PossibleAction {
     private String requestingPlayerName;
 
     public RequestTurn (Player player) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         // Override player set by superclass
         if (player != null) {
             requestingPlayerName = player.getId();
         }
     }
 
+    protected RequestTurn(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        requestingPlayerName = in.readString();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(requestingPlayerName);
+    }
+
     public String getRequestingPlayerName() {
         return requestingPlayerName;
     }
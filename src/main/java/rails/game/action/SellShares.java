@@ -7,6 +7,8 @@ import com.google.common.base.Objects;
 
 import net.sf.rails.game.CompanyManager;
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -43,7 +45,7 @@ public class SellShares extends PossibleAction {
 
     public SellShares(PublicCompany company, int shareUnits, int number,
             int price, int presidentExchange) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.company = company;
         this.shareUnits = shareUnits;
         this.price = price;
@@ -55,6 +57,34 @@ public class SellShares extends PossibleAction {
         share = shareUnits * shareUnit;
     }
 
+    protected SellShares(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyName = in.readString();
+        shareUnit = in.readInt();
+        shareUnits = in.readInt();
+        share = in.readInt();
+        price = in.readInt();
+        number = in.readInt();
+        presidentExchange = in.readInt();
+        numberSold = in.readInt();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyName);
+        out.writeInt(shareUnit);
+        out.writeInt(shareUnits);
+        out.writeInt(share);
+        out.writeInt(price);
+        out.writeInt(number);
+        out.writeInt(presidentExchange);
+        out.writeInt(numberSold);
+    }
+
     /**
      * @return Returns the maximumNumber.
      */
@@ -149,6 +179,10 @@ public class SellShares extends PossibleAction {
         number = fields.get("number", numberSold);
         presidentExchange = fields.get("presidentExchange", 0);
 
+        resolveItems();
+    }
+
+    private void resolveItems() {
         CompanyManager companyManager = getCompanyManager();
         if (Util.hasValue(companyName))
             companyName = companyManager.checkAlias(companyName);
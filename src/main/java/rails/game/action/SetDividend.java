@@ -5,6 +5,7 @@ import java.io.ObjectInputStream;
 import java.util.Arrays;
 
 import com.google.common.base.Objects;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -95,6 +96,29 @@ public class SetDividend extends PossibleORAction implements Cloneable {
                 action.requiredCash);
     }
 
+    protected SetDividend(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        presetRevenue = in.readInt();
+        mayUserSetRevenue = in.readBoolean();
+        allowedRevenueAllocations = in.readInts();
+        requiredCash = in.readInt();
+        actualRevenue = in.readInt();
+        revenueAllocation = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(presetRevenue);
+        out.writeBoolean(mayUserSetRevenue);
+        out.writeInts(allowedRevenueAllocations);
+        out.writeInt(requiredCash);
+        out.writeInt(actualRevenue);
+        out.writeInt(revenueAllocation);
+    }
+
     public int getPresetRevenue() {
         return presetRevenue;
     }
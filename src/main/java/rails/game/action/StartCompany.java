@@ -1,10 +1,12 @@
 package rails.game.action;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.*;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -20,7 +22,7 @@ public class StartCompany extends BuyCertificate {
     public StartCompany(PublicCompany company, int[] prices,
             int maximumNumber) {
         super(company, company.getPresidentsShare().getShare(),
-                RailsRoot.getInstance().getBank().getIpo(),
+                company.getRoot().getBank().getIpo(),
                 0, maximumNumber);
         this.startPrices = prices.clone();
     }
@@ -32,7 +34,7 @@ public class StartCompany extends BuyCertificate {
     public StartCompany(PublicCompany company, int price,
             int maximumNumber) {
         super(company, company.getPresidentsShare().getShare(),
-                RailsRoot.getInstance().getBank().getIpo(),
+                company.getRoot().getBank().getIpo(),
                 0, maximumNumber);
         this.price = price;
     }
@@ -41,6 +43,19 @@ public class StartCompany extends BuyCertificate {
         this(company, price, 1);
     }
 
+    protected StartCompany(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        startPrices = in.readInts();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInts(startPrices);
+    }
+
     public int[] getStartPrices() {
         return startPrices;
     }
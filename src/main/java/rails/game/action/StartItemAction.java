@@ -6,6 +6,8 @@ import java.io.ObjectInputStream;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.StartItem;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 
@@ -25,12 +27,29 @@ public abstract class StartItemAction extends PossibleAction {
      * 
      */
     public StartItemAction(StartItem startItem) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.startItem = startItem;
         this.startItemName = startItem.getId();
         this.itemIndex = startItem.getIndex();
     }
 
+    protected StartItemAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        startItemName = in.readString();
+        itemIndex = in.readInt();
+
+        startItem = root.getCompanyManager().getStartItemById(startItemName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(startItemName);
+        out.writeInt(itemIndex);
+    }
+
     /**
      * @return Returns the startItem.
      */
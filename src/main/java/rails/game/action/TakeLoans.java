@@ -6,6 +6,7 @@ import java.io.ObjectInputStream;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 /**
@@ -38,6 +39,27 @@ public class TakeLoans extends PossibleORAction {
         this.price = price;
     }
 
+    protected TakeLoans(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyName = in.readString();
+        maxNumber = in.readInt();
+        price = in.readInt();
+        numberTaken = in.readInt();
+
+        company = getCompanyManager().getPublicCompany(companyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyName);
+        out.writeInt(maxNumber);
+        out.writeInt(price);
+        out.writeInt(numberTaken);
+    }
+
     /**
      * @return Returns the minimumPrice.
      */
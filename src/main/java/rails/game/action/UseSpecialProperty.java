@@ -6,6 +6,7 @@ import java.io.ObjectInputStream;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.special.SpecialProperty;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 
@@ -34,6 +35,23 @@ public class UseSpecialProperty extends PossibleORAction {
 
     public static final long serialVersionUID = 1L;
 
+    protected UseSpecialProperty(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        specialPropertyId = in.readInt();
+
+        if (specialPropertyId > 0) {
+            specialProperty = SpecialProperty.getByUniqueId(getRoot(), specialPropertyId);
+        }
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInt(specialPropertyId);
+    }
+
     /**
      * @return Returns the specialProperty.
      */
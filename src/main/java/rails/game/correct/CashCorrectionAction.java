@@ -10,6 +10,7 @@ import rails.game.action.PossibleAction;
 import net.sf.rails.game.Player;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.state.MoneyOwner;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -66,6 +67,26 @@ public class CashCorrectionAction extends CorrectionAction {
    }
    
    
+   protected CashCorrectionAction(ActionCodec.Input in) throws IOException {
+       super(in);
+       in.readVersion(1);
+       cashHolderName = in.readString();
+       cashHolderType = in.readString();
+       maximumNegative = in.readInt();
+       correctAmount = in.readInt();
+       resolveItems();
+   }
+
+   @Override
+   public void writeFields(ActionCodec.Output out) throws IOException {
+       super.writeFields(out);
+       out.writeVersion(1);
+       out.writeString(cashHolderName);
+       out.writeString(cashHolderType);
+       out.writeInt(maximumNegative);
+       out.writeInt(correctAmount);
+   }
+
    public MoneyOwner getCashHolder() {
        return correctCashHolder;
    }
@@ -125,7 +146,10 @@ public class CashCorrectionAction extends CorrectionAction {
         
         if (Util.hasValue(correctionName))
             correctionType = CorrectionType.valueOf(correctionName);
+        resolveItems();
+    }
 
+    private void resolveItems() {
         if (Util.hasValue(cashHolderType) && Util.hasValue(cashHolderName)) {
             if (cashHolderType.equals("Player"))
                 correctCashHolder = getGameManager().getRoot().getPlayerManager().getPlayerByName(cashHolderName);
@@ -7,6 +7,8 @@ import com.google.common.base.Objects;
 
 import rails.game.action.PossibleAction;
 import net.sf.rails.game.PrivateCompany;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -30,11 +32,27 @@ public class ClosePrivate extends PossibleAction {
     /* Postconditions: None */
     
     public ClosePrivate(PrivateCompany priv) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         privateCompany = priv;
         privateCompanyName = priv.getId();
     }
     
+    protected ClosePrivate(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        privateCompanyName = in.readString();
+
+        if (Util.hasValue(privateCompanyName))
+                privateCompany = getCompanyManager().getPrivateCompany(privateCompanyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(privateCompanyName);
+    }
+
     public PrivateCompany getPrivateCompany() {
         return privateCompany;
     }
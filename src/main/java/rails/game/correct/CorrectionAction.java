@@ -1,6 +1,11 @@
 package rails.game.correct;
 
+import java.io.IOException;
+
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
+import net.sf.rails.util.Util;
 
 import com.google.common.base.Objects;
 
@@ -18,7 +23,23 @@ public abstract class CorrectionAction extends PossibleAction {
     public static final long serialVersionUID = 3L;
 
     public CorrectionAction() {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
+    }
+
+    protected CorrectionAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        correctionName = in.readString();
+
+        if (Util.hasValue(correctionName))
+            correctionType = CorrectionType.valueOf(correctionName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(correctionName);
     }
 
     public CorrectionType getCorrectionType() {
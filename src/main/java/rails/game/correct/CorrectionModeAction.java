@@ -35,6 +35,19 @@ public class CorrectionModeAction extends CorrectionAction {
         this.active = active;
     }
     
+    protected CorrectionModeAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        active = in.readBoolean();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeBoolean(active);
+    }
+
     public boolean isActive() {
         return active;
     }
@@ -14,6 +14,7 @@ import net.sf.rails.game.MapManager;
 import net.sf.rails.game.Station;
 import net.sf.rails.game.Tile;
 import net.sf.rails.game.TileManager;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -71,6 +72,30 @@ public class MapCorrectionAction extends CorrectionAction {
         setCorrectionType(CorrectionType.CORRECT_MAP);
     }
     
+    protected MapCorrectionAction(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        stepName = in.readString();
+        nextStepName = in.readString();
+        locationCoordinates = in.readString();
+        sTileIds = in.readStrings();
+        tileIds = in.readInts();
+        orientation = in.readInt();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(stepName);
+        out.writeString(nextStepName);
+        out.writeString(locationCoordinates);
+        out.writeStrings(sTileIds);
+        out.writeInts(tileIds);
+        out.writeInt(orientation);
+    }
+
     public MapHex getLocation() {
         return location;
     }
@@ -224,7 +249,10 @@ public class MapCorrectionAction extends CorrectionAction {
         
         if (Util.hasValue(correctionName))
             correctionType = CorrectionType.valueOf(correctionName);
+        resolveItems();
+    }
 
+    private void resolveItems() {
         if (Util.hasValue(stepName))
             step = ActionStep.valueOf(stepName);
 
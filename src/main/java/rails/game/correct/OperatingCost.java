@@ -7,6 +7,7 @@ import com.google.common.base.Objects;
 
 import rails.game.action.PossibleAction;
 import rails.game.action.PossibleORAction;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -43,6 +44,27 @@ public class OperatingCost extends PossibleORAction {
     /** selected cash amount */
     private int operatingCost; 
 
+   protected OperatingCost(ActionCodec.Input in) throws IOException {
+       super(in);
+       in.readVersion(1);
+       operatingCostType = in.readEnum(OCType.class);
+       suggestedCost = in.readInt();
+       maximumCost = in.readInt();
+       freeEntryAllowed = in.readBoolean();
+       operatingCost = in.readInt();
+   }
+
+   @Override
+   public void writeFields(ActionCodec.Output out) throws IOException {
+       super.writeFields(out);
+       out.writeVersion(1);
+       out.writeEnum(operatingCostType);
+       out.writeInt(suggestedCost);
+       out.writeInt(maximumCost);
+       out.writeBoolean(freeEntryAllowed);
+       out.writeInt(operatingCost);
+   }
+
    /**
     * Instantiates an operating costs action
     * 
@@ -9,6 +9,8 @@ import java.util.List;
 import rails.game.action.PossibleAction;
 import net.sf.rails.game.Company;
 import net.sf.rails.game.CompanyManager;
+import net.sf.rails.game.round.Activity;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 
@@ -30,7 +32,7 @@ public class FoldIntoPrussian extends PossibleAction {
     public static final long serialVersionUID = 1L;
 
     public FoldIntoPrussian(List<Company> companies) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.foldableCompanies = companies;
         foldableCompanyNames = Util.joinNamesWithDelimiter(foldableCompanies, ",");
     }
@@ -39,6 +41,22 @@ public class FoldIntoPrussian extends PossibleAction {
         this (Arrays.asList(new Company[] {company}));
     }
 
+    protected FoldIntoPrussian(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        foldableCompanyNames = in.readString();
+        foldedCompanyNames = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(foldableCompanyNames);
+        out.writeString(foldedCompanyNames);
+    }
+
     public List<Company> getFoldedCompanies() {
         return foldedCompanies;
     }
@@ -107,10 +125,13 @@ public class FoldIntoPrussian extends PossibleAction {
     /** Deserialize */
     private void readObject(ObjectInputStream in) throws IOException,
             ClassNotFoundException {
-        
-        Company company;
 
         in.defaultReadObject();
+        resolveItems();
+    }
+
+    private void resolveItems() {
+        Company company;
 
         CompanyManager cmgr = getCompanyManager();
         if (foldableCompanyNames != null) {
@@ -1,8 +1,10 @@
 package rails.game.specific._1837;
 
+import java.io.IOException;
 import java.util.List;
 
 import net.sf.rails.game.Company;
+import net.sf.rails.util.ActionCodec;
 
 import rails.game.action.FoldIntoNational;
 
@@ -18,4 +20,8 @@ public class FoldIntoHungary extends FoldIntoNational {
         super(company);
     }
 
+    protected FoldIntoHungary(ActionCodec.Input in) throws IOException {
+        super(in);
+    }
+
 }
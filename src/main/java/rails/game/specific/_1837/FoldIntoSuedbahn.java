@@ -1,9 +1,11 @@
 package rails.game.specific._1837;
 
 
+import java.io.IOException;
 import java.util.List;
 
 import net.sf.rails.game.Company;
+import net.sf.rails.util.ActionCodec;
 
 import rails.game.action.FoldIntoNational;
 
@@ -19,4 +21,8 @@ public class FoldIntoSuedbahn extends FoldIntoNational {
         super(company);
     }
 
+    protected FoldIntoSuedbahn(ActionCodec.Input in) throws IOException {
+        super(in);
+    }
+
 }
\ No newline at end of file
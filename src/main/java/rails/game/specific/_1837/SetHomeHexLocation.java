@@ -13,6 +13,7 @@ import net.sf.rails.game.MapManager;
 import net.sf.rails.game.Player;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.StartItem;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 import rails.game.action.PossibleAction;
@@ -42,6 +43,24 @@ public class SetHomeHexLocation extends StartItemAction {
         this.companyName = company.getId();
     }
 
+    protected SetHomeHexLocation(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        selectedHomeHexName = in.readString();
+        companyName = in.readString();
+
+        if (Util.hasValue(companyName))
+            company = getCompanyManager().getPublicCompany(companyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(selectedHomeHexName);
+        out.writeString(companyName);
+    }
+
     public void setHomeHex(MapHex homeHex) {
         selectedHomeHex = homeHex;
         selectedHomeHexName = homeHex.getId();
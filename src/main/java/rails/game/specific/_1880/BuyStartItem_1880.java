@@ -2,12 +2,14 @@ package rails.game.specific._1880;
 
 import rails.game.action.BuyStartItem;
 
+import java.io.IOException;
 import java.util.BitSet;
 
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.StartItem;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 
@@ -61,6 +63,23 @@ public class BuyStartItem_1880 extends BuyStartItem {
         this.buildingRights = new BitSet(5);
     }
 
+    protected BuyStartItem_1880(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        buildingRights = in.readBits();
+        associatedBuildingRight = in.readBits();
+        parSlotIndex = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeBits(buildingRights);
+        out.writeBits(associatedBuildingRight);
+        out.writeInt(parSlotIndex);
+    }
+
     /**
      * @return the buildingRights
      */
@@ -1,8 +1,11 @@
 package rails.game.specific._1880;
 
+import java.io.IOException;
+
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.specific._1880.Investor_1880;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 import rails.game.action.PossibleORAction;
@@ -25,6 +28,21 @@ public class CloseInvestor_1880 extends PossibleORAction {
         
     }
 
+    protected CloseInvestor_1880(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        treasuryToLinkedCompany = in.readBoolean();
+        replaceToken = in.readBoolean();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeBoolean(treasuryToLinkedCompany);
+        out.writeBoolean(replaceToken);
+    }
+
     public Investor_1880 getInvestor() {
         return (Investor_1880) company;
     }
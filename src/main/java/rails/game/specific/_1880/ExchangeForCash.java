@@ -9,7 +9,9 @@ import com.google.common.collect.ImmutableMap;
 
 import net.sf.rails.game.PrivateCompany;
 import net.sf.rails.game.TrainType;
+import net.sf.rails.game.round.Activity;
 import net.sf.rails.game.state.Owner;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 import rails.game.action.PossibleAction;
@@ -33,13 +35,34 @@ public class ExchangeForCash extends PossibleAction {
     private boolean exchangeCompany = false;
     
     private ExchangeForCash(PrivateCompany company, int value, boolean ownerHasChoice) {
-        super(null); // not defined by an activity yet
+        super((Activity) null); // not defined by an activity yet
         this.owner = company.getOwner();
         this.ownerName = owner.getId();
         this.value = value;
         this.ownerHasChoice = ownerHasChoice;
     }
 
+    private ExchangeForCash(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        ownerName = in.readString();
+        value = in.readInt();
+        exchangeCompany = in.readBoolean();
+
+        if (Util.hasValue(ownerName)) {
+            owner = getRoot().getPlayerManager().getPlayerByName(ownerName);
+        }
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(ownerName);
+        out.writeInt(value);
+        out.writeBoolean(exchangeCompany);
+    }
+
     public static ExchangeForCash getAction(PrivateCompany company, TrainType soldOutTrainType) {
         ExchangeForCash action = null;
         String trainName = soldOutTrainType.getName();
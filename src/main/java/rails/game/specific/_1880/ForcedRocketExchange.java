@@ -1,5 +1,6 @@
 package rails.game.specific._1880;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -10,6 +11,7 @@ import com.google.common.collect.Lists;
 
 import net.sf.rails.game.Train;
 import net.sf.rails.game.specific._1880.PublicCompany_1880;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 import rails.game.action.PossibleORAction;
@@ -32,6 +34,21 @@ public class ForcedRocketExchange extends PossibleORAction {
         trainToReplace = null;
     }
 
+    protected ForcedRocketExchange(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyToReceiveTrain = in.readString();
+        trainToReplace = in.readString();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyToReceiveTrain);
+        out.writeString(trainToReplace);
+    }
+
     public void addCompanyWithSpace(PublicCompany_1880 company) {
         companiesWithSpace.add(company.getId());
     }    
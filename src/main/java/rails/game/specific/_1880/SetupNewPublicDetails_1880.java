@@ -7,6 +7,7 @@ import com.google.common.base.Objects;
 
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.StartItem;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import net.sf.rails.util.Util;
 import rails.game.action.PossibleAction;
@@ -42,6 +43,30 @@ public class SetupNewPublicDetails_1880 extends StartItemAction {
         this.shares = shares;
     }
 
+    protected SetupNewPublicDetails_1880(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        companyName = in.readString();
+        price = in.readInt();
+        shares = in.readInt();
+        parSlotIndex = in.readInt();
+        buildRightsString = in.readString();
+
+        if (Util.hasValue(companyName))
+            company = getCompanyManager().getPublicCompany(companyName);
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(companyName);
+        out.writeInt(price);
+        out.writeInt(shares);
+        out.writeInt(parSlotIndex);
+        out.writeString(buildRightsString);
+    }
+
     private void readObject(ObjectInputStream in) throws IOException,
             ClassNotFoundException {
 
@@ -10,6 +10,7 @@ import java.util.Arrays;
 import com.google.common.base.Objects;
 
 import net.sf.rails.game.PublicCompany;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 import rails.game.action.PossibleAction;
 import rails.game.action.StartCompany;
@@ -44,6 +45,23 @@ public class StartCompany_1880 extends StartCompany {
         this(company, startPrices, 1);        
     }
     
+    protected StartCompany_1880(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        possibleParSlotIndices = in.readInts();
+        buildingRightsString = in.readString();
+        parSlotIndex = in.readInt();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeInts(possibleParSlotIndices);
+        out.writeString(buildingRightsString);
+        out.writeInt(parSlotIndex);
+    }
+
     public void setBuildingRights(String buildingRightsString) {
         this.buildingRightsString = buildingRightsString;
     }
@@ -11,8 +11,8 @@ import net.sf.rails.game.CompanyManager;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.MapManager;
 import net.sf.rails.game.PublicCompany;
-import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Stop;
+import net.sf.rails.util.ActionCodec;
 import net.sf.rails.util.RailsObjects;
 
 import com.google.common.base.Objects;
@@ -47,6 +47,28 @@ public class StartCompany_18EU extends StartCompany {
         super(company, prices, 1);
     }
 
+    protected StartCompany_18EU(ActionCodec.Input in) throws IOException {
+        super(in);
+        in.readVersion(1);
+        minorsToMergeNames = in.readString();
+        requestStartSpaces = in.readBoolean();
+        availableHomeStationNames = in.readString();
+        chosenMinorName = in.readString();
+        selectedHomeStationName = in.readString();
+        resolveItems();
+    }
+
+    @Override
+    public void writeFields(ActionCodec.Output out) throws IOException {
+        super.writeFields(out);
+        out.writeVersion(1);
+        out.writeString(minorsToMergeNames);
+        out.writeBoolean(requestStartSpaces);
+        out.writeString(availableHomeStationNames);
+        out.writeString(chosenMinorName);
+        out.writeString(selectedHomeStationName);
+    }
+
     public void setMinorsToMerge(List<PublicCompany> minors) {
 
         minorsToMerge = minors;
@@ -155,7 +177,10 @@ public class StartCompany_18EU extends StartCompany {
     ClassNotFoundException {
 
         in.defaultReadObject();
+        resolveItems();
+    }
 
+    private void resolveItems() {
         CompanyManager cmgr = getCompanyManager();
         if (minorsToMergeNames != null) {
             minorsToMerge = new ArrayList<PublicCompany>();
@@ -167,7 +192,7 @@ public class StartCompany_18EU extends StartCompany {
             chosenMinor = cmgr.getPublicCompany(chosenMinorName);
         }
 
-        MapManager mapManager = RailsRoot.getInstance().getMapManager();
+        MapManager mapManager = getRoot().getMapManager();
         if (availableHomeStationNames != null) {
             availableHomeStations = new ArrayList<Stop>();
             for (String cityName : availableHomeStationNames.split(",")) {
@@ -0,0 +1,106 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.GameManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rails.game.action.LayBaseToken;
+import rails.game.action.LayTile;
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Compares the route graphs derived from the {@link MapGraphCache} with route graphs
+ * of a newly created map graph after each tile and token lay of test games
+ */
+public class MapGraphCacheTest {
+
+    // 1835 uses a graph modifier, thus the complete map graph is copied
+    private static final String[] GAMES = {"1830_A", "1835_KoIT3", "1856_A", "1889_A", "18EU_A"};
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static List<String> describe(NetworkGraph graph) {
+        List<String> elements = Lists.newArrayList();
+        for (NetworkVertex vertex:graph.getGraph().vertexSet()) {
+            elements.add(vertex.getIdentifier() + ":" + vertex.getStationType() + ":" + vertex.isSink()
+                    + ":" + vertex.getStopName() + ":" + vertex.getValue());
+        }
+        for (NetworkEdge edge:graph.getGraph().edgeSet()) {
+            elements.add(Ordering.natural().sortedCopy(Lists.newArrayList(edge.getSource().getIdentifier(),
+                    edge.getTarget().getIdentifier())) + ":" + edge.isGreedy() + ":" + edge.getDistance());
+        }
+        return Ordering.natural().sortedCopy(elements);
+    }
+
+    private static NetworkGraph createUncachedRouteGraph(RailsRoot root, PublicCompany company) {
+        NetworkGraph mapGraph = NetworkGraph.createTrackGraph(root.getMapManager());
+        if (root.getRevenueManager() != null) {
+            root.getRevenueManager().activateMapGraphModifiers(mapGraph);
+        }
+        return NetworkGraph.createRouteGraph(mapGraph, company, false);
+    }
+
+    private static int compareRouteGraphs(RailsRoot root, String text) {
+        int comparisons = 0;
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.isClosed() || !company.hasFloated()) continue;
+            NetworkGraph cached = NetworkAdapter.create(root).getRouteGraph(company, false);
+            assertEquals(text + " " + company.getId(), describe(createUncachedRouteGraph(root, company)),
+                    describe(cached));
+            comparisons++;
+        }
+        return comparisons;
+    }
+
+    @Test
+    public void testRouteGraphs() {
+        int comparisons = 0;
+        for (String game:GAMES) {
+            File gameFile = new File(Config.get("save.directory") + File.separator + "real"
+                    + File.separator + game + "." + Config.get("save.filename.extension"));
+            GameLoader gameLoader = new GameLoader();
+            assertTrue(game, gameLoader.createStartFromFile(gameFile));
+            RailsRoot root = gameLoader.getRoot();
+            GameManager gameManager = root.getGameManager();
+            gameManager.setReloading(true);
+            gameManager.getCurrentRound().setPossibleActions();
+
+            int index = 0;
+            for (PossibleAction action:gameLoader.getActions()) {
+                assertTrue(game + " action " + index, gameManager.processOnReload(action));
+                if (action instanceof LayTile || action instanceof LayBaseToken) {
+                    comparisons += compareRouteGraphs(root, game + " action " + index);
+                }
+                index++;
+            }
+            gameManager.setReloading(false);
+            RailsRoot.clearInstance();
+        }
+        assertTrue(comparisons > 0);
+    }
+
+}
@@ -0,0 +1,145 @@
+package net.sf.rails.algorithms;
+
+import static net.sf.rails.algorithms.RevenueTestGames.GAMES;
+import static net.sf.rails.algorithms.RevenueTestGames.createAdapter;
+import static net.sf.rails.algorithms.RevenueTestGames.getCompanies;
+import static net.sf.rails.algorithms.RevenueTestGames.loadGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+
+/**
+ * Tests of the revenue calculation on the final positions of the test games
+ */
+public class RevenueAdapterTest {
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static int sumOfRunValues(RevenueAdapter revenueAdapter) {
+        int value = 0;
+        for (RevenueTrainRun run:revenueAdapter.getOptimalRun()) {
+            value += run.getRunValue();
+        }
+        return value;
+    }
+
+    @Test
+    public void testParallelSearch() {
+        for (String game:GAMES) {
+            RailsRoot root = loadGame(game);
+            for (PublicCompany company:getCompanies(root)) {
+                for (boolean useMultiGraph:new boolean[] {false, true}) {
+                    String text = game + " " + company.getId() + " multigraph=" + useMultiGraph;
+                    RevenueAdapter serial = createAdapter(root, company, null, useMultiGraph);
+                    int value = serial.calculateRevenue();
+
+                    RevenueAdapter parallel = RevenueAdapter.createRevenueAdapter(root, company,
+                            root.getPhaseManager().getCurrentPhase());
+                    parallel.setRevenueCache(null);
+                    parallel.initRevenueCalculator(useMultiGraph, true);
+                    assertEquals(text, value, parallel.calculateRevenue());
+                    assertTrue(text, parallel.isFinalResult());
+                    // the run can differ from the serial run, but not its value
+                    if (!parallel.hasDynamicModifiers()) {
+                        assertEquals(text, sumOfRunValues(serial), sumOfRunValues(parallel));
+                        assertEquals(text, value, sumOfRunValues(parallel));
+                    }
+                }
+            }
+            RailsRoot.clearInstance();
+        }
+    }
+
+    @Test
+    public void testBudgetPerCalculation() {
+        RailsRoot root = loadGame("1856_A");
+        PublicCompany company = getCompanies(root).get(0);
+        int value = createAdapter(root, company, null, false).calculateRevenue();
+
+        RevenueAdapter revenueAdapter = createAdapter(root, company, null, false);
+        RevenueBudget budget = RevenueBudget.create(0, 1);
+        revenueAdapter.calculateRevenue(budget);
+        assertTrue(budget.isExpired());
+        assertFalse(revenueAdapter.isFinalResult());
+
+        // the next calculation is not limited by the expired budget
+        assertEquals(value, revenueAdapter.calculateRevenue());
+        assertTrue(revenueAdapter.isFinalResult());
+        RevenueBudget nextBudget = revenueAdapter.getBudget();
+        assertNotSame(budget, nextBudget);
+
+        // and each calculation has its own budget
+        revenueAdapter.calculateRevenue();
+        assertNotSame(nextBudget, revenueAdapter.getBudget());
+    }
+
+    /**
+     * @return revenues of the test games (game, company, multigraph) calculated
+     * by the revenue calculator before the run view, the compiled graph and the reachability bounds
+     */
+    private static Map<String, Integer> loadExpectedRevenues() throws IOException {
+        Map<String, Integer> revenues = Maps.newHashMap();
+        for (String line:Resources.readLines(Resources.getResource(RevenueAdapterTest.class, "revenues.txt"),
+                Charsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            List<String> fields = Splitter.on('\t').splitToList(line);
+            revenues.put(fields.get(0) + " " + fields.get(1) + " multigraph=" + fields.get(2),
+                    Integer.valueOf(fields.get(3)));
+        }
+        return revenues;
+    }
+
+    @Test
+    public void testExpectedRevenues() throws IOException {
+        Map<String, Integer> expected = loadExpectedRevenues();
+        int comparisons = 0;
+        for (String game:GAMES) {
+            RailsRoot root = loadGame(game);
+            for (PublicCompany company:getCompanies(root)) {
+                for (boolean useMultiGraph:new boolean[] {false, true}) {
+                    String text = game + " " + company.getId() + " multigraph=" + useMultiGraph;
+                    Integer value = expected.get(text);
+                    assertNotNull(text, value);
+
+                    RevenueAdapter revenueAdapter = createAdapter(root, company, null, useMultiGraph);
+                    assertEquals(text, value.intValue(), revenueAdapter.calculateRevenue());
+
+                    RevenueAdapter bounded = createAdapter(root, company, null, useMultiGraph);
+                    bounded.setReachabilityBounds(true);
+                    assertEquals(text + " reachability bounds", value.intValue(), bounded.calculateRevenue());
+                    comparisons++;
+                }
+            }
+            RailsRoot.clearInstance();
+        }
+        assertEquals(expected.size(), comparisons);
+    }
+
+}
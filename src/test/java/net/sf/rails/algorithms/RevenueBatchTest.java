@@ -0,0 +1,97 @@
+package net.sf.rails.algorithms;
+
+import static net.sf.rails.algorithms.RevenueTestGames.GAMES;
+import static net.sf.rails.algorithms.RevenueTestGames.createAdapter;
+import static net.sf.rails.algorithms.RevenueTestGames.getCompanies;
+import static net.sf.rails.algorithms.RevenueTestGames.loadGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the results of the {@link RevenueBatch} with single calculations
+ * on the final positions of the test games
+ */
+public class RevenueBatchTest {
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    @Test
+    public void testBatchResults() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (String game:GAMES) {
+                RailsRoot root = loadGame(game);
+                // the batch threads have to use the game of the batch, not the game loaded last
+                RailsRoot other = loadGame("1830_A");
+                assertSame(other, RailsRoot.getInstance());
+                RailsRoot.setContext(root);
+
+                for (boolean useMultiGraph:new boolean[] {false, true}) {
+                    RevenueBatch batch = RevenueBatch.create(root, getCompanies(root),
+                            root.getPhaseManager().getCurrentPhase());
+                    Map<PublicCompany, RevenueBatch.Result> results = batch.calculate(useMultiGraph, executor);
+                    assertEquals(game, getCompanies(root), Lists.newArrayList(results.keySet()));
+
+                    for (PublicCompany company:getCompanies(root)) {
+                        String text = game + " " + company.getId() + " multigraph=" + useMultiGraph;
+                        RevenueAdapter single = createAdapter(root, company, null, useMultiGraph);
+                        assertEquals(text, single.calculateRevenue(), results.get(company).getValue());
+                        assertTrue(text, results.get(company).isFinalResult());
+                    }
+                }
+
+                // the threads of the executor are not bound to a game afterwards
+                assertNull(game, executor.submit(new Callable<RailsRoot>() {
+                    public RailsRoot call() {
+                        return RailsRoot.getBoundInstance();
+                    }
+                }).get());
+                assertSame(root, RailsRoot.getBoundInstance());
+                // without a bound game there is no game of the thread
+                assertTrue(game, executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        try {
+                            RailsRoot.getInstance();
+                            return false;
+                        } catch (IllegalStateException e) {
+                            return true;
+                        }
+                    }
+                }).get());
+
+                RailsRoot.setContext(other);
+                RailsRoot.clearInstance();
+                RailsRoot.setContext(root);
+                RailsRoot.clearInstance();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package net.sf.rails.algorithms;
+
+import static net.sf.rails.algorithms.RevenueTestGames.GAMES;
+import static net.sf.rails.algorithms.RevenueTestGames.createAdapter;
+import static net.sf.rails.algorithms.RevenueTestGames.getCompanies;
+import static net.sf.rails.algorithms.RevenueTestGames.loadGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+
+/**
+ * Compares the revenue results of the {@link RevenueCache} with uncached calculations
+ * on the final positions of the test games
+ */
+public class RevenueCacheTest {
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    @Test
+    public void testCachedResults() {
+        for (String game:GAMES) {
+            RailsRoot root = loadGame(game);
+            for (boolean useMultiGraph:new boolean[] {false, true}) {
+                RevenueCache cache = RevenueCache.create();
+                List<PublicCompany> companies = getCompanies(root);
+                for (PublicCompany company:companies) {
+                    String text = game + " " + company.getId() + " multigraph=" + useMultiGraph;
+
+                    RevenueAdapter uncached = createAdapter(root, company, null, useMultiGraph);
+                    int value = uncached.calculateRevenue();
+
+                    RevenueAdapter miss = createAdapter(root, company, cache, useMultiGraph);
+                    assertFalse(text, miss.isCachedResult());
+                    assertEquals(text, value, miss.calculateRevenue());
+                    // the modifiers are prepared for the last adapter only
+                    String optimalRun = miss.getOptimalRunPrettyPrint(true);
+
+                    RevenueAdapter hit = createAdapter(root, company, cache, useMultiGraph);
+                    assertTrue(text, hit.isCachedResult());
+                    assertEquals(text, value, hit.calculateRevenue());
+                    assertTrue(text, hit.isFinalResult());
+                    // runs of equal value can differ between calculations, thus compare with the stored run
+                    assertEquals(text, optimalRun, hit.getOptimalRunPrettyPrint(true));
+
+                    // the stored runs use the trains and vertices of the new adapter
+                    for (RevenueTrainRun run:hit.getOptimalRun()) {
+                        assertTrue(text, containsSame(hit.getTrains(), run.getTrain()));
+                        for (NetworkVertex vertex:run.getRunVertices()) {
+                            assertTrue(text + " " + vertex, containsSame(hit.getVertices(), vertex));
+                        }
+                    }
+                }
+                assertEquals(game, companies.size(), cache.getHits());
+                assertEquals(game, companies.size(), cache.getMisses());
+            }
+            RailsRoot.clearInstance();
+        }
+    }
+
+    private static boolean containsSame(Iterable<?> objects, Object object) {
+        for (Object element:objects) {
+            if (element == object) return true;
+        }
+        return false;
+    }
+
+    private static RevenueDynamicModifier modifier(String state) {
+        RevenueDynamicModifier modifier = mock(RevenueDynamicModifier.class,
+                withSettings().extraInterfaces(RevenueModifierState.class));
+        when(((RevenueModifierState) modifier).getModifierState()).thenReturn(state);
+        return modifier;
+    }
+
+    @Test
+    public void testModifierState() {
+        RailsRoot root = loadGame("1830_A");
+        PublicCompany company = getCompanies(root).get(0);
+        RevenueAdapter revenueAdapter = createAdapter(root, company, null, false);
+        List<RevenueStaticModifier> noStaticModifiers = Collections.emptyList();
+
+        HashCode fingerprint = RevenueCache.fingerprint(revenueAdapter, false, noStaticModifiers,
+                ImmutableList.of(modifier("bonus=10")));
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, RevenueCache.fingerprint(revenueAdapter, false, noStaticModifiers,
+                ImmutableList.of(modifier("bonus=10"))));
+        assertNotEquals(fingerprint, RevenueCache.fingerprint(revenueAdapter, false, noStaticModifiers,
+                ImmutableList.of(modifier("bonus=20"))));
+
+        // without state the calculation is not cached
+        RevenueDynamicModifier withoutState = mock(RevenueDynamicModifier.class);
+        assertNull(RevenueCache.fingerprint(revenueAdapter, false, noStaticModifiers,
+                ImmutableList.of(modifier("bonus=10"), withoutState)));
+    }
+
+}
@@ -0,0 +1,99 @@
+package net.sf.rails.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+/**
+ * JMH benchmark of the revenue calculation on the final (late-game) positions of the test games
+ *
+ * It calculates the revenues of all operating companies of a saved game and reports
+ * the calls (revenue calculations) and the evaluations (runs evaluated by the calculator) per second.
+ *
+ * Run from the project directory after mvn test-compile:
+ * java -cp target/test-classes:target/classes:(test classpath) org.openjdk.jmh.Main RevenueCalculatorBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RevenueCalculatorBenchmark {
+
+    @Param({"1830_A", "1835_KoIT3", "1856_A", "1880_ATG1", "1889_A", "18EU_A"})
+    public String game;
+
+    @Param({"true", "false"})
+    public boolean multiGraph;
+
+    @Param({"false", "true"})
+    public boolean reachabilityBounds;
+
+    private RailsRoot root;
+    private final List<PublicCompany> companies = new ArrayList<PublicCompany>();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long evaluations;
+    }
+
+    @Setup(Level.Trial)
+    public void loadGame() {
+        ConfigManager.initConfiguration(true);
+
+        File gameFile = new File(Config.get("save.directory") + File.separator + "real"
+                + File.separator + game + "." + Config.get("save.filename.extension"));
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createFromFile(gameFile)) {
+            throw new IllegalStateException("Cannot load " + gameFile.getAbsolutePath());
+        }
+        root = gameLoader.getRoot();
+
+        // all companies that are able to run
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.isClosed() || !company.hasFloated()
+                    || company.getPortfolioModel().getTrainList().isEmpty()) continue;
+            companies.add(company);
+        }
+    }
+
+    @Benchmark
+    public int calculateRevenues(Counters counters) {
+        int revenue = 0;
+        for (PublicCompany company:companies) {
+            RevenueAdapter revenueAdapter = RevenueAdapter.createRevenueAdapter(root, company,
+                    root.getPhaseManager().getCurrentPhase());
+            // measure the calculation, not the revenue cache
+            revenueAdapter.setRevenueCache(null);
+            revenueAdapter.setReachabilityBounds(reachabilityBounds);
+            revenueAdapter.initRevenueCalculator(multiGraph);
+            revenue += revenueAdapter.calculateRevenue();
+            counters.evaluations += revenueAdapter.getNumberOfEvaluations();
+        }
+        return revenue;
+    }
+
+}
@@ -0,0 +1,60 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+/**
+ * Final positions of the real test games for the revenue tests
+ */
+final class RevenueTestGames {
+
+    static final String[] GAMES = {"1830_A", "1856_A", "1880_ATG1", "1889_A", "18AL_A", "18EU_A"};
+
+    private RevenueTestGames() {}
+
+    /**
+     * Loads the game (the configuration has to be initialized)
+     */
+    static RailsRoot loadGame(String game) {
+        File gameFile = new File(Config.get("save.directory") + File.separator + "real"
+                + File.separator + game + "." + Config.get("save.filename.extension"));
+        GameLoader gameLoader = new GameLoader();
+        assertTrue("Load of " + game + " failed", gameLoader.createFromFile(gameFile));
+        return gameLoader.getRoot();
+    }
+
+    /**
+     * @return all companies that are able to run
+     */
+    static List<PublicCompany> getCompanies(RailsRoot root) {
+        List<PublicCompany> companies = new ArrayList<PublicCompany>();
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.isClosed() || !company.hasFloated()
+                    || company.getPortfolioModel().getTrainList().isEmpty()) continue;
+            companies.add(company);
+        }
+        return companies;
+    }
+
+    /**
+     * @return revenue adapter of the company with an initialized calculator
+     * @param cache revenue cache, null to disable caching
+     */
+    static RevenueAdapter createAdapter(RailsRoot root, PublicCompany company, RevenueCache cache,
+            boolean useMultiGraph) {
+        RevenueAdapter revenueAdapter = RevenueAdapter.createRevenueAdapter(root, company,
+                root.getPhaseManager().getCurrentPhase());
+        revenueAdapter.setRevenueCache(cache);
+        revenueAdapter.initRevenueCalculator(useMultiGraph);
+        return revenueAdapter;
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.sf.rails.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HexSidesSetTest {
+
+    private HexSidesSet sides(int... numbers) {
+        HexSidesSet.Builder builder = HexSidesSet.builder();
+        for (int number:numbers) {
+            builder.set(HexSide.get(number));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testMask() {
+        assertEquals(0, HexSidesSet.create().getMask());
+        assertEquals(0x23, sides(0, 1, 5).getMask());
+        HexSidesSet fromMask = HexSidesSet.createFromMask(0x23);
+        assertTrue(fromMask.get(HexSide.get(0)));
+        assertTrue(fromMask.get(HexSide.get(5)));
+        assertFalse(fromMask.get(HexSide.get(2)));
+        assertTrue(HexSidesSet.createFromMask(0).isEmpty());
+    }
+
+    @Test
+    public void testRotateMask() {
+        assertEquals(0x23, HexSidesSet.rotateMask(0x23, HexSide.get(0)));
+        // sides 0, 1, 5 rotated by 2 => sides 2, 3, 1
+        assertEquals(sides(1, 2, 3).getMask(), HexSidesSet.rotateMask(0x23, HexSide.get(2)));
+        for (int r = 0; r < 6; r++) {
+            assertEquals(HexSidesSet.ALL_SIDES, HexSidesSet.rotateMask(HexSidesSet.ALL_SIDES, HexSide.get(r)));
+        }
+    }
+
+    @Test
+    public void testRotated() {
+        // rotated by the negative rotation
+        HexSidesSet rotated = HexSidesSet.rotated(sides(0, 3), HexSide.get(1));
+        assertEquals(sides(5, 2).getMask(), rotated.getMask());
+    }
+
+}
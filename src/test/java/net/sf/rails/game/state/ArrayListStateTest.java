@@ -203,6 +203,15 @@ public class ArrayListStateTest {
     public void testView() {
         ImmutableList<Item> list = ImmutableList.of(oneItem);
         assertEquals(list, stateInit.view());
+        // the view is shared until the next change
+        assertSame(stateInit.view(), stateInit.view());
+        ImmutableList<Item> view = stateInit.view();
+        stateInit.add(anotherItem);
+        assertEquals(list, view);
+        assertEquals(ImmutableList.of(oneItem, anotherItem), stateInit.view());
+        // undo creates a new view as well
+        StateTestUtils.closeAndUndo(root);
+        assertEquals(list, stateInit.view());
     }
 
     @Test
@@ -10,11 +10,16 @@ import net.sf.rails.game.state.ChangeSet;
 import net.sf.rails.game.state.ChangeStack;
 import net.sf.rails.game.state.Root;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChangeStackTest {
@@ -65,6 +70,24 @@ public class ChangeStackTest {
         assertEquals(3, changeStack.getCurrentIndex());
     }
 
+    @Test
+    public void testStatesOfChangeSet() {
+        BooleanState otherState = BooleanState.create(root, "Other");
+        // the creation of the state is recorded in its own ChangeSet
+        StateTestUtils.close(root);
+        state.set(false);
+        otherState.set(true);
+        state.set(true);
+        StateTestUtils.close(root);
+        ChangeSet set_4 = changeStack.getClosedChangeSet();
+        assertEquals(3, set_4.getNumberOfChanges());
+        assertEquals(ImmutableList.of(state, otherState), set_4.getStates().asList());
+        // the next ChangeSet starts without changes
+        otherState.set(false);
+        StateTestUtils.close(root);
+        assertEquals(ImmutableSet.of(otherState), changeStack.getClosedChangeSet().getStates());
+    }
+
     private void testUndoAfterClose() {
         // check current state
         assertTrue(state.value());
@@ -131,4 +154,115 @@ public class ChangeStackTest {
         testUndoAfterClose();
     }
 
+    private IntegerState closeIntegerChanges(int nbChangeSets) {
+        IntegerState integer = IntegerState.create(root, "Integer");
+        for (int i = 1; i <= nbChangeSets; i++) {
+            integer.set(i);
+            state.set(!state.value());
+            StateTestUtils.close(root);
+        }
+        return integer;
+    }
+
+    @Test
+    public void testRetentionPolicy() {
+        changeStack.setRetentionPolicy(4, 0);
+        int nbChanges = changeStack.getNumberOfChanges();
+        IntegerState integer = closeIntegerChanges(10);
+        assertEquals(13, changeStack.getCurrentIndex());
+        assertEquals(13, changeStack.getMaximumIndex());
+        assertEquals(10, integer.value());
+        // collapsed changes of the same state are merged (two changes per changeSet)
+        assertThat(changeStack.getMemoryReport()).contains("checkpoint 2-10 with 6 changes");
+        // the checkpoint replaces the single changes of set_2 and set_3,
+        // the retained changeSets 11-13 keep their two changes each
+        assertEquals(nbChanges - 2 + 6 + 3 * 2, changeStack.getNumberOfChanges());
+
+        // undo the retained changeSets one by one
+        while (!changeStack.getClosedChangeSet().isCompacted()) {
+            changeStack.undo();
+        }
+        int checkpointIndex = changeStack.getCurrentIndex();
+        assertEquals(checkpointIndex - 3, integer.value());
+
+        // undo of the checkpoint returns to the initial changeSet
+        changeStack.undo();
+        assertEquals(1, changeStack.getCurrentIndex());
+        assertSame(set_1, changeStack.getClosedChangeSet());
+        assertEquals(0, integer.value());
+        assertTrue(state.value());
+        assertFalse(changeStack.isUndoPossible());
+
+        // redo of the checkpoint
+        changeStack.redo(2);
+        assertEquals(checkpointIndex, changeStack.getCurrentIndex());
+        assertEquals(checkpointIndex - 3, integer.value());
+        changeStack.redo(13);
+        assertEquals(10, integer.value());
+    }
+
+    @Test
+    public void testRetentionPolicyBytes() {
+        changeStack.setRetentionPolicy(0, 10 * ChangeStack.ESTIMATED_CHANGE_SIZE);
+        closeIntegerChanges(20);
+        assertEquals(23, changeStack.getCurrentIndex());
+        assertThat(changeStack.getEstimatedSize()).isLessThan(
+                23 * ChangeStack.ESTIMATED_CHANGESET_SIZE + 41 * ChangeStack.ESTIMATED_CHANGE_SIZE);
+    }
+
+    @Test
+    public void testUndoIntoCheckpoint() {
+        changeStack.setRetentionPolicy(4, 0);
+        final IntegerState integer = closeIntegerChanges(10);
+        changeStack.addChangeReplayer(new ChangeReplayer() {
+            public boolean replay(List<ChangeAction> actions) {
+                for (ChangeAction action:actions) {
+                    // value of the next changeSet
+                    integer.set(Math.max(0, changeStack.getCurrentIndex() - 2));
+                    state.set(!state.value());
+                    changeStack.close(action);
+                }
+                return true;
+            }
+        });
+
+        // index 6 is collapsed: undo to the start of the checkpoint and replay
+        changeStack.undo(6);
+        assertEquals(6, changeStack.getCurrentIndex());
+        assertEquals(3, integer.value());
+        assertFalse(changeStack.getClosedChangeSet().isCompacted());
+        changeStack.undo();
+        assertEquals(2, integer.value());
+    }
+
+    @Test
+    public void testRedoAfterUndoIntoCheckpoint() {
+        changeStack.setRetentionPolicy(4, 0);
+        final IntegerState integer = closeIntegerChanges(10);
+        boolean stateValue = state.value();
+        changeStack.addChangeReplayer(new ChangeReplayer() {
+            public boolean replay(List<ChangeAction> actions) {
+                for (ChangeAction action:actions) {
+                    integer.set(Math.max(0, changeStack.getCurrentIndex() - 2));
+                    state.set(!state.value());
+                    changeStack.close(action);
+                }
+                return true;
+            }
+        });
+
+        changeStack.undo(6);
+        assertEquals(6, changeStack.getCurrentIndex());
+        assertEquals(13, changeStack.getMaximumIndex());
+        assertTrue(changeStack.isRedoPossible());
+
+        // redo the replayed and the retained changeSets
+        changeStack.redo();
+        assertEquals(4, integer.value());
+        changeStack.redo(13);
+        assertEquals(10, integer.value());
+        assertEquals(stateValue, state.value());
+        assertFalse(changeStack.isRedoPossible());
+    }
+
 }
@@ -101,6 +101,12 @@ public class HashMultimapStateTest {
         initState();
         assertThat(state.get(ITEM_A_ID)).containsOnly(itemA, itemB, itemC);
         assertThat(state.get(ITEM_C_ID)).containsOnly(itemC);
+        // the copy is shared until the next change
+        assertSame(state.get(ITEM_C_ID), state.get(ITEM_C_ID));
+        state.put(ITEM_C_ID, itemA);
+        assertThat(state.get(ITEM_C_ID)).containsOnly(itemA, itemC);
+        StateTestUtils.closeAndUndo(root);
+        assertThat(state.get(ITEM_C_ID)).containsOnly(itemC);
     }
 
     @Test
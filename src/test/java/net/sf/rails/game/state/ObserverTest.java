@@ -2,6 +2,7 @@ package net.sf.rails.game.state;
 
 import static org.mockito.Mockito.*;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
 
 import net.sf.rails.game.state.BooleanState;
 import net.sf.rails.game.state.Observer;
@@ -13,6 +14,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.ImmutableMap;
+
 @RunWith(MockitoJUnitRunner.class)
 public class ObserverTest {
     
@@ -38,4 +41,23 @@ public class ObserverTest {
         verify(observer).update(state.toText());
     }
 
+    @Test
+    public void testDeferredUpdate() {
+        StateManager stateManager = root.getStateManager();
+        stateManager.deferObserverUpdates(true);
+        state.set(true);
+        StateTestUtils.close(root);
+        state.set(false);
+        StateTestUtils.close(root);
+        verify(observer, never()).update(anyString());
+        // only the latest text is kept
+        assertEquals(ImmutableMap.of(observer, state.toText()), stateManager.takeObserverUpdates());
+        assertThat(stateManager.takeObserverUpdates()).isEmpty();
+        
+        stateManager.deferObserverUpdates(false);
+        state.set(true);
+        StateTestUtils.close(root);
+        verify(observer).update(state.toText());
+    }
+
 }
@@ -0,0 +1,94 @@
+package net.sf.rails.game.state;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * JMH benchmark of the model update order of the StateManager on long test games
+ *
+ * replayGame measures the load and replay of the complete game,
+ * updateModels requests the models to update for each state of the replayed game
+ * (as informTriggers does for each change) and for all states at once (as a close after a long undo).
+ *
+ * Run from the project directory after mvn test-compile:
+ * java -cp target/test-classes:target/classes:(test classpath) org.openjdk.jmh.Main StateManagerBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StateManagerBenchmark {
+
+    @Param({"1835_KoIT3", "1856_A", "18EU_A"})
+    public String game;
+
+    private File gameFile;
+    private StateManager stateManager;
+    private List<State> states;
+
+    @Setup(Level.Trial)
+    public void loadGame() {
+        ConfigManager.initConfiguration(true);
+
+        gameFile = new File(Config.get("save.directory") + File.separator + "real"
+                + File.separator + game + "." + Config.get("save.filename.extension"));
+        RailsRoot root = replay();
+        stateManager = root.getStateManager();
+        states = Lists.newArrayList(stateManager.getAllStates());
+    }
+
+    @TearDown(Level.Trial)
+    public void clearGame() {
+        RailsRoot.clearInstance();
+    }
+
+    private RailsRoot replay() {
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createFromFile(gameFile)) {
+            throw new IllegalStateException("Cannot load " + gameFile.getAbsolutePath());
+        }
+        return gameLoader.getRoot();
+    }
+
+    @Benchmark
+    public RailsRoot replayGame() {
+        RailsRoot root = replay();
+        RailsRoot.clearInstance();
+        return root;
+    }
+
+    @Benchmark
+    public int updateModels() {
+        int models = 0;
+        for (State state:states) {
+            models += stateManager.getModelsToUpdate(ImmutableList.of(state)).size();
+        }
+        models += stateManager.getModelsToUpdate(states).size();
+        return models;
+    }
+
+}
@@ -168,6 +168,25 @@ public class StateManagerTest {
           }
     }
 
+    @Test
+    public void testModelOrderAfterChanges() {
+        assertObservables(ImmutableList.of(m_B2, m_C2),ImmutableSet.of(m_B2));
+        // the close updates the observers of all states created in setUp, thus remove the cycle of E and F
+        m_F.removeModel(m_E);
+        StateTestUtils.close(root);
+        // C3 <= C2 added
+        m_C2.addModel(m_C3);
+        assertObservables(ImmutableList.of(m_B2, m_C2, m_C3),ImmutableSet.of(m_B2));
+        assertObservables(ImmutableList.of(m_A1, m_A3, m_B1, m_B2, m_C1, m_C2, m_C3, m_D),
+                ImmutableSet.of(m_A1, m_A3));
+        // undo restores the previous order
+        StateTestUtils.closeAndUndo(root);
+        assertObservables(ImmutableList.of(m_B2, m_C2),ImmutableSet.of(m_B2));
+        // C2 <= B2 removed
+        m_B2.removeModel(m_C2);
+        assertObservables(ImmutableList.of(m_B2),ImmutableSet.of(m_B2));
+    }
+
     @Test
     public void testUpdateObservers() {
         sm.updateObservers(ImmutableSet.of(m_A1.getState()));
@@ -0,0 +1,228 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.ActionCodec;
+import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.GameLoader.RailsObjectInputStream;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * Encodes the actions of all test games with the ActionCodec and compares them
+ * to the Java serialization
+ */
+public class ActionCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionCodecTest.class);
+
+    private static File dataDirectory;
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+        dataDirectory = new File(Config.get("save.directory"));
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static void findGameFiles(File directory, List<File> gameFiles) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file:files) {
+            if (file.isDirectory()) {
+                findGameFiles(file, gameFiles);
+            } else if (file.getName().endsWith("." + Config.get("save.filename.extension"))) {
+                gameFiles.add(file);
+            }
+        }
+    }
+
+    /**
+     * Compares the serializable fields of two actions
+     */
+    private static void assertFieldsEqual(String message, PossibleAction expected, PossibleAction actual)
+            throws Exception {
+        for (Class<?> c = expected.getClass(); Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            for (ObjectStreamField streamField:ObjectStreamClass.lookup(c).getFields()) {
+                Field field = c.getDeclaredField(streamField.getName());
+                field.setAccessible(true);
+                assertTrue(message + " field " + field.getName(), Objects.deepEquals(field.get(expected),
+                        field.get(actual)));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<File> gameFiles = new ArrayList<File>();
+        findGameFiles(dataDirectory, gameFiles);
+        assertTrue(gameFiles.size() > 0);
+
+        long serializedSize = 0, encodedSize = 0, serializedNanos = 0, encodedNanos = 0;
+        for (File gameFile:gameFiles) {
+            GameLoader gameLoader = new GameLoader();
+            // some games of the bug folder cannot be replayed completely, but their actions are loaded
+            gameLoader.createFromFile(gameFile);
+            List<PossibleAction> actions = gameLoader.getActions();
+
+            // current format: one object stream
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bytes);
+            for (PossibleAction action:actions) {
+                oos.writeObject(action);
+            }
+            oos.close();
+            byte[] serialized = bytes.toByteArray();
+
+            // codec: definitions and records
+            ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+            List<byte[]> records = new ArrayList<byte[]>();
+            ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+            int size = 0;
+            for (PossibleAction action:actions) {
+                byte[] record = encoder.encode(action);
+                byte[] newDefinitions = encoder.takeDefinitions();
+                definitions.write(newDefinitions);
+                records.add(record);
+                size += record.length;
+            }
+            size += definitions.size();
+
+            long start = System.nanoTime();
+            ObjectInputStream ois = new RailsObjectInputStream(gameLoader, new ByteArrayInputStream(serialized));
+            List<PossibleAction> serializedCopies = new ArrayList<PossibleAction>();
+            for (int i = 0; i < actions.size(); i++) {
+                serializedCopies.add((PossibleAction) ois.readObject());
+            }
+            ois.close();
+            long middle = System.nanoTime();
+            ActionCodec.Decoder decoder = new ActionCodec.Decoder(gameLoader.getRoot());
+            decoder.define(definitions.toByteArray());
+            List<PossibleAction> encodedCopies = new ArrayList<PossibleAction>();
+            for (byte[] record:records) {
+                encodedCopies.add(decoder.decode(record));
+            }
+            long end = System.nanoTime();
+
+            for (int i = 0; i < actions.size(); i++) {
+                String message = gameFile.getName() + " action " + i;
+                assertEquals(message, actions.get(i).getClass(), encodedCopies.get(i).getClass());
+                assertFieldsEqual(message, serializedCopies.get(i), encodedCopies.get(i));
+            }
+
+            serializedSize += serialized.length;
+            encodedSize += size;
+            serializedNanos += middle - start;
+            encodedNanos += end - middle;
+            RailsRoot.clearInstance();
+        }
+
+        log.info("ActionCodec: " + gameFiles.size() + " games, size " + serializedSize + " => " + encodedSize
+                + " bytes, decode " + TimeUnit.NANOSECONDS.toMillis(serializedNanos) + " => "
+                + TimeUnit.NANOSECONDS.toMillis(encodedNanos) + " ms");
+        assertTrue("Encoded size " + encodedSize + " >= serialized size " + serializedSize,
+                encodedSize < serializedSize);
+    }
+
+    /**
+     * @return the definitions with a replaced string definition (both strings shorter than 128 bytes)
+     */
+    private static byte[] replaceString(byte[] definitions, String string, String replacement) {
+        Charset utf8 = Charset.forName("UTF-8");
+        byte[] search = string.getBytes(utf8);
+        for (int i = 1; i + search.length <= definitions.length; i++) {
+            if (definitions[i - 1] == search.length
+                    && Arrays.equals(search, Arrays.copyOfRange(definitions, i, i + search.length))) {
+                byte[] bytes = replacement.getBytes(utf8);
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                result.write(definitions, 0, i - 1);
+                result.write(bytes.length);
+                result.write(bytes, 0, bytes.length);
+                result.write(definitions, i + search.length, definitions.length - i - search.length);
+                return result.toByteArray();
+            }
+        }
+        throw new AssertionError("String " + string + " not found");
+    }
+
+    @Test
+    public void testClassNotAllowed() throws Exception {
+        List<File> gameFiles = new ArrayList<File>();
+        findGameFiles(dataDirectory, gameFiles);
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(gameFiles.get(0)));
+        PossibleAction action = gameLoader.getActions().get(0);
+
+        ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+        byte[] record = encoder.encode(action);
+        byte[] definitions = replaceString(encoder.takeDefinitions(), action.getClass().getName(),
+                "java.util.PriorityQueue");
+
+        ActionCodec.Decoder decoder = new ActionCodec.Decoder(gameLoader.getRoot());
+        decoder.define(definitions);
+        try {
+            decoder.decode(record);
+            fail("Decoded a class that is not allowed");
+        } catch (InvalidClassException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownVersion() throws Exception {
+        List<File> gameFiles = new ArrayList<File>();
+        findGameFiles(dataDirectory, gameFiles);
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(gameFiles.get(0)));
+        PossibleAction action = gameLoader.getActions().get(0);
+
+        ActionCodec.Encoder encoder = new ActionCodec.Encoder();
+        byte[] record = encoder.encode(action);
+        // the id of the class name is followed by the version of the fields of PossibleAction
+        assertEquals(1, record[1]);
+        record[1] = 2;
+
+        ActionCodec.Decoder decoder = new ActionCodec.Decoder(gameLoader.getRoot());
+        decoder.define(encoder.takeDefinitions());
+        try {
+            decoder.decode(record);
+            fail("Decoded fields of an unknown version");
+        } catch (InvalidObjectException e) {
+            // expected
+        }
+    }
+
+}
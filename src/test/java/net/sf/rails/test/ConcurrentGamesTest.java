@@ -0,0 +1,113 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Stress test that replays several games concurrently in one JVM
+ * Each game has to create the same report as if it was played alone.
+ */
+public class ConcurrentGamesTest {
+
+    private static final String[] GAMES = {"1830_A", "1835_KoIT3", "1856_A", "1889_A", "18EU_A"};
+    private static final int COPIES = 2;
+    private static final int THREADS = 4;
+
+    private static String gamePath;
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+        gamePath = Config.get("save.directory") + File.separator + "real";
+    }
+
+    private static List<String> readReport(String gameName) throws Exception {
+        Scanner reportScanner = new Scanner(new FileReader(gamePath + File.separator + gameName
+                + "." + Config.get("report.filename.extension")));
+        List<String> report = new ArrayList<String>();
+        while (reportScanner.hasNext()) {
+            report.add(reportScanner.nextLine());
+        }
+        reportScanner.close();
+        return report;
+    }
+
+    private static final class GameRun implements Callable<RailsRoot> {
+        private final String gameName;
+        private final CountDownLatch start;
+
+        private GameRun(String gameName, CountDownLatch start) {
+            this.gameName = gameName;
+            this.start = start;
+        }
+
+        public RailsRoot call() throws Exception {
+            List<String> expectedReport = readReport(gameName);
+            start.await();
+            try {
+                GameLoader gameLoader = new GameLoader();
+                File gameFile = new File(gamePath + File.separator + gameName
+                        + "." + Config.get("save.filename.extension"));
+                assertTrue("Load of " + gameName + " failed", gameLoader.createFromFile(gameFile));
+                RailsRoot root = gameLoader.getRoot();
+                // the thread is bound to its own game
+                assertSame(root, RailsRoot.getInstance());
+                assertEquals("Report of " + gameName, expectedReport,
+                        root.getReportManager().getReportBuffer().getAsList());
+                return root;
+            } finally {
+                RailsRoot.clearInstance();
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentGames() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<RailsRoot>> futures = new ArrayList<Future<RailsRoot>>();
+            for (int copy = 0; copy < COPIES; copy++) {
+                for (String gameName : GAMES) {
+                    futures.add(executor.submit(new GameRun(gameName, start)));
+                }
+            }
+            start.countDown();
+
+            Set<RailsRoot> roots = Sets.newIdentityHashSet();
+            for (Future<RailsRoot> future : futures) {
+                RailsRoot root = future.get();
+                assertNotNull(root);
+                roots.add(root);
+            }
+            assertEquals(GAMES.length * COPIES, roots.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
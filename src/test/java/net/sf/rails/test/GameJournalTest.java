@@ -0,0 +1,221 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.ActionHashChain;
+import net.sf.rails.util.GameJournal;
+import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.GameSaver;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rails.game.action.GameAction;
+import rails.game.action.PossibleAction;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Saves games as journal and checks that they replay like the original save files
+ */
+public class GameJournalTest {
+
+    private static final String[] GAMES = {"1830_A", "1856_A", "18EU_A"};
+
+    private static String gamePath;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+        gamePath = Config.get("save.directory") + File.separator + "real";
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static List<String> readReport(String gameName) throws Exception {
+        Scanner reportScanner = new Scanner(new FileReader(gamePath + File.separator + gameName
+                + "." + Config.get("report.filename.extension")));
+        List<String> report = new ArrayList<String>();
+        while (reportScanner.hasNext()) {
+            report.add(reportScanner.nextLine());
+        }
+        reportScanner.close();
+        return report;
+    }
+
+    private static GameLoader load(File gameFile) {
+        GameLoader gameLoader = new GameLoader();
+        assertTrue("Load of " + gameFile + " failed", gameLoader.createFromFile(gameFile));
+        return gameLoader;
+    }
+
+    private File createJournal(String gameName) throws Exception {
+        GameLoader gameLoader = load(new File(gamePath + File.separator + gameName
+                + "." + Config.get("save.filename.extension")));
+        List<PossibleAction> actions = gameLoader.getActions();
+        RailsRoot.clearInstance();
+
+        File journalFile = folder.newFile(gameName + ".rails");
+        int start = actions.size() / 2;
+        GameJournal journal = new GameSaver(gameLoader).createJournal(journalFile, GameJournal.Sync.NEVER);
+        // add actions, undo some of them and continue
+        journal.update(actions.subList(0, start), null);
+        journal.update(actions.subList(0, start / 2), null);
+        journal.update(actions, null);
+        assertEquals(actions.size(), journal.size());
+        journal.close();
+        return journalFile;
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        for (String gameName:GAMES) {
+            File journalFile = createJournal(gameName);
+            GameLoader gameLoader = load(journalFile);
+            assertEquals("Report of " + gameName, readReport(gameName),
+                    gameLoader.getRoot().getReportManager().getReportBuffer().getAsList());
+            RailsRoot.clearInstance();
+        }
+    }
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        File journalFile = createJournal(GAMES[0]);
+        GameLoader complete = load(journalFile);
+        int nbActions = complete.getActions().size();
+        RailsRoot.clearInstance();
+
+        // simulate a crash during the write of the last record
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        file.setLength(file.length() - 3);
+        file.close();
+        GameLoader incomplete = load(journalFile);
+        assertEquals(nbActions - 1, incomplete.getActions().size());
+    }
+
+    private static void append(File journalFile, int length, byte type, int value) throws Exception {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true));
+        out.writeInt(length);
+        out.writeByte(type);
+        out.writeInt(value);
+        out.close();
+    }
+
+    @Test
+    public void testInvalidRecords() throws Exception {
+        File journalFile = createJournal(GAMES[0]);
+        GameLoader complete = load(journalFile);
+        int nbActions = complete.getActions().size();
+        RailsRoot.clearInstance();
+
+        // truncate record (type 2) to more actions than stored
+        append(journalFile, 4, (byte) 2, nbActions + 1);
+        // record with a negative length
+        append(journalFile, -1, (byte) 1, 0);
+        GameLoader invalid = load(journalFile);
+        assertEquals(nbActions, invalid.getActions().size());
+        RailsRoot.clearInstance();
+
+        // record with a huge length
+        File hugeFile = createJournal(GAMES[1]);
+        append(hugeFile, Integer.MAX_VALUE, (byte) 1, 0);
+        load(hugeFile);
+    }
+
+    @Test
+    public void testActionHashes() throws Exception {
+        File journalFile = createJournal(GAMES[0]);
+        GameLoader journalLoader = load(journalFile);
+        long[] hashes = ActionHashChain.of(journalLoader.getActions()).toArray();
+        assertArrayEquals("Journal hashes", hashes, journalLoader.getActionHashes());
+        assertArrayEquals("Game hashes", hashes,
+                journalLoader.getRoot().getGameManager().getActionHashes().toArray());
+
+        File saveFile = folder.newFile(GAMES[0] + "_hashed.rails");
+        new GameSaver(journalLoader).saveGame(saveFile);
+        RailsRoot.clearInstance();
+        GameLoader saveLoader = load(saveFile);
+        assertArrayEquals("Save file hashes", hashes, saveLoader.getActionHashes());
+    }
+
+    /**
+     * @return positions of the segments of a save file, read via the footer
+     */
+    private static long[] readSegments(File saveFile) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(saveFile, "r");
+        file.seek(file.length() - 16);
+        long hashesPosition = file.readLong();
+        file.close();
+        FileInputStream in = new FileInputStream(saveFile);
+        in.getChannel().position(hashesPosition);
+        ObjectInputStream ois = new ObjectInputStream(new SequenceInputStream(
+                new ByteArrayInputStream(new byte[] {(byte) 0xAC, (byte) 0xED, 0x00, 0x05}), in));
+        ois.readObject(); // action hashes
+        long[] segments = (long[]) ois.readObject();
+        ois.close();
+        return segments;
+    }
+
+    @Test
+    public void testReloadSegments() throws Exception {
+        String gameName = GAMES[0];
+        GameLoader gameLoader = load(new File(gamePath + File.separator + gameName
+                + "." + Config.get("save.filename.extension")));
+        List<PossibleAction> actions = gameLoader.getActions();
+        File saveFile = folder.newFile(gameName + "_segments.rails");
+        new GameSaver(gameLoader).saveGame(saveFile);
+        int half = actions.size() / 2;
+        File halfFile = folder.newFile(gameName + "_half.rails");
+        new GameSaver(gameLoader.getRoot().getGameData(), actions.subList(0, half)).saveGame(halfFile);
+        RailsRoot.clearInstance();
+
+        // corrupt the first segment: the full load fails, the reload does not read it
+        long[] segments = readSegments(saveFile);
+        // with more than two segments the half game covers the first segment
+        assertTrue("Segments of " + gameName, segments.length > 2);
+        RandomAccessFile file = new RandomAccessFile(saveFile, "rw");
+        file.seek(segments[0]);
+        file.write(new byte[16]);
+        file.close();
+        assertFalse("Load of corrupted file", new GameLoader().createFromFile(saveFile));
+        RailsRoot.clearInstance();
+
+        GameLoader halfLoader = load(halfFile);
+        RailsRoot root = halfLoader.getRoot();
+        GameAction reload = new GameAction(GameAction.Mode.RELOAD);
+        reload.setFilepath(saveFile.getPath());
+        assertTrue("Reload", root.getGameManager().process(reload));
+        assertEquals(actions.size(), root.getGameManager().getActionHashes().size());
+        assertEquals("Report of reloaded " + gameName, readReport(gameName),
+                root.getReportManager().getReportBuffer().getAsList());
+    }
+
+
+}
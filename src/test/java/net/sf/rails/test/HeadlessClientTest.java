@@ -0,0 +1,171 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.rails.common.ClientToServer;
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.server.GameChannel;
+import net.sf.rails.server.GameServer;
+import net.sf.rails.tools.HeadlessClient;
+import net.sf.rails.tools.HeadlessClient.Result;
+import net.sf.rails.tools.HeadlessClient.Script;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Plays a test game with the HeadlessClient in-process and by TCP
+ */
+public class HeadlessClientTest {
+
+    private static final String GAME = "1830_A";
+
+    private static File gameFile;
+    private static Script script;
+
+    @BeforeClass
+    public static void setUpScript() throws Exception {
+        ConfigManager.initConfiguration(true);
+        gameFile = new File(Config.get("save.directory") + File.separator + "real"
+                + File.separator + GAME + "." + Config.get("save.filename.extension"));
+        script = Script.load(gameFile);
+        assertTrue(script.size() > 0);
+    }
+
+    private void assertPassed(List<Result> results, int clients) {
+        assertEquals(clients, results.size());
+        for (Result result:results) {
+            assertEquals(result.getError(), -1, result.getRejected());
+            assertEquals(script.size(), result.getActions());
+            assertTrue(result.getModelTexts() > 0);
+        }
+        assertTrue(HeadlessClient.printSummary(results, new PrintStream(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    public void testLoopback() throws Exception {
+        assertPassed(HeadlessClient.run(script, 2, HeadlessClient.loopbackChannels(gameFile)), 2);
+    }
+
+    @Test
+    public void testSocket() throws Exception {
+        GameServer server = new GameServer(0, GameServer.gameFactory(gameFile));
+        server.start();
+        try {
+            assertPassed(HeadlessClient.run(script, 2,
+                    HeadlessClient.socketChannels("127.0.0.1", server.getPort())), 2);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testPossibleActions() throws Exception {
+        GameChannel channel = HeadlessClient.loopbackChannels(gameFile).call();
+        try {
+            ServerToClient answer = channel.send(ClientToServer.create());
+            assertTrue(answer.getResult());
+            assertNotNull(answer.getActionDefinitions());
+            assertFalse(answer.getActionTexts().isEmpty());
+            assertEquals(answer.getActionTexts().size(), answer.getActionRecords().size());
+
+            // execute the first possible action of the start position
+            answer = channel.send(ClientToServer.createFromIndex(0));
+            assertFalse(answer.getActionTexts().isEmpty());
+            if (answer.getResult()) {
+                assertFalse(answer.getModelTexts().isEmpty());
+                assertFalse(answer.getReportUpdates().isEmpty());
+            } else {
+                // actions with open choices (e.g. a bid) require a value from the client
+                assertFalse(answer.getMessages().isEmpty());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testRequestData() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ClientToServer.createFromRecord(new byte[] {1, 2}, new byte[] {3}).setReplay(true)
+                .writeTo(new DataOutputStream(bytes));
+        ClientToServer request = ClientToServer.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertArrayEquals(new byte[] {1, 2}, request.getDefinitions());
+        assertArrayEquals(new byte[] {3}, request.getRecord());
+        assertEquals(-1, request.getActionIndex());
+        assertTrue(request.isReplay());
+
+        // a corrupt length is rejected before any allocation
+        bytes.reset();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBoolean(false);
+        out.writeInt(-1);
+        out.writeInt(Integer.MAX_VALUE);
+        try {
+            ClientToServer.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("Invalid length accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAnswerData() throws Exception {
+        GameChannel channel = HeadlessClient.loopbackChannels(gameFile).call();
+        ServerToClient answer;
+        try {
+            channel.send(ClientToServer.create());
+            answer = channel.send(ClientToServer.createFromIndex(0));
+        } finally {
+            channel.close();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        answer.writeTo(new DataOutputStream(bytes));
+        ServerToClient copy = ServerToClient.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(answer.getResult(), copy.getResult());
+        assertEquals(answer.getModelTexts(), copy.getModelTexts());
+        assertArrayEquals(answer.getActionDefinitions(), copy.getActionDefinitions());
+        assertEquals(answer.getActionRecords().size(), copy.getActionRecords().size());
+        for (int i = 0; i < answer.getActionRecords().size(); i++) {
+            assertArrayEquals(answer.getActionRecords().get(i), copy.getActionRecords().get(i));
+        }
+        assertEquals(answer.getActionTexts(), copy.getActionTexts());
+        assertEquals(answer.getMessages(), copy.getMessages());
+        assertEquals(answer.getReportUpdates().size(), copy.getReportUpdates().size());
+        for (int i = 0; i < answer.getReportUpdates().size(); i++) {
+            assertEquals(answer.getReportUpdates().get(i).getType(), copy.getReportUpdates().get(i).getType());
+            assertEquals(answer.getReportUpdates().get(i).getId(), copy.getReportUpdates().get(i).getId());
+            assertEquals(answer.getReportUpdates().get(i).getText(), copy.getReportUpdates().get(i).getText());
+        }
+
+        // a truncated answer is rejected
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+        try {
+            ServerToClient.readFrom(new DataInputStream(new ByteArrayInputStream(truncated)));
+            fail("Truncated answer accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+
+}
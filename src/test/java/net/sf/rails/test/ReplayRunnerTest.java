@@ -0,0 +1,90 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.tools.ReplayRunner;
+import net.sf.rails.tools.ReplayRunner.Result;
+import net.sf.rails.tools.ReplayRunner.Status;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Replays test games with the ReplayRunner and checks the results
+ */
+public class ReplayRunnerTest {
+
+    private static final String[] GAMES = {"1830_A", "1856_A"};
+
+    private static String gamePath;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+        gamePath = Config.get("save.directory") + File.separator + "real";
+    }
+
+    private File copyGame(String gameName, boolean withReport) throws Exception {
+        String saveFile = gameName + "." + Config.get("save.filename.extension");
+        String reportFile = gameName + "." + Config.get("report.filename.extension");
+        File gameFile = new File(folder.getRoot(), saveFile);
+        FileUtils.copyFile(new File(gamePath, saveFile), gameFile);
+        if (withReport) {
+            FileUtils.copyFile(new File(gamePath, reportFile), new File(folder.getRoot(), reportFile));
+        }
+        return gameFile;
+    }
+
+    @Test
+    public void testPassed() throws Exception {
+        for (String gameName:GAMES) {
+            copyGame(gameName, true);
+        }
+        List<File> gameFiles = new ArrayList<File>();
+        ReplayRunner.findGameFiles(folder.getRoot(), gameFiles);
+        assertEquals(GAMES.length, gameFiles.size());
+
+        List<Result> results = new ReplayRunner(2).run(gameFiles);
+        for (Result result:results) {
+            assertEquals(result.getDifference(), Status.PASSED, result.getStatus());
+            assertTrue(result.getActions() > 0);
+        }
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        assertTrue(ReplayRunner.printSummary(results, new PrintStream(summary)));
+    }
+
+    @Test
+    public void testFailedAndMissingReport() throws Exception {
+        File failedGame = copyGame(GAMES[0], false);
+        // report of another game
+        FileUtils.copyFile(new File(gamePath, GAMES[1] + "." + Config.get("report.filename.extension")),
+                new File(folder.getRoot(), GAMES[0] + "." + Config.get("report.filename.extension")));
+        File unreportedGame = copyGame(GAMES[1], false);
+
+        List<File> gameFiles = new ArrayList<File>();
+        gameFiles.add(failedGame);
+        gameFiles.add(unreportedGame);
+        List<Result> results = new ReplayRunner(2).run(gameFiles);
+        assertEquals(Status.FAILED, results.get(0).getStatus());
+        assertTrue(results.get(0).getDifference().startsWith("line "));
+        assertEquals(Status.NO_REPORT, results.get(1).getStatus());
+        assertFalse(ReplayRunner.printSummary(results, new PrintStream(new ByteArrayOutputStream())));
+    }
+
+}
@@ -0,0 +1,149 @@
+package net.sf.rails.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.rails.algorithms.NetworkAdapter;
+import net.sf.rails.algorithms.NetworkGraph;
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameOption;
+import net.sf.rails.game.GameManager;
+import net.sf.rails.game.HexSidesSet;
+import net.sf.rails.game.MapHex;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.Station;
+import net.sf.rails.game.TileLays;
+import net.sf.rails.ui.swing.hexmap.GUIHex;
+import net.sf.rails.ui.swing.hexmap.TileHexUpgrade;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.LayTile;
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+/**
+ * Compares the legal tile lays of the engine (see {@link TileLays}) with the valid upgrades
+ * of the user interface (see {@link TileHexUpgrade}) at each step of test games
+ */
+public class TileLaysTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TileLaysTest.class);
+
+    private static final String[] GAMES = {"real/1830_A", "real/1856_A", "real/1889_A", "real/18EU_A",
+            "real/1835_KoIT3", "real/18AL_A", "test/1837_TileLayingCheck-Privates"};
+
+    private static String gamePath;
+
+    @BeforeClass
+    public static void setUpConfiguration() {
+        ConfigManager.initConfiguration(true);
+        gamePath = Config.get("save.directory");
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static String toText(TileLays.Lay lay) {
+        return lay.getHex().getId() + ":" + lay.getTile().getId() + ":" + lay.getRotations();
+    }
+
+    private static String toText(TileHexUpgrade upgrade) {
+        return upgrade.getHex().getHex().getId() + ":" + upgrade.getUpgrade().getTargetTile().getId()
+                + ":" + upgrade.getRotations();
+    }
+
+    private static GUIHex guiHex(MapHex hex) {
+        GUIHex guiHex = mock(GUIHex.class);
+        when(guiHex.getHex()).thenReturn(hex);
+        return guiHex;
+    }
+
+    /**
+     * @return the valid upgrades of the action, as defined by ORUIManager
+     */
+    private static Set<String> getValidUpgrades(RailsRoot root, LayTile action) {
+        Set<TileHexUpgrade> upgrades = Sets.newHashSet();
+        boolean connected = action.getType() == LayTile.GENERIC || action.getType() == LayTile.SPECIAL_PROPERTY
+                && action.getSpecialProperty().requiresConnection();
+        if (action.getType() == LayTile.CORRECTION) {
+            for (MapHex hex:root.getMapManager().getHexes()) {
+                upgrades.addAll(TileHexUpgrade.createCorrection(guiHex(hex), action));
+            }
+        } else if (connected) {
+            NetworkGraph graph = NetworkAdapter.create(root).getRouteGraph(action.getCompany(), true);
+            Map<MapHex, HexSidesSet> mapHexSides = graph.getReachableSides();
+            Multimap<MapHex, Station> mapHexStations = graph.getPassableStations();
+            boolean allLocations = (action.getLocations() == null || action.getLocations().isEmpty());
+            for (MapHex hex:Sets.union(mapHexSides.keySet(), mapHexStations.keySet())) {
+                if (allLocations || action.getLocations().contains(hex)) {
+                    upgrades.addAll(TileHexUpgrade.create(guiHex(hex), mapHexSides.get(hex),
+                            mapHexStations.get(hex), action, GameOption.getValue(root, "RouteAlgorithm")));
+                }
+            }
+        } else if (action.getType() == LayTile.SPECIAL_PROPERTY || action.getType() == LayTile.LOCATION_SPECIFIC) {
+            for (MapHex hex:action.getLocations()) {
+                upgrades.addAll(TileHexUpgrade.createLocated(guiHex(hex), action));
+            }
+        }
+        TileHexUpgrade.validates(upgrades, root.getPhaseManager().getCurrentPhase());
+
+        Set<String> valid = Sets.newTreeSet();
+        for (TileHexUpgrade upgrade:upgrades) {
+            if (upgrade.isValid()) {
+                valid.add(toText(upgrade));
+            }
+        }
+        return valid;
+    }
+
+    @Test
+    public void testLegalLays() {
+        int comparisons = 0, lays = 0;
+        for (String game:GAMES) {
+            File gameFile = new File(gamePath, game + "." + Config.get("save.filename.extension"));
+            GameLoader gameLoader = new GameLoader();
+            assertTrue(game, gameLoader.createStartFromFile(gameFile));
+            RailsRoot root = gameLoader.getRoot();
+            GameManager gameManager = root.getGameManager();
+            gameManager.setReloading(true);
+            gameManager.getCurrentRound().setPossibleActions();
+
+            int index = 0;
+            for (PossibleAction action:gameLoader.getActions()) {
+                for (LayTile layTile:gameManager.getPossibleActions().getType(LayTile.class)) {
+                    Set<String> legal = Sets.newTreeSet();
+                    for (TileLays.Lay lay:TileLays.getLegalLays(root, layTile)) {
+                        legal.add(toText(lay));
+                    }
+                    assertEquals(game + " action " + index + " " + layTile, getValidUpgrades(root, layTile), legal);
+                    comparisons++;
+                    lays += legal.size();
+                }
+                assertTrue(game + " action " + index, gameManager.processOnReload(action));
+                index++;
+            }
+            gameManager.setReloading(false);
+            RailsRoot.clearInstance();
+        }
+        log.info("TileLays: " + comparisons + " tile lay actions with " + lays + " legal lays");
+        assertTrue(lays > 0);
+    }
+
+}
@@ -0,0 +1,37 @@
+package net.sf.rails.ui.swing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+
+import org.junit.Test;
+
+public class ReportWindowTest {
+
+    @Test
+    public void testTrimParagraphs() throws Exception {
+        HTMLEditorKit kit = new HTMLEditorKit();
+        HTMLDocument document = (HTMLDocument) kit.createDefaultDocument();
+        kit.read(new StringReader("<html><p id=1>first</p></html>"), document, 0);
+        Element body = document.getElement(document.getDefaultRootElement(),
+                StyleConstants.NameAttribute, HTML.Tag.BODY);
+
+        for (int id = 2; id <= 5; id++) {
+            document.insertBeforeEnd(body, "<p id=" + id + ">report " + id + "</p>");
+            ReportWindow.trimParagraphs(document, body, 3);
+        }
+        assertEquals(3, body.getElementCount());
+        assertNull(document.getElement("2"));
+        assertNotNull(document.getElement("3"));
+        assertNotNull(document.getElement("5"));
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.sf.rails.ui.swing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TileImageCacheTest {
+
+    private TileImageCache cache;
+
+    @Before
+    public void setUp() {
+        // space for three images of 10 x 10 pixels
+        cache = TileImageCache.create("test", 300);
+    }
+
+    private BufferedImage image(int size) {
+        return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        TileImageCache.Key key = TileImageCache.key("57", 2, 10);
+        assertNull(cache.get(key));
+        BufferedImage image = image(10);
+        cache.put(key, image);
+        assertSame(image, cache.get(TileImageCache.key("57", 2, 10)));
+        assertNull(cache.get(TileImageCache.key("57", 3, 10)));
+        assertNull(cache.get(TileImageCache.key("57", 2, 11)));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(100, cache.getPixels());
+    }
+
+    @Test
+    public void testEviction() {
+        for (int rotation = 0; rotation < 3; rotation++) {
+            cache.put(TileImageCache.key("57", rotation, 10), image(10));
+        }
+        // access the first image, the second is now the least recently used
+        cache.get(TileImageCache.key("57", 0, 10));
+        cache.put(TileImageCache.key("57", 3, 10), image(10));
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.contains(TileImageCache.key("57", 0, 10)));
+        assertFalse(cache.contains(TileImageCache.key("57", 1, 10)));
+
+        // replacing an image does not evict
+        cache.put(TileImageCache.key("57", 0, 10), image(10));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(300, cache.getPixels());
+
+        // too large images are not stored
+        cache.put(TileImageCache.key("8", 0, 20), image(20));
+        assertFalse(cache.contains(TileImageCache.key("8", 0, 20)));
+        assertEquals(3, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getPixels());
+    }
+
+    @Test
+    public void testDefaultPixels() {
+        long megabyte = 1024L * 1024;
+        // 1/16 of the heap
+        assertEquals(512 * megabyte / 16 / 4, TileImageCache.getDefaultPixels(512 * megabyte));
+        assertEquals(TileImageCache.MINIMUM_PIXELS, TileImageCache.getDefaultPixels(64 * megabyte));
+        assertEquals(TileImageCache.MAXIMUM_PIXELS, TileImageCache.getDefaultPixels(Long.MAX_VALUE));
+    }
+
+}